@@ -28,7 +28,11 @@ import edu.wpi.first.wpilibj.RobotBase;
  * constants are needed, to reduce verbosity.
  */
 public final class Constants {
-  public static final Mode currentMode = RobotBase.isReal() ? Mode.REAL : Mode.SIM;
+  // The replay runner sets AKIT_REPLAY to run the simulator build in replay
+  public static final Mode currentMode =
+      RobotBase.isReal()
+          ? Mode.REAL
+          : (System.getenv("AKIT_REPLAY") != null) ? Mode.REPLAY : Mode.SIM;
   public static final Robot currentRobot = Robot.SYNTH;
   public static boolean tuningMode = true;
   public static boolean useDebuggingBindings = false;
@@ -0,0 +1,145 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.subsystems.indexer.Indexer;
+import frc.robot.subsystems.intake.Intake;
+import frc.robot.subsystems.intake.Intake.IntakeSetpoint;
+import frc.robot.subsystems.yoshivator.Yoshivator;
+import frc.robot.subsystems.yoshivator.Yoshivator.YoshivatorSetpoints;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Tracks where the note is from every sensor that can see it. The indexer beam break is trusted
+ * over everything, the intake and Yoshivator rollers report contact from their current and speed
+ * well before the note reaches the beam. A note leaves the robot when the beam clears behind it or
+ * when the rollers holding it spit it back out
+ */
+public class NoteTracker {
+  public static enum NoteLocation {
+    NONE,
+    YOSHI,
+    INTAKE,
+    INDEXER
+  }
+
+  // How long rollers have to spit a note out before it's gone
+  private static final double EJECT_SECS = 0.5;
+
+  private final Intake robotIntake;
+  private final Indexer robotIndexer;
+  private final Yoshivator robotYoshi;
+
+  private NoteLocation location = NoteLocation.NONE;
+  private double locationTimestamp = 0.0;
+  private double contactTimestamp = Double.NaN;
+  private String lastEvent = "";
+
+  private boolean wasIntakeDetected = false;
+  private boolean wasYoshiDetected = false;
+  private long lastBeamBreakCount = 0;
+  private double ejectingSinceSecs = Double.NaN;
+
+  public NoteTracker(Intake intake, Indexer indexer, Yoshivator yoshi) {
+    robotIntake = intake;
+    robotIndexer = indexer;
+    robotYoshi = yoshi;
+  }
+
+  /** Update the location, call once per loop after the subsystems have run */
+  public void periodic() {
+    double timestamp = Timer.getFPGATimestamp();
+
+    boolean intakeDetected = robotIntake.isNoteDetected();
+    boolean yoshiDetected = robotYoshi.isNoteDetected();
+    long beamBreakCount = robotIndexer.getBeamBreakCount();
+
+    if (robotIndexer.isBeamBroken() || beamBreakCount != lastBeamBreakCount) {
+      if (location != NoteLocation.INDEXER) {
+        // The interrupt has the time the note actually got there
+        setLocation(NoteLocation.INDEXER, robotIndexer.getLastBeamBreakTimestamp());
+      }
+    } else if (location == NoteLocation.INDEXER) {
+      // Fed to the launcher or pushed back out, the beam doesn't see which
+      setLocation(NoteLocation.NONE, timestamp);
+    } else if (intakeDetected && !wasIntakeDetected) {
+      setLocation(NoteLocation.INTAKE, timestamp);
+    } else if (yoshiDetected && !wasYoshiDetected && location == NoteLocation.NONE) {
+      setLocation(NoteLocation.YOSHI, timestamp);
+    } else if (isEjecting(timestamp)) {
+      setLocation(NoteLocation.NONE, timestamp);
+    }
+
+    wasIntakeDetected = intakeDetected;
+    wasYoshiDetected = yoshiDetected;
+    lastBeamBreakCount = beamBreakCount;
+
+    Logger.recordOutput("NoteTracker/Location", location.name());
+    Logger.recordOutput("NoteTracker/LocationTimestamp", locationTimestamp);
+    Logger.recordOutput("NoteTracker/LastEvent", lastEvent);
+  }
+
+  /** Whether the rollers holding the note have been spitting it out for long enough */
+  private boolean isEjecting(double timestamp) {
+    boolean ejecting =
+        (location == NoteLocation.INTAKE
+                && robotIntake.getCurrentSetpoint() == IntakeSetpoint.OUT)
+            || (location == NoteLocation.YOSHI
+                && robotYoshi.getCurrentSetpoint() == YoshivatorSetpoints.AMP_SCORE);
+    if (!ejecting) {
+      ejectingSinceSecs = Double.NaN;
+      return false;
+    }
+    if (Double.isNaN(ejectingSinceSecs)) {
+      ejectingSinceSecs = timestamp;
+    }
+    return timestamp - ejectingSinceSecs >= EJECT_SECS;
+  }
+
+  private void setLocation(NoteLocation newLocation, double timestamp) {
+    lastEvent = location + " -> " + newLocation;
+
+    if (location == NoteLocation.NONE) {
+      contactTimestamp = timestamp;
+    } else if (newLocation == NoteLocation.INDEXER && !Double.isNaN(contactTimestamp)) {
+      // From first contact to staged, what the detection latency used to hide
+      Logger.recordOutput("NoteTracker/AcquireSecs", timestamp - contactTimestamp);
+    }
+    if (newLocation == NoteLocation.NONE) {
+      contactTimestamp = Double.NaN;
+    }
+
+    location = newLocation;
+    locationTimestamp = timestamp;
+    ejectingSinceSecs = Double.NaN;
+  }
+
+  /** Forget the note, for when the robot is reset to an empty start */
+  public void reset() {
+    location = NoteLocation.NONE;
+    locationTimestamp = 0.0;
+    contactTimestamp = Double.NaN;
+    lastEvent = "";
+    wasIntakeDetected = false;
+    wasYoshiDetected = false;
+    lastBeamBreakCount = robotIndexer.getBeamBreakCount();
+    ejectingSinceSecs = Double.NaN;
+  }
+
+  public NoteLocation getLocation() {
+    return location;
+  }
+
+  /** Time the note got to where it is */
+  public double getLocationTimestamp() {
+    return locationTimestamp;
+  }
+
+  public boolean hasNote() {
+    return location != NoteLocation.NONE;
+  }
+
+  /** Whether a note is in the robot but not staged yet */
+  public boolean isAcquiring() {
+    return location == NoteLocation.YOSHI || location == NoteLocation.INTAKE;
+  }
+}
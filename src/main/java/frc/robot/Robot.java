@@ -16,7 +16,21 @@ package frc.robot;
 import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystems.drive.SwerveSim;
 import frc.robot.subsystems.shooter.TargetingSystem;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.PhoenixSignalRegistry;
+import frc.robot.utils.debugging.JITWarmup;
+import frc.robot.utils.debugging.JVMTelemetry;
+import frc.robot.utils.debugging.LoopProfiler;
+import frc.robot.utils.debugging.TunableRegistry;
+import frc.robot.utils.io.IOSampler;
+import frc.robot.utils.power.PowerManager;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.telemetry.CompressedLogWriter;
+import frc.robot.utils.telemetry.TelemetryBudget;
+import frc.robot.utils.telemetry.TelemetryBudget.TelemetryClass;
+import frc.robot.utils.telemetry.TelemetryClassifier;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
@@ -31,9 +45,28 @@ import org.littletonrobotics.junction.wpilog.WPILOGWriter;
  * project.
  */
 public class Robot extends LoggedRobot {
+  // Passes over the hot paths before the first match, raise it if the first enabled loops overrun
+  private static final int JIT_WARMUP_ITERATIONS = 3000;
+
   private RobotContainer robotContainer;
+  private JITWarmup jitWarmup;
   private Command autonomousCommand;
 
+  private static final LoopProfiler.Section phoenixRefreshSection =
+      LoopProfiler.getInstance().section("Robot/PhoenixRefresh");
+  private static final LoopProfiler.Section ioSamplerSection =
+      LoopProfiler.getInstance().section("Robot/IOSampler");
+  private static final LoopProfiler.Section schedulerSection =
+      LoopProfiler.getInstance().section("Robot/CommandScheduler");
+  private static final LoopProfiler.Section powerManagerSection =
+      LoopProfiler.getInstance().section("Robot/PowerManager");
+  private static final LoopProfiler.Section noteTrackerSection =
+      LoopProfiler.getInstance().section("Robot/NoteTracker");
+  private static final LoopProfiler.Section visionFuserSection =
+      LoopProfiler.getInstance().section("Robot/VisionFuser");
+  private static final LoopProfiler.Section targetingSection =
+      LoopProfiler.getInstance().section("Robot/TargetingSystem");
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
@@ -62,21 +95,28 @@ public class Robot extends LoggedRobot {
     switch (Constants.currentMode) {
       case REAL:
         // Running on a real robot, log to a USB stick ("/U/logs")
-        Logger.addDataReceiver(new WPILOGWriter());
-        Logger.addDataReceiver(new NT4Publisher());
+        TelemetryClassifier classifier = createTelemetryClassifier();
+        Logger.addDataReceiver(CompressedLogWriter.create("/U/logs", classifier));
+        Logger.addDataReceiver(TelemetryBudget.wrap(new NT4Publisher(), classifier));
         break;
 
       case SIM:
         // Running a physics simulator, log to NT
-        Logger.addDataReceiver(new NT4Publisher());
+        Logger.addDataReceiver(
+            TelemetryBudget.wrap(new NT4Publisher(), createTelemetryClassifier()));
         break;
 
       case REPLAY:
         // Replaying a log, set up replay source
         setUseTiming(false); // Run as fast as possible
-        String logPath = LogFileUtil.findReplayLog();
+        // Logs the robot rotated out are gzipped, the reader needs them plain
+        String logPath = CompressedLogWriter.getPlainLog(LogFileUtil.findReplayLog());
         Logger.setReplaySource(new WPILOGReader(logPath));
-        Logger.addDataReceiver(new WPILOGWriter(LogFileUtil.addPathSuffix(logPath, "_sim")));
+        // The replay runner picks where each output goes so parallel replays don't collide
+        String outputPath = System.getenv("AKIT_REPLAY_OUTPUT");
+        Logger.addDataReceiver(
+            new WPILOGWriter(
+                (outputPath != null) ? outputPath : LogFileUtil.addPathSuffix(logPath, "_sim")));
         break;
     }
 
@@ -87,6 +127,7 @@ public class Robot extends LoggedRobot {
     Logger.start();
 
     robotContainer = new RobotContainer();
+    jitWarmup = new JITWarmup(JIT_WARMUP_ITERATIONS);
 
     robotContainer.reset();
 
@@ -97,10 +138,91 @@ public class Robot extends LoggedRobot {
   /** This function is called periodically during all modes. */
   @Override
   public void robotPeriodic() {
+    LoopProfiler.getInstance().startCycle();
+
+    runCycle(robotContainer);
+
+    if (TelemetryBudget.getInstance() != null) {
+      TelemetryBudget.getInstance().periodic();
+    }
+    if (CompressedLogWriter.getInstance() != null) {
+      CompressedLogWriter.getInstance().periodic();
+    }
+
+    LoopProfiler.getInstance().endCycle();
+    JVMTelemetry.getInstance().periodic(LoopProfiler.getInstance().didLastCycleOverrun());
+  }
+
+  /**
+   * Everything the robot code does in one cycle. Also called by the AutoSimHarness, so it steps the
+   * same code the robot runs
+   */
+  public static void runCycle(RobotContainer robotContainer) {
+    // Dashboard inputs were just read by the logger, pick up any tunable edits before they're used
+    TunableRegistry.getInstance().periodic();
+
+    // Batched CAN refresh so every IO reads signals from the same instant
+    phoenixRefreshSection.start();
+    PhoenixSignalRegistry.getInstance().refreshAll();
+    phoenixRefreshSection.stop();
+
+    // Every IO is sampled and logged before any subsystem logic runs
+    ioSamplerSection.start();
+    IOSampler.getInstance().sampleAll();
+    ioSamplerSection.stop();
+
+    CANBudget.getInstance().periodic();
+
+    schedulerSection.start();
     CommandScheduler.getInstance().run();
+    schedulerSection.stop();
+
+    // After the subsystem periodics have sent the setpoints to the IOs
+    robotContainer.getStateMachine().logTransitionLatency();
 
+    // Reads the roller detectors the subsystems just updated
+    noteTrackerSection.start();
+    robotContainer.getNoteTracker().periodic();
+    noteTrackerSection.stop();
+
+    // After the scheduler so priorities follow the states commands just set
+    powerManagerSection.start();
+    PowerManager.getInstance().periodic();
+    powerManagerSection.stop();
+
+    visionFuserSection.start();
     robotContainer.getVisionFuser().periodic();
+    visionFuserSection.stop();
+
+    targetingSection.start();
     TargetingSystem.getInstance().logAllData();
+    targetingSection.stop();
+  }
+
+  /**
+   * Telemetry class of each key. NT only gets each key at the rate of its class, and the log file
+   * gets everything every loop unless it falls behind. Unlisted keys are diagnostic
+   */
+  private static TelemetryClassifier createTelemetryClassifier() {
+    return new TelemetryClassifier()
+        .declare("DriverStation", TelemetryClass.CRITICAL)
+        .declare("StateMachine", TelemetryClass.CRITICAL)
+        .declare("Drive/Odometry", TelemetryClass.CRITICAL)
+        .declare("Shooter/ReadyToFeed", TelemetryClass.CRITICAL)
+        .declare("LoopProfiler/OverrunCount", TelemetryClass.CRITICAL)
+        .declare("Drive/HeadingController", TelemetryClass.DEBUG)
+        .declare("Shooter/LauncherTop", TelemetryClass.DEBUG)
+        .declare("Shooter/LauncherBottom", TelemetryClass.DEBUG)
+        .declare("Shooter/Angler/Feedback", TelemetryClass.DEBUG)
+        .declare("Shooter/Angler/Feedforward", TelemetryClass.DEBUG)
+        .declare("Shooter/Angler/CombinedOutput", TelemetryClass.DEBUG)
+        .declare("LoopProfiler", TelemetryClass.DEBUG)
+        .declare("IOSampler", TelemetryClass.DEBUG)
+        .declare("JVM", TelemetryClass.DEBUG)
+        .declare("JITWarmup", TelemetryClass.DEBUG)
+        .declare("CANBus", TelemetryClass.DEBUG)
+        .declare("Telemetry", TelemetryClass.DEBUG)
+        .declare("LogWriter", TelemetryClass.DEBUG);
   }
 
   /** This function is called once when autonomous is enabled. */
@@ -140,7 +262,9 @@ public class Robot extends LoggedRobot {
 
   /** This function is called periodically when disabled. */
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    jitWarmup.periodic();
+  }
 
   /** This function is called once when test mode is enabled. */
   @Override
@@ -158,5 +282,8 @@ public class Robot extends LoggedRobot {
 
   /** This function is called periodically whilst in simulation. */
   @Override
-  public void simulationPeriodic() {}
+  public void simulationPeriodic() {
+    SwerveSim.getInstance().update();
+    SimBattery.getInstance().update();
+  }
 }
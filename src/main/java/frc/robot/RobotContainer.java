@@ -12,12 +12,15 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.NoteTracker.NoteLocation;
+import frc.robot.RobotStates.ClimbStates;
 import frc.robot.RobotStates.IndexerStates;
 import frc.robot.RobotStates.IntakeStates;
 import frc.robot.RobotStates.ShooterStates;
@@ -29,9 +32,11 @@ import frc.robot.subsystems.climb.ClimbIOSparkMax;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.drive.GyroIO;
 import frc.robot.subsystems.drive.GyroIOPigeon2;
+import frc.robot.subsystems.drive.GyroIOSim;
 import frc.robot.subsystems.drive.ModuleIO;
 import frc.robot.subsystems.drive.ModuleIOSim;
 import frc.robot.subsystems.drive.ModuleIOSparkMax;
+import frc.robot.subsystems.drive.SwerveSim;
 import frc.robot.subsystems.indexer.Indexer;
 import frc.robot.subsystems.indexer.IndexerIO;
 import frc.robot.subsystems.indexer.IndexerIOSim;
@@ -43,9 +48,11 @@ import frc.robot.subsystems.intake.IntakeIOSparkMax;
 import frc.robot.subsystems.leds.LEDSubsystem;
 import frc.robot.subsystems.shooter.Shooter;
 import frc.robot.subsystems.shooter.TargetingSystem;
+import frc.robot.subsystems.shooter.angler.Angler;
 import frc.robot.subsystems.shooter.angler.AnglerIO;
 import frc.robot.subsystems.shooter.angler.AnglerIOSim;
 import frc.robot.subsystems.shooter.angler.AnglerIOSparkMax;
+import frc.robot.subsystems.shooter.launcher.Launcher;
 import frc.robot.subsystems.shooter.launcher.LauncherIO;
 import frc.robot.subsystems.shooter.launcher.LauncherIOSim;
 import frc.robot.subsystems.shooter.launcher.LauncherIOTalonFX;
@@ -54,6 +61,8 @@ import frc.robot.subsystems.vision.VisionIO;
 import frc.robot.subsystems.vision.VisionIOPhoton;
 import frc.robot.subsystems.vision.VisionIOPhotonSim;
 import frc.robot.utils.commands.CommandUtils;
+import frc.robot.utils.power.PowerManager;
+import frc.robot.utils.power.PowerManager.Priority;
 import java.util.Optional;
 import org.littletonrobotics.junction.networktables.LoggedDashboardChooser;
 import frc.robot.subsystems.yoshivator.Yoshivator;
@@ -73,6 +82,7 @@ public class RobotContainer {
   private LEDSubsystem robotLEDs;
 
   private VisionFuser visionFuser;
+  private NoteTracker noteTracker;
   private StateMachine robotStateMachine;
 
   private CommandXboxController pilotController = new CommandXboxController(0);
@@ -83,7 +93,10 @@ public class RobotContainer {
   public RobotContainer() {
     initializeSubsystems();
 
-    robotStateMachine = new StateMachine(robotShooter, robotIntake, robotIndexer, robotClimb, robotYoshi);
+    noteTracker = new NoteTracker(robotIntake, robotIndexer, robotYoshi);
+    robotStateMachine =
+        new StateMachine(
+            robotShooter, robotIntake, robotIndexer, robotClimb, robotYoshi, noteTracker);
 
     configureAutonomous();
 
@@ -104,6 +117,7 @@ public class RobotContainer {
     }
 
     configureTriggers();
+    configurePowerBudget();
 
     // Use assisted control by default
     configureButtonBindings();
@@ -154,7 +168,7 @@ public class RobotContainer {
                 new ModuleIOSim(1),
                 new ModuleIOSim(2),
                 new ModuleIOSim(3),
-                new GyroIO() {});
+                new GyroIOSim());
         robotIntake = new Intake(new IntakeIOSim());
         robotShooter = new Shooter(new AnglerIOSim(), new LauncherIOSim());
         robotClimb = new Climb(new ClimbIOSim());
@@ -172,7 +186,7 @@ public class RobotContainer {
                         new Rotation3d(
                             Math.toRadians(13.2), Math.toRadians(0), Math.toRadians(25.2))),
                     0.1,
-                    () -> robotDrive.getOdometryPose()),
+                    () -> SwerveSim.getInstance().getPose()),
                 new VisionIOPhotonSim(
                     "LLRight",
                     new Transform3d(
@@ -182,7 +196,7 @@ public class RobotContainer {
                         new Rotation3d(
                             Math.toRadians(13.2), Math.toRadians(0), Math.toRadians(25.5))),
                     0.1,
-                    () -> robotDrive.getOdometryPose()));
+                    () -> SwerveSim.getInstance().getPose()));
         break;
       default:
         robotDrive =
@@ -229,7 +243,8 @@ public class RobotContainer {
         "Shoot",
         new SequentialCommandGroup(
             robotStateMachine.getShooterCommand(ShooterStates.AIM_AUTON),
-            new WaitCommand(1.3),
+            // Feed as soon as the shooter will be ready, capped at the old fixed wait
+            Commands.waitUntil(robotShooter::readyToFeed).withTimeout(1.3),
             robotStateMachine.getIndexerCommand(IndexerStates.INDEX)));
 
     NamedCommands.registerCommand(
@@ -242,18 +257,18 @@ public class RobotContainer {
                     robotStateMachine.getIntakeCommand(IntakeStates.INTAKE))));
 
     NamedCommands.registerCommand(
-        "ShootIdle", robotStateMachine.getShooterCommand(ShooterStates.IDLE));
+        "ShootIdle", robotStateMachine.getShooterTransition(ShooterStates.IDLE));
 
     NamedCommands.registerCommand(
-        "IntakeOn", robotStateMachine.getIntakeCommand(IntakeStates.INTAKE));
+        "IntakeOn", robotStateMachine.getIntakeTransition(IntakeStates.INTAKE));
 
     NamedCommands.registerCommand("SpeakerShot", new SequentialCommandGroup(
       robotStateMachine.getShooterCommand(ShooterStates.SPEAKER).withTimeout(1.0),
       robotStateMachine.getIndexerCommand(IndexerStates.INDEX)));
 
-    NamedCommands.registerCommand("DeployYoshi", robotStateMachine.getYoshiCommand(YoshiStates.GROUND_INTAKE));
+    NamedCommands.registerCommand("DeployYoshi", robotStateMachine.getYoshiTransition(YoshiStates.GROUND_INTAKE));
 
-    NamedCommands.registerCommand("UnDeployYoshi", robotStateMachine.getYoshiCommand(YoshiStates.IDLE));
+    NamedCommands.registerCommand("UnDeployYoshi", robotStateMachine.getYoshiTransition(YoshiStates.IDLE));
   }
 
   private void configureTriggers() {
@@ -265,14 +280,95 @@ public class RobotContainer {
         .onTrue(new InstantCommand(() -> robotLEDs.setReadyColor()))
         .onFalse(
             new InstantCommand(
-                () -> {
-                  if (robotIndexer.isBeamBroken()) robotLEDs.setHasPiece();
-                  else robotLEDs.setDefaultColor();
-                }));
-
-    new Trigger(() -> robotIndexer.isBeamBroken())
-        .onTrue(new InstantCommand(() -> robotLEDs.setHasPiece()))
-        .onFalse(new InstantCommand(() -> robotLEDs.setDefaultColor()));
+                () -> showNoteLocation()));
+
+    for (NoteLocation location : NoteLocation.values()) {
+      new Trigger(() -> noteTracker.getLocation() == location)
+          .onTrue(new InstantCommand(() -> showNoteLocation()));
+    }
+  }
+
+  private void showNoteLocation() {
+    if (noteTracker.getLocation() == NoteLocation.INDEXER) robotLEDs.setHasPiece();
+    else if (noteTracker.isAcquiring()) robotLEDs.setAcquiringPiece();
+    else robotLEDs.setDefaultColor();
+  }
+
+  /**
+   * Register each subsystem's current limits with the PowerManager. Maxes are what the IOs
+   * configure, a shot spinning up takes current from the drive and a climb from the intake. The
+   * floors add up to 125 A, what a worn battery still supplies before sagging to 8 V
+   */
+  private void configurePowerBudget() {
+    PowerManager powerManager = PowerManager.getInstance();
+    Launcher launcher = robotShooter.getLauncher();
+    Angler angler = robotShooter.getAngler();
+
+    powerManager.register(
+        "Drive",
+        4,
+        15.0,
+        40.0,
+        () -> launcher.isSpinningUp() ? Priority.NORMAL : Priority.HIGH,
+        robotDrive::getDriveSupplyCurrentAmps,
+        robotDrive::setDriveCurrentLimit);
+    powerManager.register(
+        "Launcher",
+        2,
+        15.0,
+        40.0,
+        () -> {
+          if (launcher.isSpinningUp()) return Priority.CRITICAL;
+          return launcher.hasSetpoint() ? Priority.NORMAL : Priority.IDLE;
+        },
+        launcher::getSupplyCurrentAmps,
+        launcher::setCurrentLimit);
+    powerManager.register(
+        "Angler",
+        1,
+        10.0,
+        60.0,
+        () -> Priority.HIGH,
+        angler::getSupplyCurrentAmps,
+        angler::setCurrentLimit);
+    powerManager.register(
+        "Indexer",
+        1,
+        10.0,
+        30.0,
+        () -> {
+          IndexerStates state = robotStateMachine.getIndexerState();
+          if (state == IndexerStates.INDEX) return Priority.HIGH;
+          return (state == IndexerStates.OFF) ? Priority.IDLE : Priority.NORMAL;
+        },
+        robotIndexer::getSupplyCurrentAmps,
+        robotIndexer::setCurrentLimit);
+    powerManager.register(
+        "Intake",
+        1,
+        5.0,
+        30.0,
+        () -> {
+          if (isClimbing()) return Priority.LOW;
+          return (robotStateMachine.getIntakeState() == IntakeStates.OFF)
+              ? Priority.IDLE
+              : Priority.NORMAL;
+        },
+        robotIntake::getSupplyCurrentAmps,
+        robotIntake::setCurrentLimit);
+    powerManager.register(
+        "Climb",
+        2,
+        5.0,
+        40.0,
+        () -> isClimbing() ? Priority.CRITICAL : Priority.IDLE,
+        robotClimb::getSupplyCurrentAmps,
+        robotClimb::setCurrentLimit);
+  }
+
+  private boolean isClimbing() {
+    ClimbStates state = robotStateMachine.getClimbState();
+    return state != ClimbStates.OFF && state != ClimbStates.IDLE;
   }
 
   /** Configure controllers */
@@ -346,16 +442,17 @@ public class RobotContainer {
       /* Reset gyro */
       pilotController.y().onTrue(SwerveCommands.resetGyro(robotDrive));
 
-      /* Auto heading to speaker */
+      /* Auto heading to speaker, still driving with the left stick */
       pilotController
           .a()
           .whileTrue(
-              SwerveCommands.setHeading(
+              SwerveCommands.aimWhileDriving(
                   robotDrive,
-                  () -> 0.0,
-                  () -> 0.0,
-                  () -> TargetingSystem.getInstance().getOptimalLaunchHeading()))
-          .onFalse(SwerveCommands.stopDrive(robotDrive));
+                  () -> -pilotController.getLeftY(),
+                  () -> -pilotController.getLeftX(),
+                  () -> TargetingSystem.getInstance().getOptimalLaunchHeading(),
+                  () -> TargetingSystem.getInstance().getOptimalLaunchHeadingVelocity(),
+                  () -> TargetingSystem.getInstance().getAimToleranceRad()));
 
         // pilotController
         //     .b()
@@ -420,7 +517,9 @@ public class RobotContainer {
 
       copilotController
           .leftBumper()
-          .whileTrue(robotStateMachine.shootNote())
+          .whileTrue(
+              robotStateMachine.shootNoteOnTheMove(
+                  SwerveCommands::isAiming, SwerveCommands::isAtYawGoal))
           .onFalse(robotStateMachine.stopShooting());
 
       copilotController
@@ -450,10 +549,26 @@ public class RobotContainer {
     return autoChooser.get();
   }
 
+  public NoteTracker getNoteTracker() {
+    return noteTracker;
+  }
+
   public VisionFuser getVisionFuser() {
     return visionFuser;
   }
 
+  public Drive getDrive() {
+    return robotDrive;
+  }
+
+  public Shooter getShooter() {
+    return robotShooter;
+  }
+
+  public StateMachine getStateMachine() {
+    return robotStateMachine;
+  }
+
   public Optional<Rotation2d> getRotationTargetOverride() {
     if (robotDrive.getPPRotationTargetOverride()) {
       return Optional.of(TargetingSystem.getInstance().getOptimalLaunchHeading());
@@ -49,6 +49,7 @@ public class RobotStates {
     FEEDER,
     REV_AMP,
     SHOOT_AMP,
+    AIM_AMP,
     AIM_AUTON,
     INTAKE_AUTON
   }
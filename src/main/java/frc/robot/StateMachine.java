@@ -1,10 +1,9 @@
 package frc.robot;
 
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
-import edu.wpi.first.wpilibj2.command.SelectCommand;
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import edu.wpi.first.wpilibj2.command.Subsystem;
 import frc.robot.RobotStates.ClimbStates;
 import frc.robot.RobotStates.IndexerStates;
 import frc.robot.RobotStates.IntakeStates;
@@ -19,9 +18,20 @@ import frc.robot.subsystems.shooter.Shooter;
 import frc.robot.subsystems.shooter.Shooter.AnglerSetpoints;
 import frc.robot.subsystems.shooter.Shooter.LauncherSetpoints;
 import frc.robot.utils.commands.CommandUtils;
+import frc.robot.utils.commands.StateTransitionCommand;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import org.littletonrobotics.junction.AutoLogOutput;
+import org.littletonrobotics.junction.Logger;
 import frc.robot.subsystems.yoshivator.Yoshivator;
 import frc.robot.RobotStates.YoshiStates;
+import frc.robot.NoteTracker.NoteLocation;
+import frc.robot.SuperstructurePlanner.Joint;
 import frc.robot.subsystems.yoshivator.Yoshivator.YoshivatorSetpoints;
 
 public class StateMachine {
@@ -30,6 +40,7 @@ public class StateMachine {
   private Indexer robotIndexer;
   private Climb robotClimb;
   private Yoshivator robotYoshi;
+  private NoteTracker noteTracker;
 
   private ShooterStates shooterState;
   private IntakeStates intakeState;
@@ -37,19 +48,45 @@ public class StateMachine {
   private ClimbStates climbState;
   private YoshiStates yoshiState;
 
-  private SelectCommand<ShooterStates> shooterCommands;
-  private SelectCommand<IntakeStates> intakeCommands;
-  private SelectCommand<IndexerStates> indexerCommands;
-  private SelectCommand<ClimbStates> climbCommands;
-  private SelectCommand<YoshiStates> yoshiCommands;
+  private EnumMap<ShooterStates, Command> shooterTransitions;
+  private EnumMap<IntakeStates, Command> intakeTransitions;
+  private EnumMap<IndexerStates, Command> indexerTransitions;
+  private EnumMap<ClimbStates, Command> climbTransitions;
+  private EnumMap<YoshiStates, Command> yoshiTransitions;
+
+  // When each subsystem last started a transition its periodic hasn't applied yet, -1 when none
+  private static final int SHOOTER = 0;
+  private static final int INTAKE = 1;
+  private static final int INDEXER = 2;
+  private static final int CLIMB = 3;
+  private static final int YOSHI = 4;
+  private static final String[] LATENCY_KEYS = {
+    "StateMachine/TransitionLatencyMS/Shooter",
+    "StateMachine/TransitionLatencyMS/Intake",
+    "StateMachine/TransitionLatencyMS/Indexer",
+    "StateMachine/TransitionLatencyMS/Climb",
+    "StateMachine/TransitionLatencyMS/Yoshi"
+  };
+  private final long[] transitionStartUS = {-1, -1, -1, -1, -1};
+  // Cycle each transition started in, its setpoint is applied by the next cycle's periodic
+  private final long[] transitionCycle = new long[5];
+  private long cycle = 0;
+
+  private SuperstructurePlanner planner;
 
   public StateMachine(
-      Shooter robotShooter, Intake robotIntake, Indexer robotIndexer, Climb robotClimb, Yoshivator robotYoshi) {
+      Shooter robotShooter,
+      Intake robotIntake,
+      Indexer robotIndexer,
+      Climb robotClimb,
+      Yoshivator robotYoshi,
+      NoteTracker noteTracker) {
     this.robotShooter = robotShooter;
     this.robotIntake = robotIntake;
     this.robotIndexer = robotIndexer;
     this.robotClimb = robotClimb;
     this.robotYoshi = robotYoshi;
+    this.noteTracker = noteTracker;
 
     shooterState = ShooterStates.IDLE;
     intakeState = IntakeStates.OFF;
@@ -57,20 +94,51 @@ public class StateMachine {
     climbState = ClimbStates.OFF;
     yoshiState = YoshiStates.IDLE;
 
-    shooterCommands =
-        new SelectCommand<ShooterStates>(this.robotShooter.mapToCommand(), () -> shooterState);
-
-    intakeCommands =
-        new SelectCommand<IntakeStates>(this.robotIntake.mapToCommand(), () -> intakeState);
-
-    indexerCommands =
-        new SelectCommand<IndexerStates>(this.robotIndexer.mapToCommand(), () -> indexerState);
-
-    climbCommands =
-        new SelectCommand<ClimbStates>(this.robotClimb.mapToCommand(), () -> climbState);
-
-    yoshiCommands =
-        new SelectCommand<YoshiStates>(this.robotYoshi.mapToCommand(yoshiState), () -> yoshiState);
+    shooterTransitions =
+        buildTransitions(
+            ShooterStates.class,
+            this.robotShooter.mapToCommand(),
+            (state) -> shooterState = state,
+            SHOOTER,
+            "StateMachine/ShooterCommand/");
+
+    intakeTransitions =
+        buildTransitions(
+            IntakeStates.class,
+            this.robotIntake.mapToCommand(),
+            (state) -> intakeState = state,
+            INTAKE,
+            "StateMachine/IntakeCommand/");
+
+    indexerTransitions =
+        buildTransitions(
+            IndexerStates.class,
+            this.robotIndexer.mapToCommand(),
+            (state) -> indexerState = state,
+            INDEXER,
+            "StateMachine/IndexerCommand/");
+
+    climbTransitions =
+        buildTransitions(
+            ClimbStates.class,
+            this.robotClimb.mapToCommand(),
+            (state) -> climbState = state,
+            CLIMB,
+            "StateMachine/ClimbCommand/");
+
+    yoshiTransitions =
+        buildTransitions(
+            YoshiStates.class,
+            this.robotYoshi.mapToCommand(yoshiState),
+            (state) -> yoshiState = state,
+            YOSHI,
+            "StateMachine/YoshiCommand/");
+
+    planner =
+        new SuperstructurePlanner(
+            robotShooter.getAngler()::getAnglerDegrees,
+            robotYoshi::getPivotDegrees,
+            robotClimb::getArmDegrees);
 
     robotShooter.setShooterState(AnglerSetpoints.AIM, LauncherSetpoints.IDLE);
     robotIntake.setCurrentSetpoint(IntakeSetpoint.OFF);
@@ -79,54 +147,150 @@ public class StateMachine {
     robotYoshi.setYoshiSetpoint(YoshivatorSetpoints.IDLE);
   }
 
+  /**
+   * Build the transition to every state of a subsystem once. Each requires everything any of the
+   * subsystem's state commands do, so a transition interrupts any other transition of the subsystem
+   */
+  private <S extends Enum<S>> EnumMap<S, Command> buildTransitions(
+      Class<S> states,
+      Map<S, Command> stateCommands,
+      Consumer<S> setState,
+      int subsystem,
+      String namePrefix) {
+    Set<Subsystem> requirements = new HashSet<>();
+    for (Command command : stateCommands.values()) {
+      requirements.addAll(command.getRequirements());
+    }
+
+    EnumMap<S, Command> transitions = new EnumMap<>(states);
+    for (S state : states.getEnumConstants()) {
+      transitions.put(
+          state,
+          new StateTransitionCommand(
+              () -> {
+                transitionStartUS[subsystem] = Logger.getRealTimestamp();
+                transitionCycle[subsystem] = cycle;
+                setState.accept(state);
+              },
+              stateCommands.getOrDefault(state, Commands.none()),
+              requirements,
+              namePrefix + state));
+    }
+    return transitions;
+  }
+
+  /**
+   * Transition to a shooter state. Returns the prebuilt transition, schedule it, bind it to a
+   * trigger or register it with PathPlanner, which wraps named commands. Use getShooterCommand()
+   * to put a transition in a composition
+   */
+  public Command getShooterTransition(ShooterStates state) {
+    return shooterTransitions.get(state);
+  }
+
+  public Command getIntakeTransition(IntakeStates state) {
+    return intakeTransitions.get(state);
+  }
+
+  public Command getIndexerTransition(IndexerStates state) {
+    return indexerTransitions.get(state);
+  }
+
+  public Command getClimbTransition(ClimbStates state) {
+    return climbTransitions.get(state);
+  }
+
+  public Command getYoshiTransition(YoshiStates state) {
+    return yoshiTransitions.get(state);
+  }
+
+  /** Wrap the prebuilt transition so it can be composed, a command can only be composed once */
   public Command getShooterCommand(ShooterStates state) {
-    return new SequentialCommandGroup(
-            new InstantCommand(() -> shooterState = state),
-            CommandUtils.copyCommand(shooterCommands))
-        .withName("StateMachince/ShooterCommand/" + shooterState);
+    return CommandUtils.copyCommand(shooterTransitions.get(state));
   }
 
   public Command getIntakeCommand(IntakeStates state) {
-    return new SequentialCommandGroup(
-            new InstantCommand(() -> intakeState = state), CommandUtils.copyCommand(intakeCommands))
-        .withName("StateMachince/IntakeCommand/" + intakeState);
+    return CommandUtils.copyCommand(intakeTransitions.get(state));
   }
 
   public Command getIndexerCommand(IndexerStates state) {
-    return new SequentialCommandGroup(
-            new InstantCommand(() -> indexerState = state),
-            CommandUtils.copyCommand(indexerCommands))
-        .withName("StateMachince/IndexerCommand/" + indexerState);
+    return CommandUtils.copyCommand(indexerTransitions.get(state));
   }
 
   public Command getClimbCommand(ClimbStates state) {
-    return new SequentialCommandGroup(
-            new InstantCommand(() -> climbState = state), CommandUtils.copyCommand(climbCommands))
-        .withName("StateMachince/ClimbCommand/" + climbState);
+    return CommandUtils.copyCommand(climbTransitions.get(state));
   }
 
   public Command getYoshiCommand(YoshiStates state) {
-    return new SequentialCommandGroup(
-            new InstantCommand(() -> yoshiState = state), CommandUtils.copyCommand(yoshiCommands))
-        .withName("StateMachince/YoshiCommand/" + yoshiState);
+    return CommandUtils.copyCommand(yoshiTransitions.get(state));
+  }
+
+  /**
+   * Log how long each transition took to reach the motors. Call once per cycle after the scheduler
+   * runs. Subsystem periodics run at the start of the scheduler, so a transition is only logged
+   * once the periodic of a later cycle has applied its setpoint
+   */
+  public void logTransitionLatency() {
+    long nowUS = Logger.getRealTimestamp();
+    for (int i = 0; i < transitionStartUS.length; i++) {
+      if (transitionStartUS[i] >= 0 && transitionCycle[i] < cycle) {
+        Logger.recordOutput(LATENCY_KEYS[i], (nowUS - transitionStartUS[i]) / 1000.0);
+        transitionStartUS[i] = -1;
+      }
+    }
+    cycle++;
+  }
+
+  /**
+   * Stop every mechanism, clear its setpoints and go back to the starting states. Cancel any
+   * running commands first, used by the sim harness so every auto starts from the same state
+   */
+  public void reset() {
+    robotShooter.stopMotors(true, true);
+    robotIntake.stopManualMotor();
+    robotIndexer.stopManualMotor();
+    robotClimb.stopMotors();
+    robotClimb.clearSetpoints();
+    robotYoshi.setManualPivotVolts(0.0);
+    robotYoshi.setManualRollerVolts(0.0);
+    noteTracker.reset();
+
+    shooterState = ShooterStates.IDLE;
+    intakeState = IntakeStates.OFF;
+    indexerState = IndexerStates.OFF;
+    climbState = ClimbStates.OFF;
+    yoshiState = YoshiStates.IDLE;
+    Arrays.fill(transitionStartUS, -1);
   }
 
   public Command intakeNote() {
-    return new ParallelCommandGroup(
-        getShooterCommand(ShooterStates.INTAKE),
-        getIntakeCommand(IntakeStates.INTAKE),
-        getIndexerCommand(IndexerStates.STOW),
-        getClimbCommand(ClimbStates.IDLE));
-        // getYoshiCommand(YoshiStates.GROUND_INTAKE));
+    return planner
+        .goal("IntakeNote")
+        .move(
+            Joint.ANGLER,
+            () -> AnglerSetpoints.INTAKE.getAngle().get().getDegrees(),
+            getShooterTransition(ShooterStates.INTAKE))
+        .run(getIntakeTransition(IntakeStates.INTAKE))
+        .run(getIndexerTransition(IndexerStates.STOW))
+        .run(getClimbTransition(ClimbStates.IDLE))
+        .build();
   }
 
   public Command yoshiIntakeNote() {
-    return new ParallelCommandGroup(
-        getShooterCommand(ShooterStates.INTAKE),
-        getIntakeCommand(IntakeStates.INTAKE),
-        getIndexerCommand(IndexerStates.STOW),
-        getClimbCommand(ClimbStates.IDLE),
-        getYoshiCommand(YoshiStates.GROUND_INTAKE));
+    return planner
+        .goal("YoshiIntakeNote")
+        .move(
+            Joint.ANGLER,
+            () -> AnglerSetpoints.INTAKE.getAngle().get().getDegrees(),
+            getShooterTransition(ShooterStates.INTAKE))
+        .move(
+            Joint.YOSHI_PIVOT,
+            () -> YoshivatorSetpoints.GROUND_INTAKE.getPivotRotation().get().getDegrees(),
+            getYoshiTransition(YoshiStates.GROUND_INTAKE))
+        .run(getIntakeTransition(IntakeStates.INTAKE))
+        .run(getIndexerTransition(IndexerStates.STOW))
+        .run(getClimbTransition(ClimbStates.IDLE))
+        .build();
   }
 
   public Command outtakeNote() {
@@ -137,11 +301,16 @@ public class StateMachine {
   }
 
   public Command stopTakeNote() {
-    return new ParallelCommandGroup(
-        getIntakeCommand(IntakeStates.OFF),
-        getIndexerCommand(IndexerStates.OFF),
-        getShooterCommand(ShooterStates.OFF),
-        getYoshiCommand(YoshiStates.IDLE));
+    return planner
+        .goal("StopTakeNote")
+        .move(
+            Joint.YOSHI_PIVOT,
+            () -> YoshivatorSetpoints.IDLE.getPivotRotation().get().getDegrees(),
+            getYoshiTransition(YoshiStates.IDLE))
+        .run(getIntakeTransition(IntakeStates.OFF))
+        .run(getIndexerTransition(IndexerStates.OFF))
+        .run(getShooterTransition(ShooterStates.OFF))
+        .build();
   }
 
   public Command podiumShot() {
@@ -170,6 +339,18 @@ public class StateMachine {
         getIntakeCommand(IntakeStates.INTAKE));
   }
 
+  /**
+   * Feeds once the shooter is ready and, while the pilot is aiming on the move, once the heading
+   * has locked. Feeds right away when the pilot isn't aiming, like shootNote()
+   */
+  public Command shootNoteOnTheMove(BooleanSupplier isAiming, BooleanSupplier isAimLocked) {
+    return Commands.waitUntil(
+            () ->
+                !isAiming.getAsBoolean()
+                    || (robotShooter.readyToFeed() && isAimLocked.getAsBoolean()))
+        .andThen(shootNote());
+  }
+
   public Command revUp() {
     return new ParallelCommandGroup(getShooterCommand(ShooterStates.FIRE));
   }
@@ -199,14 +380,33 @@ public class StateMachine {
     return new ParallelCommandGroup(getShooterCommand(ShooterStates.IDLE));
   }
 
+  /** Raises the arms, they wait for the angler to drop out of their way */
   public Command climbDown() {
-    return new ParallelCommandGroup(
-        getClimbCommand(ClimbStates.MOVE_BOTH_UP), getShooterCommand(ShooterStates.CLIMB));
+    return planner
+        .goal("ClimbDown")
+        .move(
+            Joint.ANGLER,
+            () -> AnglerSetpoints.CLIMB.getAngle().get().getDegrees(),
+            getShooterTransition(ShooterStates.CLIMB))
+        .move(
+            Joint.CLIMB_ARMS,
+            Joint.CLIMB_ARMS::getMaxDegrees,
+            getClimbTransition(ClimbStates.MOVE_BOTH_UP))
+        .build();
   }
 
   public Command climbUp() {
-    return new ParallelCommandGroup(
-        getClimbCommand(ClimbStates.MOVE_BOTH_DOWN), getShooterCommand(ShooterStates.CLIMB));
+    return planner
+        .goal("ClimbUp")
+        .move(
+            Joint.ANGLER,
+            () -> AnglerSetpoints.CLIMB.getAngle().get().getDegrees(),
+            getShooterTransition(ShooterStates.CLIMB))
+        .move(
+            Joint.CLIMB_ARMS,
+            Joint.CLIMB_ARMS::getMinDegrees,
+            getClimbTransition(ClimbStates.MOVE_BOTH_DOWN))
+        .build();
   }
 
   public Command stopClimb() {
@@ -222,9 +422,29 @@ public class StateMachine {
     return getShooterCommand(ShooterStates.REV_AMP);
   }
 
+  /**
+   * Revs for the amp if it isn't already and feeds the moment the shooter is ready, rather than
+   * when the driver sees it is
+   */
   public Command scoreAmp() {
-    return getShooterCommand(ShooterStates.SHOOT_AMP).andThen(new ParallelCommandGroup(
-      getIndexerCommand(IndexerStates.AMP), getIntakeCommand(IntakeStates.AMP)));
+    // AIM_AMP ends once the angler is on target, which readyToFeed also checks, so the feed and
+    // SHOOT_AMP only start after the angler transition is done with the shooter
+    BooleanSupplier readyToFeedAmp =
+        () -> shooterState == ShooterStates.AIM_AMP && robotShooter.readyToFeed();
+    return planner
+        .goal("ScoreAmp")
+        .move(
+            Joint.ANGLER,
+            () -> AnglerSetpoints.AMP.getAngle().get().getDegrees(),
+            getShooterTransition(ShooterStates.AIM_AMP))
+        .runWhen(readyToFeedAmp, getIndexerTransition(IndexerStates.AMP))
+        .runWhen(readyToFeedAmp, getIntakeTransition(IntakeStates.AMP))
+        // Listed after the feed so it starts once the feed has, SHOOT_AMP clears the launcher
+        // setpoint readyToFeed checks
+        .runWhen(
+            () -> indexerState == IndexerStates.AMP && readyToFeedAmp.getAsBoolean(),
+            getShooterTransition(ShooterStates.SHOOT_AMP))
+        .build();
   }
 
   @AutoLogOutput(key = "StateMachine/ShooterState")
@@ -247,6 +467,17 @@ public class StateMachine {
     return climbState;
   }
 
+  /** When the last note was acquired, the edge time from the indexer's beam break interrupt */
+  @AutoLogOutput(key = "StateMachine/NoteAcquiredTimestamp")
+  public double getNoteAcquiredTimestamp() {
+    return robotIndexer.getLastBeamBreakTimestamp();
+  }
+
+  @AutoLogOutput(key = "StateMachine/NoteLocation")
+  public NoteLocation getNoteLocation() {
+    return noteTracker.getLocation();
+  }
+
   @AutoLogOutput(key = "StateMachine/YoshiState")
   public YoshiStates getYoshiState() {
     return yoshiState;
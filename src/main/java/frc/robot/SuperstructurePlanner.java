@@ -0,0 +1,317 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import frc.robot.subsystems.climb.Climb;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Moves the angler, Yoshivator pivot and climb arms to a goal at the same time instead of one
+ * after another. Every loop each joint that hasn't started checks the keep-out zones against where
+ * the other joints are and where the started ones are headed. A joint starts as soon as its sweep
+ * to the goal is clear, so it only waits for as long as another joint is actually in its way.
+ * Rollers start right away, or once their condition is met, alongside the joints
+ */
+public class SuperstructurePlanner {
+  public static enum Joint {
+    ANGLER(26.5, 57.0),
+    YOSHI_PIVOT(-44.5, 100.0),
+    CLIMB_ARMS(Climb.MIN_ANGLE_DEGREES, Climb.MAX_ANGLE_DEGREES);
+
+    // What each mechanism clamps its goals to
+    private final double minDegrees;
+    private final double maxDegrees;
+
+    Joint(double minDegrees, double maxDegrees) {
+      this.minDegrees = minDegrees;
+      this.maxDegrees = maxDegrees;
+    }
+
+    public double getMinDegrees() {
+      return minDegrees;
+    }
+
+    public double getMaxDegrees() {
+      return maxDegrees;
+    }
+  }
+
+  private static final Joint[] JOINTS = Joint.values();
+  private static final double TOLERANCE_DEGREES = 2.0;
+
+  /** Ranges of two joints that can't both be occupied at once */
+  private static class KeepOut {
+    final Joint first;
+    final double firstMinDegrees;
+    final double firstMaxDegrees;
+    final Joint second;
+    final double secondMinDegrees;
+    final double secondMaxDegrees;
+
+    KeepOut(
+        Joint first,
+        double firstMinDegrees,
+        double firstMaxDegrees,
+        Joint second,
+        double secondMinDegrees,
+        double secondMaxDegrees) {
+      this.first = first;
+      this.firstMinDegrees = firstMinDegrees;
+      this.firstMaxDegrees = firstMaxDegrees;
+      this.second = second;
+      this.secondMinDegrees = secondMinDegrees;
+      this.secondMaxDegrees = secondMaxDegrees;
+    }
+  }
+
+  private static final KeepOut[] KEEP_OUTS = {
+    // Raised arms swing over the launcher, the angler is dropped to CLIMB whenever they move
+    new KeepOut(Joint.CLIMB_ARMS, 20.0, 180.0, Joint.ANGLER, 30.0, 90.0)
+  };
+
+  private final DoubleSupplier[] jointDegrees;
+  private final String[] waitingKeys = new String[JOINTS.length];
+
+  public SuperstructurePlanner(
+      DoubleSupplier anglerDegrees,
+      DoubleSupplier yoshiPivotDegrees,
+      DoubleSupplier climbArmDegrees) {
+    jointDegrees = new DoubleSupplier[] {anglerDegrees, yoshiPivotDegrees, climbArmDegrees};
+    for (Joint joint : JOINTS) {
+      waitingKeys[joint.ordinal()] = "Superstructure/Waiting/" + joint;
+    }
+  }
+
+  /** Start describing a goal, build() it once and reuse the command */
+  public Goal goal(String name) {
+    return new Goal(name);
+  }
+
+  public class Goal {
+    private final String name;
+    private final Command[] jointTransitions = new Command[JOINTS.length];
+    private final DoubleSupplier[] goalDegrees = new DoubleSupplier[JOINTS.length];
+    private final List<Command> actions = new ArrayList<>();
+    private final List<BooleanSupplier> actionConditions = new ArrayList<>();
+
+    private Goal(String name) {
+      this.name = name;
+    }
+
+    /** Move a joint with a transition that sends it to goalDegrees */
+    public Goal move(Joint joint, DoubleSupplier goalDegrees, Command transition) {
+      jointTransitions[joint.ordinal()] = transition;
+      this.goalDegrees[joint.ordinal()] = goalDegrees;
+      return this;
+    }
+
+    /** Run a transition that doesn't move a joint as soon as the goal starts */
+    public Goal run(Command transition) {
+      return runWhen(() -> true, transition);
+    }
+
+    /** Run a transition that doesn't move a joint once a condition is met */
+    public Goal runWhen(BooleanSupplier condition, Command transition) {
+      actions.add(transition);
+      actionConditions.add(condition);
+      return this;
+    }
+
+    public Command build() {
+      return new GoalCommand(this);
+    }
+  }
+
+  /** Runs the transitions of a goal, it only delegates to them so they can be shared */
+  private class GoalCommand extends Command {
+    private final Goal goal;
+    private final Command[] actions;
+    private final BooleanSupplier[] actionConditions;
+
+    private final double[] positionsDegrees = new double[JOINTS.length];
+    private final double[] goalsDegrees = new double[JOINTS.length];
+    private final boolean[] jointStarted = new boolean[JOINTS.length];
+    private final boolean[] jointFinished = new boolean[JOINTS.length];
+    private final boolean[] actionStarted;
+    private final boolean[] actionFinished;
+
+    private final String durationKey;
+    private long startUS = 0;
+    private boolean reached = false;
+
+    GoalCommand(Goal goal) {
+      this.goal = goal;
+      actions = goal.actions.toArray(new Command[0]);
+      actionConditions = goal.actionConditions.toArray(new BooleanSupplier[0]);
+      actionStarted = new boolean[actions.length];
+      actionFinished = new boolean[actions.length];
+      durationKey = "Superstructure/" + goal.name + "/DurationSecs";
+
+      for (Command transition : goal.jointTransitions) {
+        if (transition != null) {
+          addRequirements(transition.getRequirements().toArray(Subsystem[]::new));
+        }
+      }
+      for (Command action : actions) {
+        addRequirements(action.getRequirements().toArray(Subsystem[]::new));
+      }
+      setName("Superstructure/" + goal.name);
+    }
+
+    @Override
+    public void initialize() {
+      for (int i = 0; i < JOINTS.length; i++) {
+        jointStarted[i] = false;
+        jointFinished[i] = goal.jointTransitions[i] == null;
+      }
+      for (int i = 0; i < actions.length; i++) {
+        actionStarted[i] = false;
+        actionFinished[i] = false;
+      }
+      startUS = Logger.getRealTimestamp();
+      reached = false;
+
+      Logger.recordOutput("Superstructure/Goal", goal.name);
+      execute();
+    }
+
+    @Override
+    public void execute() {
+      boolean atGoal = true;
+      for (Joint joint : JOINTS) {
+        int i = joint.ordinal();
+        positionsDegrees[i] = jointDegrees[i].getAsDouble();
+        if (goal.goalDegrees[i] != null) {
+          goalsDegrees[i] =
+              MathUtil.clamp(
+                  goal.goalDegrees[i].getAsDouble(), joint.minDegrees, joint.maxDegrees);
+          atGoal &= Math.abs(positionsDegrees[i] - goalsDegrees[i]) < TOLERANCE_DEGREES;
+        }
+      }
+
+      for (Joint joint : JOINTS) {
+        int i = joint.ordinal();
+        Command transition = goal.jointTransitions[i];
+        if (transition == null) {
+          continue;
+        }
+        if (!jointStarted[i] && isPathClear(joint)) {
+          jointStarted[i] = true;
+          transition.initialize();
+        }
+        if (jointStarted[i] && !jointFinished[i]) {
+          transition.execute();
+          if (transition.isFinished()) {
+            transition.end(false);
+            jointFinished[i] = true;
+          }
+        }
+        Logger.recordOutput(waitingKeys[i], !jointStarted[i]);
+      }
+
+      for (int i = 0; i < actions.length; i++) {
+        if (!actionStarted[i] && actionConditions[i].getAsBoolean()) {
+          actionStarted[i] = true;
+          actions[i].initialize();
+        }
+        if (actionStarted[i] && !actionFinished[i]) {
+          actions[i].execute();
+          if (actions[i].isFinished()) {
+            actions[i].end(false);
+            actionFinished[i] = true;
+          }
+        }
+      }
+
+      if (atGoal && !reached) {
+        reached = true;
+        Logger.recordOutput(durationKey, (Logger.getRealTimestamp() - startUS) / 1e6);
+      }
+    }
+
+    /**
+     * Whether a joint can sweep to its goal without entering a keep-out zone the other joint is
+     * in or headed through. A joint already inside a zone and leaving it is always let out
+     */
+    private boolean isPathClear(Joint joint) {
+      int i = joint.ordinal();
+      double from = positionsDegrees[i];
+      double to = goalsDegrees[i];
+
+      for (KeepOut keepOut : KEEP_OUTS) {
+        boolean isFirst = keepOut.first == joint;
+        if (!isFirst && keepOut.second != joint) {
+          continue;
+        }
+        double minDegrees = isFirst ? keepOut.firstMinDegrees : keepOut.secondMinDegrees;
+        double maxDegrees = isFirst ? keepOut.firstMaxDegrees : keepOut.secondMaxDegrees;
+        if (!overlaps(from, to, minDegrees, maxDegrees)
+            || (isInside(from, minDegrees, maxDegrees) && !isInside(to, minDegrees, maxDegrees))) {
+          continue;
+        }
+
+        int other = (isFirst ? keepOut.second : keepOut.first).ordinal();
+        double otherFrom = positionsDegrees[other];
+        // Joints that haven't started hold where they are
+        double otherTo =
+            (goal.jointTransitions[other] != null && jointStarted[other])
+                ? goalsDegrees[other]
+                : otherFrom;
+        if (overlaps(
+            otherFrom,
+            otherTo,
+            isFirst ? keepOut.secondMinDegrees : keepOut.firstMinDegrees,
+            isFirst ? keepOut.secondMaxDegrees : keepOut.firstMaxDegrees)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+      for (int i = 0; i < JOINTS.length; i++) {
+        if (jointStarted[i] && !jointFinished[i]) {
+          goal.jointTransitions[i].end(interrupted);
+        }
+      }
+      for (int i = 0; i < actions.length; i++) {
+        if (actionStarted[i] && !actionFinished[i]) {
+          actions[i].end(interrupted);
+        }
+      }
+      for (int i = 0; i < JOINTS.length; i++) {
+        Logger.recordOutput(waitingKeys[i], false);
+      }
+    }
+
+    /** Finishes once every transition has, transitions that hold their goal keep it running */
+    @Override
+    public boolean isFinished() {
+      for (boolean finished : jointFinished) {
+        if (!finished) {
+          return false;
+        }
+      }
+      for (boolean finished : actionFinished) {
+        if (!finished) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static boolean overlaps(double from, double to, double minDegrees, double maxDegrees) {
+    return Math.max(from, to) >= minDegrees && Math.min(from, to) <= maxDegrees;
+  }
+
+  private static boolean isInside(double degrees, double minDegrees, double maxDegrees) {
+    return degrees >= minDegrees && degrees <= maxDegrees;
+  }
+}
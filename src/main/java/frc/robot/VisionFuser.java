@@ -4,6 +4,7 @@ import edu.wpi.first.math.VecBuilder;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.vision.Vision;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.TunableRegistry;
 import org.littletonrobotics.junction.Logger;
 
 /* Class fuses poses from vision and drive, makes interaction between the poses simpler */
@@ -19,6 +20,7 @@ public class VisionFuser {
   private LoggedTunableNumber visionMultiStdDevX;
   private LoggedTunableNumber visionMultiStdDevY;
   private LoggedTunableNumber visionMultiStdDevTheta;
+  private int tunableVersion = -1;
 
   public VisionFuser(Drive drive, Vision vision) {
     robotDrive = drive;
@@ -46,17 +48,20 @@ public class VisionFuser {
   }
 
   public void periodic() {
-    if (visionMultiStdDevX.hasChanged(hashCode())
-        || visionMultiStdDevY.hasChanged(hashCode())
-        || visionMultiStdDevTheta.hasChanged(hashCode())) {
-      robotVision.setMultiStdDevs(
-          visionMultiStdDevX.get(), visionMultiStdDevY.get(), visionMultiStdDevTheta.get());
-    }
-    if (visionSingleStdDevX.hasChanged(hashCode())
-        || visionSingleStdDevY.hasChanged(hashCode())
-        || visionSingleStdDevTheta.hasChanged(hashCode())) {
-      robotVision.setSingleStdDevs(
-          visionSingleStdDevX.get(), visionSingleStdDevY.get(), visionSingleStdDevTheta.get());
+    if (TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
+      if (visionMultiStdDevX.hasChangedSince(tunableVersion)
+          || visionMultiStdDevY.hasChangedSince(tunableVersion)
+          || visionMultiStdDevTheta.hasChangedSince(tunableVersion)) {
+        robotVision.setMultiStdDevs(
+            visionMultiStdDevX.get(), visionMultiStdDevY.get(), visionMultiStdDevTheta.get());
+      }
+      if (visionSingleStdDevX.hasChangedSince(tunableVersion)
+          || visionSingleStdDevY.hasChangedSince(tunableVersion)
+          || visionSingleStdDevTheta.hasChangedSince(tunableVersion)) {
+        robotVision.setSingleStdDevs(
+            visionSingleStdDevX.get(), visionSingleStdDevY.get(), visionSingleStdDevTheta.get());
+      }
+      tunableVersion = TunableRegistry.getInstance().getVersion();
     }
 
     final var inputsLeft = robotVision.getInputsLeft();
@@ -5,14 +5,12 @@
 package frc.robot.commands;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -20,6 +18,7 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import frc.robot.Constants;
 import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.drive.HeadingController;
 import frc.robot.utils.debugging.LoggedTunableNumber;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
@@ -32,6 +31,12 @@ public class SwerveCommands {
 
   private static Command currentCommand = null;
   private static boolean isAtYawGoal = false;
+  private static boolean isAiming = false;
+
+  private static LoggedTunableNumber thetaFeedbackP;
+  private static LoggedTunableNumber thetaFeedbackD;
+  private static LoggedTunableNumber thetaFeedbackV;
+  private static LoggedTunableNumber thetaFeedbackA;
 
   private SwerveCommands() {}
 
@@ -43,86 +48,143 @@ public class SwerveCommands {
       DoubleSupplier thetaSupplier) {
     return Commands.run(
         () -> {
-          // Forward, backward
-          double linearMagnitude =
-              MathUtil.applyDeadband(
-                  Math.hypot(xSupplier.getAsDouble(), ySupplier.getAsDouble()), DEADBAND);
-          // Left, right
-          Rotation2d linearDirection =
-              new Rotation2d(xSupplier.getAsDouble(), ySupplier.getAsDouble());
           // Rotation
           double theta = MathUtil.applyDeadband (thetaSupplier.getAsDouble(), DEADBAND);
 
           // Square inputs
-          // linearMagnitude *= linearMagnitude;
           // theta = Math.copySign(theta * theta, theta);
 
-          // Calculate velocity
-          Translation2d linearVelocity =
-              new Pose2d(new Translation2d(), linearDirection)
-                  .transformBy(new Transform2d(linearMagnitude, 0.0, new Rotation2d()))
-                  .getTranslation();
-
-          Rotation2d robotRotation = robotDrive.getRotation();
-
-          if(DriverStation.getAlliance().isPresent()) {
-            if(DriverStation.getAlliance().get() == Alliance.Red) {
-              robotRotation = robotRotation.plus(Rotation2d.fromDegrees(180));
-            }
-          }
-
-          if (IS_FIELD) {
-            robotDrive.runSwerve(
-                ChassisSpeeds.fromFieldRelativeSpeeds(
-                    // Convert from % to MPS
-                    linearVelocity.getX() * robotDrive.getMaxLinearSpeedMPS(),
-                    linearVelocity.getY() * robotDrive.getMaxLinearSpeedMPS(),
-                    theta * robotDrive.getMaxAngularSpeedMPS(),
-                    robotRotation));
-          } else {
-            robotDrive.runSwerve(
-                ChassisSpeeds.fromRobotRelativeSpeeds(
-                    linearVelocity.getX() * robotDrive.getMaxLinearSpeedMPS(),
-                    linearVelocity.getY() * robotDrive.getMaxLinearSpeedMPS(),
-                    theta * robotDrive.getMaxAngularSpeedMPS(),
-                    robotDrive.getPoseEstimate().getRotation()));
-          }
+          runJoystickTranslation(
+              robotDrive, xSupplier, ySupplier, theta * robotDrive.getMaxAngularSpeedMPS());
         },
         robotDrive);
   }
 
+  /**
+   * Command to drive the swerve with joysticks while the heading locks to a goal, so the robot can
+   * aim without stopping. Runs until interrupted, isAtYawGoal() says when the heading is within
+   * headingToleranceSupplier radians of the goal
+   */
+  public static Command aimWhileDriving(
+      Drive robotDrive,
+      DoubleSupplier xSupplier,
+      DoubleSupplier ySupplier,
+      Supplier<Rotation2d> headingGoalSupplier,
+      DoubleSupplier headingGoalVelocitySupplier,
+      DoubleSupplier headingToleranceSupplier) {
+    HeadingController thetaController = createHeadingController();
+
+    return new FunctionalCommand(
+        () -> {
+          applyHeadingTunables(thetaController);
+          thetaController.reset(robotDrive.getYawVelocityRadPerSec());
+          isAiming = true;
+          isAtYawGoal = false;
+        },
+        () -> {
+          thetaController.setTolerance(headingToleranceSupplier.getAsDouble());
+          double headingGoalRad = headingGoalSupplier.get().getRadians();
+          double headingGoalVelocityRadPerSec = headingGoalVelocitySupplier.getAsDouble();
+          double thetaDesiredRadPerSec =
+              thetaController.calculate(
+                  robotDrive.getPoseEstimate().getRotation().getRadians(),
+                  robotDrive.getYawVelocityRadPerSec(),
+                  headingGoalRad,
+                  headingGoalVelocityRadPerSec);
+
+          runJoystickTranslation(robotDrive, xSupplier, ySupplier, thetaDesiredRadPerSec);
+
+          isAtYawGoal = thetaController.atGoal();
+          Logger.recordOutput(
+              "Drive/HeadingController/Error", Math.toDegrees(thetaController.getErrorRad()));
+          Logger.recordOutput("Drive/HeadingController/Goal", Math.toDegrees(headingGoalRad));
+          Logger.recordOutput(
+              "Drive/HeadingController/GoalVelocity", Math.toDegrees(headingGoalVelocityRadPerSec));
+          Logger.recordOutput("Drive/HeadingController/AtGoal", isAtYawGoal);
+          Logger.recordOutput(
+              "Drive/HeadingController/Output", Math.toDegrees(thetaDesiredRadPerSec));
+          Logger.recordOutput(
+              "Drive/HeadingController/LatencyMS", thetaController.getLatencySecs() * 1000.0);
+        },
+        (interrupted) -> {
+          isAiming = false;
+          isAtYawGoal = false;
+        },
+        () -> false,
+        robotDrive);
+  }
+
+  /** Shape the joystick translation and run it field relative with the given turn rate */
+  private static void runJoystickTranslation(
+      Drive robotDrive,
+      DoubleSupplier xSupplier,
+      DoubleSupplier ySupplier,
+      double omegaRadPerSec) {
+    // Forward, backward
+    double linearMagnitude =
+        MathUtil.applyDeadband(
+            Math.hypot(xSupplier.getAsDouble(), ySupplier.getAsDouble()), DEADBAND);
+    // Left, right
+    Rotation2d linearDirection = new Rotation2d(xSupplier.getAsDouble(), ySupplier.getAsDouble());
+
+    // Square inputs
+    // linearMagnitude *= linearMagnitude;
+
+    // Calculate velocity
+    Translation2d linearVelocity =
+        new Pose2d(new Translation2d(), linearDirection)
+            .transformBy(new Transform2d(linearMagnitude, 0.0, new Rotation2d()))
+            .getTranslation();
+
+    Rotation2d robotRotation = robotDrive.getRotation();
+
+    if(DriverStation.getAlliance().isPresent()) {
+      if(DriverStation.getAlliance().get() == Alliance.Red) {
+        robotRotation = robotRotation.plus(Rotation2d.fromDegrees(180));
+      }
+    }
+
+    if (IS_FIELD) {
+      robotDrive.runSwerve(
+          ChassisSpeeds.fromFieldRelativeSpeeds(
+              // Convert from % to MPS
+              linearVelocity.getX() * robotDrive.getMaxLinearSpeedMPS(),
+              linearVelocity.getY() * robotDrive.getMaxLinearSpeedMPS(),
+              omegaRadPerSec,
+              robotRotation));
+    } else {
+      robotDrive.runSwerve(
+          ChassisSpeeds.fromRobotRelativeSpeeds(
+              linearVelocity.getX() * robotDrive.getMaxLinearSpeedMPS(),
+              linearVelocity.getY() * robotDrive.getMaxLinearSpeedMPS(),
+              omegaRadPerSec,
+              robotDrive.getPoseEstimate().getRotation()));
+    }
+  }
+
   /** Returns a command to set the heading of the robot */
   public static Command setHeading(
       Drive robotDrive,
       DoubleSupplier xGoalSupplier,
       DoubleSupplier yGoalSupplier,
       Supplier<Rotation2d> headingGoalSupplier) {
+    return setHeading(robotDrive, xGoalSupplier, yGoalSupplier, headingGoalSupplier, () -> 0.0);
+  }
+
+  /**
+   * Returns a command to set the heading of the robot to a goal that turns at
+   * headingGoalVelocitySupplier radians per second, like a target the robot is driving past
+   */
+  public static Command setHeading(
+      Drive robotDrive,
+      DoubleSupplier xGoalSupplier,
+      DoubleSupplier yGoalSupplier,
+      Supplier<Rotation2d> headingGoalSupplier,
+      DoubleSupplier headingGoalVelocitySupplier) {
     SlewRateLimiter xSpeedsLimiter = new SlewRateLimiter(5.0);
     SlewRateLimiter ySpeedsLimiter = new SlewRateLimiter(5.0);
 
-    // Degress per second
-    ProfiledPIDController thetaFeedback =
-        switch (Constants.currentMode) {
-          case REAL -> new ProfiledPIDController(3.0, 0.0, 0.0, new Constraints(300.0, 200.0));
-          case SIM -> new ProfiledPIDController(5.0, 0.0, 0.0, new Constraints(300.0, 200.0));
-          default -> new ProfiledPIDController(0.0, 0.0, 0.0, new Constraints(0.0, 0.0));
-        };
-
-    thetaFeedback.setTolerance(0.2);
-    thetaFeedback.enableContinuousInput(0.0, 360.0);
-
-    LoggedTunableNumber thetaFeedbackP =
-        new LoggedTunableNumber("Drive/HeadingController/Feedback/P", thetaFeedback.getP());
-    LoggedTunableNumber thetaFeedbackI =
-        new LoggedTunableNumber("Drive/HeadingController/Feedback/I", thetaFeedback.getI());
-    LoggedTunableNumber thetaFeedbackD =
-        new LoggedTunableNumber("Drive/HeadingController/Feedback/D", thetaFeedback.getD());
-    LoggedTunableNumber thetaFeedbackV =
-        new LoggedTunableNumber(
-            "Drive/HeadingController/Feedback/V", thetaFeedback.getConstraints().maxVelocity);
-    LoggedTunableNumber thetaFeedbackA =
-        new LoggedTunableNumber(
-            "Drive/HeadingController/Feedback/A", thetaFeedback.getConstraints().maxAcceleration);
+    HeadingController thetaController = createHeadingController();
 
     currentCommand =
         new FunctionalCommand(
@@ -130,25 +192,12 @@ public class SwerveCommands {
               xSpeedsLimiter.reset(robotDrive.getDesiredChassisSpeeds().vxMetersPerSecond);
               ySpeedsLimiter.reset(robotDrive.getDesiredChassisSpeeds().vyMetersPerSecond);
 
-              // Added minor offset to account for note curving
-              Rotation2d headingGoal = headingGoalSupplier.get();
-              Rotation2d currentHeading = robotDrive.getRotation();
-
-              // If the error is small, set the goal to be the current heading
-              if (Math.abs(headingGoal.getDegrees() - currentHeading.getDegrees()) > 7.5) {
-                // Add 180 since front is the intake, not the shooter
-                thetaFeedback.reset(currentHeading.getDegrees());
-              }
-
-              thetaFeedback.setP(thetaFeedbackP.get());
-              thetaFeedback.setI(thetaFeedbackI.get());
-              thetaFeedback.setD(thetaFeedbackD.get());
-              thetaFeedback.setConstraints(
-                  new Constraints(thetaFeedbackV.get(), thetaFeedbackA.get()));
+              applyHeadingTunables(thetaController);
+              thetaController.reset(robotDrive.getYawVelocityRadPerSec());
 
               Logger.recordOutput("Drive/HeadingController/Error", 0.0);
-              Logger.recordOutput("Drive/HeadingController/Setpoint", 0.0);
               Logger.recordOutput("Drive/HeadingController/Goal", 0.0);
+              Logger.recordOutput("Drive/HeadingController/GoalVelocity", 0.0);
               Logger.recordOutput("Drive/HeadingController/AtGoal", false);
               Logger.recordOutput("Drive/HeadingController/Output", 0.0);
             },
@@ -156,38 +205,86 @@ public class SwerveCommands {
               double xDesiredSpeedMPS = xSpeedsLimiter.calculate(xGoalSupplier.getAsDouble());
               double yDesiredSpeedMPS = ySpeedsLimiter.calculate(yGoalSupplier.getAsDouble());
 
-              double thetaDesiredDegrees =
-                  thetaFeedback.calculate(
-                      robotDrive.getPoseEstimate().getRotation().getDegrees(),
-                      headingGoalSupplier.get().getDegrees());
+              double headingGoalRad = headingGoalSupplier.get().getRadians();
+              double headingGoalVelocityRadPerSec = headingGoalVelocitySupplier.getAsDouble();
+              double thetaDesiredRadPerSec =
+                  thetaController.calculate(
+                      robotDrive.getPoseEstimate().getRotation().getRadians(),
+                      robotDrive.getYawVelocityRadPerSec(),
+                      headingGoalRad,
+                      headingGoalVelocityRadPerSec);
 
               robotDrive.runSwerve(
-                  new ChassisSpeeds(
-                      xDesiredSpeedMPS, yDesiredSpeedMPS, Math.toRadians(thetaDesiredDegrees)));
+                  new ChassisSpeeds(xDesiredSpeedMPS, yDesiredSpeedMPS, thetaDesiredRadPerSec));
 
+              // Degrees like the rest of the drive logs
+              Logger.recordOutput(
+                  "Drive/HeadingController/Error", Math.toDegrees(thetaController.getErrorRad()));
+              Logger.recordOutput("Drive/HeadingController/Goal", Math.toDegrees(headingGoalRad));
+              Logger.recordOutput(
+                  "Drive/HeadingController/GoalVelocity",
+                  Math.toDegrees(headingGoalVelocityRadPerSec));
+              Logger.recordOutput("Drive/HeadingController/AtGoal", thetaController.atGoal());
               Logger.recordOutput(
-                  "Drive/HeadingController/Error", thetaFeedback.getPositionError());
+                  "Drive/HeadingController/Output", Math.toDegrees(thetaDesiredRadPerSec));
               Logger.recordOutput(
-                  "Drive/HeadingController/Setpoint", thetaFeedback.getSetpoint().position);
-              Logger.recordOutput("Drive/HeadingController/Goal", thetaFeedback.getGoal().position);
-              Logger.recordOutput("Drive/HeadingController/AtGoal", thetaFeedback.atGoal());
-              Logger.recordOutput("Drive/HeadingController/Output", thetaDesiredDegrees);
+                  "Drive/HeadingController/LatencyMS", thetaController.getLatencySecs() * 1000.0);
             },
             (interrupted) -> {
               if (interrupted) robotDrive.stop();
 
-              isAtYawGoal = thetaFeedback.atGoal();
+              isAtYawGoal = thetaController.atGoal();
             },
-            () -> thetaFeedback.atGoal(),
+            () -> thetaController.atGoal(),
             robotDrive);
 
     return currentCommand;
   }
 
+  /** Gains are in degrees, the controller works in radians */
+  private static HeadingController createHeadingController() {
+    double[] thetaGains =
+        switch (Constants.currentMode) {
+          case REAL -> new double[] {3.0, 0.0, 300.0, 200.0};
+          case SIM -> new double[] {5.0, 0.0, 300.0, 200.0};
+          default -> new double[] {0.0, 0.0, 0.0, 0.0};
+        };
+
+    // Shared by every heading command so each key is only published once
+    if (thetaFeedbackP == null) {
+      thetaFeedbackP =
+          new LoggedTunableNumber("Drive/HeadingController/Feedback/P", thetaGains[0]);
+      thetaFeedbackD =
+          new LoggedTunableNumber("Drive/HeadingController/Feedback/D", thetaGains[1]);
+      thetaFeedbackV =
+          new LoggedTunableNumber("Drive/HeadingController/Feedback/V", thetaGains[2]);
+      thetaFeedbackA =
+          new LoggedTunableNumber("Drive/HeadingController/Feedback/A", thetaGains[3]);
+    }
+
+    return new HeadingController(
+        thetaGains[0],
+        thetaGains[1],
+        Math.toRadians(thetaGains[2]),
+        Math.toRadians(thetaGains[3]),
+        Math.toRadians(0.2));
+  }
+
+  private static void applyHeadingTunables(HeadingController thetaController) {
+    thetaController.setGains(thetaFeedbackP.get(), thetaFeedbackD.get());
+    thetaController.setConstraints(
+        Math.toRadians(thetaFeedbackV.get()), Math.toRadians(thetaFeedbackA.get()));
+  }
+
   public static boolean isAtYawGoal() {
     return isAtYawGoal;
   }
 
+  /** Whether aimWhileDriving() is holding the heading */
+  public static boolean isAiming() {
+    return isAiming;
+  }
+
   // private static double driveVoltage = 0.0;
 
   // /** Returns a command to increment the voltage of the drivetrain */
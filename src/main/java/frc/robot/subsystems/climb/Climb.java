@@ -6,21 +6,29 @@ package frc.robot.subsystems.climb;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 import frc.robot.Constants.Robot;
+import frc.robot.Constants;
 import frc.robot.RobotStates.ClimbStates;
 import frc.robot.subsystems.climb.ClimbVisualizer.ClimbSide;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.LoopProfiler;
+import frc.robot.utils.debugging.TunableRegistry;
+import frc.robot.utils.io.IOSampler;
+import frc.robot.utils.power.PowerManager;
 import java.util.HashMap;
-import org.littletonrobotics.junction.Logger;
 
 /** Climb subsystem */
 public class Climb extends SubsystemBase {
+  // Soft limits the arms stop at while driven by volts
+  public static final double MIN_ANGLE_DEGREES = -85.0;
+  public static final double MAX_ANGLE_DEGREES = 75.0;
+
   public static enum ClimbVoltSetpoints {
     // LEFT(9.0, 0.0),
     // RIGHT(0.0, 9.0),
@@ -53,7 +61,10 @@ public class Climb extends SubsystemBase {
   }
 
   private ClimbIO climbIO;
-  private ClimbIOInputsAutoLogged climbIOInputs = new ClimbIOInputsAutoLogged();
+  private ClimbIO.ClimbIOInputsLogged climbIOInputs = new ClimbIO.ClimbIOInputsLogged();
+
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.getInstance().section("Subsystems/Climb");
 
   private PIDController leftClimbFeedback = new PIDController(0.0, 0.0, 0.0);
   private PIDController rightClimbFeedback = new PIDController(0.0, 0.0, 0.0);
@@ -77,6 +88,7 @@ public class Climb extends SubsystemBase {
   private LoggedTunableNumber rightFeedbackD;
   // private LoggedTunableNumber rightFeedbackA;
   // private LoggedTunableNumber rightFeedbackV;
+  private int tunableVersion = -1;
 
   private Rotation2d leftAngleSetpoint = null;
   private Rotation2d rightAngleSetpoint = null;
@@ -93,6 +105,13 @@ public class Climb extends SubsystemBase {
   public Climb(ClimbIO io) {
     this.climbIO = io;
 
+    IOSampler.getInstance()
+        .register(
+            "Climb/Inputs",
+            climbIOInputs,
+            new ClimbIO.ClimbIOInputsLogged(),
+            climbIO::updateInputs);
+
     if (Constants.currentRobot == Robot.SYNTH) {
       switch (Constants.currentMode) {
         case REAL:
@@ -166,8 +185,7 @@ public class Climb extends SubsystemBase {
 
   @Override
   public void periodic() {
-    climbIO.updateInputs(climbIOInputs);
-    Logger.processInputs("Climb/Inputs", climbIOInputs);
+    periodicSection.start();
 
     if (DriverStation.isDisabled()) {
       stopMotors();
@@ -181,7 +199,7 @@ public class Climb extends SubsystemBase {
     // if (leftAngleSetpoint != null) {
     //   double leftFeedbackOutput =
     //       leftClimbFeedback.calculate(
-    //           climbIOInputs.leftPosition.getDegrees(),
+    //           Units.radiansToDegrees(climbIOInputs.leftPositionRadians),
     //           MathUtil.clamp(
     //               leftAngleSetpoint.getDegrees(), minAngle.getDegrees(), maxAngle.getDegrees()));
 
@@ -193,7 +211,7 @@ public class Climb extends SubsystemBase {
     // if (rightAngleSetpoint != null) {
     //   double rightFeedbackOutput =
     //       rightClimbFeedback.calculate(
-    //           climbIOInputs.rightPosition.getDegrees(),
+    //           Units.radiansToDegrees(climbIOInputs.rightPositionRadians),
     //           MathUtil.clamp(
     //               rightAngleSetpoint.getDegrees(), minAngle.getDegrees(),
     // maxAngle.getDegrees()));
@@ -204,46 +222,51 @@ public class Climb extends SubsystemBase {
     // }
 
     if (currentSetpoint != null) {
-      if (climbIOInputs.leftPosition.getDegrees() > 75.0 && currentSetpoint.leftVolts > 0.0) {
+      if (Units.radiansToDegrees(climbIOInputs.leftPositionRadians) > MAX_ANGLE_DEGREES
+          && currentSetpoint.leftVolts > 0.0) {
         climbIO.setLeftVolts(0.0);
-      } else if (climbIOInputs.leftPosition.getDegrees() < -85.0
+      } else if (Units.radiansToDegrees(climbIOInputs.leftPositionRadians) < MIN_ANGLE_DEGREES
           && currentSetpoint.leftVolts < 0.0) {
         climbIO.setLeftVolts(0.0);
       }
 
-      if (climbIOInputs.rightPosition.getDegrees() > 75.0 && currentSetpoint.rightVolts > 0.0) {
+      if (Units.radiansToDegrees(climbIOInputs.rightPositionRadians) > MAX_ANGLE_DEGREES
+          && currentSetpoint.rightVolts > 0.0) {
         climbIO.setRightVolts(0.0);
-      } else if (climbIOInputs.rightPosition.getDegrees() < -85.0
+      } else if (Units.radiansToDegrees(climbIOInputs.rightPositionRadians) < MIN_ANGLE_DEGREES
           && currentSetpoint.rightVolts < 0.0) {
         climbIO.setRightVolts(0.0);
       }
     }
 
-    leftVisualizer.updateClimbAngle(climbIOInputs.leftPosition);
-    rightVisualizer.updateClimbAngle(climbIOInputs.rightPosition);
+    leftVisualizer.updateClimbAngle(Rotation2d.fromRadians(climbIOInputs.leftPositionRadians));
+    rightVisualizer.updateClimbAngle(Rotation2d.fromRadians(climbIOInputs.rightPositionRadians));
 
-    if (Constants.tuningMode) {
+    if (Constants.tuningMode && TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
       updateTunableNumbers();
     }
+
+    periodicSection.stop();
   }
 
   /** If tunable numbers have changed, it updates controllers */
   private void updateTunableNumbers() {
-    if (leftFeedbackP.hasChanged(hashCode())
-        || leftFeedbackI.hasChanged(hashCode())
-        || leftFeedbackD.hasChanged(hashCode())) {
+    if (leftFeedbackP.hasChangedSince(tunableVersion)
+        || leftFeedbackI.hasChangedSince(tunableVersion)
+        || leftFeedbackD.hasChangedSince(tunableVersion)) {
       leftClimbFeedback.setP(leftFeedbackP.get());
       leftClimbFeedback.setI(leftFeedbackI.get());
       leftClimbFeedback.setD(leftFeedbackD.get());
     }
 
-    if (rightFeedbackP.hasChanged(hashCode())
-        || rightFeedbackI.hasChanged(hashCode())
-        || rightFeedbackD.hasChanged(hashCode())) {
+    if (rightFeedbackP.hasChangedSince(tunableVersion)
+        || rightFeedbackI.hasChangedSince(tunableVersion)
+        || rightFeedbackD.hasChangedSince(tunableVersion)) {
       rightClimbFeedback.setP(rightFeedbackP.get());
       rightClimbFeedback.setI(rightFeedbackI.get());
       rightClimbFeedback.setD(rightFeedbackD.get());
     }
+    tunableVersion = TunableRegistry.getInstance().getVersion();
   }
 
   public HashMap<ClimbStates, Command> mapToCommand() {
@@ -278,6 +301,13 @@ public class Climb extends SubsystemBase {
         this);
   }
 
+  /** Drop the position and volt setpoints so periodic() stops driving the arms */
+  public void clearSetpoints() {
+    leftAngleSetpoint = null;
+    rightAngleSetpoint = null;
+    currentSetpoint = null;
+  }
+
   public void setVolts(double leftVolts, double rightVolts) {
     climbIO.setLeftVolts(leftVolts);
     climbIO.setRightVolts(rightVolts);
@@ -291,12 +321,31 @@ public class Climb extends SubsystemBase {
     climbIO.setRightVolts(volts);
   }
 
+  /** Returns the angle of whichever arm is higher */
+  public double getArmDegrees() {
+    return Units.radiansToDegrees(
+        Math.max(climbIOInputs.leftPositionRadians, climbIOInputs.rightPositionRadians));
+  }
+
+  /** Set the current limit of both climb motors */
+  public void setCurrentLimit(double amps) {
+    climbIO.setCurrentLimit(amps);
+  }
+
+  /** Returns the current drawn by both climb motors */
+  public double getSupplyCurrentAmps() {
+    return PowerManager.getSupplyCurrentAmps(
+            climbIOInputs.leftCurrentAmps[0], climbIOInputs.leftAppliedVolts)
+        + PowerManager.getSupplyCurrentAmps(
+            climbIOInputs.rightCurrentAmps[0], climbIOInputs.rightAppliedVolts);
+  }
+
   // public void setAngle(Rotation2d leftDesiredAngle, Rotation2d rightDesiredAngle) {
   //   leftAngleSetpoint = leftDesiredAngle;
   //   rightAngleSetpoint = rightDesiredAngle;
 
-  //   leftClimbFeedback.reset(climbIOInputs.leftPosition.getDegrees());
-  //   rightClimbFeedback.reset(climbIOInputs.rightPosition.getDegrees());
+  //   leftClimbFeedback.reset(Units.radiansToDegrees(climbIOInputs.leftPositionRadians));
+  //   rightClimbFeedback.reset(Units.radiansToDegrees(climbIOInputs.rightPositionRadians));
   // }
 
   public void stopMotors() {
@@ -4,20 +4,21 @@
 
 package frc.robot.subsystems.climb;
 
-import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.utils.io.LegacyInputKeys;
 import org.littletonrobotics.junction.AutoLog;
+import org.littletonrobotics.junction.LogTable;
 
 public interface ClimbIO {
   @AutoLog
   public static class ClimbIOInputs {
-    public Rotation2d leftPosition = new Rotation2d();
+    public double leftPositionRadians = 0.0;
     public double leftVelocityRPS = 0.0;
     public double leftAppliedVolts = 0.0;
     public double leftInternalVolts = 0.0;
     public double[] leftCurrentAmps = new double[] {0.0};
     public double[] leftTemperatureCelsius = new double[] {0.0};
 
-    public Rotation2d rightPosition = new Rotation2d();
+    public double rightPositionRadians = 0.0;
     public double rightVelocityRPS = 0.0;
     public double rightAppliedVolts = 0.0;
     public double rightInternalVolts = 0.0;
@@ -25,6 +26,18 @@ public interface ClimbIO {
     public double[] rightTemperatureCelsius = new double[] {0.0};
   }
 
+  /** Climb inputs that can replay the arm angles from logs made before they were in radians */
+  public static class ClimbIOInputsLogged extends ClimbIOInputsAutoLogged {
+    @Override
+    public void fromLog(LogTable table) {
+      super.fromLog(table);
+      leftPositionRadians =
+          LegacyInputKeys.getRotationRadians(table, "LeftPosition", leftPositionRadians);
+      rightPositionRadians =
+          LegacyInputKeys.getRotationRadians(table, "RightPosition", rightPositionRadians);
+    }
+  }
+
   /** Update the inputs from the sensors */
   public default void updateInputs(ClimbIOInputs inputs) {}
 
@@ -33,4 +46,7 @@ public interface ClimbIO {
 
   /** Set the voltage of the right climb motor */
   public default void setRightVolts(double volts) {}
+
+  /** Set the current limit of each climb motor */
+  public default void setCurrentLimit(double amps) {}
 }
@@ -4,20 +4,17 @@
 
 package frc.robot.subsystems.climb;
 
-import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.simulation.BatterySim;
-import edu.wpi.first.wpilibj.simulation.RoboRioSim;
-import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.utils.sim.SimArm;
+import frc.robot.utils.sim.SimBattery;
 
 public class ClimbIOSim implements ClimbIO {
 
-  private SingleJointedArmSim leftMotor;
+  private SimArm leftMotor;
   private double leftAppliedVolts;
 
-  private SingleJointedArmSim rightMotor;
+  private SimArm rightMotor;
   private double rightAppliedVolts;
 
   private final DCMotor motorInGearbox = DCMotor.getNEO(1);
@@ -30,11 +27,14 @@ public class ClimbIOSim implements ClimbIO {
   private final double startingAngle = Math.toRadians(180.0);
   private final double loopPeriodSec = 0.02;
 
+  private final int leftBatteryLoad = SimBattery.getInstance().register("ClimbLeft");
+  private final int rightBatteryLoad = SimBattery.getInstance().register("ClimbRight");
+
   public ClimbIOSim() {
     leftAppliedVolts = 0.0;
     rightAppliedVolts = 0.0;
     leftMotor =
-        new SingleJointedArmSim(
+        new SimArm(
             motorInGearbox,
             gearing,
             jKgMetersSquared,
@@ -44,7 +44,7 @@ public class ClimbIOSim implements ClimbIO {
             simulateGravity,
             startingAngle);
     rightMotor =
-        new SingleJointedArmSim(
+        new SimArm(
             motorInGearbox,
             gearing,
             jKgMetersSquared,
@@ -60,35 +60,35 @@ public class ClimbIOSim implements ClimbIO {
     leftMotor.update(loopPeriodSec);
     rightMotor.update(loopPeriodSec);
 
-    RoboRioSim.setVInVoltage(
-        BatterySim.calculateDefaultBatteryLoadedVoltage(leftMotor.getCurrentDrawAmps()));
-    RoboRioSim.setVInVoltage(
-        BatterySim.calculateDefaultBatteryLoadedVoltage(rightMotor.getCurrentDrawAmps()));
+    SimBattery.getInstance()
+        .setCurrentAmps(leftBatteryLoad, leftMotor.getCurrentDrawAmps(), leftAppliedVolts);
+    SimBattery.getInstance()
+        .setCurrentAmps(rightBatteryLoad, rightMotor.getCurrentDrawAmps(), rightAppliedVolts);
 
-    inputs.leftPosition = Rotation2d.fromRadians(leftMotor.getAngleRads());
+    inputs.leftPositionRadians = leftMotor.getAngleRads();
     inputs.leftVelocityRPS = leftMotor.getVelocityRadPerSec();
     inputs.leftAppliedVolts = leftAppliedVolts;
     inputs.leftInternalVolts = leftAppliedVolts;
-    inputs.leftCurrentAmps = new double[] {leftMotor.getCurrentDrawAmps()};
-    inputs.leftTemperatureCelsius = new double[] {0.0};
+    inputs.leftCurrentAmps[0] = leftMotor.getCurrentDrawAmps();
+    inputs.leftTemperatureCelsius[0] = 0.0;
 
-    inputs.rightPosition = Rotation2d.fromRadians(rightMotor.getAngleRads());
+    inputs.rightPositionRadians = rightMotor.getAngleRads();
     inputs.rightVelocityRPS = rightMotor.getVelocityRadPerSec();
     inputs.rightAppliedVolts = rightAppliedVolts;
     inputs.rightInternalVolts = rightAppliedVolts;
-    inputs.rightCurrentAmps = new double[] {rightMotor.getCurrentDrawAmps()};
-    inputs.rightTemperatureCelsius = new double[] {0.0};
+    inputs.rightCurrentAmps[0] = rightMotor.getCurrentDrawAmps();
+    inputs.rightTemperatureCelsius[0] = 0.0;
   }
 
   @Override
   public void setLeftVolts(double volts) {
-    leftAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    leftAppliedVolts = SimBattery.getInstance().clamp(volts);
     leftMotor.setInputVoltage(leftAppliedVolts);
   }
 
   @Override
   public void setRightVolts(double volts) {
-    rightAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    rightAppliedVolts = SimBattery.getInstance().clamp(volts);
     rightMotor.setInputVoltage(rightAppliedVolts);
   }
 }
@@ -6,13 +6,14 @@ package frc.robot.subsystems.climb;
 
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.CANBudget.SparkSignal;
 
 public class ClimbIOSparkMax implements ClimbIO {
   private final double GEARING = 125.0 / 1.0;
@@ -38,17 +39,22 @@ public class ClimbIOSparkMax implements ClimbIO {
     leftMotor.clearFaults();
     rightMotor.clearFaults();
 
-    leftMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-    leftMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 100);
-    leftMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 100);
-    leftMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, 100);
-    leftMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, 100);
-
-    rightMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-    rightMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 100);
-    rightMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 100);
-    rightMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, 100);
-    rightMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, 100);
+    // Arm position comes from the DIO encoders
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Climb/Left",
+            leftMotor,
+            SparkSignal.VELOCITY.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
+
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Climb/Right",
+            rightMotor,
+            SparkSignal.VELOCITY.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
 
     leftMotor.setSmartCurrentLimit(40);
     leftMotor.enableVoltageCompensation(12.0);
@@ -67,28 +73,34 @@ public class ClimbIOSparkMax implements ClimbIO {
 
     leftMotor.burnFlash();
     rightMotor.burnFlash();
+
+    leftMotor.setCANTimeout(0);
+    rightMotor.setCANTimeout(0);
   }
 
   @Override
   public void updateInputs(ClimbIOInputs inputs) {
     // TODO Add conversion factors as needed
-    inputs.leftPosition =
-        Rotation2d.fromRotations(leftAbsoluteEncoder.getAbsolutePosition()).plus(leftEncoderOffset);
+    inputs.leftPositionRadians =
+        MathUtil.angleModulus(
+            Units.rotationsToRadians(leftAbsoluteEncoder.getAbsolutePosition())
+                + leftEncoderOffset.getRadians());
     inputs.leftVelocityRPS =
         Units.rotationsPerMinuteToRadiansPerSecond(leftEncoder.getVelocity() / GEARING);
     inputs.leftAppliedVolts = leftAppliedVolts;
-    inputs.leftCurrentAmps = new double[] {leftMotor.getOutputCurrent()};
-    inputs.leftTemperatureCelsius = new double[] {leftMotor.getMotorTemperature()};
-
-    inputs.rightPosition =
-        Rotation2d.fromDegrees(360.0)
-            .minus(Rotation2d.fromRotations(rightAbsoluteEncoder.getAbsolutePosition()))
-            .plus(rightEncoderOffset);
+    inputs.leftCurrentAmps[0] = leftMotor.getOutputCurrent();
+    inputs.leftTemperatureCelsius[0] = leftMotor.getMotorTemperature();
+
+    inputs.rightPositionRadians =
+        MathUtil.angleModulus(
+            2.0 * Math.PI
+                - Units.rotationsToRadians(rightAbsoluteEncoder.getAbsolutePosition())
+                + rightEncoderOffset.getRadians());
     inputs.rightVelocityRPS =
         Units.rotationsPerMinuteToRadiansPerSecond(rightEncoder.getVelocity() / GEARING);
     inputs.rightAppliedVolts = rightAppliedVolts;
-    inputs.rightCurrentAmps = new double[] {rightMotor.getOutputCurrent()};
-    inputs.rightTemperatureCelsius = new double[] {rightMotor.getMotorTemperature()};
+    inputs.rightCurrentAmps[0] = rightMotor.getOutputCurrent();
+    inputs.rightTemperatureCelsius[0] = rightMotor.getMotorTemperature();
   }
 
   @Override
@@ -102,4 +114,10 @@ public class ClimbIOSparkMax implements ClimbIO {
     rightAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
     rightMotor.set(rightAppliedVolts);
   }
+
+  @Override
+  public void setCurrentLimit(double amps) {
+    leftMotor.setSmartCurrentLimit((int) Math.round(amps));
+    rightMotor.setSmartCurrentLimit((int) Math.round(amps));
+  }
 }
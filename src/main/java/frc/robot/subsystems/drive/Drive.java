@@ -33,7 +33,9 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.Constants.Mode;
+import frc.robot.utils.debugging.LoopProfiler;
 import frc.robot.utils.debugging.SysIDCharacterization;
+import frc.robot.utils.io.IOSampler;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
@@ -67,12 +69,18 @@ public class Drive extends SubsystemBase {
   private boolean areModulesOrienting = false;
 
   private GyroIO gyroIO;
-  private GyroIOInputsAutoLogged gyroIOInputs = new GyroIOInputsAutoLogged();
+  private GyroIO.GyroIOInputsLogged gyroIOInputs = new GyroIO.GyroIOInputsLogged();
+
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.getInstance().section("Subsystems/Drive");
+  private final LoopProfiler.Section setpointGeneratorSection =
+      LoopProfiler.getInstance().section("Drive/SetpointGenerator");
 
   private Module[] modules = new Module[4]; // FL FR BL BR
 
   private Pose2d currentPose = new Pose2d();
   private Pose2d filteredPose = new Pose2d();
+  private Pose2d trajectorySetpoint = null;
 
   // Used to compare pose estimator and odometry
   private SwerveDriveOdometry odometry =
@@ -93,11 +101,18 @@ public class Drive extends SubsystemBase {
   /** Creates a new swerve Drive. */
   public Drive(
       ModuleIO moduleFL, ModuleIO moduleFR, ModuleIO moduleBL, ModuleIO moduleBR, GyroIO gyro) {
+    gyroIO = gyro;
+    IOSampler.getInstance()
+        .register(
+            "Drive/Gyro/Inputs",
+            gyroIOInputs,
+            new GyroIO.GyroIOInputsLogged(),
+            gyroIO::updateInputs);
+
     modules[0] = new Module(moduleFL, 0);
     modules[1] = new Module(moduleFR, 1);
     modules[2] = new Module(moduleBL, 2);
     modules[3] = new Module(moduleBR, 3);
-    gyroIO = gyro;
 
     // Configure setpoint generator
     setpointGenerator =
@@ -137,6 +152,7 @@ public class Drive extends SubsystemBase {
         });
     PathPlannerLogging.setLogTargetPoseCallback(
         (targetPose) -> {
+          trajectorySetpoint = targetPose;
           Logger.recordOutput(
               "Drive/Odometry/TrajectorySetpoint", targetPose); // Auto log the target setpoint
         });
@@ -146,11 +162,7 @@ public class Drive extends SubsystemBase {
 
   @Override
   public void periodic() {
-    gyroIO.updateInputs(gyroIOInputs);
-    for (var module : modules) {
-      module.updateInputs();
-    }
-    Logger.processInputs("Drive/Gyro/Inputs", gyroIOInputs);
+    periodicSection.start();
 
     for (var module : modules) {
       module.periodic();
@@ -198,6 +210,8 @@ public class Drive extends SubsystemBase {
             getPoseEstimate().getRotation());
 
     field.setRobotPose(getFilteredPose());
+
+    periodicSection.stop();
   }
 
   /** Runs the swerve drive based on speeds */
@@ -211,8 +225,10 @@ public class Drive extends SubsystemBase {
     SwerveModuleState[] optimizedSetpointStates = new SwerveModuleState[4];
 
     if (!areModulesOrienting) {
+      setpointGeneratorSection.start();
       currentSetpoint =
           setpointGenerator.generateSetpoint(MODULE_LIMITS, currentSetpoint, discreteSpeeds, 0.02);
+      setpointGeneratorSection.stop();
 
       for (int i = 0; i < 4; i++) {
         // Optimized azimuth setpoint angles
@@ -277,24 +293,18 @@ public class Drive extends SubsystemBase {
   /** Set the pose of the robot */
   public void setPose(Pose2d pose) {
     if (Constants.currentMode == Mode.SIM) {
-      poseEstimator.resetPosition(pose.getRotation(), getModulePositions(), pose);
-      odometry.resetPosition(pose.getRotation(), getModulePositions(), pose);
-    } else {
-      poseEstimator.resetPosition(getRotation(), getModulePositions(), pose);
-      odometry.resetPosition(getRotation(), getModulePositions(), pose);
+      // Resetting the pose in sim means placing the robot there
+      SwerveSim.getInstance().setPose(pose);
     }
+    poseEstimator.resetPosition(getRotation(), getModulePositions(), pose);
+    odometry.resetPosition(getRotation(), getModulePositions(), pose);
 
     currentPose = poseEstimator.getEstimatedPosition();
   }
 
   public void setPoses(Pose2d visionPose, Pose2d odometryPose) {
-    if (Constants.currentMode == Mode.SIM) {
-      poseEstimator.resetPosition(visionPose.getRotation(), getModulePositions(), visionPose);
-      odometry.resetPosition(odometryPose.getRotation(), getModulePositions(), odometryPose);
-    } else {
-      poseEstimator.resetPosition(getRotation(), getModulePositions(), visionPose);
-      odometry.resetPosition(getRotation(), getModulePositions(), odometryPose);
-    }
+    poseEstimator.resetPosition(getRotation(), getModulePositions(), visionPose);
+    odometry.resetPosition(getRotation(), getModulePositions(), odometryPose);
 
     currentPose = poseEstimator.getEstimatedPosition();
   }
@@ -346,10 +356,22 @@ public class Drive extends SubsystemBase {
     return odometry.getPoseMeters();
   }
 
+  /** Returns the pose PathPlanner is currently steering towards, or null if no path has run */
+  public Pose2d getTrajectorySetpoint() {
+    return trajectorySetpoint;
+  }
+
   /** Returns the rotation of the robot */
   @AutoLogOutput(key = "Drive/Odometry/Rotation")
   public Rotation2d getRotation() {
-    return gyroIOInputs.yawPosition;
+    return Rotation2d.fromRadians(gyroIOInputs.yawPositionRadians);
+  }
+
+  /** Returns how fast the robot is turning, radians per second */
+  public double getYawVelocityRadPerSec() {
+    return gyroIOInputs.connected
+        ? gyroIOInputs.yawVelocityRadiansPerSecond
+        : getChassisSpeeds().omegaRadiansPerSecond;
   }
 
   /** Returns the maximum allowed linear (translational) speed */
@@ -373,7 +395,7 @@ public class Drive extends SubsystemBase {
   }
 
   /** Returns the positions of the modules on the drive */
-  public Translation2d[] getModuleTranslations() {
+  public static Translation2d[] getModuleTranslations() {
     return new Translation2d[] {
       new Translation2d(TRACK_WIDTH_X_M / 2.0, TRACK_WIDTH_Y_M / 2.0),
       new Translation2d(TRACK_WIDTH_X_M / 2.0, -TRACK_WIDTH_Y_M / 2.0),
@@ -383,7 +405,7 @@ public class Drive extends SubsystemBase {
   }
 
   /** Returns the kinematics of the drivetrain */
-  public SwerveDriveKinematics getKinematics() {
+  public static SwerveDriveKinematics getKinematics() {
     return new SwerveDriveKinematics(getModuleTranslations());
   }
 
@@ -412,6 +434,22 @@ public class Drive extends SubsystemBase {
     return filteredPose;
   }
 
+  /** Set the current limit of every drive motor */
+  public void setDriveCurrentLimit(double amps) {
+    for (int i = 0; i < 4; i++) {
+      modules[i].setDriveCurrentLimit(amps);
+    }
+  }
+
+  /** Returns the current drawn by all the drive motors */
+  public double getDriveSupplyCurrentAmps() {
+    double currentAmps = 0.0;
+    for (int i = 0; i < 4; i++) {
+      currentAmps += modules[i].getDriveSupplyCurrentAmps();
+    }
+    return currentAmps;
+  }
+
   public void resetModules() {
     for (int i = 0; i < 4; i++) {
       modules[i].reset();
@@ -4,8 +4,9 @@
 
 package frc.robot.subsystems.drive;
 
-import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.utils.io.LegacyInputKeys;
 import org.littletonrobotics.junction.AutoLog;
+import org.littletonrobotics.junction.LogTable;
 
 /** Hardware interface for gyros */
 public interface GyroIO {
@@ -13,10 +14,20 @@ public interface GyroIO {
   @AutoLog
   public static class GyroIOInputs {
     public boolean connected = false;
-    public Rotation2d yawPosition = new Rotation2d();
+    public double yawPositionRadians = 0.0;
     public double yawVelocityRadiansPerSecond = 0.0;
   }
 
+  /** Gyro inputs that can replay the yaw from logs made before it was in radians */
+  public static class GyroIOInputsLogged extends GyroIOInputsAutoLogged {
+    @Override
+    public void fromLog(LogTable table) {
+      super.fromLog(table);
+      yawPositionRadians =
+          LegacyInputKeys.getRotationRadians(table, "YawPosition", yawPositionRadians);
+    }
+  }
+
   /** Update the inputs from the sensors */
   public default void updateInputs(GyroIOInputs inputs) {}
 
@@ -5,14 +5,14 @@
 package frc.robot.subsystems.drive;
 
 import com.ctre.phoenix6.BaseStatusSignal;
-import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.PhoenixSignalRegistry;
 
 /** Class to interact with the physical gyroscope */
 public class GyroIOPigeon2 implements GyroIO {
@@ -20,22 +20,26 @@ public class GyroIOPigeon2 implements GyroIO {
 
   private StatusSignal<Double> yaw = gyro.getYaw();
   private StatusSignal<Double> yawVelocity = gyro.getAngularVelocityXWorld();
+  private BaseStatusSignal[] signals = {yaw, yawVelocity};
 
   /** Create a new hardware implementation of the gyroscope */
   public GyroIOPigeon2(boolean phoenixDrive) {
     gyro.getConfigurator().apply(new Pigeon2Configuration());
     gyro.getConfigurator().setYaw(0.0);
 
-    BaseStatusSignal.setUpdateFrequencyForAll(50.0, yaw, yawVelocity);
+    CANBudget.getInstance()
+        .configurePhoenix(
+            "Drive/Gyro", PhoenixSignalRegistry.RIO_BUS, CANBudget.CONTROL_HZ, yaw, yawVelocity);
+    PhoenixSignalRegistry.getInstance().register(PhoenixSignalRegistry.RIO_BUS, yaw, yawVelocity);
 
     gyro.optimizeBusUtilization();
   }
 
   @Override
   public void updateInputs(GyroIOInputs inputs) {
-    // Refresh telemetry signals, if still good gyro is connected
-    inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity).equals(StatusCode.OK);
-    inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
+    // Signals are refreshed by the registry, if still good gyro is connected
+    inputs.connected = BaseStatusSignal.isAllGood(signals);
+    inputs.yawPositionRadians = Units.degreesToRadians(yaw.getValueAsDouble());
     inputs.yawVelocityRadiansPerSecond = Units.degreesToRadians(yawVelocity.getValueAsDouble());
   }
 
@@ -0,0 +1,51 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.utils.sim.SimNoise;
+import frc.robot.utils.sim.SimState;
+
+/** Class to represent the gyroscope in simulation, reads the chassis yaw plus drift */
+public class GyroIOSim implements GyroIO {
+  private final double LOOP_PERIOD_S = 0.02;
+
+  private double driftRadians = 0.0;
+  private double offsetRadians = 0.0;
+
+  public GyroIOSim() {
+    SimState.getInstance().register(this::reset);
+  }
+
+  /** No drift built up and no offset, SwerveSim zeroes the yaw */
+  private void reset() {
+    driftRadians = 0.0;
+    offsetRadians = 0.0;
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    double driftVelocity = SimNoise.getInstance().getGyroDriftRadiansPerSecond();
+    driftRadians += driftVelocity * LOOP_PERIOD_S;
+
+    inputs.connected = true;
+    inputs.yawPositionRadians = MathUtil.angleModulus(getRawYawRadians() + offsetRadians);
+    inputs.yawVelocityRadiansPerSecond =
+        SwerveSim.getInstance().getYawVelocityRadiansPerSecond() + driftVelocity;
+  }
+
+  @Override
+  public void resetGyro() {
+    double heading =
+        (DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red) ? Math.PI : 0.0;
+    offsetRadians = heading - getRawYawRadians();
+  }
+
+  private double getRawYawRadians() {
+    return SwerveSim.getInstance().getGyroYawRadians() + driftRadians;
+  }
+}
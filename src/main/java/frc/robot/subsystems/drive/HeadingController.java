@@ -0,0 +1,174 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import java.util.Arrays;
+
+/**
+ * Turns the robot to a heading goal that can be moving. The goal's angular velocity is fed forward
+ * so a goal that turns as the robot drives past it is tracked instead of chased. Feedback closes
+ * the rest of the error at the speed the robot can still stop from with its max acceleration, so
+ * it converges without overshoot
+ *
+ * <p>Both the heading and the goal are predicted forward by the latency between commanding a turn
+ * rate and the gyro seeing it. The latency is measured while running by matching the gyro rate
+ * against delayed copies of the commanded rate. Everything is in radians and nothing is allocated
+ * per loop
+ */
+public class HeadingController {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+
+  // Candidate latencies are 1 to MAX_DELAY_LOOPS loops, a command can't show up the loop it's sent
+  private static final int MAX_DELAY_LOOPS = 10;
+  private static final int DEFAULT_DELAY_LOOPS = 3;
+  private static final double LATENCY_FILTER_GAIN = 0.02;
+  // Turn rates too small to tell the delays apart
+  private static final double MIN_EXCITATION_RAD_PER_SEC = 0.3;
+
+  private double kP;
+  private double kD;
+  private double maxVelocityRadPerSec;
+  private double maxAccelerationRadPerSecSq;
+  private double toleranceRad;
+
+  private final double[] commandHistory = new double[MAX_DELAY_LOOPS];
+  private final double[] delayErrors = new double[MAX_DELAY_LOOPS + 1];
+  private int historyIndex = 0;
+  private double latencySecs = DEFAULT_DELAY_LOOPS * LOOP_PERIOD_SECS;
+
+  private double lastOutputRadPerSec = 0.0;
+  private double errorRad = 0.0;
+  private double velocityErrorRadPerSec = 0.0;
+
+  /**
+   * @param kP Turn rate per radian of error
+   * @param kD Turn rate per radian per second of error rate
+   * @param maxVelocityRadPerSec Fastest the controller turns the robot
+   * @param maxAccelerationRadPerSecSq Fastest the controller changes the turn rate
+   * @param toleranceRad Error the controller is at the goal within
+   */
+  public HeadingController(
+      double kP,
+      double kD,
+      double maxVelocityRadPerSec,
+      double maxAccelerationRadPerSecSq,
+      double toleranceRad) {
+    setGains(kP, kD);
+    setConstraints(maxVelocityRadPerSec, maxAccelerationRadPerSecSq);
+    this.toleranceRad = toleranceRad;
+
+    // Start out trusting the default until the robot has turned enough to measure
+    for (int delay = 1; delay <= MAX_DELAY_LOOPS; delay++) {
+      delayErrors[delay] = (delay == DEFAULT_DELAY_LOOPS) ? 0.0 : 1e-3;
+    }
+  }
+
+  public void setGains(double kP, double kD) {
+    this.kP = kP;
+    this.kD = kD;
+  }
+
+  public void setConstraints(double maxVelocityRadPerSec, double maxAccelerationRadPerSecSq) {
+    this.maxVelocityRadPerSec = maxVelocityRadPerSec;
+    this.maxAccelerationRadPerSecSq = maxAccelerationRadPerSecSq;
+  }
+
+  /** Start from the robot's current turn rate, call before the first calculate() of a turn */
+  public void reset(double yawVelocityRadPerSec) {
+    lastOutputRadPerSec = yawVelocityRadPerSec;
+    // Whatever was commanded while this wasn't running, it was turning the robot at this rate
+    Arrays.fill(commandHistory, yawVelocityRadPerSec);
+  }
+
+  /**
+   * Calculate the turn rate, call once per loop
+   *
+   * @param headingRad Measured heading
+   * @param yawVelocityRadPerSec Measured turn rate
+   * @param goalRad Heading goal
+   * @param goalVelocityRadPerSec Rate the heading goal is turning at
+   * @return Turn rate to command
+   */
+  public double calculate(
+      double headingRad,
+      double yawVelocityRadPerSec,
+      double goalRad,
+      double goalVelocityRadPerSec) {
+    updateLatency(yawVelocityRadPerSec);
+
+    // Where both will be once this loop's command takes effect
+    double predictedHeadingRad = headingRad + yawVelocityRadPerSec * latencySecs;
+    double predictedGoalRad = goalRad + goalVelocityRadPerSec * latencySecs;
+
+    errorRad = MathUtil.angleModulus(predictedGoalRad - predictedHeadingRad);
+    velocityErrorRadPerSec = goalVelocityRadPerSec - yawVelocityRadPerSec;
+
+    // Capped at the rate the robot can still stop from within the error, so it never overshoots
+    double stoppableRadPerSec = Math.sqrt(2.0 * maxAccelerationRadPerSecSq * Math.abs(errorRad));
+    double feedbackRadPerSec =
+        Math.copySign(Math.min(kP * Math.abs(errorRad), stoppableRadPerSec), errorRad)
+            + kD * velocityErrorRadPerSec;
+
+    double outputRadPerSec =
+        MathUtil.clamp(
+            goalVelocityRadPerSec + feedbackRadPerSec,
+            -maxVelocityRadPerSec,
+            maxVelocityRadPerSec);
+    double maxStepRadPerSec = maxAccelerationRadPerSecSq * LOOP_PERIOD_SECS;
+    outputRadPerSec =
+        MathUtil.clamp(
+            outputRadPerSec,
+            lastOutputRadPerSec - maxStepRadPerSec,
+            lastOutputRadPerSec + maxStepRadPerSec);
+    lastOutputRadPerSec = outputRadPerSec;
+
+    historyIndex = (historyIndex + 1) % commandHistory.length;
+    commandHistory[historyIndex] = outputRadPerSec;
+    return outputRadPerSec;
+  }
+
+  /** Score each candidate delay by how well the delayed command matches the measured rate */
+  private void updateLatency(double yawVelocityRadPerSec) {
+    if (Math.abs(yawVelocityRadPerSec) < MIN_EXCITATION_RAD_PER_SEC) {
+      return;
+    }
+
+    int bestDelay = 1;
+    for (int delay = 1; delay <= MAX_DELAY_LOOPS; delay++) {
+      // The newest entry was commanded last loop
+      int index = Math.floorMod(historyIndex - delay + 1, commandHistory.length);
+      double error = yawVelocityRadPerSec - commandHistory[index];
+      delayErrors[delay] += (error * error - delayErrors[delay]) * LATENCY_FILTER_GAIN;
+      if (delayErrors[delay] < delayErrors[bestDelay]) {
+        bestDelay = delay;
+      }
+    }
+    latencySecs = bestDelay * LOOP_PERIOD_SECS;
+  }
+
+  /** Change the error the controller is at the goal within, for goals that get easier up close */
+  public void setTolerance(double toleranceRad) {
+    this.toleranceRad = toleranceRad;
+  }
+
+  public boolean atGoal() {
+    return Math.abs(errorRad) < toleranceRad;
+  }
+
+  /** Predicted error, radians */
+  public double getErrorRad() {
+    return errorRad;
+  }
+
+  public double getVelocityErrorRadPerSec() {
+    return velocityErrorRadPerSec;
+  }
+
+  /** Measured latency the heading is predicted forward by */
+  public double getLatencySecs() {
+    return latencySecs;
+  }
+}
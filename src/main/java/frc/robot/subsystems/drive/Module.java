@@ -7,14 +7,15 @@ package frc.robot.subsystems.drive;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import org.littletonrobotics.junction.Logger;
+import frc.robot.utils.io.IOSampler;
+import frc.robot.utils.power.PowerManager;
 
 /** Swerve module wrapper */
 public class Module {
   private final int MODULE_ID;
 
   private ModuleIO moduleIO;
-  private ModuleIOInputsAutoLogged moduleIOInputs = new ModuleIOInputsAutoLogged();
+  private ModuleIO.ModuleIOInputsLogged moduleIOInputs = new ModuleIO.ModuleIOInputsLogged();
 
   Double velocitySetpoint = null;
   Rotation2d angleSetpoint = null;
@@ -23,19 +24,18 @@ public class Module {
   public Module(ModuleIO io, int id) {
     moduleIO = io;
     MODULE_ID = id;
-  }
 
-  /**
-   * Update inputs without running periodic logic; Odometry updates need to be properly thread
-   * locked
-   */
-  public void updateInputs() {
-    moduleIO.updateInputs(moduleIOInputs);
+    IOSampler.getInstance()
+        .register(
+            "Drive/Module" + Integer.toString(MODULE_ID),
+            moduleIOInputs,
+            new ModuleIO.ModuleIOInputsLogged(),
+            moduleIO::updateInputs);
   }
 
   /** Called in subsystem periodic */
   public void periodic() {
-    Logger.processInputs("Drive/Module" + Integer.toString(MODULE_ID), moduleIOInputs);
+    moduleIO.applyTunableNumbers();
 
     // Run PID (in IO layer)
     if (angleSetpoint != null) {
@@ -72,6 +72,17 @@ public class Module {
     moduleIO.setDriveVolts(voltage);
   }
 
+  /** Set the drive motor's current limit */
+  public void setDriveCurrentLimit(double amps) {
+    moduleIO.setDriveCurrentLimit(amps);
+  }
+
+  /** Get the drive motor's current draw */
+  public double getDriveSupplyCurrentAmps() {
+    return PowerManager.getSupplyCurrentAmps(
+        moduleIOInputs.driveCurrentAmps[0], moduleIOInputs.driveAppliedVolts);
+  }
+
   /** Sets the module's IdleMode */
   public void setBrake(boolean shouldBrake) {
     moduleIO.setDriveBrake(shouldBrake);
@@ -80,7 +91,7 @@ public class Module {
 
   /** Get the current angle of the azimuth */
   public Rotation2d getAngle() {
-    return moduleIOInputs.azimuthPosition;
+    return Rotation2d.fromRadians(moduleIOInputs.azimuthPositionRadians);
   }
 
   /** Get the distance travelled by the drive motor */
@@ -5,7 +5,9 @@
 package frc.robot.subsystems.drive;
 
 import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.utils.io.LegacyInputKeys;
 import org.littletonrobotics.junction.AutoLog;
+import org.littletonrobotics.junction.LogTable;
 
 /** Hardware interface for swerve modules */
 public interface ModuleIO {
@@ -15,25 +17,48 @@ public interface ModuleIO {
     public double drivePositionM = 0.0;
     public double driveVelocityMPS = 0.0;
     public double driveAppliedVolts = 0.0;
-    public double[] driveCurrentAmps = new double[] {};
-    public double[] driveTemperatureCelsius = new double[] {};
+    public double[] driveCurrentAmps = new double[] {0.0};
+    public double[] driveTemperatureCelsius = new double[] {0.0};
 
-    public Rotation2d azimuthAbsolutePosition = new Rotation2d();
-    public Rotation2d azimuthPosition = new Rotation2d();
-    public Rotation2d azimuthError = new Rotation2d();
-    public Rotation2d azimuthGoal = new Rotation2d();
+    public double azimuthAbsolutePositionRadians = 0.0;
+    public double azimuthPositionRadians = 0.0;
+    public double azimuthErrorRadians = 0.0;
+    public double azimuthGoalRadians = 0.0;
     public double azimuthVelocityRPS = 0.0;
     public double azimuthAppliedVolts = 0.0;
-    public double[] azimuthCurrentAmps = new double[] {};
-    public double[] azimuthTemperatureCelsius = new double[] {};
+    public double[] azimuthCurrentAmps = new double[] {0.0};
+    public double[] azimuthTemperatureCelsius = new double[] {0.0};
+  }
+
+  /** Module inputs that can replay the azimuth angles from logs made before they were in radians */
+  public static class ModuleIOInputsLogged extends ModuleIOInputsAutoLogged {
+    @Override
+    public void fromLog(LogTable table) {
+      super.fromLog(table);
+      azimuthAbsolutePositionRadians =
+          LegacyInputKeys.getRotationRadians(
+              table, "AzimuthAbsolutePosition", azimuthAbsolutePositionRadians);
+      azimuthPositionRadians =
+          LegacyInputKeys.getRotationRadians(table, "AzimuthPosition", azimuthPositionRadians);
+      azimuthErrorRadians =
+          LegacyInputKeys.getRotationRadians(table, "AzimuthError", azimuthErrorRadians);
+      azimuthGoalRadians =
+          LegacyInputKeys.getRotationRadians(table, "AzimuthGoal", azimuthGoalRadians);
+    }
   }
 
   /** Update the inputs from the sensors */
   public default void updateInputs(ModuleIOInputs inputs) {}
 
+  /** Apply changed tunable gains, called from the main loop rather than updateInputs() */
+  public default void applyTunableNumbers() {}
+
   /** Set the voltage of the drive motor */
   public default void setDriveVolts(double volts) {}
 
+  /** Set the current limit of the drive motor */
+  public default void setDriveCurrentLimit(double amps) {}
+
   /** Set the voltage of the azimuth motor */
   public default void setAzimuthVolts(double volts) {}
 
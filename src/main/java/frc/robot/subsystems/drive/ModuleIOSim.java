@@ -8,69 +8,82 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.sim.SimState;
 
-/** Class to represent the swerve module in simulation */
+/** Class to represent the swerve module in simulation, the motors and wheel live in SwerveSim */
 public class ModuleIOSim implements ModuleIO {
-  private final double LOOP_PERIOD_S = 0.02;
-  private final double DRIVE_GEAR_RATIO = 6.75 / 1.0;
-  private final double AZIMUTH_GEAR_RATIO = 150.0 / 7.0;
-  private final double CIRCUMFRENCE_METERS = 2 * Math.PI * (5.08 / 100);
+  // Where the absolute encoder's zero sits on each module
+  private static final double[] ABSOLUTE_ENCODER_OFFSETS_RADIANS = {
+    0.0, Math.PI / 2.0, Math.PI, -Math.PI / 2.0
+  };
 
-  private DCMotorSim driveMotor = new DCMotorSim(DCMotor.getNEO(1), DRIVE_GEAR_RATIO, 0.025);
-  private DCMotorSim azimuthMotor = new DCMotorSim(DCMotor.getNEO(1), AZIMUTH_GEAR_RATIO, 0.004);
+  private final int MODULE;
 
-  private final Rotation2d INITIAL_ABSOLUTE_ANGLE = new Rotation2d(Math.random() * 2.0 * Math.PI);
   private double driveAppliedVolts = 0.0;
   private double azimuthAppliedVolts = 0.0;
 
-  private PIDController driveFeedback = new PIDController(0.002, 0.0, 0.0);
-  private SimpleMotorFeedforward driveFeedforward = new SimpleMotorFeedforward(0.0, 0.15, 0.0);
+  private PIDController driveFeedback = new PIDController(1.0, 0.0, 0.0);
+  // 12 V over the NEO's free speed at the wheel
+  private SimpleMotorFeedforward driveFeedforward = new SimpleMotorFeedforward(0.0, 2.64, 0.0);
 
   private PIDController azimuthFeedback = new PIDController(2.7, 0.0, 0.0);
 
   /** Create a new virtual implementation of a swerve module */
   public ModuleIOSim(int module) {
+    MODULE = module;
     azimuthFeedback.enableContinuousInput(-Math.PI, Math.PI);
+    SimState.getInstance().register(this::reset);
+  }
+
+  private void reset() {
+    driveAppliedVolts = 0.0;
+    azimuthAppliedVolts = 0.0;
+    driveFeedback.reset();
+    azimuthFeedback.reset();
   }
 
   @Override
   public void updateInputs(ModuleIOInputs inputs) {
-    driveMotor.update(LOOP_PERIOD_S);
-    azimuthMotor.update(LOOP_PERIOD_S);
+    SwerveSim sim = SwerveSim.getInstance();
 
-    inputs.drivePositionM = driveMotor.getAngularPositionRotations() * CIRCUMFRENCE_METERS;
-    inputs.driveVelocityMPS = driveMotor.getAngularVelocityRPM() * CIRCUMFRENCE_METERS;
+    inputs.drivePositionM = sim.getDrivePositionMeters(MODULE);
+    inputs.driveVelocityMPS = sim.getDriveVelocityMPS(MODULE);
     inputs.driveAppliedVolts = driveAppliedVolts;
-    inputs.driveCurrentAmps = new double[] {Math.abs(driveMotor.getCurrentDrawAmps())};
-    inputs.driveTemperatureCelsius = new double[] {0.0};
-
-    inputs.azimuthAbsolutePosition =
-        new Rotation2d(azimuthMotor.getAngularPositionRad()).plus(INITIAL_ABSOLUTE_ANGLE);
-    inputs.azimuthPosition = new Rotation2d(azimuthMotor.getAngularPositionRad());
-    inputs.azimuthVelocityRPS = azimuthMotor.getAngularVelocityRadPerSec();
+    inputs.driveCurrentAmps[0] = Math.abs(sim.getDriveCurrentAmps(MODULE));
+    inputs.driveTemperatureCelsius[0] = 0.0;
+
+    inputs.azimuthAbsolutePositionRadians =
+        MathUtil.angleModulus(
+            sim.getAzimuthPositionRadians(MODULE) + ABSOLUTE_ENCODER_OFFSETS_RADIANS[MODULE]);
+    inputs.azimuthPositionRadians = sim.getAzimuthPositionRadians(MODULE);
+    inputs.azimuthVelocityRPS = sim.getAzimuthVelocityRadiansPerSecond(MODULE);
     inputs.azimuthAppliedVolts = azimuthAppliedVolts;
-    inputs.azimuthCurrentAmps = new double[] {Math.abs(azimuthMotor.getCurrentDrawAmps())};
-    inputs.azimuthTemperatureCelsius = new double[] {0.0};
+    inputs.azimuthCurrentAmps[0] = Math.abs(sim.getAzimuthCurrentAmps(MODULE));
+    inputs.azimuthTemperatureCelsius[0] = 0.0;
   }
 
   @Override
   public void setDriveVolts(double volts) {
-    driveAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-    driveMotor.setInputVoltage(driveAppliedVolts);
+    driveAppliedVolts = SimBattery.getInstance().clamp(volts);
+    SwerveSim.getInstance().setDriveVolts(MODULE, driveAppliedVolts);
+  }
+
+  @Override
+  public void setDriveCurrentLimit(double amps) {
+    SwerveSim.getInstance().setDriveCurrentLimit(MODULE, amps);
   }
 
   @Override
   public void setAzimuthVolts(double volts) {
-    azimuthAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-    azimuthMotor.setInputVoltage(azimuthAppliedVolts);
+    azimuthAppliedVolts = SimBattery.getInstance().clamp(volts);
+    SwerveSim.getInstance().setAzimuthVolts(MODULE, azimuthAppliedVolts);
   }
 
   @Override
   public void setDriveVelocity(double velocityMPS) {
     var feedbackOutput =
-        driveFeedback.calculate(driveMotor.getAngularVelocityRPM() * CIRCUMFRENCE_METERS / 60.0);
+        driveFeedback.calculate(SwerveSim.getInstance().getDriveVelocityMPS(MODULE), velocityMPS);
     feedbackOutput += driveFeedforward.calculate(velocityMPS);
     setDriveVolts(feedbackOutput);
   }
@@ -78,7 +91,8 @@ public class ModuleIOSim implements ModuleIO {
   @Override
   public void setAzimuthPosition(Rotation2d position) {
     var feedbackOutput =
-        azimuthFeedback.calculate(azimuthMotor.getAngularPositionRad(), position.getRadians());
+        azimuthFeedback.calculate(
+            SwerveSim.getInstance().getAzimuthPositionRadians(MODULE), position.getRadians());
 
     setAzimuthVolts(feedbackOutput);
   }
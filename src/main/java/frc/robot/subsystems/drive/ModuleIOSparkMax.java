@@ -4,7 +4,6 @@
 
 package frc.robot.subsystems.drive;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.revrobotics.CANSparkBase.ControlType;
@@ -18,7 +17,11 @@ import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import frc.robot.Constants;
+import frc.robot.utils.can.CANBudget.SparkSignal;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.PhoenixSignalRegistry;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.TunableRegistry;
 
 /** Class to interact with the physical swerve module structure, SDS L2 */
 public class ModuleIOSparkMax implements ModuleIO {
@@ -56,9 +59,11 @@ public class ModuleIOSparkMax implements ModuleIO {
       new LoggedTunableNumber("Drive/ModuleIO/Azimuth/Feedback/I", 0.0);
   private LoggedTunableNumber azimuthFeedbackD =
       new LoggedTunableNumber("Drive/ModuleIO/Azimuth/Feedback/D", 0.0);
+  private int tunableVersion = -1;
 
-  private Rotation2d azimuthAngle = new Rotation2d();
-  private Rotation2d azimuthAngleSetpoint = new Rotation2d();
+  // Written by updateInputs() on the sampler thread and by the setters on the main thread
+  private volatile double azimuthAngleRadians = 0.0;
+  private volatile Rotation2d azimuthAngleSetpoint = new Rotation2d();
 
   private StatusSignal<Double> absolutePositionSignal;
 
@@ -69,7 +74,7 @@ public class ModuleIOSparkMax implements ModuleIO {
         driveMotor = new CANSparkMax(11, MotorType.kBrushless);
         azimuthMotor = new CANSparkMax(21, MotorType.kBrushless);
 
-        angleEncoder = new CANcoder(31, "CTREBUS");
+        angleEncoder = new CANcoder(31, PhoenixSignalRegistry.CANIVORE_BUS);
         angleOffset = Rotation2d.fromRotations(-0.275879);
 
         break;
@@ -77,7 +82,7 @@ public class ModuleIOSparkMax implements ModuleIO {
         driveMotor = new CANSparkMax(12, MotorType.kBrushless);
         azimuthMotor = new CANSparkMax(22, MotorType.kBrushless);
 
-        angleEncoder = new CANcoder(32, "CTREBUS");
+        angleEncoder = new CANcoder(32, PhoenixSignalRegistry.CANIVORE_BUS);
         angleOffset = Rotation2d.fromRotations(-0.273926);
 
         break;
@@ -85,7 +90,7 @@ public class ModuleIOSparkMax implements ModuleIO {
         driveMotor = new CANSparkMax(13, MotorType.kBrushless);
         azimuthMotor = new CANSparkMax(23, MotorType.kBrushless);
 
-        angleEncoder = new CANcoder(33, "CTREBUS");
+        angleEncoder = new CANcoder(33, PhoenixSignalRegistry.CANIVORE_BUS);
         angleOffset = Rotation2d.fromRotations(-0.390137);
 
         break;
@@ -93,7 +98,7 @@ public class ModuleIOSparkMax implements ModuleIO {
         driveMotor = new CANSparkMax(14, MotorType.kBrushless);
         azimuthMotor = new CANSparkMax(24, MotorType.kBrushless);
 
-        angleEncoder = new CANcoder(34, "CTREBUS");
+        angleEncoder = new CANcoder(34, PhoenixSignalRegistry.CANIVORE_BUS);
         angleOffset = Rotation2d.fromRotations(0.382568);
 
         break;
@@ -153,12 +158,41 @@ public class ModuleIOSparkMax implements ModuleIO {
     azimuthFeedback.setPositionPIDWrappingMinInput(-0.5 * AZIMUTH_GEAR_RATIO);
     azimuthFeedback.setPositionPIDWrappingMaxInput(0.5 * AZIMUTH_GEAR_RATIO);
 
+    // Position and velocity feed odometry and the velocity loop every cycle
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Drive/Module" + module + "/Drive",
+            driveMotor,
+            SparkSignal.POSITION.at(CANBudget.CONTROL_HZ),
+            SparkSignal.VELOCITY.at(CANBudget.CONTROL_HZ),
+            SparkSignal.APPLIED_OUTPUT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.BUS_VOLTAGE.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Drive/Module" + module + "/Azimuth",
+            azimuthMotor,
+            SparkSignal.POSITION.at(CANBudget.CONTROL_HZ),
+            SparkSignal.VELOCITY.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.APPLIED_OUTPUT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.BUS_VOLTAGE.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
+
     driveMotor.burnFlash();
     azimuthMotor.burnFlash();
 
     absolutePositionSignal = angleEncoder.getAbsolutePosition();
 
-    BaseStatusSignal.setUpdateFrequencyForAll(50.0, absolutePositionSignal);
+    CANBudget.getInstance()
+        .configurePhoenix(
+            "Drive/Module" + module + "/CANcoder",
+            PhoenixSignalRegistry.CANIVORE_BUS,
+            CANBudget.CONTROL_HZ,
+            absolutePositionSignal);
+    PhoenixSignalRegistry.getInstance()
+        .register(PhoenixSignalRegistry.CANIVORE_BUS, absolutePositionSignal);
 
     angleEncoder.optimizeBusUtilization();
   }
@@ -169,26 +203,31 @@ public class ModuleIOSparkMax implements ModuleIO {
     inputs.driveVelocityMPS =
         driveEncoder.getVelocity() * CIRCUMFRENCE_METERS / (60.0 * DRIVE_GEAR_RATIO);
     inputs.driveAppliedVolts = driveMotor.getAppliedOutput() * driveMotor.getBusVoltage();
-    inputs.driveCurrentAmps = new double[] {driveMotor.getOutputCurrent()};
-    inputs.driveTemperatureCelsius = new double[] {driveMotor.getMotorTemperature()};
+    inputs.driveCurrentAmps[0] = driveMotor.getOutputCurrent();
+    inputs.driveTemperatureCelsius[0] = driveMotor.getMotorTemperature();
 
-    inputs.azimuthAbsolutePosition =
-        Rotation2d.fromRotations(absolutePositionSignal.getValueAsDouble())
-            .minus(angleOffset);
-    inputs.azimuthPosition =
-        Rotation2d.fromRotations(azimuthEncoder.getPosition() / AZIMUTH_GEAR_RATIO);
+    inputs.azimuthAbsolutePositionRadians =
+        MathUtil.angleModulus(
+            Units.rotationsToRadians(absolutePositionSignal.getValueAsDouble())
+                - angleOffset.getRadians());
+    inputs.azimuthPositionRadians =
+        Units.rotationsToRadians(azimuthEncoder.getPosition() / AZIMUTH_GEAR_RATIO);
 
-    azimuthAngle = inputs.azimuthPosition;
+    azimuthAngleRadians = inputs.azimuthPositionRadians;
     inputs.azimuthVelocityRPS =
         Units.rotationsPerMinuteToRadiansPerSecond(azimuthEncoder.getVelocity())
             / AZIMUTH_GEAR_RATIO;
-    inputs.azimuthError = azimuthAngleSetpoint.minus(azimuthAngle);
-    inputs.azimuthGoal = azimuthAngleSetpoint;
+    inputs.azimuthErrorRadians =
+        MathUtil.angleModulus(azimuthAngleSetpoint.getRadians() - azimuthAngleRadians);
+    inputs.azimuthGoalRadians = azimuthAngleSetpoint.getRadians();
     inputs.azimuthAppliedVolts = azimuthMotor.getAppliedOutput() * azimuthMotor.getBusVoltage();
-    inputs.azimuthCurrentAmps = new double[] {azimuthMotor.getOutputCurrent()};
-    inputs.azimuthTemperatureCelsius = new double[] {azimuthMotor.getMotorTemperature()};
+    inputs.azimuthCurrentAmps[0] = azimuthMotor.getOutputCurrent();
+    inputs.azimuthTemperatureCelsius[0] = azimuthMotor.getMotorTemperature();
+  }
 
-    if (Constants.tuningMode) {
+  @Override
+  public void applyTunableNumbers() {
+    if (Constants.tuningMode && TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
       updateTunableNumbers();
     }
   }
@@ -199,6 +238,11 @@ public class ModuleIOSparkMax implements ModuleIO {
     driveMotor.setVoltage(clampedVolts);
   }
 
+  @Override
+  public void setDriveCurrentLimit(double amps) {
+    driveMotor.setSmartCurrentLimit((int) Math.round(amps));
+  }
+
   @Override
   public void setAzimuthVolts(double volts) {
     double clampedVolts = MathUtil.clamp(volts, -12.0, 12.0);
@@ -219,7 +263,7 @@ public class ModuleIOSparkMax implements ModuleIO {
     azimuthAngleSetpoint = position;
     double feedforwardOutput =
         azimuthFeedforward.calculate(
-            Math.signum(position.getRotations() - azimuthAngle.getRotations()));
+            Math.signum(position.getRotations() - Units.radiansToRotations(azimuthAngleRadians)));
     azimuthFeedback.setReference(
         position.getRotations() * AZIMUTH_GEAR_RATIO, ControlType.kPosition, 0, feedforwardOutput);
   }
@@ -244,20 +288,21 @@ public class ModuleIOSparkMax implements ModuleIO {
 
   /** Update the tunable numbers if they've changed */
   private void updateTunableNumbers() {
-    if (driveFeedbackP.hasChanged(hashCode())
-        || driveFeedbackI.hasChanged(hashCode())
-        || driveFeedbackD.hasChanged(hashCode())) {
+    if (driveFeedbackP.hasChangedSince(tunableVersion)
+        || driveFeedbackI.hasChangedSince(tunableVersion)
+        || driveFeedbackD.hasChangedSince(tunableVersion)) {
       driveFeedback.setP(driveFeedbackP.get());
       driveFeedback.setI(driveFeedbackI.get());
       driveFeedback.setD(driveFeedbackD.get());
     }
-    if (azimuthFeedbackP.hasChanged(hashCode())
-        || azimuthFeedbackI.hasChanged(hashCode())
-        || azimuthFeedbackD.hasChanged(hashCode())) {
+    if (azimuthFeedbackP.hasChangedSince(tunableVersion)
+        || azimuthFeedbackI.hasChangedSince(tunableVersion)
+        || azimuthFeedbackD.hasChangedSince(tunableVersion)) {
       azimuthFeedback.setP(azimuthFeedbackP.get());
       azimuthFeedback.setI(azimuthFeedbackI.get());
       azimuthFeedback.setD(azimuthFeedbackD.get());
     }
+    tunableVersion = TunableRegistry.getInstance().getVersion();
   }
 
   /** Reset the relative azimuth encoder to the absolute position */
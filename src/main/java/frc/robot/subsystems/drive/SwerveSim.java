@@ -0,0 +1,306 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.sim.SimNoise;
+import frc.robot.utils.sim.SimState;
+import java.util.Arrays;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Swerve drive physics for simulation. Each 20 ms loop is split into 1 ms substeps, every substep
+ * runs the drive and azimuth motors, the tread forces between each wheel and the carpet, and the
+ * chassis as a rigid body. Tread force grows with the slip between the wheel surface and the
+ * ground and saturates at the friction limit, so wheels spin up under hard acceleration and the
+ * chassis slides in hard turns, and the encoders see the wheel while the field sees the chassis
+ *
+ * <p>The module sim IOs set motor voltages and read their sensors from here, the sim gyro reads
+ * the chassis yaw and the vision sim reads the true pose. The motors are limited to the battery
+ * voltage every substep, with the drive's own current from the last substep sagging it. All state
+ * is primitive arrays allocated once, so stepping the physics doesn't allocate
+ */
+public class SwerveSim {
+  private static final double LOOP_PERIOD_S = 0.02;
+  private static final int SUBSTEPS = 20;
+  private static final double SUBSTEP_S = LOOP_PERIOD_S / SUBSTEPS;
+
+  private static final double MASS_KG = 60.0;
+  // Uniform square the size of the frame perimeter with bumpers
+  private static final double MOMENT_OF_INERTIA_KG_M2 = MASS_KG * 2.0 * 0.8 * 0.8 / 12.0;
+  private static final double GRAVITY_MPS2 = 9.81;
+  private static final double FRICTION_COEFFICIENT = 1.1;
+  // Slip speed the tread needs to make 76% of its peak force
+  private static final double SLIP_VELOCITY_MPS = 0.2;
+
+  private static final double WHEEL_RADIUS_METERS = 5.08 / 100;
+  private static final double DRIVE_GEAR_RATIO = 6.75 / 1.0;
+  private static final double AZIMUTH_GEAR_RATIO = 150.0 / 7.0;
+  // Wheel plus the drive rotor reflected through the gearbox
+  private static final double DRIVE_INERTIA_KG_M2 = 0.01;
+  private static final double AZIMUTH_INERTIA_KG_M2 = 0.004;
+
+  private static final DCMotor NEO = DCMotor.getNEO(1);
+  // What ModuleIOSparkMax configures
+  private static final double DEFAULT_DRIVE_CURRENT_LIMIT_AMPS = 40.0;
+  private static final double AZIMUTH_CURRENT_LIMIT_AMPS = 30.0;
+
+  private static SwerveSim instance;
+
+  private final double[] moduleX = new double[4];
+  private final double[] moduleY = new double[4];
+
+  // Motor inputs
+  private final double[] driveVolts = new double[4];
+  private final double[] azimuthVolts = new double[4];
+  private final double[] driveCurrentLimitAmps = {
+    DEFAULT_DRIVE_CURRENT_LIMIT_AMPS,
+    DEFAULT_DRIVE_CURRENT_LIMIT_AMPS,
+    DEFAULT_DRIVE_CURRENT_LIMIT_AMPS,
+    DEFAULT_DRIVE_CURRENT_LIMIT_AMPS
+  };
+
+  // Module state, wheel angle in radians of wheel rotation
+  private final double[] wheelPositionRadians = new double[4];
+  private final double[] wheelVelocityRadiansPerSecond = new double[4];
+  private final double[] azimuthPositionRadians = new double[4];
+  private final double[] azimuthVelocityRadiansPerSecond = new double[4];
+  private final double[] driveCurrentAmps = new double[4];
+  private final double[] azimuthCurrentAmps = new double[4];
+  private final double[] slipVelocityMPS = new double[4];
+
+  // Chassis state, field relative
+  private double x = 0.0;
+  private double y = 0.0;
+  private double heading = 0.0;
+  private double vx = 0.0;
+  private double vy = 0.0;
+  private double omega = 0.0;
+
+  private final int batteryLoad = SimBattery.getInstance().register("Drive");
+  private double supplyCurrentAmps = 0.0;
+
+  // Yaw the gyro has turned through, unlike heading it isn't moved by setPose()
+  private double gyroYawRadians = 0.0;
+
+  // x, y and heading in radians, the array form of a Pose2d AdvantageScope reads
+  private final double[] truePose = new double[3];
+
+  private SwerveSim() {
+    Translation2d[] translations = Drive.getModuleTranslations();
+    for (int i = 0; i < translations.length; i++) {
+      moduleX[i] = translations[i].getX();
+      moduleY[i] = translations[i].getY();
+    }
+    SimState.getInstance().register(this::reset);
+  }
+
+  public static SwerveSim getInstance() {
+    if (instance == null) {
+      instance = new SwerveSim();
+    }
+    return instance;
+  }
+
+  /** Step the physics through one loop, call once per loop after robot code sets the motors */
+  public void update() {
+    double loopSupplyCurrentAmps = 0.0;
+    for (int i = 0; i < SUBSTEPS; i++) {
+      step(SUBSTEP_S);
+      loopSupplyCurrentAmps += supplyCurrentAmps;
+    }
+    SimBattery.getInstance().setSupplyCurrentAmps(batteryLoad, loopSupplyCurrentAmps / SUBSTEPS);
+
+    truePose[0] = x;
+    truePose[1] = y;
+    truePose[2] = heading;
+    Logger.recordOutput("Drive/Sim/TruePose", truePose);
+    Logger.recordOutput("Drive/Sim/SlipVelocityMPS", slipVelocityMPS);
+  }
+
+  private void step(double dt) {
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+
+    // Chassis velocity in the robot frame
+    double robotVX = cos * vx + sin * vy;
+    double robotVY = -sin * vx + cos * vy;
+
+    double forceX = 0.0;
+    double forceY = 0.0;
+    double torque = 0.0;
+    double normalForce = MASS_KG * GRAVITY_MPS2 / 4.0;
+
+    SimBattery battery = SimBattery.getInstance();
+    double batteryVolts = battery.getVolts(batteryLoad, supplyCurrentAmps);
+    supplyCurrentAmps = 0.0;
+
+    for (int i = 0; i < 4; i++) {
+      // Ground velocity under the wheel, along and across the wheel
+      double moduleVX = robotVX - omega * moduleY[i];
+      double moduleVY = robotVY + omega * moduleX[i];
+      double azimuthCos = Math.cos(azimuthPositionRadians[i]);
+      double azimuthSin = Math.sin(azimuthPositionRadians[i]);
+      double groundLongitudinal = azimuthCos * moduleVX + azimuthSin * moduleVY;
+      double groundLateral = -azimuthSin * moduleVX + azimuthCos * moduleVY;
+
+      // Tread force opposes the slip, tanh keeps it smooth through zero and caps it at the limit
+      double slipLongitudinal =
+          wheelVelocityRadiansPerSecond[i] * WHEEL_RADIUS_METERS - groundLongitudinal;
+      double slipLateral = -groundLateral;
+      double slip = Math.hypot(slipLongitudinal, slipLateral);
+      double maxForce =
+          FRICTION_COEFFICIENT * SimNoise.getInstance().getWheelGrip(i) * normalForce;
+      double forcePerSlip =
+          (slip > 1e-9)
+              ? maxForce * Math.tanh(slip / SLIP_VELOCITY_MPS) / slip
+              : maxForce / SLIP_VELOCITY_MPS;
+      double forceLongitudinal = forcePerSlip * slipLongitudinal;
+      double forceLateral = forcePerSlip * slipLateral;
+      slipVelocityMPS[i] = slip;
+
+      double moduleForceX = azimuthCos * forceLongitudinal - azimuthSin * forceLateral;
+      double moduleForceY = azimuthSin * forceLongitudinal + azimuthCos * forceLateral;
+      forceX += moduleForceX;
+      forceY += moduleForceY;
+      torque += moduleX[i] * moduleForceY - moduleY[i] * moduleForceX;
+
+      // Drive motor against the tread force
+      double driveRotorRadiansPerSecond = wheelVelocityRadiansPerSecond[i] * DRIVE_GEAR_RATIO;
+      double appliedDriveVolts =
+          limitCurrent(
+              MathUtil.clamp(driveVolts[i], -batteryVolts, batteryVolts),
+              driveRotorRadiansPerSecond,
+              driveCurrentLimitAmps[i]);
+      driveCurrentAmps[i] = getCurrentAmps(appliedDriveVolts, driveRotorRadiansPerSecond);
+      supplyCurrentAmps += battery.getSupplyCurrentAmps(driveCurrentAmps[i], appliedDriveVolts);
+      double wheelTorque =
+          driveCurrentAmps[i] * NEO.KtNMPerAmp * DRIVE_GEAR_RATIO
+              - forceLongitudinal * WHEEL_RADIUS_METERS;
+      wheelVelocityRadiansPerSecond[i] += wheelTorque / DRIVE_INERTIA_KG_M2 * dt;
+      wheelPositionRadians[i] += wheelVelocityRadiansPerSecond[i] * dt;
+
+      // Azimuth motor, scrub torque is left out
+      double azimuthRotorRadiansPerSecond =
+          azimuthVelocityRadiansPerSecond[i] * AZIMUTH_GEAR_RATIO;
+      double appliedAzimuthVolts =
+          limitCurrent(
+              MathUtil.clamp(azimuthVolts[i], -batteryVolts, batteryVolts),
+              azimuthRotorRadiansPerSecond,
+              AZIMUTH_CURRENT_LIMIT_AMPS);
+      azimuthCurrentAmps[i] = getCurrentAmps(appliedAzimuthVolts, azimuthRotorRadiansPerSecond);
+      supplyCurrentAmps +=
+          battery.getSupplyCurrentAmps(azimuthCurrentAmps[i], appliedAzimuthVolts);
+      azimuthVelocityRadiansPerSecond[i] +=
+          azimuthCurrentAmps[i] * NEO.KtNMPerAmp * AZIMUTH_GEAR_RATIO / AZIMUTH_INERTIA_KG_M2 * dt;
+      azimuthPositionRadians[i] += azimuthVelocityRadiansPerSecond[i] * dt;
+    }
+
+    // Rigid body, forces back to the field frame, semi-implicit Euler
+    vx += (cos * forceX - sin * forceY) / MASS_KG * dt;
+    vy += (sin * forceX + cos * forceY) / MASS_KG * dt;
+    omega += torque / MOMENT_OF_INERTIA_KG_M2 * dt;
+    x += vx * dt;
+    y += vy * dt;
+    heading = MathUtil.angleModulus(heading + omega * dt);
+    gyroYawRadians += omega * dt;
+  }
+
+  /** Armature current of a NEO from its voltage and rotor speed */
+  private static double getCurrentAmps(double volts, double rotorRadiansPerSecond) {
+    return (volts - rotorRadiansPerSecond / NEO.KvRadPerSecPerVolt) / NEO.rOhms;
+  }
+
+  /** Cut the voltage back so the armature current stays under the limit, like the SparkMax */
+  private static double limitCurrent(double volts, double rotorRadiansPerSecond, double amps) {
+    double backEmfVolts = rotorRadiansPerSecond / NEO.KvRadPerSecPerVolt;
+    return MathUtil.clamp(
+        volts, backEmfVolts - amps * NEO.rOhms, backEmfVolts + amps * NEO.rOhms);
+  }
+
+  public void setDriveVolts(int module, double volts) {
+    driveVolts[module] = volts;
+  }
+
+  public void setAzimuthVolts(int module, double volts) {
+    azimuthVolts[module] = volts;
+  }
+
+  void setDriveCurrentLimit(int module, double amps) {
+    driveCurrentLimitAmps[module] = amps;
+  }
+
+  /** Distance the wheel has rolled, slip included, which is what the drive encoder sees */
+  double getDrivePositionMeters(int module) {
+    return wheelPositionRadians[module] * WHEEL_RADIUS_METERS;
+  }
+
+  double getDriveVelocityMPS(int module) {
+    return wheelVelocityRadiansPerSecond[module] * WHEEL_RADIUS_METERS;
+  }
+
+  double getDriveCurrentAmps(int module) {
+    return driveCurrentAmps[module];
+  }
+
+  double getAzimuthPositionRadians(int module) {
+    return azimuthPositionRadians[module];
+  }
+
+  double getAzimuthVelocityRadiansPerSecond(int module) {
+    return azimuthVelocityRadiansPerSecond[module];
+  }
+
+  double getAzimuthCurrentAmps(int module) {
+    return azimuthCurrentAmps[module];
+  }
+
+  /** At rest at the origin with the motors off, the auto places the robot itself */
+  private void reset() {
+    Arrays.fill(driveVolts, 0.0);
+    Arrays.fill(azimuthVolts, 0.0);
+    Arrays.fill(driveCurrentLimitAmps, DEFAULT_DRIVE_CURRENT_LIMIT_AMPS);
+    Arrays.fill(wheelPositionRadians, 0.0);
+    Arrays.fill(wheelVelocityRadiansPerSecond, 0.0);
+    Arrays.fill(azimuthPositionRadians, 0.0);
+    Arrays.fill(azimuthVelocityRadiansPerSecond, 0.0);
+    Arrays.fill(driveCurrentAmps, 0.0);
+    Arrays.fill(azimuthCurrentAmps, 0.0);
+    Arrays.fill(slipVelocityMPS, 0.0);
+    x = 0.0;
+    y = 0.0;
+    heading = 0.0;
+    vx = 0.0;
+    vy = 0.0;
+    omega = 0.0;
+    supplyCurrentAmps = 0.0;
+    gyroYawRadians = 0.0;
+  }
+
+  /** Place the simulated robot on the field, the chassis keeps its velocity */
+  public void setPose(Pose2d pose) {
+    x = pose.getX();
+    y = pose.getY();
+    heading = pose.getRotation().getRadians();
+  }
+
+  public Pose2d getPose() {
+    return new Pose2d(x, y, new Rotation2d(heading));
+  }
+
+  /** Total yaw the chassis has turned through, for the sim gyro */
+  public double getGyroYawRadians() {
+    return gyroYawRadians;
+  }
+
+  public double getYawVelocityRadiansPerSecond() {
+    return omega;
+  }
+}
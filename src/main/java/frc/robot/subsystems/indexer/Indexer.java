@@ -5,11 +5,15 @@
 package frc.robot.subsystems.indexer;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.RobotStates.IndexerStates;
+import frc.robot.utils.debugging.LoopProfiler;
+import frc.robot.utils.io.IOSampler;
+import frc.robot.utils.power.PowerManager;
 import java.util.HashMap;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
@@ -39,14 +43,23 @@ public class Indexer extends SubsystemBase {
   private IndexerIO indexerIO;
   private IndexerIOInputsAutoLogged indexerIOInputs = new IndexerIOInputsAutoLogged();
 
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.getInstance().section("Subsystems/Indexer");
+
+  private long lastBeamBreakCount = 0;
+  private long stowStartBeamBreakCount = 0;
+
   public Indexer(IndexerIO indexerIO) {
     this.indexerIO = indexerIO;
+
+    IOSampler.getInstance()
+        .register(
+            "Indexer", indexerIOInputs, new IndexerIOInputsAutoLogged(), indexerIO::updateInputs);
   }
 
   @Override
   public void periodic() {
-    indexerIO.updateInputs(indexerIOInputs);
-    Logger.processInputs("Indexer", indexerIOInputs);
+    periodicSection.start();
 
     if (DriverStation.isDisabled()) {
       setCurrentSetpoint(IndexerSetpoint.OFF);
@@ -56,6 +69,16 @@ public class Indexer extends SubsystemBase {
     if (currentSetpoint != null) {
       setVolts(currentSetpoint.getVolts());
     }
+
+    // How long after the edge the loop saw it, the interrupt already stopped the motor
+    if (indexerIOInputs.beamBreakCount != lastBeamBreakCount) {
+      lastBeamBreakCount = indexerIOInputs.beamBreakCount;
+      Logger.recordOutput(
+          "Indexer/BeamBreakDetectionLatencyMS",
+          (Timer.getFPGATimestamp() - indexerIOInputs.lastBeamBreakTimestampSecs) * 1000.0);
+    }
+
+    periodicSection.stop();
   }
 
   public HashMap<IndexerStates, Command> mapToCommand() {
@@ -76,14 +99,21 @@ public class Indexer extends SubsystemBase {
     return Commands.runOnce(() -> setCurrentSetpoint(IndexerSetpoint.OFF), this);
   }
 
+  /** Runs the note in until it breaks the beam, the IO stops the motor right at the edge */
   public Command stowPiece() {
     return new FunctionalCommand(
-        () -> setCurrentSetpoint(IndexerSetpoint.STOW),
+        () -> {
+          stowStartBeamBreakCount = indexerIOInputs.beamBreakCount;
+          indexerIO.setStopOnBeamBreak(true);
+          setCurrentSetpoint(IndexerSetpoint.STOW);
+        },
         () -> {},
         (interrupted) -> {
+          indexerIO.setStopOnBeamBreak(false);
           setCurrentSetpoint(IndexerSetpoint.OFF);
         },
-        () -> isBeamBroken(),
+        // Also catches a note that broke and cleared the beam between samples
+        () -> isBeamBroken() || indexerIOInputs.beamBreakCount != stowStartBeamBreakCount,
         this);
   }
 
@@ -91,10 +121,29 @@ public class Indexer extends SubsystemBase {
     currentSetpoint = setpoint;
   }
 
+  public void setCurrentLimit(double amps) {
+    indexerIO.setCurrentLimit(amps);
+  }
+
+  public double getSupplyCurrentAmps() {
+    return PowerManager.getSupplyCurrentAmps(
+        indexerIOInputs.appliedCurrentAmps[0], indexerIOInputs.appliedVolts);
+  }
+
   public boolean isBeamBroken() {
     return indexerIOInputs.isBeamBroken;
   }
 
+  /** FPGA time the beam was last broken, from the interrupt rather than the loop */
+  public double getLastBeamBreakTimestamp() {
+    return indexerIOInputs.lastBeamBreakTimestampSecs;
+  }
+
+  /** Times the beam has been broken, changes even when the break was shorter than a loop */
+  public long getBeamBreakCount() {
+    return indexerIOInputs.beamBreakCount;
+  }
+
   // Nulls current setpoints for manual control
   public void setVolts(double volts) {
     setCurrentSetpoint(null);
@@ -18,6 +18,9 @@ public interface IndexerIO {
     public double[] temperatureCelsius = new double[] {0.0};
 
     public boolean isBeamBroken = false;
+    // Counted and timestamped by the interrupt as the note breaks the beam, between samples too
+    public long beamBreakCount = 0;
+    public double lastBeamBreakTimestampSecs = 0.0;
   }
 
   /** Update the inputs from the sensors */
@@ -25,4 +28,13 @@ public interface IndexerIO {
 
   /** Set the voltage of the indexer motor */
   public default void setVolts(double volts) {}
+
+  /**
+   * Stop the motor the moment the beam breaks, without waiting for the next loop. Forward voltage
+   * is ignored while the beam stays broken, until this is turned off
+   */
+  public default void setStopOnBeamBreak(boolean enabled) {}
+
+  /** Set the current limit of the indexer motor */
+  public default void setCurrentLimit(double amps) {}
 }
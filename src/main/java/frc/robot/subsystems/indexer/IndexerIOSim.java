@@ -4,49 +4,93 @@
 
 package frc.robot.subsystems.indexer;
 
-import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.wpilibj.simulation.BatterySim;
-import edu.wpi.first.wpilibj.simulation.FlywheelSim;
-import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import edu.wpi.first.wpilibj.Timer;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.sim.SimFlywheel;
+import frc.robot.utils.sim.SimState;
 
 /** Class to represent the indexer mechanism in simulation */
 public class IndexerIOSim implements IndexerIO {
   private final double LOOP_PERIOD_S = 0.02;
   private final double GEARING = 5.0 / 1.0;
 
-  private FlywheelSim indexerMotor =
-      new FlywheelSim(DCMotor.getNEO(1), GEARING, 0.0002, VecBuilder.fill(0.01));
+  private SimFlywheel indexerMotor = new SimFlywheel(DCMotor.getNEO(1), GEARING, 0.0002, 0.01);
 
   // 1 = true, 0 = false
   private LoggedTunableNumber beamBreakSensorSim = new LoggedTunableNumber("Indexer/IR/Value", 0.0);
 
   private double appliedVolts = 0.0;
 
+  // The sim only sees the beam once per loop, so edges are stamped with the loop time
+  private boolean wasBeamBroken = false;
+  private boolean stopOnBeamBreak = false;
+  private boolean stoppedByBeamBreak = false;
+  private long beamBreakCount = 0;
+  private double lastBeamBreakTimestampSecs = 0.0;
+
+  private final int batteryLoad = SimBattery.getInstance().register("Indexer");
+
   /** Create a new virtual implementation of the indexer */
-  public IndexerIOSim() {}
+  public IndexerIOSim() {
+    SimState.getInstance().register(this::reset);
+  }
+
+  /** Forget any beam break stop, the count keeps going so NoteTracker sees only new breaks */
+  private void reset() {
+    stopOnBeamBreak = false;
+    stoppedByBeamBreak = false;
+    appliedVolts = 0.0;
+  }
 
   @Override
   public void updateInputs(IndexerIOInputs inputs) {
+    boolean isBeamBroken = beamBreakSensorSim.get() == 1.0;
+    if (isBeamBroken && !wasBeamBroken) {
+      lastBeamBreakTimestampSecs = Timer.getFPGATimestamp();
+      beamBreakCount++;
+      if (stopOnBeamBreak) {
+        stoppedByBeamBreak = true;
+        setVolts(0.0);
+      }
+    }
+    wasBeamBroken = isBeamBroken;
+
     indexerMotor.update(LOOP_PERIOD_S);
 
-    RoboRioSim.setVInVoltage(
-        BatterySim.calculateDefaultBatteryLoadedVoltage(indexerMotor.getCurrentDrawAmps()));
+    SimBattery.getInstance()
+        .setCurrentAmps(batteryLoad, indexerMotor.getCurrentDrawAmps(), appliedVolts);
 
     inputs.indexerVelocityRPM = indexerMotor.getAngularVelocityRPM();
     inputs.appliedVolts = appliedVolts;
     inputs.internalVolts = appliedVolts;
-    inputs.appliedCurrentAmps = new double[] {indexerMotor.getCurrentDrawAmps()};
-    inputs.temperatureCelsius = new double[] {0.0};
-    inputs.isBeamBroken = (beamBreakSensorSim.get() == 1.0) ? true : false;
+    inputs.appliedCurrentAmps[0] = indexerMotor.getCurrentDrawAmps();
+    inputs.temperatureCelsius[0] = 0.0;
+    inputs.isBeamBroken = isBeamBroken;
+    inputs.beamBreakCount = beamBreakCount;
+    inputs.lastBeamBreakTimestampSecs = lastBeamBreakTimestampSecs;
   }
 
   @Override
   public void setVolts(double volts) {
-    appliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    if (stoppedByBeamBreak && volts > 0.0) {
+      if (wasBeamBroken) {
+        return;
+      }
+      stoppedByBeamBreak = false;
+    }
+
+    appliedVolts = SimBattery.getInstance().clamp(volts);
 
     indexerMotor.setInputVoltage(appliedVolts);
   }
+
+  @Override
+  public void setStopOnBeamBreak(boolean enabled) {
+    stopOnBeamBreak = enabled;
+    if (!enabled) {
+      stoppedByBeamBreak = false;
+    }
+  }
 }
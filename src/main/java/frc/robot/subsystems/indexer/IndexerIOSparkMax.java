@@ -6,11 +6,13 @@ package frc.robot.subsystems.indexer;
 
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
 import edu.wpi.first.wpilibj.DigitalInput;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.CANBudget.SparkSignal;
 
 public class IndexerIOSparkMax implements IndexerIO {
   private final double GEARING = 5.0 / 1.0;
@@ -19,18 +21,27 @@ public class IndexerIOSparkMax implements IndexerIO {
   private RelativeEncoder indexerEncoder = indexerMotor.getEncoder();
 
   private DigitalInput beamBreakSensor = new DigitalInput(7);
+  private AsynchronousInterrupt beamBreakInterrupt;
 
-  private double appliedVolts = 0.0;
+  // Written from the interrupt thread
+  private volatile double appliedVolts = 0.0;
+  private volatile boolean stopOnBeamBreak = false;
+  private volatile boolean stoppedByBeamBreak = false;
+  private volatile long beamBreakCount = 0;
+  private volatile double lastBeamBreakTimestampSecs = 0.0;
 
   public IndexerIOSparkMax() {
     indexerMotor.clearFaults();
     indexerMotor.restoreFactoryDefaults();
 
-    indexerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-    indexerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 100);
-    indexerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 100);
-    indexerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, 100);
-    indexerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, 100);
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Indexer",
+            indexerMotor,
+            SparkSignal.VELOCITY.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.BUS_VOLTAGE.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
 
     indexerMotor.setSmartCurrentLimit(30);
     indexerMotor.enableVoltageCompensation(12.0);
@@ -39,6 +50,25 @@ public class IndexerIOSparkMax implements IndexerIO {
     indexerMotor.setInverted(false);
 
     indexerMotor.burnFlash();
+
+    indexerMotor.setCANTimeout(0);
+
+    // The sensor pulls the input low when the note breaks the beam
+    beamBreakInterrupt =
+        new AsynchronousInterrupt(beamBreakSensor, (rising, falling) -> onBeamBreak());
+    beamBreakInterrupt.setInterruptEdges(false, true);
+    beamBreakInterrupt.enable();
+  }
+
+  private synchronized void onBeamBreak() {
+    lastBeamBreakTimestampSecs = beamBreakInterrupt.getFallingTimestamp();
+    beamBreakCount++;
+
+    if (stopOnBeamBreak) {
+      stoppedByBeamBreak = true;
+      appliedVolts = 0.0;
+      indexerMotor.setVoltage(0.0);
+    }
   }
 
   @Override
@@ -46,15 +76,37 @@ public class IndexerIOSparkMax implements IndexerIO {
     inputs.indexerVelocityRPM = indexerEncoder.getVelocity() / GEARING;
     inputs.appliedVolts = appliedVolts;
     inputs.internalVolts = indexerMotor.getOutputCurrent() * indexerMotor.getBusVoltage();
-    inputs.appliedCurrentAmps = new double[] {indexerMotor.getOutputCurrent()};
-    inputs.temperatureCelsius = new double[] {indexerMotor.getMotorTemperature()};
+    inputs.appliedCurrentAmps[0] = indexerMotor.getOutputCurrent();
+    inputs.temperatureCelsius[0] = indexerMotor.getMotorTemperature();
     inputs.isBeamBroken = !beamBreakSensor.get();
+    inputs.beamBreakCount = beamBreakCount;
+    inputs.lastBeamBreakTimestampSecs = lastBeamBreakTimestampSecs;
   }
 
   @Override
-  public void setVolts(double volts) {
+  public synchronized void setVolts(double volts) {
+    if (stoppedByBeamBreak && volts > 0.0) {
+      if (!beamBreakSensor.get()) {
+        return;
+      }
+      stoppedByBeamBreak = false;
+    }
+
     appliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
 
     indexerMotor.setVoltage(volts);
   }
+
+  @Override
+  public synchronized void setStopOnBeamBreak(boolean enabled) {
+    stopOnBeamBreak = enabled;
+    if (!enabled) {
+      stoppedByBeamBreak = false;
+    }
+  }
+
+  @Override
+  public void setCurrentLimit(double amps) {
+    indexerMotor.setSmartCurrentLimit((int) Math.round(amps));
+  }
 }
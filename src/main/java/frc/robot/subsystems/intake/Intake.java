@@ -5,10 +5,18 @@
 package frc.robot.subsystems.intake;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants;
 import frc.robot.RobotStates.IntakeStates;
+import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.LoopProfiler;
+import frc.robot.utils.debugging.TunableRegistry;
+import frc.robot.utils.io.IOSampler;
+import frc.robot.utils.math.NoteContactDetector;
+import frc.robot.utils.power.PowerManager;
 import java.util.HashMap;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
@@ -38,14 +46,35 @@ public class Intake extends SubsystemBase {
   private IntakeIO intakeIO;
   private IntakeIOInputsAutoLogged intakeIOInputs = new IntakeIOInputsAutoLogged();
 
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.getInstance().section("Subsystems/Intake");
+
+  // Untuned starting values, not fit to logs yet. The drift sits above the couple of amps a free
+  // running NEO wanders by, and a 9 A step, 5 A past the drift, trips the threshold in five loops.
+  // Retune from Intake/NoteDetector/CusumAmps logged over real intakes
+  private LoggedTunableNumber detectorDriftAmps =
+      new LoggedTunableNumber("Intake/NoteDetector/DriftAmps", 4.0);
+  private LoggedTunableNumber detectorThresholdAmps =
+      new LoggedTunableNumber("Intake/NoteDetector/ThresholdAmps", 25.0);
+  private LoggedTunableNumber detectorVelocityDrop =
+      new LoggedTunableNumber("Intake/NoteDetector/VelocityDropFraction", 0.3);
+  private int tunableVersion = -1;
+
+  private NoteContactDetector noteDetector =
+      new NoteContactDetector(
+          detectorDriftAmps.get(), detectorThresholdAmps.get(), detectorVelocityDrop.get());
+
   public Intake(IntakeIO IntakeIO) {
     this.intakeIO = IntakeIO;
+
+    IOSampler.getInstance()
+        .register(
+            "Intake", intakeIOInputs, new IntakeIOInputsAutoLogged(), intakeIO::updateInputs);
   }
 
   @Override
   public void periodic() {
-    intakeIO.updateInputs(intakeIOInputs);
-    Logger.processInputs("Intake", intakeIOInputs);
+    periodicSection.start();
 
     if (DriverStation.isDisabled()) {
       setVolts(0.0);
@@ -54,6 +83,30 @@ public class Intake extends SubsystemBase {
     if (currentSetpoint != null) {
       setVolts(currentSetpoint.getVolts());
     }
+
+    noteDetector.update(
+        Timer.getFPGATimestamp(),
+        intakeIOInputs.appliedVolts,
+        intakeIOInputs.appliedCurrentAmps[0],
+        intakeIOInputs.velocityRPM);
+    Logger.recordOutput("Intake/NoteDetector/CusumAmps", noteDetector.getCusumAmps());
+    Logger.recordOutput("Intake/NoteDetector/VelocityDropped", noteDetector.isVelocityDropped());
+
+    if (Constants.tuningMode && TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
+      updateTunableNumbers();
+    }
+
+    periodicSection.stop();
+  }
+
+  private void updateTunableNumbers() {
+    if (detectorDriftAmps.hasChangedSince(tunableVersion)
+        || detectorThresholdAmps.hasChangedSince(tunableVersion)
+        || detectorVelocityDrop.hasChangedSince(tunableVersion)) {
+      noteDetector.setThresholds(
+          detectorDriftAmps.get(), detectorThresholdAmps.get(), detectorVelocityDrop.get());
+    }
+    tunableVersion = TunableRegistry.getInstance().getVersion();
   }
 
   public HashMap<IntakeStates, Command> mapToCommand() {
@@ -73,10 +126,29 @@ public class Intake extends SubsystemBase {
     return Commands.runOnce(() -> setCurrentSetpoint(IntakeSetpoint.OFF), this);
   }
 
+  /** Whether the rollers have pulled in a note since they last started */
+  @AutoLogOutput(key = "Intake/NoteDetected")
+  public boolean isNoteDetected() {
+    return noteDetector.isDetected();
+  }
+
+  public IntakeSetpoint getCurrentSetpoint() {
+    return currentSetpoint;
+  }
+
   public void setCurrentSetpoint(IntakeSetpoint setpoint) {
     currentSetpoint = setpoint;
   }
 
+  public void setCurrentLimit(double amps) {
+    intakeIO.setCurrentLimit(amps);
+  }
+
+  public double getSupplyCurrentAmps() {
+    return PowerManager.getSupplyCurrentAmps(
+        intakeIOInputs.appliedCurrentAmps[0], intakeIOInputs.appliedVolts);
+  }
+
   // Nulls current setpoint for manual control
   public void setVolts(double volts) {
     intakeIO.setVolts(volts);
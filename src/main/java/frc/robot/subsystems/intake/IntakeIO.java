@@ -23,4 +23,7 @@ public interface IntakeIO {
 
   /** Set the voltage of the intake motor */
   public default void setVolts(double volts) {}
+
+  /** Set the current limit of the intake motor */
+  public default void setCurrentLimit(double amps) {}
 }
@@ -4,11 +4,9 @@
 
 package frc.robot.subsystems.intake;
 
-import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.wpilibj.simulation.BatterySim;
-import edu.wpi.first.wpilibj.simulation.FlywheelSim;
-import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.sim.SimFlywheel;
 
 /** Class to represent the intake mechanism in simulation */
 public class IntakeIOSim implements IntakeIO {
@@ -16,10 +14,12 @@ public class IntakeIOSim implements IntakeIO {
   private final double GEARING = 9.0 / 1.0;
 
   // TODO Update values to reflect real world as needed
-  private FlywheelSim intakeMotor = new FlywheelSim(DCMotor.getNEO(1), GEARING, 0.001);
+  private SimFlywheel intakeMotor = new SimFlywheel(DCMotor.getNEO(1), GEARING, 0.001);
 
   double appliedVolts = 0.0;
 
+  private final int batteryLoad = SimBattery.getInstance().register("Intake");
+
   /** Create a new virtual implementation of the intake */
   public IntakeIOSim() {}
 
@@ -27,19 +27,19 @@ public class IntakeIOSim implements IntakeIO {
   public void updateInputs(IntakeIOInputs inputs) {
     intakeMotor.update(LOOP_PERIOD_S);
 
-    RoboRioSim.setVInVoltage(
-        BatterySim.calculateDefaultBatteryLoadedVoltage(intakeMotor.getCurrentDrawAmps()));
+    SimBattery.getInstance()
+        .setCurrentAmps(batteryLoad, intakeMotor.getCurrentDrawAmps(), appliedVolts);
 
     inputs.velocityRPM = intakeMotor.getAngularVelocityRPM();
     inputs.appliedVolts = appliedVolts;
     inputs.internalVolts = appliedVolts;
-    inputs.appliedCurrentAmps = new double[] {intakeMotor.getCurrentDrawAmps()};
-    inputs.temperatureCelsius = new double[] {0.0};
+    inputs.appliedCurrentAmps[0] = intakeMotor.getCurrentDrawAmps();
+    inputs.temperatureCelsius[0] = 0.0;
   }
 
   @Override
   public void setVolts(double volts) {
-    appliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    appliedVolts = SimBattery.getInstance().clamp(volts);
 
     intakeMotor.setInputVoltage(appliedVolts);
   }
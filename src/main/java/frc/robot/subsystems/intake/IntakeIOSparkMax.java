@@ -6,10 +6,11 @@ package frc.robot.subsystems.intake;
 
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.math.MathUtil;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.CANBudget.SparkSignal;
 
 /** Class to interact with the physical intake structure */
 public class IntakeIOSparkMax implements IntakeIO {
@@ -25,11 +26,15 @@ public class IntakeIOSparkMax implements IntakeIO {
     intakeMotor.clearFaults();
     intakeMotor.restoreFactoryDefaults();
 
-    intakeMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-    intakeMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 100);
-    intakeMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 100);
-    intakeMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, 100);
-    intakeMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, 100);
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Intake",
+            intakeMotor,
+            SparkSignal.APPLIED_OUTPUT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.VELOCITY.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.BUS_VOLTAGE.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
 
     intakeMotor.setSmartCurrentLimit(30);
     intakeMotor.enableVoltageCompensation(12.0);
@@ -38,6 +43,8 @@ public class IntakeIOSparkMax implements IntakeIO {
     intakeEncoder.setPosition(0.0);
 
     intakeMotor.burnFlash();
+
+    intakeMotor.setCANTimeout(0);
   }
 
   @Override
@@ -45,8 +52,8 @@ public class IntakeIOSparkMax implements IntakeIO {
     inputs.velocityRPM = intakeEncoder.getVelocity() / GEARING;
     inputs.appliedVolts = appliedVolts;
     inputs.internalVolts = intakeMotor.getAppliedOutput() * intakeMotor.getBusVoltage();
-    inputs.appliedCurrentAmps = new double[] {intakeMotor.getOutputCurrent()};
-    inputs.temperatureCelsius = new double[] {intakeMotor.getMotorTemperature()};
+    inputs.appliedCurrentAmps[0] = intakeMotor.getOutputCurrent();
+    inputs.temperatureCelsius[0] = intakeMotor.getMotorTemperature();
   }
 
   @Override
@@ -55,4 +62,9 @@ public class IntakeIOSparkMax implements IntakeIO {
 
     intakeMotor.setVoltage(appliedVolts);
   }
+
+  @Override
+  public void setCurrentLimit(double amps) {
+    intakeMotor.setSmartCurrentLimit((int) Math.round(amps));
+  }
 }
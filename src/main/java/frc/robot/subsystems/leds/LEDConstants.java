@@ -9,6 +9,7 @@ public class LEDConstants {
     public static final int[] DARK_BLUE = {0, 8, 255};
     public static final int[] GREEN = {32, 240, 0};
     public static final int[] ORANGE = {255, 85, 0};
+    public static final int[] YELLOW = {255, 200, 0};
   }
 
   public class Configs {
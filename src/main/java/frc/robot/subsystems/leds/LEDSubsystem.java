@@ -32,6 +32,10 @@ public class LEDSubsystem extends SubsystemBase {
     setSolidColor(RGB.ORANGE[0], RGB.ORANGE[1], RGB.ORANGE[2]);
   }
 
+  public void setAcquiringPiece() {
+    setSolidColor(RGB.YELLOW[0], RGB.YELLOW[1], RGB.YELLOW[2]);
+  }
+
   public void turnOffLEDs() {
     setSolidColor(0, 0, 0);
   }
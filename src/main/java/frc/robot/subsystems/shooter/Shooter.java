@@ -14,9 +14,11 @@ import frc.robot.subsystems.shooter.angler.AnglerIO;
 import frc.robot.subsystems.shooter.launcher.Launcher;
 import frc.robot.subsystems.shooter.launcher.LauncherIO;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.LoopProfiler;
 import java.util.HashMap;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
+import org.littletonrobotics.junction.AutoLogOutput;
 
 /** Shooter subsystem */
 public class Shooter extends SubsystemBase {
@@ -75,11 +77,17 @@ public class Shooter extends SubsystemBase {
     }
   }
 
+  /** Time from starting the indexer until the note reaches the flywheels */
+  public static final double FEED_LATENCY_S = 0.08;
+
   public static Rotation2d anglerPosition = null;
 
   private Angler angler;
   private Launcher launcher;
 
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.getInstance().section("Subsystems/Shooter");
+
   public Shooter(AnglerIO anglerIO, LauncherIO launcherIO) {
     this.launcher = new Launcher(launcherIO);
     this.angler = new Angler(anglerIO);
@@ -87,7 +95,11 @@ public class Shooter extends SubsystemBase {
 
   @Override
   public void periodic() {
+    periodicSection.start();
+
     anglerPosition = angler.getAnglerPosition();
+
+    periodicSection.stop();
   }
 
   public HashMap<ShooterStates, Command> mapToCommand() {
@@ -127,6 +139,10 @@ public class Shooter extends SubsystemBase {
     shooterCommandMap.put(
         ShooterStates.REV_AMP, setShooterState(AnglerSetpoints.AMP, LauncherSetpoints.AMP));
 
+    shooterCommandMap.put(
+        ShooterStates.AIM_AMP,
+        setShooterStateUntilAimed(AnglerSetpoints.AMP, LauncherSetpoints.AMP));
+
     shooterCommandMap.put(
       ShooterStates.SHOOT_AMP, Commands.runOnce(() -> {
         setMotors(angler.getCurrentSetpoint(), null);
@@ -145,6 +161,13 @@ public class Shooter extends SubsystemBase {
     return angler.setAnglerCommand(anglerState).alongWith(launcher.setVelocityMPS(launcherState));
   }
 
+  /** Sets both goals and ends once the angler is on target, the goals are held after it ends */
+  public Command setShooterStateUntilAimed(
+      AnglerSetpoints anglerState, LauncherSetpoints launcherState) {
+    return setShooterStateInstant(anglerState, launcherState)
+        .andThen(Commands.waitUntil(angler::atAnglerSetpoints));
+  }
+
   public Command setShooterStateInstant(
       AnglerSetpoints anglerState, LauncherSetpoints launcherState) {
     return angler.setAnglerCommandInstant(anglerState).alongWith(launcher.setVelocityMPS(launcherState));
@@ -178,6 +201,15 @@ public class Shooter extends SubsystemBase {
     return angler.atAnglerSetpoints() && launcher.atFlywheelSetpoints();
   }
 
+  /**
+   * Returns true when the angler is aimed and the flywheels are predicted to be at speed by the
+   * time a note fed now reaches them
+   */
+  @AutoLogOutput(key = "Shooter/ReadyToFeed")
+  public boolean readyToFeed() {
+    return angler.atAnglerSetpoints() && launcher.willBeAtSetpointsWithin(FEED_LATENCY_S);
+  }
+
   public Command characterizeFlywheel() {
     return characterizeFlywheel();
   }
@@ -7,6 +7,7 @@ package frc.robot.subsystems.shooter;
 import edu.wpi.first.math.filter.LinearFilter;
 import edu.wpi.first.math.geometry.*;
 import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.Timer;
@@ -37,6 +38,12 @@ public class TargetingSystem {
 
   private final double LAUNCH_MAP_OFFSET_DEG_AUTON_RED = -0.25;
 
+  // A note has to clear both sides of the opening to go in
+  private final double SPEAKER_OPENING_WIDTH_M = 1.05;
+  private final double NOTE_DIAMETER_M = 0.36;
+  // Average horizontal speed of a note on its way to the speaker, the shot visualizer uses it too
+  private final double NOTE_SPEED_MPS = 9.0;
+
   private double manualOffsetDegrees = 0.0;
 
   private Drive robotDrive;
@@ -109,6 +116,22 @@ public class TargetingSystem {
     double distanceM = speakerDistanceM().getAsDouble();
 
     if (!multiTagEnabled) distanceM -= 0.4;
+    Rotation2d angle = getLaunchMapAngle(distanceM);
+
+    Logger.recordOutput("Shooter/TargetingSystem/AnglePreOffset", angle);
+    angle = angle.plus(Rotation2d.fromDegrees(getManualOffset()));
+    Logger.recordOutput("Shooter/TargetingSystem/Angle", angle);
+    lastLaunchMapAngle = angle;
+    lastPivotAngle = robotShooter.getAngler().getAnglerPosition();
+
+    return angle;
+  }
+
+  /**
+   * Returns the launch map angle at a distance from the speaker opening, without the manual offset
+   * or any logging, so the sim can score a shot against the true distance
+   */
+  public Rotation2d getLaunchMapAngle(double distanceM) {
     double mapAngle = launchMap.get(distanceM);
     if (launchMap == null) {
       mapAngle = (distanceM < LAUNCH_MAP_OFFSET_M) 
@@ -123,16 +146,17 @@ public class TargetingSystem {
           ? LAUNCH_MAP_OFFSET_DEG_AUTON_RED 
           : LAUNCH_MAP_OFFSET_DEG_AUTON_BLUE));
     }
-
-    Logger.recordOutput("Shooter/TargetingSystem/AnglePreOffset", angle);
-    angle = angle.plus(Rotation2d.fromDegrees(getManualOffset()));
-    Logger.recordOutput("Shooter/TargetingSystem/Angle", angle);
-    lastLaunchMapAngle = angle;
-    lastPivotAngle = robotShooter.getAngler().getAnglerPosition();
-
     return angle;
   }
 
+  /** Returns the speaker opening of the current alliance, blue without one */
+  public Translation3d getSpeakerOpening() {
+    return (DriverStation.getAlliance().isPresent()
+            && DriverStation.getAlliance().get() == Alliance.Red)
+        ? speakerOpeningRed
+        : speakerOpeningBlue;
+  }
+
   /** Returns the optimal heading for shooting */
   public Rotation2d getOptimalLaunchHeading() {
     Pose2d robotPose;
@@ -141,15 +165,9 @@ public class TargetingSystem {
 
     Rotation2d heading;
     if (multiTagEnabled) {
-      double xDelta =
-          (DriverStation.getAlliance().get() == Alliance.Blue)
-              ? speakerOpeningBlue.getX() - robotPose.getX()
-              : speakerOpeningRed.getX() - robotPose.getX();
-
-      double yDelta =
-          (DriverStation.getAlliance().get() == Alliance.Blue)
-              ? speakerOpeningBlue.getY() - robotPose.getY()
-              : speakerOpeningRed.getY() - robotPose.getY();
+      Translation2d aimPoint = getAimPoint(robotPose);
+      double xDelta = aimPoint.getX() - robotPose.getX();
+      double yDelta = aimPoint.getY() - robotPose.getY();
 
       heading = new Rotation2d(xDelta, yDelta);
     } else if (robotVision.getInputsLeft().hasSpeakerTarget) {
@@ -178,6 +196,82 @@ public class TargetingSystem {
     return heading;
   }
 
+  /**
+   * Returns how fast the optimal heading turns as the robot drives, radians per second. Only the
+   * pose based heading can be differentiated, 0 when aiming off the speaker tags directly. The aim
+   * point only moves with the robot's acceleration, so it's treated as fixed
+   */
+  public double getOptimalLaunchHeadingVelocity() {
+    if (!multiTagEnabled) {
+      return 0.0;
+    }
+
+    Pose2d robotPose;
+    if (useVision) robotPose = robotDrive.getFilteredPose();
+    else robotPose = robotDrive.getOdometryPose();
+
+    Translation2d aimPoint = getAimPoint(robotPose);
+    double xDelta = aimPoint.getX() - robotPose.getX();
+    double yDelta = aimPoint.getY() - robotPose.getY();
+    Translation2d velocityMPS = getFieldVelocityMPS(robotPose);
+
+    // Derivative of atan2(yDelta, xDelta), the deltas shrink at the robot's velocity
+    double velocityRadPerSec =
+        (yDelta * velocityMPS.getX() - xDelta * velocityMPS.getY())
+            / (xDelta * xDelta + yDelta * yDelta);
+
+    Logger.recordOutput("Shooter/TargetingSystem/HeadingVelocity", velocityRadPerSec);
+    return velocityRadPerSec;
+  }
+
+  /**
+   * Returns how far the heading can be off the optimal heading with the note still going in,
+   * radians. Half the angle the opening subtends, less the note's width, from where the robot is
+   */
+  public double getAimToleranceRad() {
+    Pose2d robotPose;
+    if (useVision) robotPose = robotDrive.getFilteredPose();
+    else robotPose = robotDrive.getOdometryPose();
+
+    Translation2d aimPoint = getAimPoint(robotPose);
+    double xDelta = aimPoint.getX() - robotPose.getX();
+    double yDelta = aimPoint.getY() - robotPose.getY();
+    double distanceM = Math.max(Math.hypot(xDelta, yDelta), 0.1);
+
+    // The opening faces down the field, so it looks narrower from the side
+    double halfWidthM =
+        (SPEAKER_OPENING_WIDTH_M - NOTE_DIAMETER_M) / 2.0 * Math.abs(xDelta) / distanceM;
+    double toleranceRad = Math.atan2(halfWidthM, distanceM);
+
+    Logger.recordOutput(
+        "Shooter/TargetingSystem/AimToleranceDegrees", Math.toDegrees(toleranceRad));
+    return toleranceRad;
+  }
+
+  /**
+   * Returns the point to aim at so a note shot while moving lands in the opening. The note keeps
+   * the robot's velocity, so the opening is moved back along it by the note's time of flight
+   */
+  private Translation2d getAimPoint(Pose2d robotPose) {
+    return getAimPoint(robotPose.getTranslation(), getFieldVelocityMPS(robotPose));
+  }
+
+  /**
+   * Returns the point to aim at from a position and field relative velocity, so the sim can aim
+   * from the robot's true state
+   */
+  public Translation2d getAimPoint(Translation2d robotPosition, Translation2d velocityMPS) {
+    Translation2d opening = getSpeakerOpening().toTranslation2d();
+    double timeOfFlightSecs = robotPosition.getDistance(opening) / NOTE_SPEED_MPS;
+    return opening.minus(velocityMPS.times(timeOfFlightSecs));
+  }
+
+  private Translation2d getFieldVelocityMPS(Pose2d robotPose) {
+    ChassisSpeeds speeds = robotDrive.getChassisSpeeds();
+    return new Translation2d(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond)
+        .rotateBy(robotPose.getRotation());
+  }
+
   /** Calculate the tangental distance from the speaker */
   // @AutoLogOutput(key = "Shooter/TargetingSystem/Speakerdistance")
   public double calculateSpeakerDistanceM() {
@@ -187,19 +281,8 @@ public class TargetingSystem {
 
     double distanceM;
     if (multiTagEnabled) {
-      if (DriverStation.getAlliance().isPresent()) {
-        distanceM =
-        (DriverStation.getAlliance().get() == Alliance.Blue)
-            ? Math.hypot(
-                speakerOpeningBlue.getX() - robotPose.getX(),
-                speakerOpeningBlue.getY() - robotPose.getY())
-            : Math.hypot(
-                speakerOpeningRed.getX() - robotPose.getX(),
-                speakerOpeningRed.getY() - robotPose.getY());
-      }
-      else {
-        distanceM = Math.hypot(speakerOpeningBlue.getX() - robotPose.getX(), speakerOpeningBlue.getY() - robotPose.getY());
-      }
+      // Launch angle for the aim point, so a shot on the move is thrown as far as it has to go
+      distanceM = robotPose.getTranslation().getDistance(getAimPoint(robotPose));
     } else if (robotVision.getInputsLeft().hasSpeakerTarget) {
       distanceM = robotVision.getInputsLeft().speakerTagTransform.getTranslation().getNorm();
     } else if (robotVision.getInputsRight().hasSpeakerTarget) {
@@ -265,7 +348,8 @@ public class TargetingSystem {
                           : new Pose3d(speakerOpeningRed, new Rotation3d());
 
                   final double duration =
-                      startPose.getTranslation().getDistance(endPose.getTranslation()) / 9.0;
+                      startPose.getTranslation().getDistance(endPose.getTranslation())
+                          / NOTE_SPEED_MPS;
                   final Timer timer = new Timer();
 
                   timer.start();
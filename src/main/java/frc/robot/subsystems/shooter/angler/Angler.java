@@ -1,5 +1,6 @@
 package frc.robot.subsystems.shooter.angler;
 
+import frc.robot.utils.debugging.LoopProfiler;
 import java.util.function.DoubleSupplier;
 
 import org.littletonrobotics.junction.AutoLogOutput;
@@ -14,12 +15,15 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 import frc.robot.Constants.Robot;
+import frc.robot.Constants;
 import frc.robot.subsystems.shooter.Shooter.AnglerSetpoints;
 import frc.robot.subsystems.shooter.ShooterVisualizer;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.TunableRegistry;
+import frc.robot.utils.io.IOSampler;
 import frc.robot.utils.math.ScrewArmFeedforward;
+import frc.robot.utils.power.PowerManager;
 
 public class Angler extends SubsystemBase {
   private static Rotation2d anglerPosition = null;
@@ -29,7 +33,10 @@ public class Angler extends SubsystemBase {
   }
 
   private AnglerIO anglerIO;
-  private AnglerIOInputsAutoLogged anglerIOInputs = new AnglerIOInputsAutoLogged();
+  private AnglerIO.AnglerIOInputsLogged anglerIOInputs = new AnglerIO.AnglerIOInputsLogged();
+
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.getInstance().section("Subsystems/Angler");
 
   private final Rotation2d minAngle = Rotation2d.fromDegrees(26.5);
   private final Rotation2d maxAngle = Rotation2d.fromDegrees(57.0);
@@ -47,6 +54,7 @@ public class Angler extends SubsystemBase {
 
   private LoggedTunableNumber anglerFeedforwardU;
   private LoggedTunableNumber anglerFeedforwardL;
+  private int tunableVersion = -1;
 
   private ShooterVisualizer anglerVisualizer = new ShooterVisualizer(new Rotation2d());
 
@@ -61,6 +69,13 @@ public class Angler extends SubsystemBase {
         this.anglerIO = anglerIO;
         this.anglerIO = anglerIO;
 
+        IOSampler.getInstance()
+            .register(
+                "Shooter/Angler/Inputs",
+                anglerIOInputs,
+                new AnglerIO.AnglerIOInputsLogged(),
+                anglerIO::updateInputs);
+
         if (Constants.currentRobot == Robot.SYNTH) {
         switch (Constants.currentMode) {
         case REAL:
@@ -115,8 +130,7 @@ public class Angler extends SubsystemBase {
 
   @Override
   public void periodic() {
-    anglerIO.updateInputs(anglerIOInputs);
-    Logger.processInputs("Shooter/Angler/Inputs", anglerIOInputs);
+    periodicSection.start();
 
     if (DriverStation.isDisabled()) {
       stopMotors();
@@ -128,8 +142,8 @@ public class Angler extends SubsystemBase {
           angleOffset =
               Rotation2d.fromRadians(
                       MathUtil.inputModulus(
-                          anglerIOInputs.anglerAbsolutePosition.getRadians(), 0, 2.0 * Math.PI))
-                  .minus(anglerIOInputs.anglerRelativePosition);
+                          anglerIOInputs.anglerAbsolutePositionRadians, 0, 2.0 * Math.PI))
+                  .minus(Rotation2d.fromRadians(anglerIOInputs.anglerRelativePositionRadians));
           angleEncoderCalibrated = true;
           break;
         }
@@ -137,20 +151,24 @@ public class Angler extends SubsystemBase {
           angleOffset =
               Rotation2d.fromRadians(
                       MathUtil.inputModulus(
-                          anglerIOInputs.anglerAbsolutePosition.getRadians(), 0, 2.0 * Math.PI))
-                  .minus(anglerIOInputs.anglerRelativePosition);
+                          anglerIOInputs.anglerAbsolutePositionRadians, 0, 2.0 * Math.PI))
+                  .minus(Rotation2d.fromRadians(anglerIOInputs.anglerRelativePositionRadians));
           angleEncoderCalibrated = true;
           break;
         }
         anglerVisualizer =
-            new ShooterVisualizer(anglerIOInputs.anglerRelativePosition.plus(angleOffset));
+            new ShooterVisualizer(
+                Rotation2d.fromRadians(anglerIOInputs.anglerRelativePositionRadians)
+                    .plus(angleOffset));
       }
-      currentAngle = anglerIOInputs.anglerRelativePosition.plus(angleOffset);
+      currentAngle =
+          Rotation2d.fromRadians(anglerIOInputs.anglerRelativePositionRadians).plus(angleOffset);
 
       resetAnglerFeedback();
     }
 
-    currentAngle = anglerIOInputs.anglerRelativePosition.plus(angleOffset);
+    currentAngle =
+        Rotation2d.fromRadians(anglerIOInputs.anglerRelativePositionRadians).plus(angleOffset);
 
     if (anglerSetpoint != null) {
       Rotation2d angleSetpoint =
@@ -175,17 +193,19 @@ public class Angler extends SubsystemBase {
 
     anglerVisualizer.updateShooterAngle(currentAngle);
 
-    if (Constants.tuningMode) {
+    if (Constants.tuningMode && TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
       updateTunableNumbers();
     }
+
+    periodicSection.stop();
   }
 
   private void updateTunableNumbers() {
-    if (anglerFeedbackP.hasChanged(hashCode())
-    || anglerFeedbackI.hasChanged(hashCode())
-    || anglerFeedbackD.hasChanged(hashCode())
-    || anglerFeedbackV.hasChanged(hashCode())
-    || anglerFeedbackA.hasChanged(hashCode())) {
+    if (anglerFeedbackP.hasChangedSince(tunableVersion)
+    || anglerFeedbackI.hasChangedSince(tunableVersion)
+    || anglerFeedbackD.hasChangedSince(tunableVersion)
+    || anglerFeedbackV.hasChangedSince(tunableVersion)
+    || anglerFeedbackA.hasChangedSince(tunableVersion)) {
     anglerFeedback.setP(anglerFeedbackP.get());
     anglerFeedback.setI(anglerFeedbackI.get());
     anglerFeedback.setD(anglerFeedbackD.get());
@@ -193,10 +213,12 @@ public class Angler extends SubsystemBase {
     anglerFeedback.setConstraints(
         new TrapezoidProfile.Constraints(anglerFeedbackV.get(), anglerFeedbackA.get()));
     }
-    if (anglerFeedforwardU.hasChanged(hashCode()) || anglerFeedforwardL.hasChanged(hashCode())) {
+    if (anglerFeedforwardU.hasChangedSince(tunableVersion)
+        || anglerFeedforwardL.hasChangedSince(tunableVersion)) {
         anglerFeedforward.updateU(anglerFeedforwardU.get());
         anglerFeedforward.updateL(anglerFeedforwardL.get());
     }
+    tunableVersion = TunableRegistry.getInstance().getVersion();
   }
 
     public void setAnglerPosition(AnglerSetpoints position) {
@@ -272,6 +294,15 @@ public class Angler extends SubsystemBase {
     anglerIO.setVolts(volts);
   }
 
+  public void setCurrentLimit(double amps) {
+    anglerIO.setCurrentLimit(amps);
+  }
+
+  public double getSupplyCurrentAmps() {
+    return PowerManager.getSupplyCurrentAmps(
+        anglerIOInputs.appliedCurrentAmps[0], anglerIOInputs.appliedVolts);
+  }
+
   public void stopMotors() {
       anglerSetpoint = null;
       anglerIO.setVolts(0.0);
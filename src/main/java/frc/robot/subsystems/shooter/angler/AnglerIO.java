@@ -4,27 +4,46 @@
 
 package frc.robot.subsystems.shooter.angler;
 
-import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.utils.io.LegacyInputKeys;
 import org.littletonrobotics.junction.AutoLog;
+import org.littletonrobotics.junction.LogTable;
 
 /** Hardware interface for the angler */
 public interface AnglerIO {
   /** Shooter subsystem angler sensor data */
   @AutoLog
   public static class AnglerIOInputs {
-    public Rotation2d anglerAbsolutePosition = new Rotation2d();
-    public Rotation2d anglerRelativePosition = new Rotation2d();
+    public double anglerAbsolutePositionRadians = 0.0;
+    public double anglerRelativePositionRadians = 0.0;
     public int anglerDutyCycleFrequency = 0;
     public double anglerVelocityRadiansPerSecond = 0.0;
     public double appliedVolts = 0.0;
     public double internalVolts = 0.0;
+    public double appliedOutput = 0.0;
     public double[] appliedCurrentAmps = new double[] {0.0};
     public double[] temperatureCelsius = new double[] {0.0};
   }
 
+  /** Angler inputs that can replay both encoder angles from logs made before the rename */
+  public static class AnglerIOInputsLogged extends AnglerIOInputsAutoLogged {
+    @Override
+    public void fromLog(LogTable table) {
+      super.fromLog(table);
+      anglerAbsolutePositionRadians =
+          LegacyInputKeys.getRotationRadians(
+              table, "AnglerAbsolutePosition", anglerAbsolutePositionRadians);
+      anglerRelativePositionRadians =
+          LegacyInputKeys.getRotationRadians(
+              table, "AnglerRelativePosition", anglerRelativePositionRadians);
+    }
+  }
+
   /** Update the inputs from the sensors */
   public default void updateInputs(AnglerIOInputs inputs) {}
 
   /** Set the voltage of the angler motor */
   public default void setVolts(double volts) {}
+
+  /** Set the current limit of the angler motor */
+  public default void setCurrentLimit(double amps) {}
 }
@@ -4,21 +4,18 @@
 
 package frc.robot.subsystems.shooter.angler;
 
-import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.wpilibj.simulation.BatterySim;
-import edu.wpi.first.wpilibj.simulation.RoboRioSim;
-import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.utils.sim.SimArm;
+import frc.robot.utils.sim.SimBattery;
 
 /** Class to represent the angler mechanism in simulation */
 public class AnglerIOSim implements AnglerIO {
   private final double LOOP_PERIOD_S = 0.02;
   private final double GEARING = 1.0 / 1.0;
 
-  private SingleJointedArmSim anglerMotor =
-      new SingleJointedArmSim(
+  private SimArm anglerMotor =
+      new SimArm(
           DCMotor.getNEO(1),
           GEARING,
           0.167248163371,
@@ -26,11 +23,12 @@ public class AnglerIOSim implements AnglerIO {
           Rotation2d.fromDegrees(20.0).getRadians(),
           Rotation2d.fromDegrees(60.0).getRadians(),
           false,
-          Rotation2d.fromDegrees(45.0).getRadians(),
-          VecBuilder.fill(0.000));
+          Rotation2d.fromDegrees(45.0).getRadians());
 
   private double appliedVolts = 0.0;
 
+  private final int batteryLoad = SimBattery.getInstance().register("Angler");
+
   /** Create a new virtual implementation of the angler */
   public AnglerIOSim() {}
 
@@ -38,22 +36,22 @@ public class AnglerIOSim implements AnglerIO {
   public void updateInputs(AnglerIOInputs inputs) {
     anglerMotor.update(LOOP_PERIOD_S);
 
-    RoboRioSim.setVInVoltage(
-        BatterySim.calculateDefaultBatteryLoadedVoltage(anglerMotor.getCurrentDrawAmps()));
+    SimBattery.getInstance()
+        .setCurrentAmps(batteryLoad, anglerMotor.getCurrentDrawAmps(), appliedVolts);
 
-    inputs.anglerAbsolutePosition = Rotation2d.fromRadians(anglerMotor.getAngleRads());
-    inputs.anglerRelativePosition = Rotation2d.fromRadians(anglerMotor.getAngleRads());
+    inputs.anglerAbsolutePositionRadians = anglerMotor.getAngleRads();
+    inputs.anglerRelativePositionRadians = anglerMotor.getAngleRads();
     inputs.anglerDutyCycleFrequency = 955;
     inputs.anglerVelocityRadiansPerSecond = anglerMotor.getVelocityRadPerSec();
     inputs.appliedVolts = appliedVolts;
     inputs.internalVolts = appliedVolts;
-    inputs.appliedCurrentAmps = new double[] {anglerMotor.getCurrentDrawAmps()};
-    inputs.temperatureCelsius = new double[] {0.0};
+    inputs.appliedCurrentAmps[0] = anglerMotor.getCurrentDrawAmps();
+    inputs.temperatureCelsius[0] = 0.0;
   }
 
   @Override
   public void setVolts(double volts) {
-    appliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    appliedVolts = SimBattery.getInstance().clamp(volts);
 
     anglerMotor.setInputVoltage(appliedVolts);
   }
@@ -6,13 +6,14 @@ package frc.robot.subsystems.shooter.angler;
 
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
 import edu.wpi.first.wpilibj.Encoder;
-import org.littletonrobotics.junction.Logger;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.CANBudget.SparkSignal;
 
 /** Class to interact with the physical angler structure */
 public class AnglerIOSparkMax implements AnglerIO {
@@ -30,11 +31,15 @@ public class AnglerIOSparkMax implements AnglerIO {
     anglerMotor.clearFaults();
     anglerMotor.restoreFactoryDefaults();
 
-    anglerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-    anglerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 100);
-    anglerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 100);
-    anglerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, 100);
-    anglerMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, 100);
+    // Only telemetry is read from the SparkMax, position comes from the DIO encoders
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Shooter/Angler",
+            anglerMotor,
+            SparkSignal.APPLIED_OUTPUT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.BUS_VOLTAGE.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
 
     anglerMotor.setSmartCurrentLimit(60);
     anglerMotor.enableVoltageCompensation(12.0);
@@ -44,25 +49,27 @@ public class AnglerIOSparkMax implements AnglerIO {
 
     anglerMotor.burnFlash();
 
+    anglerMotor.setCANTimeout(0);
+
     absoluteEncoder.setDutyCycleRange(1.0 / 8192.0, 8191.0 / 8192.0);
   }
 
   @Override
   public void updateInputs(AnglerIOInputs inputs) {
-    inputs.anglerAbsolutePosition =
-        Rotation2d.fromDegrees(360.0)
-            .minus(
-                Rotation2d.fromRotations(absoluteEncoder.getAbsolutePosition())
-                    .plus(absoluteEncoderOffset));
-    inputs.anglerRelativePosition = Rotation2d.fromRotations(relativeEncoder.get() / 2048.0);
+    inputs.anglerAbsolutePositionRadians =
+        MathUtil.angleModulus(
+            2.0 * Math.PI
+                - (Units.rotationsToRadians(absoluteEncoder.getAbsolutePosition())
+                    + absoluteEncoderOffset.getRadians()));
+    inputs.anglerRelativePositionRadians =
+        Units.rotationsToRadians(relativeEncoder.get() / 2048.0);
     inputs.anglerDutyCycleFrequency = absoluteEncoder.getFrequency();
     inputs.anglerVelocityRadiansPerSecond = relativeEncoder.getRate();
     inputs.appliedVolts = appliedVolts;
     inputs.internalVolts = anglerMotor.getBusVoltage() * anglerMotor.getAppliedOutput();
-    inputs.appliedCurrentAmps = new double[] {anglerMotor.getOutputCurrent()};
-    inputs.temperatureCelsius = new double[] {anglerMotor.getMotorTemperature()};
-
-    Logger.recordOutput("Shooter/Angler/AppliedOutput", anglerMotor.getAppliedOutput());
+    inputs.appliedCurrentAmps[0] = anglerMotor.getOutputCurrent();
+    inputs.temperatureCelsius[0] = anglerMotor.getMotorTemperature();
+    inputs.appliedOutput = anglerMotor.getAppliedOutput();
   }
 
   @Override
@@ -71,4 +78,9 @@ public class AnglerIOSparkMax implements AnglerIO {
 
     anglerMotor.setVoltage(appliedVolts);
   }
+
+  @Override
+  public void setCurrentLimit(double amps) {
+    anglerMotor.setSmartCurrentLimit((int) Math.round(amps));
+  }
 }
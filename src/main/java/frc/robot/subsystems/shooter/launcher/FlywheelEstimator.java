@@ -0,0 +1,88 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.shooter.launcher;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/**
+ * Predicts how long a flywheel will take to reach its goal, using the same DC motor model as
+ * FlywheelSim, the measured supply voltage, and the launcher's ramp rate limit
+ */
+public class FlywheelEstimator {
+  private static final double STEP_S = 0.005;
+  private static final double HORIZON_S = 2.0;
+
+  private final DCMotor motor;
+  private final double gearing;
+  private final double moiKgMetersSquared;
+  private final double radiusM;
+  private final double maxAccelerationMPSS;
+  private final double toleranceMPS;
+
+  /**
+   * Creates a new FlywheelEstimator
+   *
+   * @param motor Motor model of the flywheel
+   * @param gearing Gear ratio between the motor and the flywheel, greater than 1 is a reduction
+   * @param moiKgMetersSquared Moment of inertia of the flywheel
+   * @param radiusM Radius of the flywheel
+   * @param maxAccelerationMPSS Max ramp rate of the velocity profile
+   * @param toleranceMPS Error at which the flywheel is considered at its goal
+   */
+  public FlywheelEstimator(
+      DCMotor motor,
+      double gearing,
+      double moiKgMetersSquared,
+      double radiusM,
+      double maxAccelerationMPSS,
+      double toleranceMPS) {
+    this.motor = motor;
+    this.gearing = gearing;
+    this.moiKgMetersSquared = moiKgMetersSquared;
+    this.radiusM = radiusM;
+    this.maxAccelerationMPSS = maxAccelerationMPSS;
+    this.toleranceMPS = toleranceMPS;
+  }
+
+  /**
+   * Predicts the time until the flywheel is within tolerance of its goal
+   *
+   * @param velocityMPS Current surface speed of the flywheel
+   * @param goalMPS Goal surface speed of the flywheel
+   * @param supplyVolts Measured supply voltage available to the motor
+   * @return Seconds until the flywheel is at its goal, infinity if it can't get there within the
+   *     prediction horizon
+   */
+  public double predictTimeToGoal(double velocityMPS, double goalMPS, double supplyVolts) {
+    double velocity = velocityMPS;
+    double direction = Math.signum(goalMPS - velocityMPS);
+
+    for (double t = 0.0; t <= HORIZON_S; t += STEP_S) {
+      if (Math.abs(goalMPS - velocity) < toleranceMPS) {
+        return t;
+      }
+
+      // Motor can only push with whatever voltage is left over the back-EMF
+      double motorSpeedRadPerSec = (velocity / radiusM) * gearing;
+      double torqueNM =
+          gearing
+              * motor.KtNMPerAmp
+              * (direction * supplyVolts - motorSpeedRadPerSec / motor.KvRadPerSecPerVolt)
+              / motor.rOhms;
+      double motorAccelerationMPSS = (torqueNM / moiKgMetersSquared) * radiusM;
+
+      double acceleration =
+          direction * Math.min(maxAccelerationMPSS, Math.abs(motorAccelerationMPSS));
+      if (Math.signum(motorAccelerationMPSS) != direction) {
+        // Flywheel has hit its free speed for this voltage and will never reach the goal
+        return Double.POSITIVE_INFINITY;
+      }
+
+      velocity += acceleration * STEP_S;
+    }
+
+    return Double.POSITIVE_INFINITY;
+  }
+}
@@ -1,40 +1,108 @@
 package frc.robot.subsystems.shooter.launcher;
 
+import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.subsystems.shooter.Shooter.LauncherSetpoints;
+import frc.robot.utils.debugging.LoopProfiler;
 import frc.robot.utils.debugging.SysIDCharacterization;
+import frc.robot.utils.io.IOSampler;
 import frc.robot.utils.math.LinearProfile;
 
 public class Launcher extends SubsystemBase{
+    /** Max flywheel ramp rate, shared by the RIO profile and the motor controller profile */
+    public static final double MAX_ACCELERATION_MPSS = 50.0;
+    /** Run the flywheel ramp on the motor controller, only goal changes are sent from the RIO */
+    public static final boolean USE_ONBOARD_PROFILE = true;
+    /** Error at which the flywheels are considered at their setpoints */
+    public static final double SETPOINT_TOLERANCE_MPS = 1.0;
+
+    /** Flywheel model, shared by the IOs, the sim and the time to setpoint estimators */
+    public static final double FLYWHEEL_GEARING = 1.0 / 1.0;
+    public static final double FLYWHEEL_RADIUS_M = 6.35 / 100;
+    public static final double FLYWHEEL_MOI_KG_METERS_SQUARED = 0.009;
+
     private LauncherIO launcherIO;
     private LauncherIOInputsAutoLogged launcherIOInputs = new LauncherIOInputsAutoLogged();
 
-    private LinearProfile topWheelProfile = new LinearProfile(50, 0.02);
-    private LinearProfile bottomWheelProfile = new LinearProfile(50, 0.02);
+    private final LoopProfiler.Section periodicSection =
+            LoopProfiler.getInstance().section("Subsystems/Launcher");
+
+    private LinearProfile topWheelProfile = new LinearProfile(MAX_ACCELERATION_MPSS, 0.02);
+    private LinearProfile bottomWheelProfile = new LinearProfile(MAX_ACCELERATION_MPSS, 0.02);
+
+    private FlywheelEstimator topWheelEstimator =
+        new FlywheelEstimator(
+            DCMotor.getFalcon500(1),
+            FLYWHEEL_GEARING,
+            FLYWHEEL_MOI_KG_METERS_SQUARED,
+            FLYWHEEL_RADIUS_M,
+            MAX_ACCELERATION_MPSS,
+            SETPOINT_TOLERANCE_MPS);
+    private FlywheelEstimator bottomWheelEstimator =
+        new FlywheelEstimator(
+            DCMotor.getFalcon500(1),
+            FLYWHEEL_GEARING,
+            FLYWHEEL_MOI_KG_METERS_SQUARED,
+            FLYWHEEL_RADIUS_M,
+            MAX_ACCELERATION_MPSS,
+            SETPOINT_TOLERANCE_MPS);
+    private double predictedTimeToSetpointS = Double.POSITIVE_INFINITY;
 
     private LauncherSetpoints launcherSetpointMPS = null;
 
     public Launcher(LauncherIO launcherIO) {
         this.launcherIO = launcherIO;
 
+        IOSampler.getInstance()
+            .register(
+                "Shooter/Launcher/Inputs",
+                launcherIOInputs,
+                new LauncherIOInputsAutoLogged(),
+                launcherIO::updateInputs);
     }
 
     @Override
     public void periodic() {
-        launcherIO.updateInputs(launcherIOInputs);
-        Logger.processInputs("Shooter/Launcher/Inputs", launcherIOInputs);
+        periodicSection.start();
+
+        launcherIO.applyTunableNumbers();
 
-        if (launcherSetpointMPS != null) {
+        // Onboard profile only needs the goal, which is sent in setLauncherVelocityMPS()
+        if (launcherSetpointMPS != null && !USE_ONBOARD_PROFILE) {
             // System.out.println("HAHA");
             launcherIO.setTopVelocity(
                 topWheelProfile.calculateSetpoint(), topWheelProfile.getCurrentAcceleration());
             launcherIO.setBottomVelocity(
                 bottomWheelProfile.calculateSetpoint(), bottomWheelProfile.getCurrentAcceleration());
         }
+
+        updatePredictedTimeToSetpoint();
+
+        periodicSection.stop();
+    }
+
+    /** Predict when both flywheels will reach their goals from the measured state */
+    private void updatePredictedTimeToSetpoint() {
+        if (launcherSetpointMPS == null) {
+            predictedTimeToSetpointS = Double.POSITIVE_INFINITY;
+            return;
+        }
+
+        predictedTimeToSetpointS =
+            Math.max(
+                topWheelEstimator.predictTimeToGoal(
+                    launcherIOInputs.topFlywheelVelocityMPS,
+                    launcherSetpointMPS.getTopSpeedMPS().getAsDouble(),
+                    launcherIOInputs.supplyVolts),
+                bottomWheelEstimator.predictTimeToGoal(
+                    launcherIOInputs.bottomFlywheelVelocityMPS,
+                    launcherSetpointMPS.getBottomSpeedMPS().getAsDouble(),
+                    launcherIOInputs.supplyVolts));
     }
 
     public Command setVelocityMPS(LauncherSetpoints velocityMPS) {
@@ -43,7 +111,10 @@ public class Launcher extends SubsystemBase{
 
     public void setLauncherVelocityMPS(LauncherSetpoints velocityMPS) {
         launcherSetpointMPS = velocityMPS;
-        if(launcherSetpointMPS != null) {
+        if(launcherSetpointMPS != null && USE_ONBOARD_PROFILE) {
+          launcherIO.setTopVelocityGoal(launcherSetpointMPS.getTopSpeedMPS().getAsDouble());
+          launcherIO.setBottomVelocityGoal(launcherSetpointMPS.getBottomSpeedMPS().getAsDouble());
+        } else if(launcherSetpointMPS != null) {
           topWheelProfile.setGoal(launcherSetpointMPS.getTopSpeedMPS().getAsDouble(), launcherIOInputs.topFlywheelVelocityMPS);
           bottomWheelProfile.setGoal(launcherSetpointMPS.getBottomSpeedMPS().getAsDouble(), launcherIOInputs.bottomFlywheelVelocityMPS);
         }
@@ -64,9 +135,50 @@ public class Launcher extends SubsystemBase{
         launcherIO.setBottomVolts(0.0);
     }
 
+    /** True while the flywheels have a goal they haven't reached yet */
+    public boolean isSpinningUp() {
+        return launcherSetpointMPS != null && !atFlywheelSetpoints();
+    }
+
+    public boolean hasSetpoint() {
+        return launcherSetpointMPS != null;
+    }
+
+    public void setCurrentLimit(double amps) {
+        launcherIO.setCurrentLimit(amps);
+    }
+
+    /** Supply current drawn by both flywheel motors, the TalonFXs report it directly */
+    public double getSupplyCurrentAmps() {
+        return launcherIOInputs.topFlywheelAppliedCurrentAmps[0]
+            + launcherIOInputs.bottomFlywheelAppliedCurrentAmps[0];
+    }
+
     public boolean atFlywheelSetpoints() {
-        return launcherIOInputs.topFlywheelErrorMPS < 1
-        && launcherIOInputs.bottomFlywheelErrorMPS < 1;
+        return launcherIOInputs.topFlywheelErrorMPS < SETPOINT_TOLERANCE_MPS
+        && launcherIOInputs.bottomFlywheelErrorMPS < SETPOINT_TOLERANCE_MPS;
+    }
+
+    /** Returns the predicted time until both flywheels are within tolerance of their goals */
+    @AutoLogOutput(key = "Shooter/Launcher/PredictedTimeToSetpointS")
+    public double getPredictedTimeToSetpoint() {
+        return predictedTimeToSetpointS;
+    }
+
+    /**
+     * Returns true if both flywheels are predicted to be at their goals within the given time,
+     * used to start feeding a note early so it arrives as the flywheels reach speed
+     */
+    public boolean willBeAtSetpointsWithin(double seconds) {
+        return predictedTimeToSetpointS <= seconds;
+    }
+
+    public double getTopVelocityMPS() {
+        return launcherIOInputs.topFlywheelVelocityMPS;
+    }
+
+    public double getBottomVelocityMPS() {
+        return launcherIOInputs.bottomFlywheelVelocityMPS;
     }
 
     public double getTopLauncherError() {
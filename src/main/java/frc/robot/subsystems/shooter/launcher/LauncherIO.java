@@ -18,6 +18,7 @@ public interface LauncherIO {
     public double[] topFlywheelAppliedCurrentAmps = new double[] {0.0};
     public double[] topFlywheelTemperatureCelsius = new double[] {0.0};
     public double topFlywheelSetpointMPS = 0.0;
+    public double topFlywheelGoalMPS = 0.0;
     public double topFlywheelErrorMPS = 0.0;
 
     public boolean bottomFlywheelConnected = false;
@@ -27,12 +28,18 @@ public interface LauncherIO {
     public double[] bottomFlywheelAppliedCurrentAmps = new double[] {0.0};
     public double[] bottomFlywheelTemperatureCelsius = new double[] {0.0};
     public double bottomFlywheelSetpointMPS = 0.0;
+    public double bottomFlywheelGoalMPS = 0.0;
     public double bottomFlywheelErrorMPS = 0.0;
+
+    public double supplyVolts = 0.0;
   }
 
   /** Update the inputs from the sensors */
   public default void updateInputs(LauncherIOInputs inputs) {}
 
+  /** Apply changed tunable gains, called from the main loop rather than updateInputs() */
+  public default void applyTunableNumbers() {}
+
   /** Set the voltage of the top launcher motor */
   public default void setTopVolts(double volts) {}
 
@@ -45,7 +52,16 @@ public interface LauncherIO {
   /** Set the bottom motor velocity setpoint for closed-loop control */
   public default void setBottomVelocity(double velocityMPS, double accelerationMPS) {}
 
+  /** Set the top motor velocity goal, the ramp to the goal is profiled on the motor controller */
+  public default void setTopVelocityGoal(double velocityMPS) {}
+
+  /** Set the bottom motor velocity goal, the ramp to the goal is profiled on the motor controller */
+  public default void setBottomVelocityGoal(double velocityMPS) {}
+
   public default void resetTopProfile() {}
 
   public default void resetBottomProfile() {}
+
+  /** Set the current limit of each flywheel motor */
+  public default void setCurrentLimit(double amps) {}
 }
@@ -8,22 +8,28 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.wpilibj.simulation.BatterySim;
-import edu.wpi.first.wpilibj.simulation.FlywheelSim;
 import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import frc.robot.Constants;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.TunableRegistry;
+import frc.robot.utils.math.LinearProfile;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.sim.SimFlywheel;
+import frc.robot.utils.sim.SimState;
 import org.littletonrobotics.junction.Logger;
 
 /** Class to represent the launcher mechanism in simulation */
 public class LauncherIOSim implements LauncherIO {
   private final double LOOP_PERIOD_S = 0.02;
-  private final double GEARING = 1.0 / 1.0;
-  private final double RADIUS_M = 6.35 / 100;
-  private final double CIRCUMFRENCE_M = 2.0 * Math.PI * RADIUS_M;
+  private final double GEARING = Launcher.FLYWHEEL_GEARING;
+  private final double CIRCUMFRENCE_M = 2.0 * Math.PI * Launcher.FLYWHEEL_RADIUS_M;
 
-  private FlywheelSim topMotor = new FlywheelSim(DCMotor.getFalcon500(1), GEARING, 0.009);
-  private FlywheelSim bottomMotor = new FlywheelSim(DCMotor.getFalcon500(1), GEARING, 0.009);
+  private final DCMotor FALCON = DCMotor.getFalcon500(1);
+
+  private SimFlywheel topMotor =
+      new SimFlywheel(FALCON, GEARING, Launcher.FLYWHEEL_MOI_KG_METERS_SQUARED);
+  private SimFlywheel bottomMotor =
+      new SimFlywheel(FALCON, GEARING, Launcher.FLYWHEEL_MOI_KG_METERS_SQUARED);
 
   private PIDController topFeedback = new PIDController(5.9, 0.0, 0.0);
   private SimpleMotorFeedforward topFeedforward = new SimpleMotorFeedforward(0.0, 0.237);
@@ -44,64 +50,174 @@ public class LauncherIOSim implements LauncherIO {
       new LoggedTunableNumber("Shooter/LauncherBottom/Feedback/I", bottomFeedback.getI());
   private LoggedTunableNumber bottomFeedbackD =
       new LoggedTunableNumber("Shooter/LauncherBottom/Feedback/D", bottomFeedback.getD());
+  private int tunableVersion = -1;
 
   private double topAppliedVolts = 0.0;
   private double bottomAppliedVolts = 0.0;
+  // What LauncherIOTalonFX configures
+  private double currentLimitAmps = 40.0;
+
+  private final int topBatteryLoad = SimBattery.getInstance().register("LauncherTop");
+  private final int bottomBatteryLoad = SimBattery.getInstance().register("LauncherBottom");
 
   private double topVelocitySetpointMPS = 0.0;
   private double bottomVelocitySetpointMPS = 0.0;
 
+  // Mirrors the Motion Magic profile the TalonFX runs onboard
+  private LinearProfile topProfile =
+      new LinearProfile(Launcher.MAX_ACCELERATION_MPSS, LOOP_PERIOD_S);
+  private LinearProfile bottomProfile =
+      new LinearProfile(Launcher.MAX_ACCELERATION_MPSS, LOOP_PERIOD_S);
+  private boolean topProfiled = false;
+  private boolean bottomProfiled = false;
+
   /** Create a new virtual implementation of the launcher */
   public LauncherIOSim() {
     topFeedback.setTolerance(10.0, 10.0);
     bottomFeedback.setTolerance(0.1, 5.0);
+    SimState.getInstance().register(this::reset);
+  }
+
+  /** Drop the setpoints and profiles, the flywheels reset themselves */
+  private void reset() {
+    topProfiled = false;
+    bottomProfiled = false;
+    topProfile.reset();
+    bottomProfile.reset();
+    topVelocitySetpointMPS = 0.0;
+    bottomVelocitySetpointMPS = 0.0;
+    topFeedback.reset();
+    bottomFeedback.reset();
+    topAppliedVolts = 0.0;
+    bottomAppliedVolts = 0.0;
   }
 
   @Override
   public void updateInputs(LauncherIOInputs inputs) {
+    if (topProfiled) {
+      runTopVelocity(topProfile.calculateSetpoint(), topProfile.getCurrentAcceleration());
+    }
+    if (bottomProfiled) {
+      runBottomVelocity(bottomProfile.calculateSetpoint(), bottomProfile.getCurrentAcceleration());
+    }
+
     topMotor.update(LOOP_PERIOD_S);
     bottomMotor.update(LOOP_PERIOD_S);
 
-    RoboRioSim.setVInVoltage(
-        BatterySim.calculateDefaultBatteryLoadedVoltage(
-            topMotor.getCurrentDrawAmps() + bottomMotor.getCurrentDrawAmps()));
+    SimBattery.getInstance()
+        .setCurrentAmps(topBatteryLoad, topMotor.getCurrentDrawAmps(), topAppliedVolts);
+    SimBattery.getInstance()
+        .setCurrentAmps(bottomBatteryLoad, bottomMotor.getCurrentDrawAmps(), bottomAppliedVolts);
 
     inputs.topFlywheelVelocityMPS = (topMotor.getAngularVelocityRPM() * CIRCUMFRENCE_M) / 60.0;
     inputs.topFlywheelAppliedVolts = topAppliedVolts;
-    inputs.topFlywheelAppliedCurrentAmps = new double[] {topMotor.getCurrentDrawAmps()};
-    inputs.topFlywheelTemperatureCelsius = new double[] {0.0};
+    inputs.topFlywheelAppliedCurrentAmps[0] =
+        SimBattery.getInstance()
+            .getSupplyCurrentAmps(topMotor.getCurrentDrawAmps(), topAppliedVolts);
+    inputs.topFlywheelTemperatureCelsius[0] = 0.0;
     inputs.topFlywheelSetpointMPS = topVelocitySetpointMPS;
+    inputs.topFlywheelGoalMPS = topProfiled ? topProfile.getGoal() : topVelocitySetpointMPS;
     inputs.topFlywheelErrorMPS = topFeedback.getPositionError();
 
     inputs.bottomFlywheelVelocityMPS =
         (bottomMotor.getAngularVelocityRPM() * CIRCUMFRENCE_M) / 60.0;
     inputs.bottomFlywheelAppliedVolts = bottomAppliedVolts;
-    inputs.bottomFlywheelAppliedCurrentAmps = new double[] {bottomMotor.getCurrentDrawAmps()};
-    inputs.bottomFlywheelTemperatureCelsius = new double[] {0.0};
+    inputs.bottomFlywheelAppliedCurrentAmps[0] =
+        SimBattery.getInstance()
+            .getSupplyCurrentAmps(bottomMotor.getCurrentDrawAmps(), bottomAppliedVolts);
+    inputs.bottomFlywheelTemperatureCelsius[0] = 0.0;
     inputs.bottomFlywheelSetpointMPS = bottomVelocitySetpointMPS;
-    inputs.topFlywheelErrorMPS = topFeedback.getPositionError();
+    inputs.bottomFlywheelGoalMPS =
+        bottomProfiled ? bottomProfile.getGoal() : bottomVelocitySetpointMPS;
+    inputs.bottomFlywheelErrorMPS = bottomFeedback.getPositionError();
+
+    inputs.supplyVolts = RoboRioSim.getVInVoltage();
+  }
 
-    if (Constants.tuningMode) {
+  @Override
+  public void applyTunableNumbers() {
+    if (Constants.tuningMode && TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
       updateTunableNumbers();
     }
   }
 
   @Override
   public void setTopVolts(double volts) {
-    topAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-
-    topMotor.setInputVoltage(topAppliedVolts);
+    topProfiled = false;
+    applyTopVolts(volts);
   }
 
   @Override
   public void setBottomVolts(double volts) {
-    bottomAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    bottomProfiled = false;
+    applyBottomVolts(volts);
+  }
+
+  private void applyTopVolts(double volts) {
+    topAppliedVolts =
+        limitCurrent(
+            SimBattery.getInstance().clamp(volts), topMotor.getAngularVelocityRadPerSec());
+
+    topMotor.setInputVoltage(topAppliedVolts);
+  }
+
+  private void applyBottomVolts(double volts) {
+    bottomAppliedVolts =
+        limitCurrent(
+            SimBattery.getInstance().clamp(volts), bottomMotor.getAngularVelocityRadPerSec());
 
     bottomMotor.setInputVoltage(bottomAppliedVolts);
   }
 
+  /** Cut the voltage back so the stator current stays under the limit */
+  private double limitCurrent(double volts, double flywheelRadiansPerSecond) {
+    double backEmfVolts = flywheelRadiansPerSecond * GEARING / FALCON.KvRadPerSecPerVolt;
+    return MathUtil.clamp(
+        volts,
+        backEmfVolts - currentLimitAmps * FALCON.rOhms,
+        backEmfVolts + currentLimitAmps * FALCON.rOhms);
+  }
+
+  @Override
+  public void setCurrentLimit(double amps) {
+    currentLimitAmps = amps;
+  }
+
   @Override
   public void setTopVelocity(double velocityMPS, double accelerationMPS) {
+    topProfiled = false;
+    runTopVelocity(velocityMPS, accelerationMPS);
+  }
+
+  @Override
+  public void setBottomVelocity(double velocityMPS, double accelerationMPS) {
+    bottomProfiled = false;
+    runBottomVelocity(velocityMPS, accelerationMPS);
+  }
+
+  @Override
+  public void setTopVelocityGoal(double velocityMPS) {
+    if (!topProfiled) {
+      topProfiled = true;
+      topProfile.setGoal(velocityMPS, (topMotor.getAngularVelocityRPM() * CIRCUMFRENCE_M) / 60.0);
+    } else {
+      // Like Motion Magic, a new goal continues from the profile's current setpoint
+      topProfile.setGoal(velocityMPS);
+    }
+  }
+
+  @Override
+  public void setBottomVelocityGoal(double velocityMPS) {
+    if (!bottomProfiled) {
+      bottomProfiled = true;
+      bottomProfile.setGoal(
+          velocityMPS, (bottomMotor.getAngularVelocityRPM() * CIRCUMFRENCE_M) / 60.0);
+    } else {
+      bottomProfile.setGoal(velocityMPS);
+    }
+  }
+
+  private void runTopVelocity(double velocityMPS, double accelerationMPS) {
     topVelocitySetpointMPS = velocityMPS;
 
     double topFeedbackOutput =
@@ -110,15 +226,14 @@ public class LauncherIOSim implements LauncherIO {
     double topFeedforwardOutput = topFeedforward.calculate(topVelocitySetpointMPS, accelerationMPS);
 
     double topCombinedOutput = topFeedbackOutput + topFeedforwardOutput;
-    setTopVolts(topCombinedOutput);
+    applyTopVolts(topCombinedOutput);
 
     Logger.recordOutput("Shooter/LauncherTop/Feedback/Output", topFeedbackOutput);
     Logger.recordOutput("Shooter/LauncherTop/Feedforward/Output", topFeedforwardOutput);
     Logger.recordOutput("Shooter/LauncherTop/Combined", topCombinedOutput);
   }
 
-  @Override
-  public void setBottomVelocity(double velocityMPS, double accelerationMPS) {
+  private void runBottomVelocity(double velocityMPS, double accelerationMPS) {
     bottomVelocitySetpointMPS = velocityMPS;
 
     double bottomFeedbackOutput =
@@ -128,7 +243,7 @@ public class LauncherIOSim implements LauncherIO {
         bottomFeedforward.calculate(bottomVelocitySetpointMPS, accelerationMPS);
 
     double bottomCombinedOutput = bottomFeedbackOutput + bottomFeedforwardOutput;
-    setBottomVolts(bottomCombinedOutput);
+    applyBottomVolts(bottomCombinedOutput);
 
     Logger.recordOutput("Shooter/LauncherBottom/Feedback/Output", bottomFeedbackOutput);
     Logger.recordOutput("Shooter/LauncherBottom/Feedforward/Output", bottomFeedforwardOutput);
@@ -137,19 +252,20 @@ public class LauncherIOSim implements LauncherIO {
 
   /** Update the tunable numbers if they've changed */
   private void updateTunableNumbers() {
-    if (topFeedbackP.hasChanged(hashCode())
-        || topFeedbackI.hasChanged(hashCode())
-        || topFeedbackD.hasChanged(hashCode())) {
+    if (topFeedbackP.hasChangedSince(tunableVersion)
+        || topFeedbackI.hasChangedSince(tunableVersion)
+        || topFeedbackD.hasChangedSince(tunableVersion)) {
       topFeedback.setP(topFeedbackP.get());
       topFeedback.setI(topFeedbackI.get());
       topFeedback.setD(topFeedbackD.get());
     }
-    if (bottomFeedbackP.hasChanged(hashCode())
-        || bottomFeedbackI.hasChanged(hashCode())
-        || bottomFeedbackD.hasChanged(hashCode())) {
+    if (bottomFeedbackP.hasChangedSince(tunableVersion)
+        || bottomFeedbackI.hasChangedSince(tunableVersion)
+        || bottomFeedbackD.hasChangedSince(tunableVersion)) {
       bottomFeedback.setP(bottomFeedbackP.get());
       bottomFeedback.setI(bottomFeedbackI.get());
       bottomFeedback.setD(bottomFeedbackD.get());
     }
+    tunableVersion = TunableRegistry.getInstance().getVersion();
   }
 }
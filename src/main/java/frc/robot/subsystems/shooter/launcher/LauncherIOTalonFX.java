@@ -7,6 +7,7 @@ package frc.robot.subsystems.shooter.launcher;
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.MotionMagicVelocityVoltage;
 import com.ctre.phoenix6.controls.VelocityVoltage;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.FeedbackSensorSourceValue;
@@ -14,13 +15,15 @@ import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import edu.wpi.first.math.MathUtil;
 import frc.robot.Constants;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.PhoenixSignalRegistry;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.TunableRegistry;
 
 /** Class to interact with the physical launcher structure */
 public class LauncherIOTalonFX implements LauncherIO {
-  private final double GEARING = 1.0 / 1.0;
-  private final double RADIUS_M = 6.35 / 100;
-  private final double CIRCUMFRENCE_M = 2.0 * Math.PI * RADIUS_M;
+  private final double GEARING = Launcher.FLYWHEEL_GEARING;
+  private final double CIRCUMFRENCE_M = 2.0 * Math.PI * Launcher.FLYWHEEL_RADIUS_M;
 
   private TalonFX topMotor = new TalonFX(43);
   private TalonFX bottomMotor = new TalonFX(44);
@@ -31,6 +34,10 @@ public class LauncherIOTalonFX implements LauncherIO {
   private VelocityVoltage topVelocityVoltage = new VelocityVoltage(0.0);
   private VelocityVoltage bottomVelocityVoltage = new VelocityVoltage(0.0);
 
+  private MotionMagicVelocityVoltage topMotionMagicVelocity = new MotionMagicVelocityVoltage(0.0);
+  private MotionMagicVelocityVoltage bottomMotionMagicVelocity =
+      new MotionMagicVelocityVoltage(0.0);
+
   private LoggedTunableNumber topFeedbackP =
       new LoggedTunableNumber("Shooter/LauncherTop/Feedback/P", 0.03);
   private LoggedTunableNumber topFeedbackI =
@@ -58,6 +65,7 @@ public class LauncherIOTalonFX implements LauncherIO {
       new LoggedTunableNumber("Shooter/LauncherBottom/Feedforward/V", 0.10994);
   private LoggedTunableNumber bottomFeedforwardA =
       new LoggedTunableNumber("Shooter/LauncherBottom/Feedforward/A", 0.014977);
+  private int tunableVersion = -1;
 
   private double topAppliedVolts = 0.0;
   private double bottomAppliedVolts = 0.0;
@@ -65,15 +73,32 @@ public class LauncherIOTalonFX implements LauncherIO {
   private double topVelocityMPS = 0.0;
   private double bottomVelocityMPS = 0.0;
 
+  private double topGoalMPS = 0.0;
+  private double bottomGoalMPS = 0.0;
+
+  // True when the motor is running its own Motion Magic profile to the goal
+  private boolean topProfiled = false;
+  private boolean bottomProfiled = false;
+
   private StatusSignal<Double> topMotorVelocity;
   private StatusSignal<Double> topMotorVoltage;
   private StatusSignal<Double> topMotorCurrent;
   private StatusSignal<Double> topMotorTemp;
+  private StatusSignal<Double> topMotorReference;
+  private StatusSignal<Double> topMotorError;
 
   private StatusSignal<Double> bottomMotorVelocity;
   private StatusSignal<Double> bottomMotorVoltage;
   private StatusSignal<Double> bottomMotorCurrent;
   private StatusSignal<Double> bottomMotorTemp;
+  private StatusSignal<Double> bottomMotorReference;
+  private StatusSignal<Double> bottomMotorError;
+
+  private StatusSignal<Double> supplyVoltage;
+
+  // Kept as arrays so isAllGood() doesn't allocate varargs every loop
+  private BaseStatusSignal[] topSignals;
+  private BaseStatusSignal[] bottomSignals;
 
   /** Create a new hardware implementation of the launcher */
   public LauncherIOTalonFX() {
@@ -118,6 +143,14 @@ public class LauncherIOTalonFX implements LauncherIO {
     bottomConfiguration.Slot0.kV = bottomFeedforwardV.get();
     bottomConfiguration.Slot0.kA = bottomFeedforwardA.get();
 
+    // Trapezoidal ramp (no jerk limit) to match the RIO side LinearProfile
+    topConfiguration.MotionMagic.MotionMagicAcceleration =
+        Launcher.MAX_ACCELERATION_MPSS / CIRCUMFRENCE_M;
+    topConfiguration.MotionMagic.MotionMagicJerk = 0.0;
+    bottomConfiguration.MotionMagic.MotionMagicAcceleration =
+        Launcher.MAX_ACCELERATION_MPSS / CIRCUMFRENCE_M;
+    bottomConfiguration.MotionMagic.MotionMagicJerk = 0.0;
+
     topMotor.getConfigurator().apply(topConfiguration);
     bottomMotor.getConfigurator().apply(bottomConfiguration);
 
@@ -125,22 +158,78 @@ public class LauncherIOTalonFX implements LauncherIO {
     topMotorVoltage = topMotor.getMotorVoltage();
     topMotorCurrent = topMotor.getSupplyCurrent();
     topMotorTemp = topMotor.getDeviceTemp();
+    topMotorReference = topMotor.getClosedLoopReference();
+    topMotorError = topMotor.getClosedLoopError();
 
     bottomMotorVelocity = bottomMotor.getVelocity();
     bottomMotorVoltage = bottomMotor.getMotorVoltage();
     bottomMotorCurrent = bottomMotor.getSupplyCurrent();
     bottomMotorTemp = bottomMotor.getDeviceTemp();
-
-    BaseStatusSignal.setUpdateFrequencyForAll(
-        50.0,
-        topMotorVelocity,
-        topMotorVoltage,
-        topMotorCurrent,
-        topMotorTemp,
-        bottomMotorVelocity,
-        bottomMotorVoltage,
-        bottomMotorCurrent,
-        bottomMotorTemp);
+    bottomMotorReference = bottomMotor.getClosedLoopReference();
+    bottomMotorError = bottomMotor.getClosedLoopError();
+
+    supplyVoltage = topMotor.getSupplyVoltage();
+
+    topSignals =
+        new BaseStatusSignal[] {
+          topMotorVelocity,
+          topMotorVoltage,
+          topMotorCurrent,
+          topMotorTemp,
+          topMotorReference,
+          topMotorError,
+          supplyVoltage
+        };
+    bottomSignals =
+        new BaseStatusSignal[] {
+          bottomMotorVelocity,
+          bottomMotorVoltage,
+          bottomMotorCurrent,
+          bottomMotorTemp,
+          bottomMotorReference,
+          bottomMotorError
+        };
+
+    CANBudget.getInstance()
+        .configurePhoenix(
+            "Shooter/Launcher",
+            PhoenixSignalRegistry.RIO_BUS,
+            CANBudget.CONTROL_HZ,
+            topMotorVelocity,
+            topMotorVoltage,
+            topMotorCurrent,
+            topMotorTemp,
+            topMotorReference,
+            topMotorError,
+            bottomMotorVelocity,
+            bottomMotorVoltage,
+            bottomMotorCurrent,
+            bottomMotorTemp,
+            bottomMotorReference,
+            bottomMotorError,
+            supplyVoltage);
+    // Phoenix resends the active control request at 100 Hz
+    CANBudget.getInstance()
+        .declarePhoenixControl("Shooter/LauncherTop", PhoenixSignalRegistry.RIO_BUS, 100.0);
+    CANBudget.getInstance()
+        .declarePhoenixControl("Shooter/LauncherBottom", PhoenixSignalRegistry.RIO_BUS, 100.0);
+
+    PhoenixSignalRegistry.getInstance()
+        .register(
+            PhoenixSignalRegistry.RIO_BUS,
+            topMotorVelocity,
+            topMotorVoltage,
+            topMotorCurrent,
+            topMotorTemp,
+            topMotorReference,
+            topMotorError,
+            bottomMotorVelocity,
+            bottomMotorVoltage,
+            bottomMotorCurrent,
+            bottomMotorTemp,
+            bottomMotorReference,
+            bottomMotorError,
+            supplyVoltage);
 
     topMotor.optimizeBusUtilization();
     bottomMotor.optimizeBusUtilization();
@@ -148,49 +237,57 @@ public class LauncherIOTalonFX implements LauncherIO {
 
   @Override
   public void updateInputs(LauncherIOInputs inputs) {
-    inputs.topFlywheelConnected =
-        BaseStatusSignal.refreshAll(
-                topMotorVelocity,
-                topMotorVoltage,
-                topMotorCurrent,
-                topMotorTemp)
-            .isOK();
+    // Signals are refreshed by the registry at the start of the loop
+    inputs.topFlywheelConnected = BaseStatusSignal.isAllGood(topSignals);
     inputs.topFlywheelVelocityMPS =
         (topMotorVelocity.getValueAsDouble() * CIRCUMFRENCE_M) / GEARING;
     inputs.topFlywheelAppliedVolts = topAppliedVolts;
     inputs.topFlywheelInternalVolts = topMotorVoltage.getValueAsDouble();
-    inputs.topFlywheelAppliedCurrentAmps =
-        new double[] {topMotorCurrent.getValueAsDouble()};
-    inputs.topFlywheelTemperatureCelsius =
-        new double[] {topMotorTemp.getValueAsDouble()};
-    inputs.topFlywheelSetpointMPS = topVelocityMPS;
-    inputs.topFlywheelErrorMPS = inputs.topFlywheelSetpointMPS - inputs.topFlywheelVelocityMPS;
-
-    inputs.bottomFlywheelConnected =
-        BaseStatusSignal.refreshAll(
-                bottomMotorVelocity,
-                bottomMotorVoltage,
-                bottomMotorCurrent,
-                bottomMotorTemp)
-            .isOK();
+    inputs.topFlywheelAppliedCurrentAmps[0] = topMotorCurrent.getValueAsDouble();
+    inputs.topFlywheelTemperatureCelsius[0] = topMotorTemp.getValueAsDouble();
+    inputs.topFlywheelGoalMPS = topGoalMPS;
+    if (topProfiled) {
+      // Profile runs on the motor, so the setpoint is whatever the motor is currently tracking
+      inputs.topFlywheelSetpointMPS =
+          (topMotorReference.getValueAsDouble() * CIRCUMFRENCE_M) / GEARING;
+      inputs.topFlywheelErrorMPS = (topMotorError.getValueAsDouble() * CIRCUMFRENCE_M) / GEARING;
+    } else {
+      inputs.topFlywheelSetpointMPS = topVelocityMPS;
+      inputs.topFlywheelErrorMPS = inputs.topFlywheelSetpointMPS - inputs.topFlywheelVelocityMPS;
+    }
+
+    inputs.bottomFlywheelConnected = BaseStatusSignal.isAllGood(bottomSignals);
     inputs.bottomFlywheelVelocityMPS =
         (bottomMotorVelocity.getValueAsDouble() * CIRCUMFRENCE_M) / GEARING;
     inputs.bottomFlywheelAppliedVolts = bottomAppliedVolts;
     inputs.bottomFlywheelInternalVolts = bottomMotorVoltage.getValueAsDouble();
-    inputs.bottomFlywheelAppliedCurrentAmps =
-        new double[] {bottomMotorCurrent.getValueAsDouble()};
-    inputs.bottomFlywheelTemperatureCelsius =
-        new double[] {bottomMotorTemp.getValueAsDouble()};
-    inputs.bottomFlywheelSetpointMPS = bottomVelocityMPS;
-    inputs.bottomFlywheelErrorMPS = inputs.topFlywheelSetpointMPS - inputs.topFlywheelVelocityMPS;
-
-    if (Constants.tuningMode) {
+    inputs.bottomFlywheelAppliedCurrentAmps[0] = bottomMotorCurrent.getValueAsDouble();
+    inputs.bottomFlywheelTemperatureCelsius[0] = bottomMotorTemp.getValueAsDouble();
+    inputs.bottomFlywheelGoalMPS = bottomGoalMPS;
+    if (bottomProfiled) {
+      inputs.bottomFlywheelSetpointMPS =
+          (bottomMotorReference.getValueAsDouble() * CIRCUMFRENCE_M) / GEARING;
+      inputs.bottomFlywheelErrorMPS =
+          (bottomMotorError.getValueAsDouble() * CIRCUMFRENCE_M) / GEARING;
+    } else {
+      inputs.bottomFlywheelSetpointMPS = bottomVelocityMPS;
+      inputs.bottomFlywheelErrorMPS =
+          inputs.bottomFlywheelSetpointMPS - inputs.bottomFlywheelVelocityMPS;
+    }
+
+    inputs.supplyVolts = supplyVoltage.getValueAsDouble();
+  }
+
+  @Override
+  public void applyTunableNumbers() {
+    if (Constants.tuningMode && TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
       updateTunableNumbers();
     }
   }
 
   @Override
   public void setTopVolts(double volts) {
+    topProfiled = false;
     topAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
 
     topMotor.setVoltage(topAppliedVolts);
@@ -198,13 +295,26 @@ public class LauncherIOTalonFX implements LauncherIO {
 
   @Override
   public void setBottomVolts(double volts) {
+    bottomProfiled = false;
     bottomAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
 
     bottomMotor.setVoltage(bottomAppliedVolts);
   }
 
+  @Override
+  public void setCurrentLimit(double amps) {
+    // Only the battery side is budgeted, the stator limit stays where it was tuned
+    topConfiguration.CurrentLimits.SupplyCurrentLimit = amps;
+    bottomConfiguration.CurrentLimits.SupplyCurrentLimit = amps;
+
+    // Only the limits are sent, and without waiting for the device to confirm
+    topMotor.getConfigurator().apply(topConfiguration.CurrentLimits, 0.0);
+    bottomMotor.getConfigurator().apply(bottomConfiguration.CurrentLimits, 0.0);
+  }
+
   @Override
   public void setTopVelocity(double velocityMPS, double accelerationMPS) {
+    topProfiled = false;
     topVelocityMPS = velocityMPS;
     topMotor.setControl(topVelocityVoltage.withVelocity(topVelocityMPS / CIRCUMFRENCE_M));
     // .withAcceleration(accelerationMPS / CIRCUMFRENCE_M));
@@ -212,16 +322,31 @@ public class LauncherIOTalonFX implements LauncherIO {
 
   @Override
   public void setBottomVelocity(double velocityMPS, double accelerationMPS) {
+    bottomProfiled = false;
     bottomVelocityMPS = velocityMPS;
     bottomMotor.setControl(bottomVelocityVoltage.withVelocity(bottomVelocityMPS / CIRCUMFRENCE_M));
     // .withAcceleration(accelerationMPS / CIRCUMFRENCE_M));
   }
 
+  @Override
+  public void setTopVelocityGoal(double velocityMPS) {
+    topProfiled = true;
+    topGoalMPS = velocityMPS;
+    topMotor.setControl(topMotionMagicVelocity.withVelocity(topGoalMPS / CIRCUMFRENCE_M));
+  }
+
+  @Override
+  public void setBottomVelocityGoal(double velocityMPS) {
+    bottomProfiled = true;
+    bottomGoalMPS = velocityMPS;
+    bottomMotor.setControl(bottomMotionMagicVelocity.withVelocity(bottomGoalMPS / CIRCUMFRENCE_M));
+  }
+
   /** Update the tunable numbers if they've changed */
   private void updateTunableNumbers() {
-    if (topFeedbackP.hasChanged(hashCode())
-        || topFeedbackI.hasChanged(hashCode())
-        || topFeedbackD.hasChanged(hashCode())) {
+    if (topFeedbackP.hasChangedSince(tunableVersion)
+        || topFeedbackI.hasChangedSince(tunableVersion)
+        || topFeedbackD.hasChangedSince(tunableVersion)) {
 
       topConfiguration.Slot0.kP = topFeedbackP.get();
       topConfiguration.Slot0.kI = topFeedbackI.get();
@@ -229,18 +354,18 @@ public class LauncherIOTalonFX implements LauncherIO {
 
       topMotor.getConfigurator().apply(topConfiguration);
     }
-    if (topFeedforwardS.hasChanged(hashCode())
-        || topFeedforwardV.hasChanged(hashCode())
-        || topFeedforwardA.hasChanged(hashCode())) {
+    if (topFeedforwardS.hasChangedSince(tunableVersion)
+        || topFeedforwardV.hasChangedSince(tunableVersion)
+        || topFeedforwardA.hasChangedSince(tunableVersion)) {
       topConfiguration.Slot0.kS = topFeedforwardS.get();
       topConfiguration.Slot0.kV = topFeedforwardV.get();
       topConfiguration.Slot0.kA = topFeedforwardA.get();
 
       topMotor.getConfigurator().apply(topConfiguration);
     }
-    if (bottomFeedbackP.hasChanged(hashCode())
-        || bottomFeedbackI.hasChanged(hashCode())
-        || bottomFeedbackD.hasChanged(hashCode())) {
+    if (bottomFeedbackP.hasChangedSince(tunableVersion)
+        || bottomFeedbackI.hasChangedSince(tunableVersion)
+        || bottomFeedbackD.hasChangedSince(tunableVersion)) {
 
       bottomConfiguration.Slot0.kP = bottomFeedbackP.get();
       bottomConfiguration.Slot0.kI = bottomFeedbackI.get();
@@ -248,14 +373,15 @@ public class LauncherIOTalonFX implements LauncherIO {
 
       bottomMotor.getConfigurator().apply(bottomConfiguration);
     }
-    if (bottomFeedforwardS.hasChanged(hashCode())
-        || bottomFeedforwardV.hasChanged(hashCode())
-        || bottomFeedforwardA.hasChanged(hashCode())) {
+    if (bottomFeedforwardS.hasChangedSince(tunableVersion)
+        || bottomFeedforwardV.hasChangedSince(tunableVersion)
+        || bottomFeedforwardA.hasChangedSince(tunableVersion)) {
       bottomConfiguration.Slot0.kS = bottomFeedforwardS.get();
       bottomConfiguration.Slot0.kV = bottomFeedforwardV.get();
       bottomConfiguration.Slot0.kA = bottomFeedforwardA.get();
 
       bottomMotor.getConfigurator().apply(bottomConfiguration);
     }
+    tunableVersion = TunableRegistry.getInstance().getVersion();
   }
 }
@@ -11,9 +11,12 @@ import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import org.littletonrobotics.junction.Logger;
+import frc.robot.utils.io.IOSampler;
 
 public class Vision extends SubsystemBase {
+  // PhotonLib builds new result objects on every read, so vision IOs can't be allocation free
+  private static final long CAMERA_ALLOCATION_BUDGET_BYTES = 32 * 1024;
+
   private final VisionIO cameraLeft;
   private final VisionIO cameraRight;
 
@@ -23,15 +26,21 @@ public class Vision extends SubsystemBase {
   public Vision(VisionIO left, VisionIO right) {
     cameraLeft = left;
     cameraRight = right;
-  }
-
-  @Override
-  public void periodic() {
-    cameraLeft.updateInputs(inputsLeft);
-    cameraRight.updateInputs(inputsRight);
 
-    Logger.processInputs("Vision/Right", inputsRight);
-    Logger.processInputs("Vision/Left", inputsLeft);
+    IOSampler.getInstance()
+        .register(
+            "Vision/Right",
+            inputsRight,
+            new VisionIOInputsAutoLogged(),
+            cameraRight::updateInputs,
+            CAMERA_ALLOCATION_BUDGET_BYTES);
+    IOSampler.getInstance()
+        .register(
+            "Vision/Left",
+            inputsLeft,
+            new VisionIOInputsAutoLogged(),
+            cameraLeft::updateInputs,
+            CAMERA_ALLOCATION_BUDGET_BYTES);
   }
 
   public void setSingleStdDevs(double x, double y, double theta) {
@@ -35,6 +35,11 @@ public class VisionIOPhoton implements VisionIO {
   private Matrix<N3, N1> multiTagStdDevs;
   private Debouncer debouncer;
 
+  // Constant geometry used every loop, allocated once
+  private static final Pose3d NO_TAG_POSE = new Pose3d();
+  private static final Transform2d FLIP_ROBOT_POSE =
+      new Transform2d(new Translation2d(), Rotation2d.fromDegrees(-180));
+
   private int speakerTagID =
       (DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue)
               == DriverStation.Alliance.Red)
@@ -86,7 +91,7 @@ public class VisionIOPhoton implements VisionIO {
           poseEstimator
               .getFieldTags()
               .getTagPose(speakerTagID)
-              .orElse(new Pose3d())
+              .orElse(NO_TAG_POSE)
               .plus(inputs.robotToApriltag)
               .toPose2d();
 
@@ -114,7 +119,7 @@ public class VisionIOPhoton implements VisionIO {
                   .get()
                   .estimatedPose
                   .toPose2d()
-                  .transformBy(new Transform2d(new Translation2d(), Rotation2d.fromDegrees(-180)));
+                  .transformBy(FLIP_ROBOT_POSE);
 
           Matrix<N3, N1> standardDevs = getEstimationStdDevs(inputs.estimatedRobotPose, result);
 
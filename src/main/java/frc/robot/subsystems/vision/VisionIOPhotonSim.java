@@ -15,8 +15,12 @@ import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.utils.sim.SimNoise;
+import frc.robot.utils.sim.SimState;
+import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.function.Supplier;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
@@ -29,6 +33,10 @@ import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
 
 public class VisionIOPhotonSim implements VisionIO {
+  // SimCameraProperties draws its pixel and latency noise from an unseeded Random it doesn't expose
+  // and PhotonVision has no API to seed it, so a vendordep update that renames it fails loudly
+  private static final Field CAMERA_RANDOM_FIELD = findCameraRandomField();
+
   private PhotonCamera limelightCam;
   private PhotonPoseEstimator poseEstimator;
   private Transform3d cameraTransform;
@@ -37,8 +45,11 @@ public class VisionIOPhotonSim implements VisionIO {
   private Debouncer debouncer;
 
   private PhotonCameraSim limelightSim;
+  private SimCameraProperties cameraProp;
   private VisionSystemSim visionSim;
   private Supplier<Pose2d> drivePose;
+  private double debouncerTime;
+  private int noiseVersion = -1;
 
   private int speakerTagID =
       (DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue)
@@ -62,6 +73,7 @@ public class VisionIOPhotonSim implements VisionIO {
 
     poseEstimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
 
+    this.debouncerTime = debouncerTime;
     debouncer = new Debouncer(debouncerTime);
 
     // Create the vision system simulation which handles cameras and targets on the field.
@@ -69,12 +81,10 @@ public class VisionIOPhotonSim implements VisionIO {
     // Add all the AprilTags inside the tag layout as visible targets to this simulated field.
     visionSim.addAprilTags(AprilTagFields.k2024Crescendo.loadAprilTagLayoutField());
     // Create simulated camera properties. These can be set to mimic your actual camera.
-    var cameraProp = new SimCameraProperties();
+    cameraProp = new SimCameraProperties();
     cameraProp.setCalibration(960, 720, Rotation2d.fromDegrees(75));
-    cameraProp.setCalibError(0.51, 0.28);
     cameraProp.setFPS(100);
-    cameraProp.setAvgLatencyMs(90);
-    cameraProp.setLatencyStdDevMs(15);
+    applySimNoise();
     // Create a PhotonCameraSim which will update the linked PhotonCamera's values with visible
     // targets.
     limelightSim = new PhotonCameraSim(limelightCam, cameraProp);
@@ -84,10 +94,21 @@ public class VisionIOPhotonSim implements VisionIO {
     limelightSim.enableDrawWireframe(true);
 
     this.drivePose = drivePose;
+    SimState.getInstance().register(this::reset);
+  }
+
+  /** Camera back on the robot with no target history, noise restarted from the current seed */
+  private void reset() {
+    visionSim.resetRobotPose(drivePose.get());
+    debouncer = new Debouncer(debouncerTime);
+    applySimNoise();
   }
 
   @Override
   public void updateInputs(VisionIOInputs inputs) {
+    if (SimNoise.getInstance().getVersion() != noiseVersion) {
+      applySimNoise();
+    }
     visionSim.update(drivePose.get());
 
     PhotonPipelineResult result = limelightCam.getLatestResult();
@@ -150,6 +171,36 @@ public class VisionIOPhotonSim implements VisionIO {
         });
   }
 
+  /** Calibration error and latency come from the current sim conditions */
+  private void applySimNoise() {
+    SimNoise noise = SimNoise.getInstance();
+    cameraProp.setCalibError(
+        noise.getVisionCalibErrorPixels(), noise.getVisionCalibErrorStdDevPixels());
+    cameraProp.setAvgLatencyMs(noise.getVisionLatencyMS());
+    cameraProp.setLatencyStdDevMs(noise.getVisionLatencyStdDevMS());
+    try {
+      ((Random) CAMERA_RANDOM_FIELD.get(cameraProp)).setSeed(noise.getRandom().nextLong());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Can't seed the vision sim", e);
+    }
+    noiseVersion = noise.getVersion();
+  }
+
+  private static Field findCameraRandomField() {
+    try {
+      Field field = SimCameraProperties.class.getDeclaredField("rand");
+      if (field.getType() != Random.class) {
+        throw new IllegalStateException(
+            "SimCameraProperties.rand is a " + field.getType().getName() + ", not a Random");
+      }
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException(
+          "SimCameraProperties has no rand field, vision sim noise can't be seeded", e);
+    }
+  }
+
   @Override
   public void setSingleStdDevs(double x, double y, double theta) {
     singleTagStdDevs = VecBuilder.fill(x, y, theta);
@@ -7,20 +7,25 @@ package frc.robot.subsystems.yoshivator;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.math.controller.ProfiledPIDController;
-import edu.wpi.first.math.filter.LinearFilter;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 import frc.robot.Constants.Robot;
+import frc.robot.Constants;
 import frc.robot.RobotStates.YoshiStates;
 import frc.robot.subsystems.yoshivator.manipulator.ManipulatorIO;
-import frc.robot.subsystems.yoshivator.manipulator.ManipulatorIOInputsAutoLogged;
+import frc.robot.subsystems.yoshivator.manipulator.ManipulatorIO.ManipulatorIOInputsLogged;
 import frc.robot.utils.debugging.LoggedTunableNumber;
+import frc.robot.utils.debugging.LoopProfiler;
+import frc.robot.utils.debugging.TunableRegistry;
+import frc.robot.utils.io.IOSampler;
+import frc.robot.utils.math.NoteContactDetector;
 
 import java.util.HashMap;
 import java.util.function.Supplier;
@@ -61,7 +66,10 @@ public class Yoshivator extends SubsystemBase {
   private YoshivatorSetpoints currentSetpoint = YoshivatorSetpoints.IDLE;
 
   private ManipulatorIO manipulatorIO;
-  private ManipulatorIOInputsAutoLogged manipulatorIOInputs = new ManipulatorIOInputsAutoLogged();
+  private ManipulatorIOInputsLogged manipulatorIOInputs = new ManipulatorIOInputsLogged();
+
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.getInstance().section("Subsystems/Yoshivator");
 
   private ProfiledPIDController pivotFeedback =
       new ProfiledPIDController(0.02, 0.0, 0.0, new TrapezoidProfile.Constraints(200.0, 100.0));
@@ -72,14 +80,34 @@ public class Yoshivator extends SubsystemBase {
   private LoggedTunableNumber pivotFeedbackD;
   private LoggedTunableNumber pivotFeedbackV;
   private LoggedTunableNumber pivotFeedbackA;
+  private int tunableVersion = -1;
 
   private YoshiVisualizer yoshiVisualizer = new YoshiVisualizer(new Rotation2d());
 
-  private LinearFilter yoshiLinearFilter = LinearFilter.movingAverage(20);
+  // Untuned starting values scaled down from the intake's for the smaller roller motor, a 7 A step
+  // trips it in five loops. A detection stops the rollers during ground intakes, so a false trip
+  // loses the note. Retune from Yoshivator/NoteDetector/CusumAmps logged over real intakes
+  private LoggedTunableNumber detectorDriftAmps =
+      new LoggedTunableNumber("Yoshivator/NoteDetector/DriftAmps", 3.0);
+  private LoggedTunableNumber detectorThresholdAmps =
+      new LoggedTunableNumber("Yoshivator/NoteDetector/ThresholdAmps", 20.0);
+  private LoggedTunableNumber detectorVelocityDrop =
+      new LoggedTunableNumber("Yoshivator/NoteDetector/VelocityDropFraction", 0.3);
+
+  private NoteContactDetector noteDetector =
+      new NoteContactDetector(
+          detectorDriftAmps.get(), detectorThresholdAmps.get(), detectorVelocityDrop.get());
 
   public Yoshivator(ManipulatorIO manipulatorIO) {
     this.manipulatorIO = manipulatorIO;
 
+    IOSampler.getInstance()
+        .register(
+            "Yoshivator/Manipulator/Inputs",
+            manipulatorIOInputs,
+            new ManipulatorIOInputsLogged(),
+            manipulatorIO::updateInputs);
+
     if (Constants.currentRobot == Robot.SYNTH) {
       switch (Constants.currentMode) {
         case REAL:
@@ -130,14 +158,22 @@ public class Yoshivator extends SubsystemBase {
 
   @Override
   public void periodic() {
-    manipulatorIO.updateInputs(manipulatorIOInputs);
-    Logger.processInputs("Yoshivator/Manipulator/Inputs", manipulatorIOInputs);
+    periodicSection.start();
 
     if (DriverStation.isDisabled()) {
       stopMotors(true, true);
     }
 
-    if (yoshiLinearFilter.calculate(manipulatorIOInputs.rollerAppliedCurrentAmps[0]) > 60.0
+    noteDetector.update(
+        Timer.getFPGATimestamp(),
+        manipulatorIOInputs.rollerAppliedVolts,
+        manipulatorIOInputs.rollerAppliedCurrentAmps[0],
+        manipulatorIOInputs.rollerVelocityRPM);
+    Logger.recordOutput("Yoshivator/NoteDetector/CusumAmps", noteDetector.getCusumAmps());
+    Logger.recordOutput(
+        "Yoshivator/NoteDetector/VelocityDropped", noteDetector.isVelocityDropped());
+
+    if (noteDetector.isDetected()
         && (currentSetpoint == YoshivatorSetpoints.GROUND_INTAKE
             || currentSetpoint == YoshivatorSetpoints.GROUND_AMP)) {
       stopMotors(false, true);
@@ -153,7 +189,7 @@ public class Yoshivator extends SubsystemBase {
 
       double pivotFeedbackOutput =
           pivotFeedback.calculate(
-              manipulatorIOInputs.pivotPosition.getDegrees(),
+              Units.radiansToDegrees(manipulatorIOInputs.pivotPositionRadians),
               goal.getDegrees());
       double pivotFeedforwardOutput =
           pivotFeedforward.calculate(
@@ -172,12 +208,14 @@ public class Yoshivator extends SubsystemBase {
       Logger.recordOutput("Yoshivator/Pivot/Feedback/PositionError", pivotFeedback.getPositionError());
     }
 
-    pivotPosition = manipulatorIOInputs.pivotPosition;
-    yoshiVisualizer.updateYoshiAngle(manipulatorIOInputs.pivotPosition);
+    pivotPosition = Rotation2d.fromRadians(manipulatorIOInputs.pivotPositionRadians);
+    yoshiVisualizer.updateYoshiAngle(pivotPosition);
 
-    if (Constants.tuningMode) {
+    if (Constants.tuningMode && TunableRegistry.getInstance().hasChangedSince(tunableVersion)) {
       updateTunableNumbers();
     }
+
+    periodicSection.stop();
   }
 
   public Command runYoshi(YoshivatorSetpoints setpoint) {
@@ -196,7 +234,7 @@ public class Yoshivator extends SubsystemBase {
                     currentSetpoint
                         .getPivotRotation()
                         .get()
-                        .minus(manipulatorIOInputs.pivotPosition)
+                        .minus(Rotation2d.fromRadians(manipulatorIOInputs.pivotPositionRadians))
                         .getDegrees())
                 < 10.0,
         this);
@@ -212,11 +250,11 @@ public class Yoshivator extends SubsystemBase {
   }
 
   private void updateTunableNumbers() {
-    if (pivotFeedbackP.hasChanged(hashCode())
-        || pivotFeedbackI.hasChanged(hashCode())
-        || pivotFeedbackD.hasChanged(hashCode())
-        || pivotFeedbackV.hasChanged(hashCode())
-        || pivotFeedbackA.hasChanged(hashCode())) {
+    if (pivotFeedbackP.hasChangedSince(tunableVersion)
+        || pivotFeedbackI.hasChangedSince(tunableVersion)
+        || pivotFeedbackD.hasChangedSince(tunableVersion)
+        || pivotFeedbackV.hasChangedSince(tunableVersion)
+        || pivotFeedbackA.hasChangedSince(tunableVersion)) {
       pivotFeedback.setP(pivotFeedbackP.get());
       pivotFeedback.setI(pivotFeedbackI.get());
       pivotFeedback.setD(pivotFeedbackD.get());
@@ -224,6 +262,13 @@ public class Yoshivator extends SubsystemBase {
       pivotFeedback.setConstraints(
           new TrapezoidProfile.Constraints(pivotFeedbackV.get(), pivotFeedbackA.get()));
     }
+    if (detectorDriftAmps.hasChangedSince(tunableVersion)
+        || detectorThresholdAmps.hasChangedSince(tunableVersion)
+        || detectorVelocityDrop.hasChangedSince(tunableVersion)) {
+      noteDetector.setThresholds(
+          detectorDriftAmps.get(), detectorThresholdAmps.get(), detectorVelocityDrop.get());
+    }
+    tunableVersion = TunableRegistry.getInstance().getVersion();
   }
 
   public void stopMotors(boolean stopPivot, boolean stopFlywheel) {
@@ -243,7 +288,9 @@ public class Yoshivator extends SubsystemBase {
     currentSetpoint = setpoint;
     if (setpoint != null) {
       pivotFeedback.setGoal(setpoint.getPivotRotation().get().getDegrees());
-      if (shouldReset) pivotFeedback.reset(manipulatorIOInputs.pivotPosition.getDegrees());
+      if (shouldReset) {
+        pivotFeedback.reset(Units.radiansToDegrees(manipulatorIOInputs.pivotPositionRadians));
+      }
       setRollerVolts(setpoint.getRollerVolts().get());
     }
   }
@@ -266,6 +313,20 @@ public class Yoshivator extends SubsystemBase {
     manipulatorIO.setRollerVolts(volts);
   }
 
+  /** Whether the rollers have pulled in a note since they last started */
+  @AutoLogOutput(key = "Yoshivator/NoteDetected")
+  public boolean isNoteDetected() {
+    return noteDetector.isDetected();
+  }
+
+  public YoshivatorSetpoints getCurrentSetpoint() {
+    return currentSetpoint;
+  }
+
+  public double getPivotDegrees() {
+    return Units.radiansToDegrees(manipulatorIOInputs.pivotPositionRadians);
+  }
+
   @AutoLogOutput(key = "Yoshivator/Pivot/Feedback/PositionGoal")
   public double getPivotPositionGoal() {
     return Math.toRadians(pivotFeedback.getGoal().position);
@@ -4,14 +4,15 @@
 
 package frc.robot.subsystems.yoshivator.manipulator;
 
-import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.utils.io.LegacyInputKeys;
 import org.littletonrobotics.junction.AutoLog;
+import org.littletonrobotics.junction.LogTable;
 
 public interface ManipulatorIO {
   @AutoLog
   public static class ManipulatorIOInputs {
-    public Rotation2d pivotPosition = new Rotation2d();
-    public Rotation2d pivotRelativePosition = new Rotation2d();
+    public double pivotPositionRadians = 0.0;
+    public double pivotRelativePositionRadians = 0.0;
     public double pivotVelocityRadiansPerSecond = 0.0;
     public double pivotAppliedVolts = 0.0;
     public double pivotInternalVolts = 0.0;
@@ -25,6 +26,19 @@ public interface ManipulatorIO {
     public double[] rollerTemperatureCelsius = new double[] {0.0};
   }
 
+  /** Manipulator inputs that can replay the pivot angles from logs made before the rename */
+  public static class ManipulatorIOInputsLogged extends ManipulatorIOInputsAutoLogged {
+    @Override
+    public void fromLog(LogTable table) {
+      super.fromLog(table);
+      pivotPositionRadians =
+          LegacyInputKeys.getRotationRadians(table, "PivotPosition", pivotPositionRadians);
+      pivotRelativePositionRadians =
+          LegacyInputKeys.getRotationRadians(
+              table, "PivotRelativePosition", pivotRelativePositionRadians);
+    }
+  }
+
   public default void updateInputs(ManipulatorIOInputs inputs) {}
 
   public default void setPivotVolts(double volts) {}
@@ -4,13 +4,10 @@
 
 package frc.robot.subsystems.yoshivator.manipulator;
 
-import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.wpilibj.simulation.BatterySim;
-import edu.wpi.first.wpilibj.simulation.FlywheelSim;
-import edu.wpi.first.wpilibj.simulation.RoboRioSim;
-import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.utils.sim.SimArm;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.sim.SimFlywheel;
 
 /** Class to represent the manipulator mechanism in simulation */
 public class ManipulatorIOSim implements ManipulatorIO {
@@ -18,8 +15,8 @@ public class ManipulatorIOSim implements ManipulatorIO {
   private final double PIVOT_GEARING = (64.0 / 1.0) * (3.0 / 1.0);
   private final double FLYWHEEL_GEARING = 5.0 / 1.0;
 
-  private SingleJointedArmSim pivotMotor =
-      new SingleJointedArmSim(
+  private SimArm pivotMotor =
+      new SimArm(
           DCMotor.getNEO(1), 
           PIVOT_GEARING, 
           0.002, 
@@ -28,12 +25,15 @@ public class ManipulatorIOSim implements ManipulatorIO {
           Math.toRadians(120.0), 
           true, 
           0.0);
-  private FlywheelSim flywheelMotor =
-      new FlywheelSim(DCMotor.getNeo550(1), FLYWHEEL_GEARING, 0.002);
+  private SimFlywheel flywheelMotor =
+      new SimFlywheel(DCMotor.getNeo550(1), FLYWHEEL_GEARING, 0.002);
 
   private double pivotAppliedVolts = 0.0;
   private double flywheelAppliedVolts = 0.0;
 
+  private final int pivotBatteryLoad = SimBattery.getInstance().register("YoshivatorPivot");
+  private final int rollerBatteryLoad = SimBattery.getInstance().register("YoshivatorRoller");
+
   /** Create a new virtual implementation of the manipulator */
   public ManipulatorIOSim() {}
 
@@ -42,33 +42,35 @@ public class ManipulatorIOSim implements ManipulatorIO {
     pivotMotor.update(LOOP_PERIOD_S);
     flywheelMotor.update(LOOP_PERIOD_S);
 
-    RoboRioSim.setVInVoltage(
-        BatterySim.calculateDefaultBatteryLoadedVoltage(
-            pivotMotor.getCurrentDrawAmps() + flywheelMotor.getCurrentDrawAmps()));
+    SimBattery.getInstance()
+        .setCurrentAmps(pivotBatteryLoad, pivotMotor.getCurrentDrawAmps(), pivotAppliedVolts);
+    SimBattery.getInstance()
+        .setCurrentAmps(
+            rollerBatteryLoad, flywheelMotor.getCurrentDrawAmps(), flywheelAppliedVolts);
 
-    inputs.pivotPosition = Rotation2d.fromRadians(pivotMotor.getAngleRads());
+    inputs.pivotPositionRadians = pivotMotor.getAngleRads();
     inputs.pivotAppliedVolts = pivotAppliedVolts;
     inputs.pivotInternalVolts = 0.0;
-    inputs.pivotAppliedCurrentAmps = new double[] {pivotMotor.getCurrentDrawAmps()};
-    inputs.pivotTemperatureCelsius = new double[] {0.0};
+    inputs.pivotAppliedCurrentAmps[0] = pivotMotor.getCurrentDrawAmps();
+    inputs.pivotTemperatureCelsius[0] = 0.0;
 
     inputs.rollerVelocityRPM = flywheelMotor.getAngularVelocityRPM();
     inputs.rollerAppliedVolts = flywheelAppliedVolts;
     inputs.rollerInternalVolts = 0.0;
-    inputs.rollerAppliedCurrentAmps = new double[] {flywheelMotor.getCurrentDrawAmps()};
-    inputs.rollerTemperatureCelsius = new double[] {0.0};
+    inputs.rollerAppliedCurrentAmps[0] = flywheelMotor.getCurrentDrawAmps();
+    inputs.rollerTemperatureCelsius[0] = 0.0;
   }
 
   @Override
   public void setPivotVolts(double volts) {
-    pivotAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    pivotAppliedVolts = SimBattery.getInstance().clamp(volts);
 
     pivotMotor.setInputVoltage(pivotAppliedVolts);
   }
 
   @Override
   public void setRollerVolts(double volts) {
-    flywheelAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    flywheelAppliedVolts = SimBattery.getInstance().clamp(volts);
 
     flywheelMotor.setInputVoltage(flywheelAppliedVolts);
   }
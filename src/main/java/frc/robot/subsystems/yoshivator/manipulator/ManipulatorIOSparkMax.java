@@ -6,13 +6,14 @@ package frc.robot.subsystems.yoshivator.manipulator;
 
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
-import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d; 
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import frc.robot.utils.can.CANBudget;
+import frc.robot.utils.can.CANBudget.SparkSignal;
 
 /** Class to interact with the physical manipulator structure */
 public class ManipulatorIOSparkMax implements ManipulatorIO {
@@ -37,11 +38,17 @@ public class ManipulatorIOSparkMax implements ManipulatorIO {
     pivotMotor.clearFaults();
     pivotMotor.restoreFactoryDefaults();
 
-    pivotMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-    pivotMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, 100);
-    pivotMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 100);
-    pivotMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, 100);
-    pivotMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, 100);
+    // Pivot control runs off the absolute encoder on the DIO
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Yoshivator/Pivot",
+            pivotMotor,
+            SparkSignal.APPLIED_OUTPUT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.VELOCITY.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.BUS_VOLTAGE.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.CURRENT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.POSITION.at(CANBudget.TELEMETRY_HZ));
 
     pivotMotor.setSmartCurrentLimit(40);
     pivotMotor.enableVoltageCompensation(12.0);
@@ -56,11 +63,16 @@ public class ManipulatorIOSparkMax implements ManipulatorIO {
     flywheelMotor.clearFaults();
     flywheelMotor.restoreFactoryDefaults();
 
-    flywheelMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 100);
-    flywheelMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, 50);
-    flywheelMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, 100);
-    flywheelMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, 100);
-    flywheelMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, 100);
+    // Roller current is used for note detection
+    CANBudget.getInstance()
+        .configureSparkMax(
+            "Yoshivator/Roller",
+            flywheelMotor,
+            SparkSignal.APPLIED_OUTPUT.at(CANBudget.TELEMETRY_HZ),
+            SparkSignal.VELOCITY.at(CANBudget.CONTROL_HZ),
+            SparkSignal.BUS_VOLTAGE.at(CANBudget.CONTROL_HZ),
+            SparkSignal.CURRENT.at(CANBudget.CONTROL_HZ),
+            SparkSignal.TEMPERATURE.at(CANBudget.TELEMETRY_HZ));
 
     flywheelMotor.setSmartCurrentLimit(60);
     flywheelMotor.enableVoltageCompensation(12.0);
@@ -74,22 +86,24 @@ public class ManipulatorIOSparkMax implements ManipulatorIO {
   @Override
   public void updateInputs(ManipulatorIOInputs inputs) {
     // TODO Fix pivot position when DutyCycle is added
-    inputs.pivotPosition =
-        Rotation2d.fromRotations(pivotAbsoluteEncoder.get()).minus(pivotAbsoluteOffset).times(-1.0);
-    inputs.pivotRelativePosition =
-        Rotation2d.fromRotations(pivotRelativeEncoder.getPosition() / PIVOT_GEARING);
+    inputs.pivotPositionRadians =
+        -MathUtil.angleModulus(
+            Units.rotationsToRadians(pivotAbsoluteEncoder.get())
+                - pivotAbsoluteOffset.getRadians());
+    inputs.pivotRelativePositionRadians =
+        Units.rotationsToRadians(pivotRelativeEncoder.getPosition() / PIVOT_GEARING);
     inputs.pivotVelocityRadiansPerSecond =
         Units.rotationsToRadians(pivotRelativeEncoder.getVelocity() / (PIVOT_GEARING * 60.0));
     inputs.pivotAppliedVolts = pivotAppliedVolts;
     inputs.pivotInternalVolts = pivotMotor.getBusVoltage() * pivotMotor.getAppliedOutput();
-    inputs.pivotAppliedCurrentAmps = new double[] {pivotMotor.getOutputCurrent()};
-    inputs.pivotTemperatureCelsius = new double[] {pivotMotor.getMotorTemperature()};
+    inputs.pivotAppliedCurrentAmps[0] = pivotMotor.getOutputCurrent();
+    inputs.pivotTemperatureCelsius[0] = pivotMotor.getMotorTemperature();
 
     inputs.rollerVelocityRPM = flywheelEncoder.getVelocity() / (FLYWHEEL_GEARING * 60.0);
     inputs.rollerAppliedVolts = flywheelAppliedVolts;
     inputs.rollerInternalVolts = flywheelMotor.getBusVoltage() * flywheelMotor.getAppliedOutput();
-    inputs.rollerAppliedCurrentAmps = new double[] {flywheelMotor.getOutputCurrent()};
-    inputs.rollerTemperatureCelsius = new double[] {flywheelMotor.getMotorTemperature()};
+    inputs.rollerAppliedCurrentAmps[0] = flywheelMotor.getOutputCurrent();
+    inputs.rollerTemperatureCelsius[0] = flywheelMotor.getMotorTemperature();
   }
 
   @Override
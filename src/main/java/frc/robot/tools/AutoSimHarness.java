@@ -0,0 +1,410 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.tools;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import frc.robot.Robot;
+import frc.robot.RobotContainer;
+import frc.robot.RobotStates.IndexerStates;
+import frc.robot.RobotStates.ShooterStates;
+import frc.robot.StateMachine;
+import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.drive.SwerveSim;
+import frc.robot.subsystems.shooter.Shooter;
+import frc.robot.subsystems.shooter.Shooter.LauncherSetpoints;
+import frc.robot.subsystems.shooter.TargetingSystem;
+import frc.robot.subsystems.shooter.launcher.Launcher;
+import frc.robot.utils.sim.SimBattery;
+import frc.robot.utils.sim.SimNoise;
+import frc.robot.utils.sim.SimState;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Runs PathPlanner autos against the simulated robot as fast as the CPU allows. HAL time is paused
+ * and stepped one loop period at a time, so a 15 second auto runs in however long 750 cycles of
+ * robot code take, and the result doesn't depend on how loaded the machine is. The robot is built
+ * once per JVM and every auto runs through the same Robot.runCycle() the robot uses. Before each
+ * auto every mechanism is stopped, the state machine goes back to its starting states and every
+ * sim in SimState goes back to rest, so nothing carries over and a seed gives the same result
+ * whichever autos ran before it in the same JVM. Autos without a seed run under ideal conditions
+ *
+ * <p>From JUnit: assertTrue(AutoSimHarness.getInstance().runAuto("A1-W1").finished)
+ *
+ * <p>Usage: AutoSimHarness [auto name]... [--out folder] [--seed seed] [--runs count], runs every
+ * auto if none are named. With a seed each auto is run the given number of times under conditions
+ * drawn from seed, seed + 1, and so on. Run with "./gradlew simAutos", pass arguments with
+ * -PsimArgs="A1-W1 A2-W2"
+ */
+public class AutoSimHarness {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  private static final double AUTO_LENGTH_SECS = 15.0;
+
+  // A few disabled cycles between autos so commands see the mode change
+  private static final int DISABLED_CYCLES = 5;
+
+  // Shooter states that spin the flywheels up for a speaker shot, a feed in any other state (like
+  // the Eject named command) isn't a shot
+  private static final Set<ShooterStates> SPEAKER_SHOT_STATES =
+      EnumSet.of(
+          ShooterStates.AIM,
+          ShooterStates.AIM_AUTON,
+          ShooterStates.SPEAKER,
+          ShooterStates.PODIUM,
+          ShooterStates.FIRE);
+
+  // A shot scores if, when the note reaches the flywheels, the angler is within this of the launch
+  // map angle at the true distance and both flywheels are within this of the speaker shot speed
+  private static final double SHOT_ANGLE_TOLERANCE_DEGREES = 1.0;
+  private static final double SHOT_SPEED_TOLERANCE_MPS = Launcher.SETPOINT_TOLERANCE_MPS;
+
+  private static AutoSimHarness instance;
+
+  private final RobotContainer robotContainer;
+  private final Drive drive;
+  private final Shooter shooter;
+  private final StateMachine stateMachine;
+
+  /** What happened during one auto */
+  public static class AutoResult {
+    public final String autoName;
+    /** Seed the sim conditions were drawn from, or null for ideal conditions */
+    public final Long seed;
+    /** Whether the auto finished within the 15 second autonomous period */
+    public final boolean finished;
+    /** Seconds from enable until the auto finished, or NaN if it didn't */
+    public final double endTimeSecs;
+    /** Times the indexer started feeding a note into the shooter while it was set up to shoot */
+    public final int shotCount;
+    /**
+     * Shots where the angle and flywheel speeds matched the targeting solution at the robot's true
+     * distance from the speaker when the note reached the flywheels
+     */
+    public final int successfulShotCount;
+    /** Largest distance from the true pose to the PathPlanner setpoint while following a path */
+    public final double maxTrackingErrorMeters;
+    /** Distance from the last PathPlanner setpoint to the true pose when the auto ended */
+    public final double finalTrackingErrorMeters;
+    /** Largest distance between the pose estimate and the true pose */
+    public final double maxEstimateErrorMeters;
+    /** True pose when the auto ended */
+    public final Pose2d finalPose;
+    public final double wallClockSecs;
+
+    private AutoResult(
+        String autoName,
+        Long seed,
+        boolean finished,
+        double endTimeSecs,
+        int shotCount,
+        int successfulShotCount,
+        double maxTrackingErrorMeters,
+        double finalTrackingErrorMeters,
+        double maxEstimateErrorMeters,
+        Pose2d finalPose,
+        double wallClockSecs) {
+      this.autoName = autoName;
+      this.seed = seed;
+      this.finished = finished;
+      this.endTimeSecs = endTimeSecs;
+      this.shotCount = shotCount;
+      this.successfulShotCount = successfulShotCount;
+      this.maxTrackingErrorMeters = maxTrackingErrorMeters;
+      this.finalTrackingErrorMeters = finalTrackingErrorMeters;
+      this.maxEstimateErrorMeters = maxEstimateErrorMeters;
+      this.finalPose = finalPose;
+      this.wallClockSecs = wallClockSecs;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.US,
+          "%s%s: %s, %d/%d shots, tracking error max %.3f m final %.3f m, estimate error %.3f"
+              + " m, ran in %.2f s",
+          autoName,
+          (seed != null) ? " seed " + seed : "",
+          finished ? String.format(Locale.US, "finished at %.2f s", endTimeSecs) : "DIDN'T FINISH",
+          successfulShotCount,
+          shotCount,
+          maxTrackingErrorMeters,
+          finalTrackingErrorMeters,
+          maxEstimateErrorMeters,
+          wallClockSecs);
+    }
+  }
+
+  private AutoSimHarness() {
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    if (Constants.currentMode != Mode.SIM) {
+      throw new IllegalStateException("AutoSimHarness only runs against the sim IO");
+    }
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    setEnabled(false);
+
+    robotContainer = new RobotContainer();
+    drive = robotContainer.getDrive();
+    shooter = robotContainer.getShooter();
+    stateMachine = robotContainer.getStateMachine();
+  }
+
+  public static AutoSimHarness getInstance() {
+    if (instance == null) {
+      instance = new AutoSimHarness();
+    }
+    return instance;
+  }
+
+  /** Names of every auto in the deploy folder */
+  public List<String> getAutoNames() {
+    return AutoBuilder.getAllAutoNames();
+  }
+
+  /**
+   * Run an auto from enable until it finishes or autonomous ends. Mechanisms start stopped with no
+   * setpoints, the drive is reset to the auto's starting pose by the auto itself
+   *
+   * @param autoName Name of the .auto file without the extension
+   */
+  public AutoResult runAuto(String autoName) {
+    return runAuto(autoName, null);
+  }
+
+  /**
+   * Run an auto under randomized conditions
+   *
+   * @param autoName Name of the .auto file without the extension
+   * @param seed Seed to draw the conditions from, or null to run under ideal conditions
+   */
+  public AutoResult runAuto(String autoName, Long seed) {
+    long startNS = System.nanoTime();
+
+    CommandScheduler.getInstance().cancelAll();
+    setEnabled(false);
+    stateMachine.reset();
+    // Conditions first, the battery and vision sims reset to the new draw
+    if (seed != null) {
+      SimNoise.getInstance().randomize(seed);
+    } else {
+      SimNoise.getInstance().reset();
+    }
+    SimState.getInstance().resetAll();
+    for (int i = 0; i < DISABLED_CYCLES; i++) {
+      step();
+    }
+    robotContainer.reset();
+
+    Command auto = new PathPlannerAuto(autoName);
+    setEnabled(true);
+    auto.schedule();
+    double enableSecs = Timer.getFPGATimestamp();
+
+    boolean finished = false;
+    double endTimeSecs = Double.NaN;
+    int shotCount = 0;
+    int successfulShotCount = 0;
+    double feedStartSecs = Double.NaN;
+    double maxTrackingErrorMeters = 0.0;
+    double maxEstimateErrorMeters = 0.0;
+    Pose2d lastSetpoint = drive.getTrajectorySetpoint();
+    Pose2d followedSetpoint = null;
+    IndexerStates lastIndexerState = stateMachine.getIndexerState();
+    Translation2d lastPosition = SwerveSim.getInstance().getPose().getTranslation();
+
+    int cycles = (int) Math.round(AUTO_LENGTH_SECS / LOOP_PERIOD_SECS);
+    for (int i = 0; i < cycles; i++) {
+      step();
+
+      double nowSecs = Timer.getFPGATimestamp();
+      Translation2d position = SwerveSim.getInstance().getPose().getTranslation();
+      Translation2d velocityMPS = position.minus(lastPosition).div(LOOP_PERIOD_SECS);
+      lastPosition = position;
+
+      IndexerStates indexerState = stateMachine.getIndexerState();
+      if (indexerState == IndexerStates.INDEX
+          && lastIndexerState != IndexerStates.INDEX
+          && SPEAKER_SHOT_STATES.contains(stateMachine.getShooterState())) {
+        shotCount++;
+        feedStartSecs = nowSecs;
+      }
+      lastIndexerState = indexerState;
+      if (nowSecs - feedStartSecs >= Shooter.FEED_LATENCY_S) {
+        if (isShotOnTarget(position, velocityMPS)) {
+          successfulShotCount++;
+        }
+        feedStartSecs = Double.NaN;
+      }
+
+      // PathPlanner hands out a new setpoint every cycle it's following a path
+      Pose2d pose = SwerveSim.getInstance().getPose();
+      Pose2d setpoint = drive.getTrajectorySetpoint();
+      if (setpoint != null && setpoint != lastSetpoint) {
+        maxTrackingErrorMeters = Math.max(maxTrackingErrorMeters, getDistance(pose, setpoint));
+        followedSetpoint = setpoint;
+      }
+      lastSetpoint = setpoint;
+      maxEstimateErrorMeters =
+          Math.max(maxEstimateErrorMeters, getDistance(drive.getPoseEstimate(), pose));
+
+      if (!auto.isScheduled()) {
+        finished = true;
+        endTimeSecs = nowSecs - enableSecs;
+        break;
+      }
+    }
+
+    Pose2d finalPose = SwerveSim.getInstance().getPose();
+    auto.cancel();
+    setEnabled(false);
+    step();
+
+    return new AutoResult(
+        autoName,
+        seed,
+        finished,
+        endTimeSecs,
+        shotCount,
+        successfulShotCount,
+        maxTrackingErrorMeters,
+        (followedSetpoint != null) ? getDistance(finalPose, followedSetpoint) : 0.0,
+        maxEstimateErrorMeters,
+        finalPose,
+        (System.nanoTime() - startNS) / 1.0e9);
+  }
+
+  /** Whether the shooter matches the targeting solution from where the robot really is */
+  private boolean isShotOnTarget(Translation2d position, Translation2d velocityMPS) {
+    TargetingSystem targeting = TargetingSystem.getInstance();
+    double distanceM = position.getDistance(targeting.getAimPoint(position, velocityMPS));
+    double angleErrorDegrees =
+        shooter.getAngler().getAnglerDegrees()
+            - targeting.getLaunchMapAngle(distanceM).getDegrees();
+
+    Launcher launcher = shooter.getLauncher();
+    double topErrorMPS =
+        launcher.getTopVelocityMPS()
+            - LauncherSetpoints.SPEAKER_SHOT.getTopSpeedMPS().getAsDouble();
+    double bottomErrorMPS =
+        launcher.getBottomVelocityMPS()
+            - LauncherSetpoints.SPEAKER_SHOT.getBottomSpeedMPS().getAsDouble();
+
+    return Math.abs(angleErrorDegrees) <= SHOT_ANGLE_TOLERANCE_DEGREES
+        && Math.abs(topErrorMPS) <= SHOT_SPEED_TOLERANCE_MPS
+        && Math.abs(bottomErrorMPS) <= SHOT_SPEED_TOLERANCE_MPS;
+  }
+
+  /** Advance HAL time by one loop period and run one cycle of robot code */
+  private void step() {
+    SimHooks.stepTiming(LOOP_PERIOD_SECS);
+    DriverStationSim.notifyNewData();
+    DriverStation.refreshData();
+    Robot.runCycle(robotContainer);
+
+    // Same as Robot.simulationPeriodic()
+    SwerveSim.getInstance().update();
+    SimBattery.getInstance().update();
+  }
+
+  private static void setEnabled(boolean enabled) {
+    DriverStationSim.setAutonomous(enabled);
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.notifyNewData();
+  }
+
+  private static double getDistance(Pose2d a, Pose2d b) {
+    return a.getTranslation().getDistance(b.getTranslation());
+  }
+
+  public static void main(String[] args) {
+    List<String> autoNames = new ArrayList<>();
+    Path outputDirectory = Path.of("logs", "autos");
+    Long seed = null;
+    int runs = 1;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--out":
+          outputDirectory = Path.of(args[++i]);
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        case "--runs":
+          runs = Integer.parseInt(args[++i]);
+          break;
+        default:
+          autoNames.add(args[i]);
+          break;
+      }
+    }
+
+    AutoSimHarness harness = getInstance();
+    if (autoNames.isEmpty()) {
+      autoNames.addAll(harness.getAutoNames());
+    }
+
+    boolean allFinished = true;
+    List<String> rows = new ArrayList<>();
+    for (String autoName : autoNames) {
+      for (int run = 0; run < runs; run++) {
+        AutoResult result = harness.runAuto(autoName, (seed != null) ? seed + run : null);
+        System.out.println(result);
+        allFinished &= result.finished;
+        rows.add(
+            String.join(
+                ",",
+                autoName,
+                (result.seed != null) ? result.seed.toString() : "",
+                Boolean.toString(result.finished),
+                Reports.formatCSV(result.endTimeSecs),
+                Integer.toString(result.shotCount),
+                Integer.toString(result.successfulShotCount),
+                Reports.formatCSV(result.maxTrackingErrorMeters),
+                Reports.formatCSV(result.finalTrackingErrorMeters),
+                Reports.formatCSV(result.maxEstimateErrorMeters),
+                Reports.formatCSV(result.finalPose.getX()),
+                Reports.formatCSV(result.finalPose.getY()),
+                Reports.formatCSV(result.finalPose.getRotation().getDegrees()),
+                Reports.formatCSV(result.wallClockSecs)));
+      }
+    }
+
+    try {
+      Files.createDirectories(outputDirectory);
+      Reports.writeLines(
+          outputDirectory.resolve("auto_report.csv"),
+          "auto,seed,finished,end_time_secs,shots,successful_shots,max_tracking_error_meters,"
+              + "final_tracking_error_meters,max_estimate_error_meters,final_x_meters,"
+              + "final_y_meters,final_degrees,wall_clock_secs",
+          rows);
+    } catch (IOException e) {
+      System.err.println("Failed to write report: " + e.getMessage());
+      System.exit(1);
+    }
+    System.exit(allFinished ? 0 : 1);
+  }
+}
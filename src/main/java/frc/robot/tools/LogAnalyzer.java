@@ -0,0 +1,402 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.tools;
+
+import frc.robot.tools.WPILOGIndex.Entry;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line log analysis. Indexes every log in a folder in parallel and writes a summary of
+ * each one: loop cycle times, vision measurements accepted and rejected per camera, and shots, plus
+ * the pose estimate and shots of each log as CSVs.
+ *
+ * <p>Usage: LogAnalyzer [log file or folder]... [--from seconds] [--to seconds] [--out folder]
+ *
+ * <p>Run with "./gradlew analyzeLogs", pass arguments with -PlogArgs="logs --from 15 --to 150"
+ */
+public class LogAnalyzer {
+  private static final double LOOP_PERIOD_MS = 20.0;
+
+  private static final String CYCLE_TIME_KEY = "LoggedRobot/FullCycleMS";
+  private static final String POSE_KEY = "Drive/Odometry/PoseEstimate";
+  private static final String SHOOTER_STATE_KEY = "StateMachine/ShooterState";
+  private static final String SPEAKER_DISTANCE_KEY = "Shooter/TargetingSystem/SpeakerDistance";
+  private static final String ANGLER_DEGREES_KEY = "Shooter/Angler/PositionDegrees";
+
+  // Shooter states that feed a note into the launcher
+  private static final Set<String> SHOT_STATES = Set.of("FIRE", "SHOOT_AMP");
+
+  /** What was found in one log */
+  private static class Summary {
+    String name;
+    int entryCount;
+    double durationSecs;
+    String cycleTimeSource = "none";
+    int cycleCount;
+    double[] cycleTimePercentilesMS = {Double.NaN, Double.NaN, Double.NaN};
+    double meanCycleTimeMS = Double.NaN;
+    double maxCycleTimeMS = Double.NaN;
+    int overrunCount;
+    int poseSamples;
+    List<String> cameras = new ArrayList<>();
+    List<int[]> visionCounts = new ArrayList<>();
+    List<String> shotRows = new ArrayList<>();
+    String error;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    List<Path> inputs = new ArrayList<>();
+    double fromSecs = 0.0;
+    double toSecs = Double.MAX_VALUE;
+    Path outputDirectory = Path.of("logs", "analysis");
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--from":
+          fromSecs = Double.parseDouble(args[++i]);
+          break;
+        case "--to":
+          toSecs = Double.parseDouble(args[++i]);
+          break;
+        case "--out":
+          outputDirectory = Path.of(args[++i]);
+          break;
+        default:
+          inputs.add(Path.of(args[i]));
+          break;
+      }
+    }
+    if (inputs.isEmpty()) {
+      inputs.add(Path.of("logs"));
+    }
+
+    List<Path> logs = new ArrayList<>();
+    for (Path input : inputs) {
+      logs.addAll(Reports.findLogs(input));
+    }
+    if (logs.isEmpty()) {
+      System.err.println("No .wpilog or .wpilog.gz files found in " + inputs);
+      System.exit(1);
+    }
+
+    try {
+      Files.createDirectories(outputDirectory);
+    } catch (IOException e) {
+      System.err.println("Can't create " + outputDirectory + ": " + e.getMessage());
+      System.exit(1);
+    }
+
+    // Each log is independent, so they're indexed across all cores
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(logs.size(), Runtime.getRuntime().availableProcessors()));
+    List<Future<Summary>> futures = new ArrayList<>();
+    final long fromUS = (long) (fromSecs * 1.0e6);
+    final long toUS = (toSecs >= Long.MAX_VALUE / 1.0e6) ? Long.MAX_VALUE : (long) (toSecs * 1.0e6);
+    final Path output = outputDirectory;
+    for (Path log : logs) {
+      futures.add(executor.submit(() -> analyze(log, fromUS, toUS, output)));
+    }
+
+    List<Summary> summaries = new ArrayList<>();
+    for (Future<Summary> future : futures) {
+      try {
+        summaries.add(future.get());
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    executor.shutdown();
+
+    try {
+      writeSummaryCSV(summaries, outputDirectory.resolve("summary.csv"));
+      writeSummaryJSON(summaries, outputDirectory.resolve("summary.json"));
+    } catch (IOException e) {
+      System.err.println("Failed to write summary: " + e.getMessage());
+      System.exit(1);
+    }
+
+    for (Summary summary : summaries) {
+      System.out.println(
+          (summary.error != null)
+              ? summary.name + ": " + summary.error
+              : String.format(
+                  Locale.US,
+                  "%s: %.1f s, cycle p50 %.2f ms p99 %.2f ms, %d overruns, %d shots",
+                  summary.name,
+                  summary.durationSecs,
+                  summary.cycleTimePercentilesMS[0],
+                  summary.cycleTimePercentilesMS[2],
+                  summary.overrunCount,
+                  summary.shotRows.size()));
+    }
+    System.out.println("Wrote " + outputDirectory.toAbsolutePath());
+  }
+
+  private static Summary analyze(Path log, long fromUS, long toUS, Path outputDirectory) {
+    Summary summary = new Summary();
+    summary.name = log.getFileName().toString().replaceAll("\\.wpilog(\\.gz)?$", "");
+
+    WPILOGIndex index;
+    try {
+      index = WPILOGIndex.open(log);
+    } catch (IOException e) {
+      summary.error = e.getMessage();
+      return summary;
+    }
+
+    summary.entryCount = index.getEntries().size();
+    long firstUS = Long.MAX_VALUE;
+    long lastUS = 0;
+    for (Entry entry : index.getEntries()) {
+      if (entry.size() > 0) {
+        firstUS = Math.min(firstUS, entry.getTimestampUS(0));
+        lastUS = Math.max(lastUS, entry.getTimestampUS(entry.size() - 1));
+      }
+    }
+    summary.durationSecs = (lastUS > firstUS) ? (lastUS - firstUS) / 1.0e6 : 0.0;
+
+    analyzeCycleTimes(index, summary, fromUS, toUS);
+    analyzeVision(index, summary, fromUS, toUS);
+    analyzeShots(index, summary, fromUS, toUS);
+
+    try {
+      summary.poseSamples =
+          writePoseCSV(index, fromUS, toUS, outputDirectory.resolve(summary.name + "_pose.csv"));
+      Reports.writeLines(
+          outputDirectory.resolve(summary.name + "_shots.csv"),
+          "timestamp_secs,state,speaker_distance_meters,angler_degrees",
+          summary.shotRows);
+    } catch (IOException e) {
+      summary.error = e.getMessage();
+    }
+    return summary;
+  }
+
+  /** Cycle time distribution, from AdvantageKit's cycle time or the gaps between cycles */
+  private static void analyzeCycleTimes(
+      WPILOGIndex index, Summary summary, long fromUS, long toUS) {
+    Entry cycleEntry = index.find(CYCLE_TIME_KEY);
+    Entry timestampEntry = index.find("Timestamp");
+    double[] cycleTimesMS;
+    int count = 0;
+
+    if (cycleEntry != null) {
+      summary.cycleTimeSource = CYCLE_TIME_KEY;
+      cycleTimesMS = new double[cycleEntry.size()];
+      for (int i = 0; i < cycleEntry.size(); i++) {
+        long timestampUS = cycleEntry.getTimestampUS(i);
+        if (timestampUS >= fromUS && timestampUS <= toUS) {
+          cycleTimesMS[count++] = index.getDouble(cycleEntry, i);
+        }
+      }
+    } else if (timestampEntry != null) {
+      summary.cycleTimeSource = "Timestamp";
+      cycleTimesMS = new double[timestampEntry.size()];
+      for (int i = 1; i < timestampEntry.size(); i++) {
+        long timestampUS = timestampEntry.getTimestampUS(i);
+        if (timestampUS >= fromUS && timestampUS <= toUS) {
+          cycleTimesMS[count++] =
+              (index.getInteger(timestampEntry, i) - index.getInteger(timestampEntry, i - 1))
+                  / 1000.0;
+        }
+      }
+    } else {
+      return;
+    }
+
+    if (count == 0) {
+      return;
+    }
+    double[] sorted = Arrays.copyOf(cycleTimesMS, count);
+    Arrays.sort(sorted);
+    double total = 0.0;
+    for (double cycleTimeMS : sorted) {
+      total += cycleTimeMS;
+      if (cycleTimeMS > LOOP_PERIOD_MS) {
+        summary.overrunCount++;
+      }
+    }
+    summary.cycleCount = count;
+    summary.meanCycleTimeMS = total / count;
+    summary.maxCycleTimeMS = sorted[count - 1];
+    summary.cycleTimePercentilesMS[0] = Reports.percentile(sorted, 0.5);
+    summary.cycleTimePercentilesMS[1] = Reports.percentile(sorted, 0.9);
+    summary.cycleTimePercentilesMS[2] = Reports.percentile(sorted, 0.99);
+  }
+
+  /**
+   * Every new camera result updates LatestTimestamp, the VisionFuser only adds it to the pose
+   * estimator when HasTarget was set in the same cycle
+   */
+  private static void analyzeVision(WPILOGIndex index, Summary summary, long fromUS, long toUS) {
+    for (Entry timestampEntry : index.findAllEndingWith("/LatestTimestamp")) {
+      String prefix =
+          timestampEntry.name.substring(0, timestampEntry.name.length() - "LatestTimestamp".length());
+      if (!prefix.contains("Vision/")) {
+        continue;
+      }
+      Entry hasTargetEntry = index.find(prefix + "HasTarget");
+
+      int accepted = 0;
+      int rejected = 0;
+      for (int i = 0; i < timestampEntry.size(); i++) {
+        long timestampUS = timestampEntry.getTimestampUS(i);
+        if (timestampUS < fromUS || timestampUS > toUS) {
+          continue;
+        }
+        if (index.getBooleanAt(hasTargetEntry, timestampUS, false)) {
+          accepted++;
+        } else {
+          rejected++;
+        }
+      }
+      String camera = prefix.substring(prefix.indexOf("Vision/") + "Vision/".length());
+      summary.cameras.add(camera.substring(0, camera.length() - 1));
+      summary.visionCounts.add(new int[] {accepted, rejected});
+    }
+  }
+
+  /** A shot is the shooter state machine entering a state that feeds the note */
+  private static void analyzeShots(WPILOGIndex index, Summary summary, long fromUS, long toUS) {
+    Entry stateEntry = index.find(SHOOTER_STATE_KEY);
+    if (stateEntry == null) {
+      return;
+    }
+    Entry distanceEntry = index.find(SPEAKER_DISTANCE_KEY);
+    Entry anglerEntry = index.find(ANGLER_DEGREES_KEY);
+
+    String lastState = "";
+    for (int i = 0; i < stateEntry.size(); i++) {
+      String state = index.getString(stateEntry, i);
+      long timestampUS = stateEntry.getTimestampUS(i);
+      if (SHOT_STATES.contains(state)
+          && !state.equals(lastState)
+          && timestampUS >= fromUS
+          && timestampUS <= toUS) {
+        summary.shotRows.add(
+            String.format(
+                Locale.US,
+                "%.6f,%s,%s,%s",
+                timestampUS / 1.0e6,
+                state,
+                Reports.formatCSV(index.getDoubleAt(distanceEntry, timestampUS)),
+                Reports.formatCSV(index.getDoubleAt(anglerEntry, timestampUS))));
+      }
+      lastState = state;
+    }
+  }
+
+  private static int writePoseCSV(WPILOGIndex index, long fromUS, long toUS, Path file)
+      throws IOException {
+    Entry poseEntry = index.find(POSE_KEY);
+    List<String> rows = new ArrayList<>();
+    if (poseEntry != null) {
+      for (int i = 0; i < poseEntry.size(); i++) {
+        long timestampUS = poseEntry.getTimestampUS(i);
+        if (timestampUS >= fromUS && timestampUS <= toUS) {
+          double[] pose = index.getPose2d(poseEntry, i);
+          rows.add(
+              String.format(
+                  Locale.US, "%.6f,%.4f,%.4f,%.5f", timestampUS / 1.0e6, pose[0], pose[1], pose[2]));
+        }
+      }
+    }
+    Reports.writeLines(file, "timestamp_secs,x_meters,y_meters,rotation_radians", rows);
+    return rows.size();
+  }
+
+  private static void writeSummaryCSV(List<Summary> summaries, Path file) throws IOException {
+    List<String> rows = new ArrayList<>();
+    for (Summary summary : summaries) {
+      int accepted = 0;
+      int rejected = 0;
+      for (int[] counts : summary.visionCounts) {
+        accepted += counts[0];
+        rejected += counts[1];
+      }
+      rows.add(
+          String.join(
+              ",",
+              summary.name,
+              Reports.formatCSV(summary.durationSecs),
+              Integer.toString(summary.cycleCount),
+              Reports.formatCSV(summary.meanCycleTimeMS),
+              Reports.formatCSV(summary.cycleTimePercentilesMS[0]),
+              Reports.formatCSV(summary.cycleTimePercentilesMS[1]),
+              Reports.formatCSV(summary.cycleTimePercentilesMS[2]),
+              Reports.formatCSV(summary.maxCycleTimeMS),
+              Integer.toString(summary.overrunCount),
+              Integer.toString(summary.poseSamples),
+              Integer.toString(accepted),
+              Integer.toString(rejected),
+              Integer.toString(summary.shotRows.size()),
+              (summary.error != null) ? summary.error.replace(',', ' ') : ""));
+    }
+    Reports.writeLines(
+        file,
+        "log,duration_secs,cycles,mean_cycle_ms,p50_cycle_ms,p90_cycle_ms,p99_cycle_ms,"
+            + "max_cycle_ms,overruns,pose_samples,vision_accepted,vision_rejected,shots,error",
+        rows);
+  }
+
+  private static void writeSummaryJSON(List<Summary> summaries, Path file) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println("[");
+      for (int i = 0; i < summaries.size(); i++) {
+        Summary summary = summaries.get(i);
+        writer.println("  {");
+        writer.println("    \"log\": " + Reports.quote(summary.name) + ",");
+        if (summary.error != null) {
+          writer.println("    \"error\": " + Reports.quote(summary.error) + ",");
+        }
+        writer.println("    \"entries\": " + summary.entryCount + ",");
+        writer.println("    \"durationSecs\": " + Reports.formatJSON(summary.durationSecs) + ",");
+        writer.println("    \"cycleTime\": {");
+        writer.println("      \"source\": " + Reports.quote(summary.cycleTimeSource) + ",");
+        writer.println("      \"cycles\": " + summary.cycleCount + ",");
+        writer.println("      \"meanMS\": " + Reports.formatJSON(summary.meanCycleTimeMS) + ",");
+        writer.println(
+            "      \"p50MS\": " + Reports.formatJSON(summary.cycleTimePercentilesMS[0]) + ",");
+        writer.println(
+            "      \"p90MS\": " + Reports.formatJSON(summary.cycleTimePercentilesMS[1]) + ",");
+        writer.println(
+            "      \"p99MS\": " + Reports.formatJSON(summary.cycleTimePercentilesMS[2]) + ",");
+        writer.println("      \"maxMS\": " + Reports.formatJSON(summary.maxCycleTimeMS) + ",");
+        writer.println("      \"overruns\": " + summary.overrunCount);
+        writer.println("    },");
+        writer.println("    \"poseSamples\": " + summary.poseSamples + ",");
+        writer.println("    \"vision\": {");
+        for (int j = 0; j < summary.cameras.size(); j++) {
+          int[] counts = summary.visionCounts.get(j);
+          writer.println(
+              "      "
+                  + Reports.quote(summary.cameras.get(j))
+                  + ": {\"accepted\": "
+                  + counts[0]
+                  + ", \"rejected\": "
+                  + counts[1]
+                  + "}"
+                  + ((j < summary.cameras.size() - 1) ? "," : ""));
+        }
+        writer.println("    },");
+        writer.println("    \"shots\": " + summary.shotRows.size());
+        writer.println("  }" + ((i < summaries.size() - 1) ? "," : ""));
+      }
+      writer.println("]");
+    }
+  }
+}
@@ -0,0 +1,313 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.tools;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every auto many times under randomized wheel grip, gyro drift, camera latency and
+ * calibration error, and battery sag, then ranks the autos by how reliably and how quickly they
+ * finish. The runs are split across one AutoSimHarness process per core, each process builds its
+ * own robot and resets it between runs, so a seed's result doesn't depend on --jobs
+ *
+ * <p>Usage: MonteCarloAutos [auto name]... [--runs per auto] [--seed first seed] [--jobs count]
+ * [--out folder], runs every auto if none are named
+ *
+ * <p>Run with "./gradlew monteCarloAutos", pass arguments with -PmonteCarloArgs="--runs 100"
+ */
+public class MonteCarloAutos {
+  private static final long WORKER_TIMEOUT_MINUTES = 60;
+
+  /** Every run of one auto */
+  private static class Distribution {
+    String autoName;
+    int runs;
+    int finishedRuns;
+    int shots;
+    int successfulShots;
+    List<Double> endTimesSecs = new ArrayList<>();
+    List<Double> successfulShotCounts = new ArrayList<>();
+    List<Double> estimateErrorsMeters = new ArrayList<>();
+    List<Double> finalTrackingErrorsMeters = new ArrayList<>();
+
+    double getCompletionRate() {
+      return (runs > 0) ? (double) finishedRuns / runs : 0.0;
+    }
+
+    double getShotSuccessRate() {
+      return (shots > 0) ? (double) successfulShots / shots : Double.NaN;
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    List<String> autoNames = new ArrayList<>();
+    int runs = 50;
+    long seed = 0;
+    int jobs = Runtime.getRuntime().availableProcessors();
+    Path outputDirectory = Path.of("logs", "montecarlo");
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--runs":
+          runs = Integer.parseInt(args[++i]);
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        case "--jobs":
+          jobs = Integer.parseInt(args[++i]);
+          break;
+        case "--out":
+          outputDirectory = Path.of(args[++i]);
+          break;
+        default:
+          autoNames.add(args[i]);
+          break;
+      }
+    }
+
+    try {
+      Files.createDirectories(outputDirectory);
+    } catch (IOException e) {
+      System.err.println("Can't create " + outputDirectory + ": " + e.getMessage());
+      System.exit(1);
+    }
+
+    // Every worker runs every auto over its own block of seeds
+    int workers = Math.max(1, Math.min(jobs, runs));
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    List<Future<Path>> futures = new ArrayList<>();
+    long nextSeed = seed;
+    for (int worker = 0; worker < workers; worker++) {
+      int workerRuns = runs / workers + ((worker < runs % workers) ? 1 : 0);
+      final long workerSeed = nextSeed;
+      final Path workerDirectory = outputDirectory.resolve("worker_" + worker);
+      futures.add(
+          executor.submit(() -> runWorker(autoNames, workerSeed, workerRuns, workerDirectory)));
+      nextSeed += workerRuns;
+    }
+
+    Map<String, Distribution> distributions = new LinkedHashMap<>();
+    List<String> allRows = new ArrayList<>();
+    String header = null;
+    for (Future<Path> future : futures) {
+      Path report;
+      try {
+        report = future.get();
+      } catch (ExecutionException e) {
+        System.err.println(e.getCause().getMessage());
+        continue;
+      }
+      try {
+        List<String> lines = Files.readAllLines(report);
+        header = lines.get(0);
+        for (String row : lines.subList(1, lines.size())) {
+          allRows.add(row);
+          addRun(distributions, row.split(",", -1));
+        }
+      } catch (IOException e) {
+        System.err.println("Can't read " + report + ": " + e.getMessage());
+      }
+    }
+    executor.shutdown();
+
+    if (distributions.isEmpty()) {
+      System.err.println("No runs finished, see the worker output in " + outputDirectory);
+      System.exit(1);
+    }
+
+    // Most reliable first, then fastest when they're equally reliable
+    List<Distribution> ranked = new ArrayList<>(distributions.values());
+    ranked.sort(
+        Comparator.comparingDouble(Distribution::getCompletionRate)
+            .reversed()
+            .thenComparingDouble(
+                (distribution) -> {
+                  double p90 = percentile(distribution.endTimesSecs, 0.9);
+                  return Double.isNaN(p90) ? Double.MAX_VALUE : p90;
+                }));
+
+    try {
+      Reports.writeLines(outputDirectory.resolve("montecarlo_runs.csv"), header, allRows);
+      writeReportCSV(ranked, outputDirectory.resolve("montecarlo_report.csv"));
+      writeReportJSON(ranked, outputDirectory.resolve("montecarlo_report.json"));
+    } catch (IOException e) {
+      System.err.println("Failed to write report: " + e.getMessage());
+      System.exit(1);
+    }
+
+    for (Distribution distribution : ranked) {
+      System.out.println(
+          String.format(
+              Locale.US,
+              "%s: %.0f%% finished, end time p50 %.2f s p90 %.2f s, %.0f%% of %d shots made",
+              distribution.autoName,
+              100.0 * distribution.getCompletionRate(),
+              percentile(distribution.endTimesSecs, 0.5),
+              percentile(distribution.endTimesSecs, 0.9),
+              100.0 * distribution.getShotSuccessRate(),
+              distribution.shots));
+    }
+    System.out.println("Wrote " + outputDirectory.toAbsolutePath());
+  }
+
+  /** Run one AutoSimHarness process and return its report */
+  private static Path runWorker(List<String> autoNames, long seed, int runs, Path directory)
+      throws IOException, InterruptedException {
+    Files.createDirectories(directory);
+    Path report = directory.resolve("auto_report.csv");
+    Files.deleteIfExists(report);
+
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("frc.robot.tools.AutoSimHarness");
+    command.addAll(autoNames);
+    command.addAll(
+        List.of(
+            "--seed", Long.toString(seed),
+            "--runs", Integer.toString(runs),
+            "--out", directory.toString()));
+
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(directory.resolve("output.txt").toFile());
+    Process process = builder.start();
+    if (!process.waitFor(WORKER_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+      process.destroyForcibly();
+      throw new IOException(directory + " timed out");
+    }
+
+    // Autos that don't finish are results, only a missing report means the worker failed
+    if (!Files.exists(report)) {
+      throw new IOException(
+          directory + " exited with " + process.exitValue() + " without writing a report");
+    }
+    return report;
+  }
+
+  /** Columns are the ones AutoSimHarness writes */
+  private static void addRun(Map<String, Distribution> distributions, String[] columns) {
+    Distribution distribution =
+        distributions.computeIfAbsent(
+            columns[0],
+            (autoName) -> {
+              Distribution created = new Distribution();
+              created.autoName = autoName;
+              return created;
+            });
+    distribution.runs++;
+    if (Boolean.parseBoolean(columns[2])) {
+      distribution.finishedRuns++;
+      distribution.endTimesSecs.add(Double.parseDouble(columns[3]));
+    }
+    distribution.shots += Integer.parseInt(columns[4]);
+    distribution.successfulShots += Integer.parseInt(columns[5]);
+    distribution.successfulShotCounts.add(Double.parseDouble(columns[5]));
+    distribution.finalTrackingErrorsMeters.add(Double.parseDouble(columns[7]));
+    distribution.estimateErrorsMeters.add(Double.parseDouble(columns[8]));
+  }
+
+  private static double percentile(List<Double> values, double percentile) {
+    if (values.isEmpty()) {
+      return Double.NaN;
+    }
+    double[] sorted = values.stream().mapToDouble(Double::doubleValue).toArray();
+    Arrays.sort(sorted);
+    return Reports.percentile(sorted, percentile);
+  }
+
+  private static void writeReportCSV(List<Distribution> ranked, Path file) throws IOException {
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < ranked.size(); i++) {
+      Distribution distribution = ranked.get(i);
+      rows.add(
+          String.join(
+              ",",
+              Integer.toString(i + 1),
+              distribution.autoName,
+              Integer.toString(distribution.runs),
+              Reports.formatCSV(distribution.getCompletionRate()),
+              Reports.formatCSV(percentile(distribution.endTimesSecs, 0.1)),
+              Reports.formatCSV(percentile(distribution.endTimesSecs, 0.5)),
+              Reports.formatCSV(percentile(distribution.endTimesSecs, 0.9)),
+              Integer.toString(distribution.shots),
+              Reports.formatCSV(distribution.getShotSuccessRate()),
+              Reports.formatCSV(percentile(distribution.successfulShotCounts, 0.1)),
+              Reports.formatCSV(percentile(distribution.successfulShotCounts, 0.5)),
+              Reports.formatCSV(percentile(distribution.successfulShotCounts, 0.9)),
+              Reports.formatCSV(percentile(distribution.finalTrackingErrorsMeters, 0.9)),
+              Reports.formatCSV(percentile(distribution.estimateErrorsMeters, 0.9))));
+    }
+    Reports.writeLines(
+        file,
+        "rank,auto,runs,completion_rate,p10_end_time_secs,p50_end_time_secs,p90_end_time_secs,"
+            + "shots,shot_success_rate,p10_successful_shots,p50_successful_shots,"
+            + "p90_successful_shots,p90_final_tracking_error_meters,p90_estimate_error_meters",
+        rows);
+  }
+
+  private static void writeReportJSON(List<Distribution> ranked, Path file) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println("[");
+      for (int i = 0; i < ranked.size(); i++) {
+        Distribution distribution = ranked.get(i);
+        writer.println("  {");
+        writer.println("    \"rank\": " + (i + 1) + ",");
+        writer.println("    \"auto\": " + Reports.quote(distribution.autoName) + ",");
+        writer.println("    \"runs\": " + distribution.runs + ",");
+        writer.println(
+            "    \"completionRate\": "
+                + Reports.formatJSON(distribution.getCompletionRate())
+                + ",");
+        writer.println(
+            "    \"endTimeSecs\": " + formatPercentiles(distribution.endTimesSecs) + ",");
+        writer.println("    \"shots\": " + distribution.shots + ",");
+        writer.println(
+            "    \"shotSuccessRate\": "
+                + Reports.formatJSON(distribution.getShotSuccessRate())
+                + ",");
+        writer.println(
+            "    \"successfulShots\": "
+                + formatPercentiles(distribution.successfulShotCounts)
+                + ",");
+        writer.println(
+            "    \"finalTrackingErrorMeters\": "
+                + formatPercentiles(distribution.finalTrackingErrorsMeters)
+                + ",");
+        writer.println(
+            "    \"estimateErrorMeters\": " + formatPercentiles(distribution.estimateErrorsMeters));
+        writer.println("  }" + ((i < ranked.size() - 1) ? "," : ""));
+      }
+      writer.println("]");
+    }
+  }
+
+  private static String formatPercentiles(List<Double> values) {
+    return "{\"p10\": "
+        + Reports.formatJSON(percentile(values, 0.1))
+        + ", \"p50\": "
+        + Reports.formatJSON(percentile(values, 0.5))
+        + ", \"p90\": "
+        + Reports.formatJSON(percentile(values, 0.9))
+        + "}";
+  }
+}
@@ -0,0 +1,469 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.tools;
+
+import frc.robot.tools.WPILOGIndex.Entry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays every log in a folder against the current code and compares the result to what the robot
+ * did. Each log is replayed by its own robot process, WPILib and AdvantageKit keep their state in
+ * statics so replays can't share a JVM, and the processes run in parallel. The pose estimate,
+ * angler position and goal, and state machine states are diffed against the original outputs and
+ * the main thread CPU time of each replayed cycle is reported
+ *
+ * <p>Usage: ReplayRunner [log file or folder]... [--out folder] [--jobs count] [--timeout seconds]
+ *
+ * <p>Run with "./gradlew replayLogs", pass arguments with -PreplayArgs="logs --jobs 4". Exits with
+ * status 1 if any replay failed or drifted past the tolerances
+ */
+public class ReplayRunner {
+  private static final String POSE_KEY = "Drive/Odometry/PoseEstimate";
+  private static final String[] NUMBER_KEYS = {
+    "Shooter/Angler/PositionDegrees", "Shooter/Angler/Feedback/GoalPosition"
+  };
+  private static final String[] STATE_KEYS = {
+    "StateMachine/ShooterState",
+    "StateMachine/IntakeState",
+    "StateMachine/IndexerState",
+    "StateMachine/ClimbState",
+    "StateMachine/YoshiState"
+  };
+  private static final String CPU_TIME_KEY = "JVM/MainThread/CPUTimeThisLoopMS";
+  private static final String USER_CODE_KEY = "LoggedRobot/UserCodeMS";
+
+  // Replay is deterministic, anything past these means the code behaves differently
+  private static final double POSE_TOLERANCE_METERS = 0.01;
+  private static final double POSE_TOLERANCE_RADIANS = Math.toRadians(0.5);
+  private static final double NUMBER_TOLERANCE = 0.1;
+
+  /** How one replay went */
+  private static class Result {
+    String name;
+    String error;
+    boolean skipped = false;
+    int exitCode = -1;
+    double replaySecs;
+    int poseSamples;
+    double maxPoseErrorMeters = Double.NaN;
+    double maxPoseErrorRadians = Double.NaN;
+    double[] maxNumberErrors = new double[NUMBER_KEYS.length];
+    int[] stateMismatches = new int[STATE_KEYS.length];
+    int cycles;
+    double[] cpuTimeMS = {Double.NaN, Double.NaN, Double.NaN};
+    double[] originalCPUTimeMS = {Double.NaN, Double.NaN, Double.NaN};
+    double[] userCodeMS = {Double.NaN, Double.NaN, Double.NaN};
+
+    Result() {
+      Arrays.fill(maxNumberErrors, Double.NaN);
+    }
+
+    boolean passed() {
+      if (error != null) {
+        return false;
+      }
+      for (double maxError : maxNumberErrors) {
+        if (maxError > NUMBER_TOLERANCE) {
+          return false;
+        }
+      }
+      for (int mismatches : stateMismatches) {
+        if (mismatches > 0) {
+          return false;
+        }
+      }
+      return !(maxPoseErrorMeters > POSE_TOLERANCE_METERS)
+          && !(maxPoseErrorRadians > POSE_TOLERANCE_RADIANS);
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    List<Path> inputs = new ArrayList<>();
+    Path outputDirectory = Path.of("logs", "replay");
+    int jobs = Runtime.getRuntime().availableProcessors();
+    long timeoutSecs = 600;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--out":
+          outputDirectory = Path.of(args[++i]);
+          break;
+        case "--jobs":
+          jobs = Integer.parseInt(args[++i]);
+          break;
+        case "--timeout":
+          timeoutSecs = Long.parseLong(args[++i]);
+          break;
+        default:
+          inputs.add(Path.of(args[i]));
+          break;
+      }
+    }
+    if (inputs.isEmpty()) {
+      inputs.add(Path.of("logs"));
+    }
+
+    // Outputs of earlier replays sitting next to the logs aren't replayed again
+    List<Path> logs = new ArrayList<>();
+    for (Path input : inputs) {
+      for (Path log : Reports.findLogs(input)) {
+        if (!getName(log).endsWith("_sim") && !getName(log).endsWith("_replay")) {
+          logs.add(log);
+        }
+      }
+    }
+    if (logs.isEmpty()) {
+      System.err.println("No .wpilog or .wpilog.gz files found in " + inputs);
+      System.exit(1);
+    }
+
+    try {
+      Files.createDirectories(outputDirectory);
+    } catch (IOException e) {
+      System.err.println("Can't create " + outputDirectory + ": " + e.getMessage());
+      System.exit(1);
+    }
+
+    // Every job is a whole robot process, the executor only bounds how many run at once
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(logs.size(), jobs)));
+    List<Future<Result>> futures = new ArrayList<>();
+    final Path output = outputDirectory;
+    final long timeout = timeoutSecs;
+    for (Path log : logs) {
+      futures.add(executor.submit(() -> replay(log, output, timeout)));
+    }
+
+    List<Result> results = new ArrayList<>();
+    for (Future<Result> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    executor.shutdown();
+
+    try {
+      writeReportCSV(results, outputDirectory.resolve("replay_report.csv"));
+      writeReportJSON(results, outputDirectory.resolve("replay_report.json"));
+    } catch (IOException e) {
+      System.err.println("Failed to write report: " + e.getMessage());
+      System.exit(1);
+    }
+
+    boolean allPassed = true;
+    for (Result result : results) {
+      allPassed &= result.skipped || result.passed();
+      System.out.println(
+          (result.error != null)
+              ? result.name + ": " + result.error
+              : String.format(
+                  Locale.US,
+                  "%s: %s, pose error %.4f m %.4f rad, %d state mismatches, CPU p50 %.2f ms"
+                      + " p99 %.2f ms",
+                  result.name,
+                  result.passed() ? "passed" : "FAILED",
+                  result.maxPoseErrorMeters,
+                  result.maxPoseErrorRadians,
+                  Arrays.stream(result.stateMismatches).sum(),
+                  result.cpuTimeMS[0],
+                  result.cpuTimeMS[1]));
+    }
+    System.out.println("Wrote " + outputDirectory.toAbsolutePath());
+    System.exit(allPassed ? 0 : 1);
+  }
+
+  private static Result replay(Path log, Path outputDirectory, long timeoutSecs) {
+    Result result = new Result();
+    result.name = getName(log);
+
+    WPILOGIndex original;
+    Path replayInput = log;
+    try {
+      original = WPILOGIndex.open(log);
+      if (original.find("/Timestamp") == null) {
+        result.error = "skipped, not an AdvantageKit log";
+        result.skipped = true;
+        return result;
+      }
+      // The replay source can't read gzipped logs
+      if (log.getFileName().toString().endsWith(".gz")) {
+        replayInput = Files.createTempFile(result.name, ".wpilog");
+        replayInput.toFile().deleteOnExit();
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(log))) {
+          Files.copy(input, replayInput, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    } catch (IOException e) {
+      result.error = e.getMessage();
+      return result;
+    }
+
+    Path replayOutput = outputDirectory.resolve(result.name + "_replay.wpilog");
+    try {
+      Files.deleteIfExists(replayOutput);
+      ProcessBuilder builder =
+          new ProcessBuilder(
+              Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+              "-Djava.library.path=" + System.getProperty("java.library.path"),
+              "-cp",
+              System.getProperty("java.class.path"),
+              "frc.robot.Main");
+      builder.environment().put("AKIT_REPLAY", "1");
+      builder.environment().put("AKIT_LOG_PATH", replayInput.toAbsolutePath().toString());
+      builder.environment().put("AKIT_REPLAY_OUTPUT", replayOutput.toAbsolutePath().toString());
+      builder.redirectErrorStream(true);
+      builder.redirectOutput(outputDirectory.resolve(result.name + "_replay.txt").toFile());
+
+      long startNS = System.nanoTime();
+      Process process = builder.start();
+      if (!process.waitFor(timeoutSecs, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+        result.error = "replay timed out after " + timeoutSecs + " s";
+        return result;
+      }
+      result.replaySecs = (System.nanoTime() - startNS) / 1.0e9;
+      result.exitCode = process.exitValue();
+    } catch (IOException | InterruptedException e) {
+      result.error = e.getMessage();
+      return result;
+    }
+
+    if (!Files.exists(replayOutput)) {
+      result.error = "replay exited with " + result.exitCode + " without writing a log";
+      return result;
+    }
+    WPILOGIndex replayed;
+    try {
+      replayed = WPILOGIndex.open(replayOutput);
+    } catch (IOException e) {
+      result.error = e.getMessage();
+      return result;
+    }
+
+    comparePose(original, replayed, result);
+    for (int i = 0; i < NUMBER_KEYS.length; i++) {
+      result.maxNumberErrors[i] = compareNumbers(original, replayed, NUMBER_KEYS[i]);
+    }
+    for (int i = 0; i < STATE_KEYS.length; i++) {
+      result.stateMismatches[i] = compareStrings(original, replayed, STATE_KEYS[i]);
+    }
+
+    Entry cpuTimeEntry = replayed.find("/ReplayOutputs/" + CPU_TIME_KEY);
+    result.cycles = (cpuTimeEntry != null) ? cpuTimeEntry.size() : 0;
+    summarize(replayed, cpuTimeEntry, result.cpuTimeMS);
+    summarize(original, original.find("/RealOutputs/" + CPU_TIME_KEY), result.originalCPUTimeMS);
+    summarize(replayed, replayed.find("/ReplayOutputs/" + USER_CODE_KEY), result.userCodeMS);
+    return result;
+  }
+
+  /** Largest translation and rotation difference at every original pose sample */
+  private static void comparePose(WPILOGIndex original, WPILOGIndex replayed, Result result) {
+    Entry originalEntry = original.find("/RealOutputs/" + POSE_KEY);
+    Entry replayedEntry = replayed.find("/ReplayOutputs/" + POSE_KEY);
+    if (originalEntry == null || replayedEntry == null) {
+      return;
+    }
+
+    double maxMeters = 0.0;
+    double maxRadians = 0.0;
+    for (int i = 0; i < originalEntry.size(); i++) {
+      int replayedIndex = replayedEntry.floorIndex(originalEntry.getTimestampUS(i));
+      if (replayedIndex < 0) {
+        continue;
+      }
+      double[] expected = original.getPose2d(originalEntry, i);
+      double[] actual = replayed.getPose2d(replayedEntry, replayedIndex);
+      maxMeters = Math.max(maxMeters, Math.hypot(actual[0] - expected[0], actual[1] - expected[1]));
+      maxRadians =
+          Math.max(
+              maxRadians, Math.abs(Math.IEEEremainder(actual[2] - expected[2], 2.0 * Math.PI)));
+      result.poseSamples++;
+    }
+    result.maxPoseErrorMeters = maxMeters;
+    result.maxPoseErrorRadians = maxRadians;
+  }
+
+  /** Largest difference at every original sample, or NaN if either log is missing the key */
+  private static double compareNumbers(WPILOGIndex original, WPILOGIndex replayed, String key) {
+    Entry originalEntry = original.find("/RealOutputs/" + key);
+    Entry replayedEntry = replayed.find("/ReplayOutputs/" + key);
+    if (originalEntry == null || replayedEntry == null) {
+      return Double.NaN;
+    }
+
+    double maxError = 0.0;
+    for (int i = 0; i < originalEntry.size(); i++) {
+      double actual = replayed.getDoubleAt(replayedEntry, originalEntry.getTimestampUS(i));
+      if (!Double.isNaN(actual)) {
+        maxError = Math.max(maxError, Math.abs(actual - original.getDouble(originalEntry, i)));
+      }
+    }
+    return maxError;
+  }
+
+  /** Number of original samples where the replayed state was different */
+  private static int compareStrings(WPILOGIndex original, WPILOGIndex replayed, String key) {
+    Entry originalEntry = original.find("/RealOutputs/" + key);
+    Entry replayedEntry = replayed.find("/ReplayOutputs/" + key);
+    if (originalEntry == null || replayedEntry == null) {
+      return 0;
+    }
+
+    int mismatches = 0;
+    for (int i = 0; i < originalEntry.size(); i++) {
+      int replayedIndex = replayedEntry.floorIndex(originalEntry.getTimestampUS(i));
+      if (replayedIndex >= 0
+          && !original
+              .getString(originalEntry, i)
+              .equals(replayed.getString(replayedEntry, replayedIndex))) {
+        mismatches++;
+      }
+    }
+    return mismatches;
+  }
+
+  /** Fills in the mean, p50 and p99 of a numeric entry */
+  private static void summarize(WPILOGIndex index, Entry entry, double[] statistics) {
+    if (entry == null || entry.size() == 0) {
+      return;
+    }
+    double[] sorted = new double[entry.size()];
+    double total = 0.0;
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = index.getDouble(entry, i);
+      total += sorted[i];
+    }
+    Arrays.sort(sorted);
+    statistics[0] = Reports.percentile(sorted, 0.5);
+    statistics[1] = Reports.percentile(sorted, 0.99);
+    statistics[2] = total / sorted.length;
+  }
+
+  private static String getName(Path log) {
+    return log.getFileName().toString().replaceAll("\\.wpilog(\\.gz)?$", "");
+  }
+
+  private static void writeReportCSV(List<Result> results, Path file) throws IOException {
+    List<String> rows = new ArrayList<>();
+    for (Result result : results) {
+      List<String> columns = new ArrayList<>();
+      columns.add(result.name);
+      columns.add(result.skipped ? "skipped" : result.passed() ? "passed" : "failed");
+      columns.add(Integer.toString(result.exitCode));
+      columns.add(Reports.formatCSV(result.replaySecs));
+      columns.add(Integer.toString(result.poseSamples));
+      columns.add(Reports.formatCSV(result.maxPoseErrorMeters));
+      columns.add(Reports.formatCSV(result.maxPoseErrorRadians));
+      for (double maxError : result.maxNumberErrors) {
+        columns.add(Reports.formatCSV(maxError));
+      }
+      for (int mismatches : result.stateMismatches) {
+        columns.add(Integer.toString(mismatches));
+      }
+      columns.add(Integer.toString(result.cycles));
+      for (double[] statistics :
+          new double[][] {result.cpuTimeMS, result.originalCPUTimeMS, result.userCodeMS}) {
+        for (double statistic : statistics) {
+          columns.add(Reports.formatCSV(statistic));
+        }
+      }
+      columns.add((result.error != null) ? result.error.replace(',', ' ') : "");
+      rows.add(String.join(",", columns));
+    }
+
+    StringBuilder header =
+        new StringBuilder(
+            "log,result,exit_code,replay_secs,pose_samples,max_pose_error_meters,"
+                + "max_pose_error_radians");
+    for (String key : NUMBER_KEYS) {
+      header.append(",max_error_").append(key.replace('/', '_'));
+    }
+    for (String key : STATE_KEYS) {
+      header.append(",mismatches_").append(key.replace('/', '_'));
+    }
+    header.append(",cycles,p50_cpu_ms,p99_cpu_ms,mean_cpu_ms");
+    header.append(",original_p50_cpu_ms,original_p99_cpu_ms,original_mean_cpu_ms");
+    header.append(",p50_user_code_ms,p99_user_code_ms,mean_user_code_ms,error");
+    Reports.writeLines(file, header.toString(), rows);
+  }
+
+  private static void writeReportJSON(List<Result> results, Path file) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println("[");
+      for (int i = 0; i < results.size(); i++) {
+        Result result = results.get(i);
+        writer.println("  {");
+        writer.println("    \"log\": " + Reports.quote(result.name) + ",");
+        if (result.error != null) {
+          writer.println("    \"error\": " + Reports.quote(result.error) + ",");
+        }
+        writer.println("    \"skipped\": " + result.skipped + ",");
+        writer.println("    \"passed\": " + result.passed() + ",");
+        writer.println("    \"exitCode\": " + result.exitCode + ",");
+        writer.println("    \"replaySecs\": " + Reports.formatJSON(result.replaySecs) + ",");
+        writer.println("    \"pose\": {");
+        writer.println("      \"samples\": " + result.poseSamples + ",");
+        writer.println(
+            "      \"maxErrorMeters\": " + Reports.formatJSON(result.maxPoseErrorMeters) + ",");
+        writer.println(
+            "      \"maxErrorRadians\": " + Reports.formatJSON(result.maxPoseErrorRadians));
+        writer.println("    },");
+        writer.println("    \"maxErrors\": {");
+        for (int j = 0; j < NUMBER_KEYS.length; j++) {
+          writer.println(
+              "      "
+                  + Reports.quote(NUMBER_KEYS[j])
+                  + ": "
+                  + Reports.formatJSON(result.maxNumberErrors[j])
+                  + ((j < NUMBER_KEYS.length - 1) ? "," : ""));
+        }
+        writer.println("    },");
+        writer.println("    \"stateMismatches\": {");
+        for (int j = 0; j < STATE_KEYS.length; j++) {
+          writer.println(
+              "      "
+                  + Reports.quote(STATE_KEYS[j])
+                  + ": "
+                  + result.stateMismatches[j]
+                  + ((j < STATE_KEYS.length - 1) ? "," : ""));
+        }
+        writer.println("    },");
+        writer.println("    \"cycles\": " + result.cycles + ",");
+        writer.println("    \"cpuTimeMS\": " + formatStatistics(result.cpuTimeMS) + ",");
+        writer.println(
+            "    \"originalCPUTimeMS\": " + formatStatistics(result.originalCPUTimeMS) + ",");
+        writer.println("    \"userCodeMS\": " + formatStatistics(result.userCodeMS));
+        writer.println("  }" + ((i < results.size() - 1) ? "," : ""));
+      }
+      writer.println("]");
+    }
+  }
+
+  private static String formatStatistics(double[] statistics) {
+    return "{\"p50\": "
+        + Reports.formatJSON(statistics[0])
+        + ", \"p99\": "
+        + Reports.formatJSON(statistics[1])
+        + ", \"mean\": "
+        + Reports.formatJSON(statistics[2])
+        + "}";
+  }
+}
@@ -0,0 +1,67 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.tools;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/** Finding logs and writing CSV and JSON reports, shared by the command line tools */
+final class Reports {
+  private Reports() {}
+
+  /** Every .wpilog and .wpilog.gz in a folder in name order, or the path itself if it's a file */
+  static List<Path> findLogs(Path input) {
+    if (!Files.isDirectory(input)) {
+      return List.of(input);
+    }
+    try (Stream<Path> files = Files.list(input)) {
+      return files
+          .filter(
+              (path) -> {
+                String name = path.getFileName().toString();
+                return name.endsWith(".wpilog") || name.endsWith(".wpilog.gz");
+              })
+          .sorted()
+          .toList();
+    } catch (IOException e) {
+      System.err.println("Can't list " + input + ": " + e.getMessage());
+      return List.of();
+    }
+  }
+
+  static void writeLines(Path file, String header, List<String> rows) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println(header);
+      for (String row : rows) {
+        writer.println(row);
+      }
+    }
+  }
+
+  /** Upper value of the nearest rank percentile of sorted values */
+  static double percentile(double[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  /** Empty for NaN */
+  static String formatCSV(double value) {
+    return Double.isNaN(value) ? "" : String.format(Locale.US, "%.4f", value);
+  }
+
+  /** null for NaN */
+  static String formatJSON(double value) {
+    return Double.isNaN(value) ? "null" : String.format(Locale.US, "%.4f", value);
+  }
+
+  static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+}
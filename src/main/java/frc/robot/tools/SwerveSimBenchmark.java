@@ -0,0 +1,93 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.tools;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.subsystems.drive.SwerveSim;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Times SwerveSim.update() against the 20 ms loop it runs in. The modules are driven through
+ * full-throttle launches, steering sweeps and spins so the tread model spends time both gripping
+ * and sliding, then the per-loop time and heap allocation are reported
+ *
+ * <p>Usage: SwerveSimBenchmark [loops], run with "./gradlew benchmarkSwerveSim"
+ */
+public class SwerveSimBenchmark {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  private static final int WARMUP_LOOPS = 20_000;
+
+  public static void main(String[] args) {
+    int loops = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+    SwerveSim sim = SwerveSim.getInstance();
+
+    for (int i = 0; i < WARMUP_LOOPS; i++) {
+      command(sim, i);
+      sim.update();
+    }
+
+    com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long[] loopNS = new long[loops];
+    long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < loops; i++) {
+      command(sim, i);
+      long startNS = System.nanoTime();
+      sim.update();
+      loopNS[i] = System.nanoTime() - startNS;
+    }
+    long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+    Arrays.sort(loopNS);
+    double p50US = loopNS[loops / 2] / 1000.0;
+    double p99US = loopNS[(int) (loops * 0.99)] / 1000.0;
+    double maxUS = loopNS[loops - 1] / 1000.0;
+    Pose2d pose = sim.getPose();
+    System.out.println(
+        String.format(
+            Locale.US,
+            "%d loops: p50 %.1f us, p99 %.1f us, max %.1f us, p99 is %.2f%% of the loop period",
+            loops,
+            p50US,
+            p99US,
+            maxUS,
+            100.0 * p99US / (LOOP_PERIOD_SECS * 1.0e6)));
+    System.out.println(
+        String.format(
+            Locale.US,
+            "%.1f bytes allocated per loop, final pose %.2f m, %.2f m, %.1f deg",
+            (double) allocatedBytes / loops,
+            pose.getX(),
+            pose.getY(),
+            pose.getRotation().getDegrees()));
+  }
+
+  /** Cycle through a 6 second pattern of launches, steering sweeps and spins */
+  private static void command(SwerveSim sim, int loop) {
+    double time = (loop % 300) * LOOP_PERIOD_SECS;
+    for (int module = 0; module < 4; module++) {
+      double driveVolts;
+      double azimuthVolts;
+      if (time < 2.0) {
+        // Straight launch, the wheels spin up past the grip limit
+        driveVolts = 12.0;
+        azimuthVolts = 0.0;
+      } else if (time < 4.0) {
+        // Steering sweep at speed, the chassis slides sideways
+        driveVolts = 10.0;
+        azimuthVolts = 6.0 * Math.sin(2.0 * Math.PI * time);
+      } else {
+        // Reverse hard while the modules swing around
+        driveVolts = -12.0;
+        azimuthVolts = (module % 2 == 0) ? 4.0 : -4.0;
+      }
+      sim.setDriveVolts(module, driveVolts);
+      sim.setAzimuthVolts(module, azimuthVolts);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Read only index over a memory mapped WPILOG file. One pass over the file records where every
+ * value of every entry lives, after that any value can be decoded straight from the mapping without
+ * copying the log into memory. Works on AdvantageKit logs, DataLogManager logs of the AdvantageKit
+ * NT tables, and gzipped logs from the CompressedLogWriter
+ */
+public class WPILOGIndex {
+  private static final int CONTROL_START = 0;
+
+  // AdvantageKit keys show up under different roots depending on what wrote the log
+  private static final String[] KEY_ROOTS = {
+    "/RealOutputs/",
+    "/ReplayOutputs/",
+    "/",
+    "NT:/AdvantageKit/RealOutputs/",
+    "NT:/AdvantageKit/",
+    "RealOutputs/",
+    ""
+  };
+
+  /** Every value logged to one entry, in file order */
+  public static class Entry {
+    public final String name;
+    public final String type;
+
+    private int count = 0;
+    private long[] timestampsUS = new long[16];
+    private int[] payloadOffsets = new int[16];
+    private int[] payloadSizes = new int[16];
+
+    private Entry(String name, String type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    public int size() {
+      return count;
+    }
+
+    public long getTimestampUS(int index) {
+      return timestampsUS[index];
+    }
+
+    private void add(long timestampUS, int payloadOffset, int payloadSize) {
+      if (count == timestampsUS.length) {
+        timestampsUS = Arrays.copyOf(timestampsUS, count * 2);
+        payloadOffsets = Arrays.copyOf(payloadOffsets, count * 2);
+        payloadSizes = Arrays.copyOf(payloadSizes, count * 2);
+      }
+      timestampsUS[count] = timestampUS;
+      payloadOffsets[count] = payloadOffset;
+      payloadSizes[count] = payloadSize;
+      count++;
+    }
+
+    /** Index of the last value at or before the timestamp, or -1 if there isn't one */
+    public int floorIndex(long timestampUS) {
+      int low = 0;
+      int high = count - 1;
+      int result = -1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (timestampsUS[middle] <= timestampUS) {
+          result = middle;
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return result;
+    }
+  }
+
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  private WPILOGIndex(Path path, MappedByteBuffer buffer) {
+    this.path = path;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Map and index a log file, gzipped logs are decompressed to a temporary file first
+   *
+   * @param path Path to a .wpilog or .wpilog.gz file
+   */
+  public static WPILOGIndex open(Path path) throws IOException {
+    Path mappedPath = path;
+    if (path.getFileName().toString().endsWith(".gz")) {
+      mappedPath = Files.createTempFile("wpilog", ".wpilog");
+      mappedPath.toFile().deleteOnExit();
+      try (InputStream input = new GZIPInputStream(Files.newInputStream(path))) {
+        Files.copy(input, mappedPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+
+    try (FileChannel channel = FileChannel.open(mappedPath, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      WPILOGIndex index = new WPILOGIndex(path, buffer);
+      index.build();
+      return index;
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public Collection<Entry> getEntries() {
+    return entries.values();
+  }
+
+  /**
+   * Find an entry by its AdvantageKit key, for example "Drive/Odometry/PoseEstimate"
+   *
+   * @return The entry, or null if the log doesn't have it
+   */
+  public Entry find(String key) {
+    for (String root : KEY_ROOTS) {
+      Entry entry = entries.get(root + key);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /** Find every entry whose key ends with the suffix, for keys logged once per camera or module */
+  public List<Entry> findAllEndingWith(String suffix) {
+    List<Entry> matches = new ArrayList<>();
+    for (Entry entry : entries.values()) {
+      if (entry.name.endsWith(suffix)) {
+        matches.add(entry);
+      }
+    }
+    return matches;
+  }
+
+  public boolean getBoolean(Entry entry, int index) {
+    return buffer.get(entry.payloadOffsets[index]) != 0;
+  }
+
+  public long getInteger(Entry entry, int index) {
+    return buffer.getLong(entry.payloadOffsets[index]);
+  }
+
+  /** Read a number, int64 and float entries are widened */
+  public double getDouble(Entry entry, int index) {
+    int offset = entry.payloadOffsets[index];
+    switch (entry.type) {
+      case "int64":
+        return buffer.getLong(offset);
+      case "float":
+        return buffer.getFloat(offset);
+      default:
+        return buffer.getDouble(offset);
+    }
+  }
+
+  public String getString(Entry entry, int index) {
+    byte[] bytes = new byte[entry.payloadSizes[index]];
+    buffer.get(entry.payloadOffsets[index], bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Read a Pose2d logged as a struct or as a double array, returned as {x, y, radians} */
+  public double[] getPose2d(Entry entry, int index) {
+    int offset = entry.payloadOffsets[index];
+    return new double[] {
+      buffer.getDouble(offset), buffer.getDouble(offset + 8), buffer.getDouble(offset + 16)
+    };
+  }
+
+  /** Value of a boolean entry at a time, or the fallback if nothing was logged yet */
+  public boolean getBooleanAt(Entry entry, long timestampUS, boolean fallback) {
+    int index = (entry != null) ? entry.floorIndex(timestampUS) : -1;
+    return (index >= 0) ? getBoolean(entry, index) : fallback;
+  }
+
+  /** Value of a numeric entry at a time, or NaN if nothing was logged yet */
+  public double getDoubleAt(Entry entry, long timestampUS) {
+    int index = (entry != null) ? entry.floorIndex(timestampUS) : -1;
+    return (index >= 0) ? getDouble(entry, index) : Double.NaN;
+  }
+
+  private void build() throws IOException {
+    byte[] magic = new byte[6];
+    buffer.get(0, magic);
+    if (!"WPILOG".equals(new String(magic, StandardCharsets.US_ASCII))) {
+      throw new IOException(path + " is not a WPILOG file");
+    }
+    int position = 12 + buffer.getInt(8);
+
+    Map<Integer, Entry> entriesById = new HashMap<>();
+    int limit = buffer.limit();
+    while (position < limit) {
+      int header = buffer.get(position) & 0xFF;
+      int idLength = (header & 0x3) + 1;
+      int sizeLength = ((header >> 2) & 0x3) + 1;
+      int timestampLength = ((header >> 4) & 0x7) + 1;
+      int headerLength = 1 + idLength + sizeLength + timestampLength;
+      if (position + headerLength > limit) {
+        // Truncated, most likely power was lost while writing
+        break;
+      }
+
+      int id = (int) readVariable(position + 1, idLength);
+      int size = (int) readVariable(position + 1 + idLength, sizeLength);
+      long timestampUS = readVariable(position + 1 + idLength + sizeLength, timestampLength);
+      int payloadOffset = position + headerLength;
+      if (payloadOffset + size > limit) {
+        break;
+      }
+
+      if (id == 0) {
+        if (size > 0 && buffer.get(payloadOffset) == CONTROL_START) {
+          startEntry(payloadOffset, entriesById);
+        }
+      } else {
+        Entry entry = entriesById.get(id);
+        if (entry != null) {
+          entry.add(timestampUS, payloadOffset, size);
+        }
+      }
+      position = payloadOffset + size;
+    }
+  }
+
+  private void startEntry(int payloadOffset, Map<Integer, Entry> entriesById) {
+    int offset = payloadOffset + 1;
+    int id = buffer.getInt(offset);
+    offset += 4;
+    String name = readString(offset);
+    offset += 4 + buffer.getInt(offset);
+    String type = readString(offset);
+
+    // Rotated and restarted entries keep appending to the same name
+    Entry entry = entries.computeIfAbsent(name, (key) -> new Entry(key, type));
+    entriesById.put(id, entry);
+  }
+
+  private String readString(int offset) {
+    byte[] bytes = new byte[buffer.getInt(offset)];
+    buffer.get(offset + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long readVariable(int offset, int length) {
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value |= (long) (buffer.get(offset + i) & 0xFF) << (8 * i);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,234 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.can;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
+import com.revrobotics.CANSparkMax;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Declarative CAN bandwidth budget. Each IO declares the signals it actually reads and how often it
+ * needs them; this configures the SparkMax periodic frames and Phoenix update frequencies to match
+ * and keeps a running estimate of the traffic on each bus
+ */
+public class CANBudget {
+  /** Rate for values that are only logged */
+  public static final double TELEMETRY_HZ = 10.0;
+
+  /** Rate for values that feed control loops or odometry */
+  public static final double CONTROL_HZ = 50.0;
+
+  // Rate the RIO sends control frames when a setter is called every loop
+  private static final double SPARK_CONTROL_HZ = 50.0;
+
+  // Frames nothing reads still get sent slowly so the device stays visible on the bus
+  private static final int UNUSED_FRAME_PERIOD_MS = 500;
+  // Faults and applied output live in status 0, REV recommends keeping it reasonably fast
+  private static final int MAX_STATUS_0_PERIOD_MS = 100;
+  private static final int MIN_FRAME_PERIOD_MS = 5;
+
+  // Extended ID frame with 8 data bytes, including worst case bit stuffing
+  private static final double BITS_PER_FRAME = 135.0;
+  private static final double BUS_BITRATE = 1000000.0;
+
+  // Leave the rest of the bus free for high rate odometry
+  private static final double MAX_PLANNED_UTILIZATION = 0.6;
+
+  private static final PeriodicFrame[] SPARK_FRAMES = {
+    PeriodicFrame.kStatus0,
+    PeriodicFrame.kStatus1,
+    PeriodicFrame.kStatus2,
+    PeriodicFrame.kStatus3,
+    PeriodicFrame.kStatus4,
+    PeriodicFrame.kStatus5,
+    PeriodicFrame.kStatus6
+  };
+
+  /** Data a SparkMax reports, and the periodic status frame it is sent in */
+  public static enum SparkSignal {
+    APPLIED_OUTPUT(0),
+    VELOCITY(1),
+    TEMPERATURE(1),
+    BUS_VOLTAGE(1),
+    CURRENT(1),
+    POSITION(2),
+    ANALOG(3),
+    ALTERNATE_ENCODER(4),
+    DUTY_CYCLE_POSITION(5),
+    DUTY_CYCLE_VELOCITY(6);
+
+    private final int frameIndex;
+
+    SparkSignal(int frameIndex) {
+      this.frameIndex = frameIndex;
+    }
+
+    /** Declare that this signal is needed at the given rate */
+    public SignalRate at(double hz) {
+      return new SignalRate(this, hz);
+    }
+  }
+
+  public record SignalRate(SparkSignal signal, double hz) {}
+
+  private static CANBudget instance;
+
+  private Map<String, List<String>> busDevices = new LinkedHashMap<>();
+  private Map<String, List<Double>> busDeviceFramesPerSecond = new LinkedHashMap<>();
+
+  // Flattened for logging without touching collections every loop
+  private String[] deviceKeys = new String[0];
+  private double[] deviceFramesPerSecond = new double[0];
+  private String[] busFramesKeys = new String[0];
+  private String[] busUtilizationKeys = new String[0];
+  private double[] busFramesPerSecond = new double[0];
+  // The budget only changes when a device is added. It's logged for a second after that so a
+  // decimated dashboard sees it, the log keeps the last value from then on
+  private static final int LOG_CYCLES_AFTER_CHANGE = 50;
+  private int cyclesToLog = 0;
+
+  public static CANBudget getInstance() {
+    if (instance == null) {
+      instance = new CANBudget();
+    }
+    return instance;
+  }
+
+  /**
+   * Configure the periodic status frames of a SparkMax from the signals its IO reads
+   *
+   * @param name Name of the device in the logs
+   * @param motor SparkMax to configure, assumed to be on the roboRIO bus
+   * @param rates Signals read by the IO and the rate each one is needed at
+   */
+  public void configureSparkMax(String name, CANSparkMax motor, SignalRate... rates) {
+    double[] frameHz = new double[SPARK_FRAMES.length];
+    for (SignalRate rate : rates) {
+      int index = rate.signal().frameIndex;
+      frameHz[index] = Math.max(frameHz[index], rate.hz());
+    }
+
+    double framesPerSecond = SPARK_CONTROL_HZ;
+    for (int i = 0; i < SPARK_FRAMES.length; i++) {
+      int periodMs =
+          (frameHz[i] > 0.0)
+              ? Math.max(MIN_FRAME_PERIOD_MS, (int) Math.round(1000.0 / frameHz[i]))
+              : UNUSED_FRAME_PERIOD_MS;
+      if (SPARK_FRAMES[i] == PeriodicFrame.kStatus0) {
+        periodMs = Math.min(periodMs, MAX_STATUS_0_PERIOD_MS);
+      }
+
+      motor.setPeriodicFramePeriod(SPARK_FRAMES[i], periodMs);
+      framesPerSecond += 1000.0 / periodMs;
+    }
+
+    addDevice(PhoenixSignalRegistry.RIO_BUS, name, framesPerSecond);
+  }
+
+  /**
+   * Set the update frequency of Phoenix signals, call optimizeBusUtilization() on the device after
+   * this so unlisted signals are turned off
+   *
+   * @param name Name of the device in the logs
+   * @param canBus Name of the CAN bus the device is on
+   * @param hz Rate the signals are needed at
+   * @param signals Signals read by the IO
+   */
+  public void configurePhoenix(String name, String canBus, double hz, BaseStatusSignal... signals) {
+    BaseStatusSignal.setUpdateFrequencyForAll(hz, signals);
+
+    // Several signals can share one frame, so this is an upper bound
+    addDevice(canBus, name, hz * signals.length);
+  }
+
+  /**
+   * Declare control frames that are sent to a Phoenix device
+   *
+   * @param name Name of the device in the logs
+   * @param canBus Name of the CAN bus the device is on
+   * @param hz Rate control requests are sent at
+   */
+  public void declarePhoenixControl(String name, String canBus, double hz) {
+    addDevice(canBus, name + "/Control", hz);
+  }
+
+  /** Log the expected traffic on each bus for a while after devices are added */
+  public void periodic() {
+    if (cyclesToLog <= 0) {
+      return;
+    }
+    cyclesToLog--;
+
+    for (int i = 0; i < deviceKeys.length; i++) {
+      Logger.recordOutput(deviceKeys[i], deviceFramesPerSecond[i]);
+    }
+    for (int i = 0; i < busFramesKeys.length; i++) {
+      Logger.recordOutput(busFramesKeys[i], busFramesPerSecond[i]);
+      Logger.recordOutput(busUtilizationKeys[i], getExpectedUtilization(busFramesPerSecond[i]));
+    }
+  }
+
+  private double getExpectedUtilization(double framesPerSecond) {
+    return framesPerSecond * BITS_PER_FRAME / BUS_BITRATE;
+  }
+
+  private void addDevice(String canBus, String name, double framesPerSecond) {
+    busDevices.computeIfAbsent(canBus, (bus) -> new ArrayList<>()).add(name);
+    busDeviceFramesPerSecond
+        .computeIfAbsent(canBus, (bus) -> new ArrayList<>())
+        .add(framesPerSecond);
+
+    List<String> keys = new ArrayList<>();
+    List<Double> deviceRates = new ArrayList<>();
+    int busCount = busDevices.size();
+    busFramesKeys = new String[busCount];
+    busUtilizationKeys = new String[busCount];
+    busFramesPerSecond = new double[busCount];
+
+    double utilization = 0.0;
+    int i = 0;
+    for (String bus : busDevices.keySet()) {
+      String logName = bus.isEmpty() ? "rio" : bus;
+      List<String> devices = busDevices.get(bus);
+      List<Double> rates = busDeviceFramesPerSecond.get(bus);
+      for (int j = 0; j < devices.size(); j++) {
+        keys.add("CANBus/" + logName + "/Devices/" + devices.get(j) + "/ExpectedFramesPerSecond");
+        deviceRates.add(rates.get(j));
+        busFramesPerSecond[i] += rates.get(j);
+      }
+      busFramesKeys[i] = "CANBus/" + logName + "/ExpectedFramesPerSecond";
+      busUtilizationKeys[i] = "CANBus/" + logName + "/ExpectedUtilization";
+      if (bus.equals(canBus)) {
+        utilization = getExpectedUtilization(busFramesPerSecond[i]);
+      }
+      i++;
+    }
+
+    deviceKeys = keys.toArray(new String[0]);
+    cyclesToLog = LOG_CYCLES_AFTER_CHANGE;
+    deviceFramesPerSecond = new double[deviceRates.size()];
+    for (int j = 0; j < deviceRates.size(); j++) {
+      deviceFramesPerSecond[j] = deviceRates.get(j);
+    }
+
+    if (utilization > MAX_PLANNED_UTILIZATION) {
+      DriverStation.reportWarning(
+          "CAN bus "
+              + (canBus.isEmpty() ? "rio" : canBus)
+              + " is budgeted at "
+              + Math.round(utilization * 100.0)
+              + "% after adding "
+              + name
+              + ", leaving little headroom for odometry",
+          false);
+    }
+  }
+}
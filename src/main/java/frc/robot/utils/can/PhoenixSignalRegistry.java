@@ -0,0 +1,97 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.can;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Collects the status signals of every CTRE device so they can be refreshed with a single CAN
+ * transaction per bus at the start of each loop, instead of one blocking refresh per IO
+ */
+public class PhoenixSignalRegistry {
+  /** Name Phoenix uses for the roboRIO's native CAN bus */
+  public static final String RIO_BUS = "";
+
+  /** CANivore bus the swerve encoders live on */
+  public static final String CANIVORE_BUS = "CTREBUS";
+
+  // Wait for a synchronized frame on every signal instead of grabbing the latest values, only
+  // useful when the devices are on a CANivore with timesync enabled
+  private static final boolean USE_TIMESYNC = false;
+  private static final double TIMESYNC_TIMEOUT_S = 0.02;
+
+  private static PhoenixSignalRegistry instance;
+
+  private Map<String, List<BaseStatusSignal>> registeredSignals = new LinkedHashMap<>();
+
+  // Flattened copies of the registered signals so the loop doesn't touch collections
+  private String[] busNames = new String[0];
+  private BaseStatusSignal[][] busSignals = new BaseStatusSignal[0][];
+  private String[] latencyKeys = new String[0];
+  private String[] statusKeys = new String[0];
+
+  public static PhoenixSignalRegistry getInstance() {
+    if (instance == null) {
+      instance = new PhoenixSignalRegistry();
+    }
+    return instance;
+  }
+
+  /**
+   * Register signals to be refreshed every loop, should be called once when the IO is constructed
+   *
+   * @param canBus Name of the CAN bus the device is on, RIO_BUS or CANIVORE_BUS
+   * @param signals Signals that the IO reads in updateInputs()
+   */
+  public void register(String canBus, BaseStatusSignal... signals) {
+    List<BaseStatusSignal> busList =
+        registeredSignals.computeIfAbsent(canBus, (bus) -> new ArrayList<>());
+    for (BaseStatusSignal signal : signals) {
+      busList.add(signal);
+    }
+
+    int busCount = registeredSignals.size();
+    busNames = new String[busCount];
+    busSignals = new BaseStatusSignal[busCount][];
+    latencyKeys = new String[busCount];
+    statusKeys = new String[busCount];
+
+    int i = 0;
+    for (var entry : registeredSignals.entrySet()) {
+      String logName = entry.getKey().isEmpty() ? "rio" : entry.getKey();
+      busNames[i] = entry.getKey();
+      busSignals[i] = entry.getValue().toArray(new BaseStatusSignal[0]);
+      latencyKeys[i] = "CANBus/" + logName + "/RefreshLatencyMS";
+      statusKeys[i] = "CANBus/" + logName + "/RefreshStatus";
+      i++;
+    }
+  }
+
+  /** Refresh every registered signal, one transaction per bus. Call before any updateInputs() */
+  public void refreshAll() {
+    for (int i = 0; i < busSignals.length; i++) {
+      long startUS = Logger.getRealTimestamp();
+
+      StatusCode status =
+          USE_TIMESYNC
+              ? BaseStatusSignal.waitForAll(TIMESYNC_TIMEOUT_S, busSignals[i])
+              : BaseStatusSignal.refreshAll(busSignals[i]);
+
+      Logger.recordOutput(latencyKeys[i], (Logger.getRealTimestamp() - startUS) / 1000.0);
+      Logger.recordOutput(statusKeys[i], status.getName());
+    }
+  }
+
+  /** Returns the names of the buses that have registered signals */
+  public String[] getBusNames() {
+    return busNames;
+  }
+}
@@ -12,12 +12,15 @@ import java.util.List;
 
 public class CommandUtils {
   public static Command copyCommand(Command command) {
-    return new FunctionalCommand(
-        command::initialize,
-        command::execute,
-        command::end,
-        command::isFinished,
-        command.getRequirements().toArray(Subsystem[]::new));
+    Command copy =
+        new FunctionalCommand(
+            command::initialize,
+            command::execute,
+            command::end,
+            command::isFinished,
+            command.getRequirements().toArray(Subsystem[]::new));
+    copy.setName(command.getName());
+    return copy;
   }
 
   public static SendableChooser<Command> buildAutoChooser() {
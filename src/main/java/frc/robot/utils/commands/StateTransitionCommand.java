@@ -0,0 +1,57 @@
+package frc.robot.utils.commands;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import java.util.Set;
+
+/**
+ * Sets a subsystem's state then runs the subsystem's command for that state. Built once per state,
+ * so it runs the state's command directly instead of selecting it when it starts. The state
+ * command is only delegated to, never composed, so it can be shared by every transition to the
+ * state. Requirements are passed in so every transition of a subsystem requires the same
+ * subsystems, like a SelectCommand over all its states would
+ */
+public class StateTransitionCommand extends Command {
+  private final Runnable setState;
+  private final Command stateCommand;
+
+  public StateTransitionCommand(
+      Runnable setState, Command stateCommand, Set<Subsystem> requirements, String name) {
+    this.setState = setState;
+    this.stateCommand = stateCommand;
+
+    addRequirements(requirements);
+    setName(name);
+  }
+
+  @Override
+  public void initialize() {
+    setState.run();
+    stateCommand.initialize();
+  }
+
+  @Override
+  public void execute() {
+    stateCommand.execute();
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    stateCommand.end(interrupted);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return stateCommand.isFinished();
+  }
+
+  @Override
+  public boolean runsWhenDisabled() {
+    return stateCommand.runsWhenDisabled();
+  }
+
+  @Override
+  public InterruptionBehavior getInterruptionBehavior() {
+    return stateCommand.getInterruptionBehavior();
+  }
+}
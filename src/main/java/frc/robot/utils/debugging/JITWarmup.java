@@ -0,0 +1,156 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.debugging;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.drive.SwerveSetpoint;
+import frc.robot.subsystems.drive.SwerveSetpointGenerator;
+import frc.robot.subsystems.shooter.TargetingSystem;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Runs the hot paths of the enabled robot while it sits disabled before a match so the JIT has
+ * compiled them by the time the match starts. The drive, pose estimator and vision paths run on
+ * private instances fed sweeping synthetic inputs, and targeting only uses the methods that take
+ * their inputs as arguments, so no subsystem state changes and no motors are commanded
+ */
+public class JITWarmup {
+  // Keep each disabled loop well inside its period
+  private static final double MAX_TIME_PER_LOOP_MS = 5.0;
+
+  // Vision measurements come in at about a fifth of the loop rate
+  private static final int VISION_PERIOD_ITERATIONS = 5;
+
+  // Keep the synthetic pose near the field so the estimator math stays in a realistic range
+  private static final int POSE_RESET_PERIOD_ITERATIONS = 500;
+
+  private final int warmupIterations;
+
+  private final SwerveDriveKinematics kinematics = Drive.getKinematics();
+  private final SwerveSetpointGenerator setpointGenerator =
+      SwerveSetpointGenerator.builder()
+          .kinematics(kinematics)
+          .moduleLocations(Drive.getModuleTranslations())
+          .build();
+  private final SwerveModulePosition[] modulePositions = {
+    new SwerveModulePosition(),
+    new SwerveModulePosition(),
+    new SwerveModulePosition(),
+    new SwerveModulePosition()
+  };
+  private final SwerveDrivePoseEstimator poseEstimator =
+      new SwerveDrivePoseEstimator(kinematics, new Rotation2d(), modulePositions, new Pose2d());
+  private final Matrix<N3, N1> visionStdDevs = VecBuilder.fill(0.07, 0.07, Double.MAX_VALUE);
+
+  private SwerveSetpoint setpoint =
+      new SwerveSetpoint(
+          new ChassisSpeeds(),
+          new SwerveModuleState[] {
+            new SwerveModuleState(),
+            new SwerveModuleState(),
+            new SwerveModuleState(),
+            new SwerveModuleState()
+          });
+
+  private int iterationsCompleted = 0;
+
+  // Results are accumulated here so the JIT can't eliminate the work as dead code
+  private double sink = 0.0;
+
+  /** @param warmupIterations Passes over the hot paths before the warm-up is done */
+  public JITWarmup(int warmupIterations) {
+    this.warmupIterations = warmupIterations;
+  }
+
+  /** Run a slice of the warm-up, call from disabledPeriodic() */
+  public void periodic() {
+    // Replay doesn't run in real time, and extra work would only clutter the replayed log
+    if (Constants.currentMode == Constants.Mode.REPLAY || isComplete()) {
+      return;
+    }
+
+    long startNS = System.nanoTime();
+    while (!isComplete()
+        && DriverStation.isDisabled()
+        && (System.nanoTime() - startNS) / 1.0e6 < MAX_TIME_PER_LOOP_MS) {
+      runIteration(iterationsCompleted);
+      iterationsCompleted++;
+    }
+
+    Logger.recordOutput("JITWarmup/IterationsCompleted", iterationsCompleted);
+    Logger.recordOutput("JITWarmup/Complete", isComplete());
+    Logger.recordOutput("JITWarmup/Checksum", sink);
+  }
+
+  /** Returns whether every warm-up iteration has run */
+  public boolean isComplete() {
+    return iterationsCompleted >= warmupIterations;
+  }
+
+  /** One pass over the hot paths, the inputs sweep so every branch gets taken */
+  private void runIteration(int iteration) {
+    double t = iteration * 0.02;
+    double vx = Drive.MAX_LINEAR_SPEED_MPS * Math.sin(t);
+    double vy = Drive.MAX_LINEAR_SPEED_MPS * Math.cos(0.7 * t);
+    double omega = Drive.MAX_ANGULAR_SPEED_MPS * Math.sin(1.3 * t);
+
+    // Drive setpoint path
+    ChassisSpeeds speeds = ChassisSpeeds.discretize(vx, vy, omega, 0.02);
+    SwerveModuleState[] states = kinematics.toSwerveModuleStates(speeds);
+    SwerveDriveKinematics.desaturateWheelSpeeds(states, Drive.MAX_LINEAR_SPEED_MPS);
+    setpoint = setpointGenerator.generateSetpoint(Drive.MODULE_LIMITS, setpoint, speeds, 0.02);
+
+    Rotation2d heading = Rotation2d.fromRadians(omega * t);
+    for (int i = 0; i < modulePositions.length; i++) {
+      SwerveModuleState moduleState = setpoint.moduleStates()[i];
+      sink += states[i].speedMetersPerSecond;
+      sink += SwerveModuleState.optimize(moduleState, heading).angle.getRadians();
+      modulePositions[i] =
+          new SwerveModulePosition(
+              modulePositions[i].distanceMeters + moduleState.speedMetersPerSecond * 0.02,
+              moduleState.angle);
+    }
+
+    // Pose estimation with odometry, then a vision measurement a little off the estimate
+    poseEstimator.update(heading, modulePositions);
+    Pose2d estimatedPose = poseEstimator.getEstimatedPosition();
+    if (iteration % VISION_PERIOD_ITERATIONS == 0) {
+      Pose2d visionPose =
+          new Pose2d(
+              estimatedPose.getX() + 0.05 * Math.sin(3.1 * t),
+              estimatedPose.getY() + 0.05 * Math.cos(2.3 * t),
+              estimatedPose.getRotation());
+      poseEstimator.addVisionMeasurement(
+          visionPose, Timer.getFPGATimestamp() - 0.05, visionStdDevs);
+    }
+
+    // Targeting math, through the overloads that don't read the drive or log
+    TargetingSystem targetingSystem = TargetingSystem.getInstance();
+    Translation2d position = estimatedPose.getTranslation();
+    Translation2d velocityMPS = new Translation2d(vx, vy);
+    Translation2d aimPoint = targetingSystem.getAimPoint(position, velocityMPS);
+    sink += targetingSystem.getLaunchMapAngle(position.getDistance(aimPoint)).getRadians();
+    sink += aimPoint.minus(position).getAngle().plus(Rotation2d.fromDegrees(180.0)).getRadians();
+
+    if (iteration % POSE_RESET_PERIOD_ITERATIONS == 0) {
+      poseEstimator.resetPosition(heading, modulePositions, new Pose2d());
+    }
+  }
+}
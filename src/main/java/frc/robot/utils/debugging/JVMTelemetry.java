@@ -0,0 +1,145 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.debugging;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Samples garbage collector activity, JIT compilation, heap usage, and main thread allocation and
+ * CPU time every loop. Loops where a collection ran during a loop overrun are flagged so overruns
+ * caused by GC can be told apart from slow code
+ */
+public class JVMTelemetry {
+  private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+  private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = getAllocationBean();
+
+  private static JVMTelemetry instance;
+
+  private final Runtime runtime = Runtime.getRuntime();
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+  private final CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+  private final boolean compileTimeSupported =
+      compiler != null && compiler.isCompilationTimeMonitoringSupported();
+  private final GarbageCollectorMXBean[] collectors;
+  private final String[] countKeys;
+  private final String[] timeKeys;
+  private final long[] lastCounts;
+  private final long[] lastTimesMS;
+
+  private long lastMainThreadAllocatedBytes = getCurrentThreadAllocatedBytes();
+  private long lastCompileTimeMS = 0;
+  private long lastMainThreadCPUTimeNS =
+      cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+  private int gcOverrunCount = 0;
+
+  private JVMTelemetry() {
+    List<GarbageCollectorMXBean> collectorList = ManagementFactory.getGarbageCollectorMXBeans();
+    collectors = collectorList.toArray(new GarbageCollectorMXBean[0]);
+    countKeys = new String[collectors.length];
+    timeKeys = new String[collectors.length];
+    lastCounts = new long[collectors.length];
+    lastTimesMS = new long[collectors.length];
+
+    for (int i = 0; i < collectors.length; i++) {
+      String name = collectors[i].getName().replace(' ', '_');
+      countKeys[i] = "JVM/GC/" + name + "/CollectionsThisLoop";
+      timeKeys[i] = "JVM/GC/" + name + "/PauseThisLoopMS";
+      lastCounts[i] = Math.max(0, collectors[i].getCollectionCount());
+      lastTimesMS[i] = Math.max(0, collectors[i].getCollectionTime());
+    }
+  }
+
+  public static JVMTelemetry getInstance() {
+    if (instance == null) {
+      instance = new JVMTelemetry();
+    }
+    return instance;
+  }
+
+  /**
+   * Sample and log the JVM counters, call once at the end of robotPeriodic()
+   *
+   * @param loopOverran Whether this loop took longer than the loop period
+   */
+  public void periodic(boolean loopOverran) {
+    long totalGCTimeMS = 0;
+    for (int i = 0; i < collectors.length; i++) {
+      // Both return -1 if the collector doesn't report them
+      long count = Math.max(0, collectors[i].getCollectionCount());
+      long timeMS = Math.max(0, collectors[i].getCollectionTime());
+
+      Logger.recordOutput(countKeys[i], count - lastCounts[i]);
+      Logger.recordOutput(timeKeys[i], timeMS - lastTimesMS[i]);
+      totalGCTimeMS += timeMS - lastTimesMS[i];
+
+      lastCounts[i] = count;
+      lastTimesMS[i] = timeMS;
+    }
+    Logger.recordOutput("JVM/GC/PauseThisLoopMS", totalGCTimeMS);
+
+    boolean gcDuringOverrun = loopOverran && totalGCTimeMS > 0;
+    if (gcDuringOverrun) {
+      gcOverrunCount++;
+    }
+    Logger.recordOutput("JVM/GC/DuringOverrun", gcDuringOverrun);
+    Logger.recordOutput("JVM/GC/OverrunCount", gcOverrunCount);
+
+    // Shows the JIT settling, compiles while enabled usually mean a path missed the warm-up
+    if (compileTimeSupported) {
+      long compileTimeMS = compiler.getTotalCompilationTime();
+      Logger.recordOutput("JVM/JIT/CompileTimeThisLoopMS", compileTimeMS - lastCompileTimeMS);
+      Logger.recordOutput("JVM/JIT/TotalCompileTimeMS", compileTimeMS);
+      lastCompileTimeMS = compileTimeMS;
+    }
+
+    // Runtime reads don't allocate, unlike MemoryMXBean.getHeapMemoryUsage()
+    long totalBytes = runtime.totalMemory();
+    Logger.recordOutput(
+        "JVM/Heap/UsedMB", (totalBytes - runtime.freeMemory()) / BYTES_PER_MEGABYTE);
+    Logger.recordOutput("JVM/Heap/CommittedMB", totalBytes / BYTES_PER_MEGABYTE);
+    Logger.recordOutput("JVM/Heap/MaxMB", runtime.maxMemory() / BYTES_PER_MEGABYTE);
+
+    long mainThreadAllocatedBytes = getCurrentThreadAllocatedBytes();
+    Logger.recordOutput(
+        "JVM/MainThread/AllocatedBytesThisLoop",
+        mainThreadAllocatedBytes - lastMainThreadAllocatedBytes);
+    lastMainThreadAllocatedBytes = mainThreadAllocatedBytes;
+
+    // Unlike the wall clock cycle time this isn't inflated by preemption, so it's comparable
+    // between replays on different machines
+    if (cpuTimeSupported) {
+      long mainThreadCPUTimeNS = threadBean.getCurrentThreadCpuTime();
+      Logger.recordOutput(
+          "JVM/MainThread/CPUTimeThisLoopMS",
+          (mainThreadCPUTimeNS - lastMainThreadCPUTimeNS) / 1.0e6);
+      lastMainThreadCPUTimeNS = mainThreadCPUTimeNS;
+    }
+  }
+
+  /**
+   * Returns the total bytes allocated by the calling thread, or 0 if the JVM can't measure it.
+   * Deltas between two calls on the same thread give the bytes allocated in between
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    return (ALLOCATION_BEAN != null) ? ALLOCATION_BEAN.getCurrentThreadAllocatedBytes() : 0;
+  }
+
+  private static com.sun.management.ThreadMXBean getAllocationBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+      return (com.sun.management.ThreadMXBean) bean;
+    }
+    return null;
+  }
+}
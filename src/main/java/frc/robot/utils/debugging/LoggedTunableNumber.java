@@ -5,22 +5,21 @@
 package frc.robot.utils.debugging;
 
 import frc.robot.Constants;
-import java.util.HashMap;
-import java.util.Map;
 import org.littletonrobotics.junction.networktables.LoggedDashboardNumber;
 
 /**
  * Class for a tunable number. Gets value from dashboard in tuning mode, returns default if not or
- * value not in dashboard.
+ * value not in dashboard. Changes are tracked by the {@link TunableRegistry}
  */
 public class LoggedTunableNumber {
-  private static final String tableKey = "TunableNumbers";
+  static final String TABLE_KEY = "TunableNumbers";
 
   private final String key;
   private boolean hasDefault = false;
   private double defaultValue;
   private LoggedDashboardNumber dashboardNumber;
-  private Map<Integer, Double> lastHasChangedValues = new HashMap<>();
+  private double lastValue;
+  private int changedVersion = 0;
 
   /**
    * Create a new LoggedTunableNumber
@@ -28,7 +27,7 @@ public class LoggedTunableNumber {
    * @param dashboardKey Key on dashboard
    */
   public LoggedTunableNumber(String dashboardKey) {
-    this.key = tableKey + "/" + dashboardKey;
+    this.key = TABLE_KEY + "/" + dashboardKey;
   }
 
   /**
@@ -53,6 +52,8 @@ public class LoggedTunableNumber {
       this.defaultValue = defaultValue;
       if (Constants.tuningMode) {
         dashboardNumber = new LoggedDashboardNumber(key, defaultValue);
+        lastValue = defaultValue;
+        TunableRegistry.getInstance().register(this);
       }
     }
   }
@@ -71,21 +72,24 @@ public class LoggedTunableNumber {
   }
 
   /**
-   * Checks whether the number has changed since our last check
+   * Checks whether the number has changed since the caller last applied it. Callers should first
+   * check {@link TunableRegistry#hasChangedSince(int)} so this only runs after an edit
    *
-   * @param id Unique identifier for the caller to avoid conflicts when shared between multiple
-   *     objects. Recommended approach is to pass the result of "hashCode()"
-   * @return True if the number has changed since the last time this method was called, false
-   *     otherwise.
+   * @param lastVersion Registry version the caller last applied its numbers at, -1 if never
+   * @return True if the number has changed after that version, false otherwise.
    */
-  public boolean hasChanged(int id) {
+  public boolean hasChangedSince(int lastVersion) {
+    return changedVersion > lastVersion;
+  }
+
+  /** Compare against the last seen value, returns true and takes the new version if it changed */
+  boolean updateChangedVersion(int newVersion) {
     double currentValue = get();
-    Double lastValue = lastHasChangedValues.get(id);
-    if (lastValue == null || currentValue != lastValue) {
-      lastHasChangedValues.put(id, currentValue);
+    if (currentValue != lastValue) {
+      lastValue = currentValue;
+      changedVersion = newVersion;
       return true;
     }
-
     return false;
   }
 }
@@ -0,0 +1,201 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.debugging;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.ArrayList;
+import java.util.List;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Times sections of the robot loop into fixed bucket histograms. Percentiles are published at a
+ * reduced rate, and when a cycle overruns the slowest sections of that cycle are dumped so the
+ * cause of the overrun can be found. Sections timed with start() and stop() also track how much
+ * they allocate
+ */
+public class LoopProfiler {
+  private static final double LOOP_PERIOD_NS = 0.02 * 1.0e9;
+
+  // 50 us buckets up to 25 ms, anything slower goes in the overflow bucket
+  private static final long BUCKET_WIDTH_NS = 50000;
+  private static final int BUCKET_COUNT = 500;
+
+  // Publish once a second, the histograms are reset after each publish
+  private static final int PUBLISH_PERIOD_CYCLES = 50;
+
+  private static final int OVERRUN_DUMP_SIZE = 5;
+
+  private static LoopProfiler instance;
+
+  private List<Section> sections = new ArrayList<>();
+  private Section[] sectionArray = new Section[0];
+
+  private long cycleStartNS = 0;
+  private int cyclesSincePublish = 0;
+  private int overrunCount = 0;
+  private boolean lastCycleOverran = false;
+
+  /** A timed part of the loop */
+  public static class Section {
+    private final String name;
+    private final String p50Key;
+    private final String p99Key;
+    private final String maxKey;
+    private final String allocationKey;
+
+    private final int[] histogram = new int[BUCKET_COUNT + 1];
+    private int sampleCount = 0;
+    private long maxNS = 0;
+    private long cycleNS = 0;
+    private long startNS = 0;
+    private long startAllocatedBytes = 0;
+    private long allocatedBytes = 0;
+    private int allocationSampleCount = 0;
+
+    private Section(String name) {
+      this.name = name;
+      p50Key = "LoopProfiler/" + name + "/P50MS";
+      p99Key = "LoopProfiler/" + name + "/P99MS";
+      maxKey = "LoopProfiler/" + name + "/MaxMS";
+      allocationKey = "LoopProfiler/" + name + "/AverageAllocatedBytes";
+    }
+
+    /** Start timing this section */
+    public void start() {
+      startAllocatedBytes = JVMTelemetry.getCurrentThreadAllocatedBytes();
+      startNS = System.nanoTime();
+    }
+
+    /** Stop timing this section and record the time and allocation since start() */
+    public void stop() {
+      record(System.nanoTime() - startNS);
+      allocatedBytes += JVMTelemetry.getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+      allocationSampleCount++;
+    }
+
+    /** Record a duration measured elsewhere, only call from the main thread */
+    public void record(long durationNS) {
+      int bucket = (int) Math.min(BUCKET_COUNT, durationNS / BUCKET_WIDTH_NS);
+      histogram[bucket]++;
+      sampleCount++;
+      maxNS = Math.max(maxNS, durationNS);
+      cycleNS += durationNS;
+    }
+
+    /** Upper edge of the bucket containing the given percentile, in milliseconds */
+    private double getPercentileMS(double percentile) {
+      if (sampleCount == 0) {
+        return 0.0;
+      }
+
+      int target = (int) Math.ceil(percentile * sampleCount);
+      int seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen += histogram[i];
+        if (seen >= target) {
+          return (i + 1) * BUCKET_WIDTH_NS / 1.0e6;
+        }
+      }
+      return maxNS / 1.0e6;
+    }
+
+    private void publish() {
+      Logger.recordOutput(p50Key, getPercentileMS(0.5));
+      Logger.recordOutput(p99Key, getPercentileMS(0.99));
+      Logger.recordOutput(maxKey, maxNS / 1.0e6);
+      if (allocationSampleCount > 0) {
+        Logger.recordOutput(allocationKey, allocatedBytes / allocationSampleCount);
+      }
+
+      for (int i = 0; i < histogram.length; i++) {
+        histogram[i] = 0;
+      }
+      sampleCount = 0;
+      maxNS = 0;
+      allocatedBytes = 0;
+      allocationSampleCount = 0;
+    }
+  }
+
+  public static LoopProfiler getInstance() {
+    if (instance == null) {
+      instance = new LoopProfiler();
+    }
+    return instance;
+  }
+
+  /**
+   * Create a section to time, should be called once when the owner is constructed
+   *
+   * @param name Name of the section in the logs
+   */
+  public Section section(String name) {
+    Section section = new Section(name);
+    sections.add(section);
+    sectionArray = sections.toArray(new Section[0]);
+    return section;
+  }
+
+  /** Mark the start of a robot cycle, call at the very start of robotPeriodic() */
+  public void startCycle() {
+    cycleStartNS = System.nanoTime();
+    for (Section section : sectionArray) {
+      section.cycleNS = 0;
+    }
+  }
+
+  /** Mark the end of a robot cycle, call at the very end of robotPeriodic() */
+  public void endCycle() {
+    long cycleNS = System.nanoTime() - cycleStartNS;
+    lastCycleOverran = cycleNS > LOOP_PERIOD_NS;
+    if (lastCycleOverran) {
+      overrunCount++;
+      dumpSlowestSections(cycleNS);
+    }
+    Logger.recordOutput("LoopProfiler/OverrunCount", overrunCount);
+
+    cyclesSincePublish++;
+    if (cyclesSincePublish >= PUBLISH_PERIOD_CYCLES) {
+      cyclesSincePublish = 0;
+      for (Section section : sectionArray) {
+        section.publish();
+      }
+    }
+  }
+
+  /** Returns whether the cycle that last ended took longer than the loop period */
+  public boolean didLastCycleOverrun() {
+    return lastCycleOverran;
+  }
+
+  /** Only runs on an overrun, so allocating the report here is fine */
+  private void dumpSlowestSections(long cycleNS) {
+    int dumpSize = Math.min(OVERRUN_DUMP_SIZE, sectionArray.length);
+    String[] slowest = new String[dumpSize];
+    boolean[] dumped = new boolean[sectionArray.length];
+
+    for (int rank = 0; rank < dumpSize; rank++) {
+      int slowestIndex = -1;
+      for (int i = 0; i < sectionArray.length; i++) {
+        if (!dumped[i]
+            && (slowestIndex < 0 || sectionArray[i].cycleNS > sectionArray[slowestIndex].cycleNS)) {
+          slowestIndex = i;
+        }
+      }
+      dumped[slowestIndex] = true;
+      slowest[rank] =
+          String.format(
+              "%s: %.2f ms",
+              sectionArray[slowestIndex].name, sectionArray[slowestIndex].cycleNS / 1.0e6);
+    }
+
+    Logger.recordOutput("LoopProfiler/LastOverrun/CycleMS", cycleNS / 1.0e6);
+    Logger.recordOutput("LoopProfiler/LastOverrun/SlowestSections", slowest);
+    DriverStation.reportWarning(
+        String.format(
+            "Loop overrun (%.2f ms), slowest: %s", cycleNS / 1.0e6, String.join(", ", slowest)),
+        false);
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.debugging;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks changes to every tunable number in one place. An NT listener flags when a tunable is
+ * edited on the dashboard, and only then are the logged values compared, so an idle registry costs
+ * one atomic read per loop. Each change bumps a global version, which lets users check a single int
+ * per loop and only look at their own numbers after something was actually edited
+ */
+public class TunableRegistry {
+  // LoggedDashboardNumber publishes through SmartDashboard
+  private static final String TOPIC_PREFIX = "/SmartDashboard/" + LoggedTunableNumber.TABLE_KEY;
+
+  // The listener runs asynchronously, so an edit can land after the dashboard inputs were read
+  // for this loop. Scanning for one extra loop makes sure it's picked up once it's logged
+  private static final int SCANS_PER_EDIT = 2;
+
+  private static TunableRegistry instance;
+
+  private List<LoggedTunableNumber> registeredNumbers = new ArrayList<>();
+  private LoggedTunableNumber[] numbers = new LoggedTunableNumber[0];
+
+  private final AtomicInteger pendingScans = new AtomicInteger(SCANS_PER_EDIT);
+  private int version = 0;
+
+  private TunableRegistry() {
+    // In replay the values come from the log rather than NT, so every loop is scanned instead
+    if (Constants.currentMode != Constants.Mode.REPLAY) {
+      NetworkTableInstance.getDefault()
+          .addListener(
+              new String[] {TOPIC_PREFIX},
+              EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+              (event) -> pendingScans.set(SCANS_PER_EDIT));
+    }
+  }
+
+  public static TunableRegistry getInstance() {
+    if (instance == null) {
+      instance = new TunableRegistry();
+    }
+    return instance;
+  }
+
+  /** Track a tunable number, called by LoggedTunableNumber when it's backed by the dashboard */
+  void register(LoggedTunableNumber number) {
+    registeredNumbers.add(number);
+    numbers = registeredNumbers.toArray(new LoggedTunableNumber[0]);
+    pendingScans.set(SCANS_PER_EDIT);
+  }
+
+  /**
+   * Pick up dashboard edits, call once per loop after the dashboard inputs are updated and before
+   * anything reads tunable numbers
+   */
+  public void periodic() {
+    if (Constants.currentMode != Constants.Mode.REPLAY && pendingScans.get() <= 0) {
+      return;
+    }
+    pendingScans.decrementAndGet();
+
+    boolean changed = false;
+    for (LoggedTunableNumber number : numbers) {
+      if (number.updateChangedVersion(version + 1)) {
+        changed = true;
+      }
+    }
+    if (changed) {
+      version++;
+    }
+  }
+
+  /** Returns the version, it increases every time any tunable number changes */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns whether any tunable number changed after the given version
+   *
+   * @param lastVersion Version the caller last applied its tunable numbers at, -1 if never
+   */
+  public boolean hasChangedSince(int lastVersion) {
+    return version != lastVersion;
+  }
+}
@@ -0,0 +1,291 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.io;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants;
+import frc.robot.utils.debugging.JVMTelemetry;
+import frc.robot.utils.debugging.LoopProfiler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+/**
+ * Samples every IO at the start of the loop. On the robot the updateInputs() calls run
+ * concurrently on a small thread pool so slow CAN reads overlap, then the inputs are processed by
+ * the logger one at a time in registration order so the log and replay stay deterministic.
+ *
+ * <p>Worker threads only ever write an IO's staging inputs. Once a sample completes the main thread
+ * copies it into the inputs the subsystem reads, so a slow IO never changes them mid loop.
+ *
+ * <p>The bytes each updateInputs() allocates are also measured. Once the robot has warmed up, any
+ * IO that goes over its allocation budget is reported to the driver station
+ */
+public class IOSampler {
+  private static final int THREAD_COUNT = 3;
+
+  // Sim IOs step physics that share state (battery voltage, RoboRioSim) so keep them sequential
+  private static final boolean SAMPLE_IN_PARALLEL = Constants.currentMode == Constants.Mode.REAL;
+
+  /** Steady state allocation allowed for an IO that only reads primitives into its inputs */
+  public static final long DEFAULT_ALLOCATION_BUDGET_BYTES = 0;
+
+  // Longest the loop waits on the IOs, one that's still running keeps last loop's inputs
+  private static final long SAMPLE_TIMEOUT_MS = 10;
+
+  // Loops to skip before checking budgets, lets class loading and lazy init settle
+  private static final int WARMUP_LOOPS = 250;
+
+  private static IOSampler instance;
+
+  private final ExecutorService executor;
+
+  private List<String> registeredKeys = new ArrayList<>();
+  private List<LoggableInputs> registeredInputs = new ArrayList<>();
+  private List<LoggableInputs> registeredStagingInputs = new ArrayList<>();
+  private List<Runnable> registeredSamplers = new ArrayList<>();
+  private List<Long> registeredBudgets = new ArrayList<>();
+  private List<LoopProfiler.Section> registeredSections = new ArrayList<>();
+
+  // Flattened for the loop
+  private String[] logKeys = new String[0];
+  private String[] sampleTimeKeys = new String[0];
+  private LoggableInputs[] inputs = new LoggableInputs[0];
+  private LoggableInputs[] stagedInputs = new LoggableInputs[0];
+  private InputsCopier[] copiers = new InputsCopier[0];
+  private Runnable[] tasks = new Runnable[0];
+  private LoopProfiler.Section[] sections = new LoopProfiler.Section[0];
+  private long[] sampleTimesNS = new long[0];
+  private String[] allocationKeys = new String[0];
+  private long[] allocatedBytes = new long[0];
+  private long[] allocationBudgets = new long[0];
+  private boolean[] overBudgetReported = new boolean[0];
+  private int loopCount = 0;
+  private Throwable[] sampleErrors = new Throwable[0];
+
+  // Each task counts down the latch it was started with, so a late task can't count down a newer
+  // loop's latch, and isn't started again until it finishes
+  private CountDownLatch[] taskBarriers = new CountDownLatch[0];
+  private AtomicBoolean[] sampling = new AtomicBoolean[0];
+  private boolean[] timeoutReported = new boolean[0];
+
+  private IOSampler() {
+    executor =
+        SAMPLE_IN_PARALLEL
+            ? Executors.newFixedThreadPool(
+                THREAD_COUNT,
+                (runnable) -> {
+                  Thread thread = new Thread(runnable, "IOSampler");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
+  }
+
+  public static IOSampler getInstance() {
+    if (instance == null) {
+      instance = new IOSampler();
+    }
+    return instance;
+  }
+
+  /**
+   * Register an IO to be sampled every loop, should be called once when the subsystem is
+   * constructed. The subsystem's periodic() should no longer call updateInputs() or
+   * Logger.processInputs() for these inputs
+   *
+   * @param logKey Key the inputs are logged under
+   * @param ioInputs Inputs object the subsystem reads
+   * @param stagingInputs Second inputs object of the same class for the IO to fill off thread
+   * @param sampler Calls updateInputs() on the IO, must only touch the IO and the inputs it's given
+   */
+  public <T extends LoggableInputs> void register(
+      String logKey, T ioInputs, T stagingInputs, Consumer<T> sampler) {
+    register(logKey, ioInputs, stagingInputs, sampler, DEFAULT_ALLOCATION_BUDGET_BYTES);
+  }
+
+  /**
+   * Register an IO to be sampled every loop with its own allocation budget, for IOs that wrap
+   * libraries which allocate on every read
+   *
+   * @param logKey Key the inputs are logged under
+   * @param ioInputs Inputs object the subsystem reads
+   * @param stagingInputs Second inputs object of the same class for the IO to fill off thread
+   * @param sampler Calls updateInputs() on the IO, must only touch the IO and the inputs it's given
+   * @param allocationBudgetBytes Bytes updateInputs() may allocate each loop once warmed up
+   */
+  public <T extends LoggableInputs> void register(
+      String logKey,
+      T ioInputs,
+      T stagingInputs,
+      Consumer<T> sampler,
+      long allocationBudgetBytes) {
+    if (ioInputs.getClass() != stagingInputs.getClass()) {
+      throw new IllegalArgumentException(
+          logKey + " staging inputs must be the same class as its inputs");
+    }
+
+    registeredKeys.add(logKey);
+    registeredInputs.add(ioInputs);
+    registeredStagingInputs.add(stagingInputs);
+    // In parallel the worker fills the staging inputs, sequential sampling writes them in place
+    registeredSamplers.add(
+        SAMPLE_IN_PARALLEL
+            ? () -> sampler.accept(stagingInputs)
+            : () -> sampler.accept(ioInputs));
+    registeredBudgets.add(allocationBudgetBytes);
+    registeredSections.add(LoopProfiler.getInstance().section("IO/" + logKey));
+
+    int count = registeredKeys.size();
+    logKeys = registeredKeys.toArray(new String[0]);
+    inputs = registeredInputs.toArray(new LoggableInputs[0]);
+    stagedInputs = registeredStagingInputs.toArray(new LoggableInputs[0]);
+    copiers = new InputsCopier[count];
+    sampleTimeKeys = new String[count];
+    tasks = new Runnable[count];
+    sections = registeredSections.toArray(new LoopProfiler.Section[0]);
+    sampleTimesNS = new long[count];
+    sampleErrors = new Throwable[count];
+    taskBarriers = new CountDownLatch[count];
+    sampling = new AtomicBoolean[count];
+    timeoutReported = new boolean[count];
+    allocationKeys = new String[count];
+    allocatedBytes = new long[count];
+    allocationBudgets = new long[count];
+    overBudgetReported = new boolean[count];
+
+    for (int i = 0; i < count; i++) {
+      final int index = i;
+      final Runnable registeredSampler = registeredSamplers.get(i);
+      copiers[i] = new InputsCopier(inputs[i].getClass());
+      sampleTimeKeys[i] = "IOSampler/" + logKeys[i] + "/SampleTimeMS";
+      allocationKeys[i] = "IOSampler/" + logKeys[i] + "/AllocatedBytes";
+      allocationBudgets[i] = registeredBudgets.get(i);
+      sampling[i] = new AtomicBoolean(false);
+      tasks[i] =
+          () -> {
+            long startBytes = JVMTelemetry.getCurrentThreadAllocatedBytes();
+            long startNS = System.nanoTime();
+            try {
+              registeredSampler.run();
+            } catch (Throwable e) {
+              sampleErrors[index] = e;
+            } finally {
+              sampleTimesNS[index] = System.nanoTime() - startNS;
+              allocatedBytes[index] = JVMTelemetry.getCurrentThreadAllocatedBytes() - startBytes;
+              sampling[index].set(false);
+              if (taskBarriers[index] != null) {
+                taskBarriers[index].countDown();
+              }
+            }
+          };
+    }
+  }
+
+  /** Sample all registered IOs, then process their inputs in order. Call once per loop */
+  public void sampleAll() {
+    long startUS = Logger.getRealTimestamp();
+
+    if (SAMPLE_IN_PARALLEL) {
+      int startedCount = 0;
+      for (AtomicBoolean isSampling : sampling) {
+        if (!isSampling.get()) {
+          startedCount++;
+        }
+      }
+      CountDownLatch barrier = new CountDownLatch(startedCount);
+      for (int i = 0; i < tasks.length; i++) {
+        // Still stuck in last loop's updateInputs()
+        if (sampling[i].get()) {
+          continue;
+        }
+        sampling[i].set(true);
+        taskBarriers[i] = barrier;
+        executor.execute(tasks[i]);
+      }
+      try {
+        barrier.await(SAMPLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    } else {
+      for (Runnable task : tasks) {
+        task.run();
+      }
+    }
+
+    // Surface IO failures on the main thread the same way a sequential call would
+    for (int i = 0; i < sampleErrors.length; i++) {
+      if (sampleErrors[i] != null) {
+        Throwable error = sampleErrors[i];
+        sampleErrors[i] = null;
+        if (error instanceof Error) {
+          throw (Error) error;
+        }
+        throw (error instanceof RuntimeException)
+            ? (RuntimeException) error
+            : new RuntimeException(error);
+      }
+    }
+
+    loopCount++;
+    for (int i = 0; i < inputs.length; i++) {
+      if (sampling[i].get()) {
+        // Not logged this loop, so the subsystem and replay both keep the last complete sample
+        reportTimeout(i);
+        continue;
+      }
+      if (SAMPLE_IN_PARALLEL) {
+        copiers[i].copy(stagedInputs[i], inputs[i]);
+      }
+      sections[i].record(sampleTimesNS[i]);
+      Logger.processInputs(logKeys[i], inputs[i]);
+      Logger.recordOutput(sampleTimeKeys[i], sampleTimesNS[i] / 1.0e6);
+      Logger.recordOutput(allocationKeys[i], allocatedBytes[i]);
+      checkAllocationBudget(i);
+    }
+    Logger.recordOutput("IOSampler/TotalTimeMS", (Logger.getRealTimestamp() - startUS) / 1000.0);
+  }
+
+  /** Report an IO once the first time it misses the sample timeout */
+  private void reportTimeout(int index) {
+    if (timeoutReported[index]) {
+      return;
+    }
+
+    timeoutReported[index] = true;
+    DriverStation.reportWarning(
+        logKeys[index]
+            + " updateInputs() took longer than "
+            + SAMPLE_TIMEOUT_MS
+            + " ms, using its last inputs until it returns",
+        false);
+  }
+
+  /** Report an IO once if it allocates more than its budget after warming up */
+  private void checkAllocationBudget(int index) {
+    if (loopCount < WARMUP_LOOPS
+        || overBudgetReported[index]
+        || allocatedBytes[index] <= allocationBudgets[index]) {
+      return;
+    }
+
+    overBudgetReported[index] = true;
+    DriverStation.reportWarning(
+        logKeys[index]
+            + " updateInputs() allocated "
+            + allocatedBytes[index]
+            + " bytes, budget is "
+            + allocationBudgets[index],
+        false);
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.io;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies the public fields of one inputs object into another of the same class. Fields are looked
+ * up once, primitives are copied without boxing and arrays are copied into the destination's
+ * array when the lengths match, so a steady state copy doesn't allocate
+ */
+class InputsCopier {
+  private final Field[] fields;
+
+  InputsCopier(Class<?> inputsClass) {
+    List<Field> copiedFields = new ArrayList<>();
+    for (Field field : inputsClass.getFields()) {
+      int modifiers = field.getModifiers();
+      if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+        copiedFields.add(field);
+      }
+    }
+    fields = copiedFields.toArray(new Field[0]);
+  }
+
+  /** Copy every field from source into destination */
+  void copy(Object source, Object destination) {
+    try {
+      for (Field field : fields) {
+        Class<?> type = field.getType();
+        if (type == double.class) {
+          field.setDouble(destination, field.getDouble(source));
+        } else if (type == boolean.class) {
+          field.setBoolean(destination, field.getBoolean(source));
+        } else if (type == int.class) {
+          field.setInt(destination, field.getInt(source));
+        } else if (type == long.class) {
+          field.setLong(destination, field.getLong(source));
+        } else if (type == float.class) {
+          field.setFloat(destination, field.getFloat(source));
+        } else if (type.isArray()) {
+          copyArray(field, source, destination);
+        } else {
+          // Strings and WPILib geometry are immutable, so sharing the reference is safe
+          field.set(destination, field.get(source));
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Inputs fields must be public", e);
+    }
+  }
+
+  /** Copy an array field, reallocating only when the length changes */
+  private static void copyArray(Field field, Object source, Object destination)
+      throws IllegalAccessException {
+    Object sourceArray = field.get(source);
+    Object destinationArray = field.get(destination);
+    if (sourceArray == null) {
+      field.set(destination, null);
+      return;
+    }
+
+    int length = Array.getLength(sourceArray);
+    if (destinationArray == null || Array.getLength(destinationArray) != length) {
+      destinationArray = Array.newInstance(field.getType().getComponentType(), length);
+      field.set(destination, destinationArray);
+    }
+    System.arraycopy(sourceArray, 0, destinationArray, 0, length);
+  }
+}
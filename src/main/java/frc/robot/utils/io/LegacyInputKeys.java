@@ -0,0 +1,26 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.io;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.littletonrobotics.junction.LogTable;
+
+/**
+ * Keys inputs were logged under before they became primitives. Angles used to be Rotation2d inputs,
+ * logged as Rotation2d structs under the field name without the unit. Only new keys are written,
+ * reading the old ones back on replay keeps older logs replaying the same way
+ */
+public final class LegacyInputKeys {
+  private LegacyInputKeys() {}
+
+  /**
+   * Read an angle from a key that used to hold a Rotation2d
+   *
+   * @param radians Value to keep if the log doesn't have the key
+   */
+  public static double getRotationRadians(LogTable table, String key, double radians) {
+    return table.get(key, Rotation2d.fromRadians(radians)).getRadians();
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.math;
+
+/**
+ * Detects a note being pulled into a set of rollers from their current and velocity. A CUSUM sums
+ * how far the current sits above its free running level, so a step of a few amps trips it within a
+ * couple of samples while single sample noise leaks away. A drop in roller speed below the free
+ * running speed also counts, as long as the current rose with it. Both levels are learned while the
+ * rollers run empty, and the spin up after the rollers start is ignored
+ *
+ * <p>A detection latches until the rollers stop or reverse and start again, so a held note stays
+ * detected
+ */
+public class NoteContactDetector {
+  // Spin up current and speed aren't free running levels yet
+  private static final double SPIN_UP_SECS = 0.25;
+  private static final double BASELINE_GAIN = 0.1;
+  private static final double MIN_RUNNING_VOLTS = 1.0;
+
+  private double driftAmps;
+  private double thresholdAmps;
+  private double velocityDropFraction;
+
+  private boolean running = false;
+  private double direction = 0.0;
+  private double runningSinceSecs = 0.0;
+  private boolean hasBaseline = false;
+  private double baselineAmps = 0.0;
+  private double baselineRPM = 0.0;
+
+  private double cusumAmps = 0.0;
+  private boolean velocityDropped = false;
+  private boolean detected = false;
+
+  /**
+   * @param driftAmps Current above free running that is still treated as noise
+   * @param thresholdAmps Summed current above the drift that trips a detection
+   * @param velocityDropFraction Fraction of the free running speed the rollers have to lose
+   */
+  public NoteContactDetector(
+      double driftAmps, double thresholdAmps, double velocityDropFraction) {
+    setThresholds(driftAmps, thresholdAmps, velocityDropFraction);
+  }
+
+  /** Change the thresholds while running, takes effect on the next sample */
+  public void setThresholds(double driftAmps, double thresholdAmps, double velocityDropFraction) {
+    this.driftAmps = driftAmps;
+    this.thresholdAmps = thresholdAmps;
+    this.velocityDropFraction = velocityDropFraction;
+  }
+
+  /**
+   * Add a sample, call once per loop with the latest inputs
+   *
+   * @param timestampSecs Time of the sample
+   * @param appliedVolts Volts the rollers are commanded to
+   * @param currentAmps Roller current
+   * @param velocityRPM Roller velocity
+   * @return Whether a note has been detected since the rollers started
+   */
+  public boolean update(
+      double timestampSecs, double appliedVolts, double currentAmps, double velocityRPM) {
+    boolean isRunning = Math.abs(appliedVolts) >= MIN_RUNNING_VOLTS;
+    if (isRunning && (!running || Math.signum(appliedVolts) != direction)) {
+      direction = Math.signum(appliedVolts);
+      runningSinceSecs = timestampSecs;
+      reset();
+    }
+    running = isRunning;
+    if (!running || detected) {
+      return detected;
+    }
+
+    currentAmps = Math.abs(currentAmps);
+    velocityRPM = Math.abs(velocityRPM);
+    if (timestampSecs - runningSinceSecs < SPIN_UP_SECS) {
+      return false;
+    }
+    if (!hasBaseline) {
+      baselineAmps = currentAmps;
+      baselineRPM = velocityRPM;
+      hasBaseline = true;
+      return false;
+    }
+
+    double excessAmps = currentAmps - baselineAmps - driftAmps;
+    cusumAmps = Math.max(0.0, cusumAmps + excessAmps);
+    velocityDropped =
+        velocityRPM < baselineRPM * (1.0 - velocityDropFraction) && excessAmps > 0.0;
+    detected = cusumAmps > thresholdAmps || velocityDropped;
+
+    // Only learn from samples that look empty, or a slow push would become the baseline
+    if (!detected && excessAmps <= 0.0) {
+      baselineAmps += (currentAmps - baselineAmps) * BASELINE_GAIN;
+      baselineRPM += (velocityRPM - baselineRPM) * BASELINE_GAIN;
+    }
+    return detected;
+  }
+
+  /** Forget a detection and the learned free running levels */
+  public void reset() {
+    hasBaseline = false;
+    cusumAmps = 0.0;
+    velocityDropped = false;
+    detected = false;
+  }
+
+  public boolean isDetected() {
+    return detected;
+  }
+
+  /** Current the CUSUM has summed, trips at the threshold */
+  public double getCusumAmps() {
+    return cusumAmps;
+  }
+
+  public boolean isVelocityDropped() {
+    return velocityDropped;
+  }
+}
@@ -0,0 +1,278 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.power;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Splits the current the battery can supply between subsystems by priority. Every loop the
+ * battery voltage and the supply current the subsystems draw give the current that would pull the
+ * battery down to the target voltage, and the trend of that current projects where the voltage is
+ * headed. While the projected voltage stays above the target every subsystem keeps its full limit.
+ * Once it drops below, each subsystem is cut back towards its floor starting from the lowest
+ * priority, so a shot spinning up can take current from the drive or a climb can take it from the
+ * intake before the roboRIO browns out. Limits are restored once the projection clears the target
+ * by a margin
+ *
+ * <p>Limits are handed out as battery current. A motor's supply current never exceeds its stator
+ * current, so a stator limit caps the battery current at least as tightly
+ *
+ * <p>Limits are sent to the motor controllers at most every UPDATE_PERIOD_SECS per subsystem and
+ * only when they move by more than the deadband, so reallocation doesn't flood the CAN bus
+ */
+public class PowerManager {
+  /** Order current is handed out in, IDLE subsystems only keep what they already draw */
+  public static enum Priority {
+    CRITICAL,
+    HIGH,
+    NORMAL,
+    LOW,
+    IDLE
+  }
+
+  // Leaves margin above the 6.8 V roboRIO brownout
+  private static final double TARGET_VOLTS = 8.0;
+  private static final double RELEASE_MARGIN_VOLTS = 0.5;
+  // Battery plus main breaker and wiring
+  private static final double BATTERY_RESISTANCE_OHMS = 0.025;
+  // A battery partway through a match, every floor together has to fit in what it can supply
+  private static final double WORN_BATTERY_RESTING_VOLTS = 11.5;
+  private static final double FLOOR_BUDGET_AMPS =
+      (WORN_BATTERY_RESTING_VOLTS - TARGET_VOLTS) / BATTERY_RESISTANCE_OHMS;
+
+  // How far ahead the current trend is projected, a new limit takes about this long to apply
+  private static final double LOOKAHEAD_SECS = 0.2;
+  private static final double SLOPE_FILTER_GAIN = 0.3;
+
+  private static final double UPDATE_PERIOD_SECS = 0.2;
+  private static final double DEADBAND_AMPS = 2.0;
+
+  private static final Priority[] PRIORITIES = Priority.values();
+
+  private static PowerManager instance;
+
+  private static class Consumer {
+    final String name;
+    final int motorCount;
+    final double minAmps;
+    final double maxAmps;
+    final Supplier<Priority> priority;
+    final DoubleSupplier supplyCurrentAmps;
+    final DoubleConsumer applyLimit;
+
+    final String limitKey;
+    final String priorityKey;
+
+    Priority currentPriority = Priority.IDLE;
+    double measuredAmps = 0.0;
+    double demandAmps = 0.0;
+    double allocatedAmps;
+    double sentAmps;
+    double lastSentSecs = Double.NEGATIVE_INFINITY;
+
+    Consumer(
+        String name,
+        int motorCount,
+        double minAmps,
+        double maxAmps,
+        Supplier<Priority> priority,
+        DoubleSupplier supplyCurrentAmps,
+        DoubleConsumer applyLimit) {
+      this.name = name;
+      this.motorCount = motorCount;
+      this.minAmps = minAmps;
+      this.maxAmps = maxAmps;
+      this.priority = priority;
+      this.supplyCurrentAmps = supplyCurrentAmps;
+      this.applyLimit = applyLimit;
+
+      limitKey = "PowerManager/" + name + "/LimitAmps";
+      priorityKey = "PowerManager/" + name + "/Priority";
+      allocatedAmps = maxAmps;
+      sentAmps = maxAmps;
+    }
+  }
+
+  private List<Consumer> registered = new ArrayList<>();
+  private Consumer[] consumers = new Consumer[0];
+
+  private double floorAmps = 0.0;
+  private double lastMeasuredAmps = 0.0;
+  private double lastTimestamp = Double.NaN;
+  private double currentSlopeAmpsPerSec = 0.0;
+  private boolean shedding = false;
+  private String lastDecision = "";
+
+  public static PowerManager getInstance() {
+    if (instance == null) {
+      instance = new PowerManager();
+    }
+    return instance;
+  }
+
+  /**
+   * Manage a subsystem's current limit. The limit the motors were configured with at construction
+   * is assumed to be maxAmps
+   *
+   * @param name Name of the subsystem in the logs
+   * @param motorCount Motors that share the limit, limits are per motor
+   * @param minAmps Per motor limit the subsystem is never cut below
+   * @param maxAmps Per motor limit the subsystem gets when there's enough current
+   * @param priority Current priority of the subsystem, read every loop
+   * @param supplyCurrentAmps Current the subsystem's motors draw from the battery in total
+   * @param applyLimit Sends a new per motor limit to the subsystem's motors
+   */
+  public void register(
+      String name,
+      int motorCount,
+      double minAmps,
+      double maxAmps,
+      Supplier<Priority> priority,
+      DoubleSupplier supplyCurrentAmps,
+      DoubleConsumer applyLimit) {
+    registered.add(
+        new Consumer(
+            name, motorCount, minAmps, maxAmps, priority, supplyCurrentAmps, applyLimit));
+    consumers = registered.toArray(new Consumer[0]);
+
+    floorAmps += minAmps * motorCount;
+    if (floorAmps > FLOOR_BUDGET_AMPS) {
+      DriverStation.reportWarning(
+          String.format(
+              Locale.US,
+              "PowerManager floors add up to %.0f A, a worn battery only supplies %.0f A",
+              floorAmps,
+              FLOOR_BUDGET_AMPS),
+          false);
+    }
+  }
+
+  /**
+   * Battery current a motor controller draws, its motor current scaled by the fraction of the
+   * battery voltage it applies. For controllers that only report their motor current
+   */
+  public static double getSupplyCurrentAmps(double motorCurrentAmps, double appliedVolts) {
+    return Math.abs(motorCurrentAmps * appliedVolts)
+        / Math.max(RobotController.getBatteryVoltage(), 1.0);
+  }
+
+  /** Reallocate current limits, call once per loop after the subsystems have run */
+  public void periodic() {
+    double batteryVolts = RobotController.getBatteryVoltage();
+    double timestamp = Timer.getFPGATimestamp();
+
+    double measuredAmps = 0.0;
+    double demandAmps = 0.0;
+    for (Consumer consumer : consumers) {
+      consumer.currentPriority = consumer.priority.get();
+      consumer.measuredAmps = Math.abs(consumer.supplyCurrentAmps.getAsDouble());
+      consumer.demandAmps =
+          (consumer.currentPriority == Priority.IDLE)
+              ? Math.min(
+                  Math.max(consumer.measuredAmps / consumer.motorCount, consumer.minAmps),
+                  consumer.maxAmps)
+              : consumer.maxAmps;
+
+      measuredAmps += consumer.measuredAmps;
+      demandAmps += consumer.demandAmps * consumer.motorCount;
+    }
+
+    double dt = timestamp - lastTimestamp;
+    if (dt > 0.0) {
+      double slope = (measuredAmps - lastMeasuredAmps) / dt;
+      currentSlopeAmpsPerSec += (slope - currentSlopeAmpsPerSec) * SLOPE_FILTER_GAIN;
+    }
+    lastMeasuredAmps = measuredAmps;
+    lastTimestamp = timestamp;
+
+    // Only a rising draw sags the battery further, a falling one is left to recover on its own
+    double projectedVolts =
+        batteryVolts
+            - Math.max(currentSlopeAmpsPerSec, 0.0) * LOOKAHEAD_SECS * BATTERY_RESISTANCE_OHMS;
+    shedding =
+        projectedVolts < (shedding ? TARGET_VOLTS + RELEASE_MARGIN_VOLTS : TARGET_VOLTS);
+
+    // Current that would sag the battery to the target
+    double budgetAmps = measuredAmps + (batteryVolts - TARGET_VOLTS) / BATTERY_RESISTANCE_OHMS;
+
+    if (shedding) {
+      allocate(Math.max(budgetAmps - floorAmps, 0.0));
+    } else {
+      for (Consumer consumer : consumers) {
+        consumer.allocatedAmps = consumer.maxAmps;
+      }
+    }
+
+    for (Consumer consumer : consumers) {
+      if (Math.abs(consumer.allocatedAmps - consumer.sentAmps) >= DEADBAND_AMPS
+          && timestamp - consumer.lastSentSecs >= UPDATE_PERIOD_SECS) {
+        lastDecision =
+            String.format(
+                Locale.US,
+                "%s %.0f A -> %.0f A, %s at %.1f V with %.0f A of %.0f A budget",
+                consumer.name,
+                consumer.sentAmps,
+                consumer.allocatedAmps,
+                consumer.currentPriority,
+                batteryVolts,
+                measuredAmps,
+                budgetAmps);
+        consumer.applyLimit.accept(consumer.allocatedAmps);
+        consumer.sentAmps = consumer.allocatedAmps;
+        consumer.lastSentSecs = timestamp;
+      }
+
+      Logger.recordOutput(consumer.limitKey, consumer.sentAmps);
+      Logger.recordOutput(consumer.priorityKey, consumer.currentPriority.name());
+    }
+
+    Logger.recordOutput("PowerManager/BatteryVolts", batteryVolts);
+    Logger.recordOutput("PowerManager/MeasuredAmps", measuredAmps);
+    Logger.recordOutput("PowerManager/DemandAmps", demandAmps);
+    Logger.recordOutput("PowerManager/BudgetAmps", budgetAmps);
+    Logger.recordOutput("PowerManager/ProjectedVolts", projectedVolts);
+    Logger.recordOutput("PowerManager/Shedding", shedding);
+    Logger.recordOutput("PowerManager/LastDecision", lastDecision);
+  }
+
+  /**
+   * Start every subsystem at its floor and hand out the rest one priority at a time. When a
+   * priority wants more than is left, its subsystems split what's left by how much they want
+   */
+  private void allocate(double remainingAmps) {
+    for (Consumer consumer : consumers) {
+      consumer.allocatedAmps = consumer.minAmps;
+    }
+
+    for (Priority priority : PRIORITIES) {
+      double wantedAmps = 0.0;
+      for (Consumer consumer : consumers) {
+        if (consumer.currentPriority == priority) {
+          wantedAmps += (consumer.demandAmps - consumer.minAmps) * consumer.motorCount;
+        }
+      }
+      if (wantedAmps <= 0.0) {
+        continue;
+      }
+
+      double share = Math.min(remainingAmps / wantedAmps, 1.0);
+      for (Consumer consumer : consumers) {
+        if (consumer.currentPriority == priority) {
+          consumer.allocatedAmps += (consumer.demandAmps - consumer.minAmps) * share;
+        }
+      }
+      remainingAmps = Math.max(remainingAmps - wantedAmps, 0.0);
+    }
+  }
+}
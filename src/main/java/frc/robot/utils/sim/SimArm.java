@@ -0,0 +1,129 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.sim;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/**
+ * Single jointed arm physics for simulation, the same model as WPILib's SingleJointedArmSim: a rod
+ * pivoting at one end with optional gravity, stopped dead at its hard stops. It's integrated with
+ * RK4 on doubles instead of matrices, so sim IOs can step it from updateInputs() without
+ * allocating
+ */
+public class SimArm {
+  private static final double GRAVITY_MPS2 = 9.8;
+
+  private final DCMotor motor;
+  private final double gearing;
+  private final double armLengthMeters;
+  private final double minAngleRads;
+  private final double maxAngleRads;
+  private final double startingAngleRads;
+  private final boolean simulateGravity;
+  // Continuous plant, acceleration = A * velocity + B * volts, plus gravity
+  private final double a;
+  private final double b;
+
+  private double angleRads;
+  private double velocityRadPerSec = 0.0;
+  private double inputVolts = 0.0;
+
+  /**
+   * @param motor Motors driving the arm
+   * @param gearing Motor rotations per arm rotation
+   * @param moiKgMetersSquared Moment of inertia of the arm about the pivot
+   * @param armLengthMeters Pivot to tip, gravity acts on the middle of a uniform rod
+   * @param minAngleRads Lower hard stop
+   * @param maxAngleRads Upper hard stop
+   * @param simulateGravity Whether gravity pulls the arm down, zero is horizontal
+   * @param startingAngleRads Angle the arm starts at
+   */
+  public SimArm(
+      DCMotor motor,
+      double gearing,
+      double moiKgMetersSquared,
+      double armLengthMeters,
+      double minAngleRads,
+      double maxAngleRads,
+      boolean simulateGravity,
+      double startingAngleRads) {
+    this.motor = motor;
+    this.gearing = gearing;
+    this.armLengthMeters = armLengthMeters;
+    this.minAngleRads = minAngleRads;
+    this.maxAngleRads = maxAngleRads;
+    this.startingAngleRads = startingAngleRads;
+    this.simulateGravity = simulateGravity;
+    a =
+        -gearing
+            * gearing
+            * motor.KtNMPerAmp
+            / (motor.KvRadPerSecPerVolt * motor.rOhms * moiKgMetersSquared);
+    b = gearing * motor.KtNMPerAmp / (motor.rOhms * moiKgMetersSquared);
+    angleRads = startingAngleRads;
+    SimState.getInstance().register(this::reset);
+  }
+
+  public void setInputVoltage(double volts) {
+    inputVolts = volts;
+  }
+
+  /** Step the arm forward with the input held constant */
+  public void update(double dtSeconds) {
+    // The kNAngle terms are the angle's rate of change at each RK4 stage
+    double k1Angle = velocityRadPerSec;
+    double k1Velocity = getAcceleration(angleRads, velocityRadPerSec);
+    double k2Angle = velocityRadPerSec + k1Velocity * dtSeconds / 2.0;
+    double k2Velocity = getAcceleration(angleRads + k1Angle * dtSeconds / 2.0, k2Angle);
+    double k3Angle = velocityRadPerSec + k2Velocity * dtSeconds / 2.0;
+    double k3Velocity = getAcceleration(angleRads + k2Angle * dtSeconds / 2.0, k3Angle);
+    double k4Angle = velocityRadPerSec + k3Velocity * dtSeconds;
+    double k4Velocity = getAcceleration(angleRads + k3Angle * dtSeconds, k4Angle);
+
+    angleRads += (k1Angle + 2.0 * k2Angle + 2.0 * k3Angle + k4Angle) * dtSeconds / 6.0;
+    velocityRadPerSec +=
+        (k1Velocity + 2.0 * k2Velocity + 2.0 * k3Velocity + k4Velocity) * dtSeconds / 6.0;
+
+    if (angleRads <= minAngleRads) {
+      angleRads = minAngleRads;
+      velocityRadPerSec = 0.0;
+    } else if (angleRads >= maxAngleRads) {
+      angleRads = maxAngleRads;
+      velocityRadPerSec = 0.0;
+    }
+  }
+
+  private double getAcceleration(double angleRads, double velocityRadPerSec) {
+    double acceleration = a * velocityRadPerSec + b * inputVolts;
+    if (simulateGravity) {
+      acceleration += -GRAVITY_MPS2 * 3.0 / (2.0 * armLengthMeters) * Math.cos(angleRads);
+    }
+    return acceleration;
+  }
+
+  public void setState(double angleRads, double velocityRadPerSec) {
+    this.angleRads = angleRads;
+    this.velocityRadPerSec = velocityRadPerSec;
+  }
+
+  /** Back to the starting angle at rest with no input */
+  public void reset() {
+    setState(startingAngleRads, 0.0);
+    inputVolts = 0.0;
+  }
+
+  public double getAngleRads() {
+    return angleRads;
+  }
+
+  public double getVelocityRadPerSec() {
+    return velocityRadPerSec;
+  }
+
+  /** Current through the motors, signed like SingleJointedArmSim's with the input voltage */
+  public double getCurrentDrawAmps() {
+    return motor.getCurrent(velocityRadPerSec * gearing, inputVolts) * Math.signum(inputVolts);
+  }
+}
@@ -0,0 +1,147 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.sim;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import java.util.Arrays;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * The simulated battery every sim IO draws from. Each IO registers a load and reports its motor
+ * current every cycle, update() sums the supply current once per loop and sags the voltage across
+ * the battery's internal resistance, and the IOs limit their motors to that voltage the next loop.
+ * Physics that substeps can ask for the voltage with its own current swapped in. Below the
+ * roboRIO brownout voltage motor outputs are disabled like on the robot, and they stay disabled
+ * until the voltage recovers past the roboRIO's recovery threshold
+ */
+public class SimBattery {
+  // roboRIO 2 disables outputs at 6.8 V and only re-enables them once the battery is back up, so
+  // the motors dropping out and the voltage recovering don't chatter between the two
+  private static final double BROWNOUT_VOLTS = 6.8;
+  private static final double BROWNOUT_RECOVERY_VOLTS = 7.5;
+  // roboRIO, radio, CANcoders, Limelight and the rest of the electronics
+  private static final double BASE_CURRENT_AMPS = 3.0;
+
+  private static SimBattery instance;
+
+  private String[] loadKeys = new String[0];
+  private double[] loadCurrentsAmps = new double[0];
+
+  private double totalCurrentAmps = BASE_CURRENT_AMPS;
+  private double volts = SimNoise.getInstance().getBatteryRestingVolts();
+  private boolean brownedOut = false;
+
+  private SimBattery() {
+    SimState.getInstance().register(this::reset);
+  }
+
+  public static SimBattery getInstance() {
+    if (instance == null) {
+      instance = new SimBattery();
+    }
+    return instance;
+  }
+
+  /**
+   * Add a load to the battery, call once from the sim IO's constructor
+   *
+   * @param name Log name of the load
+   * @return Handle to report the load's current with
+   */
+  public int register(String name) {
+    int load = loadKeys.length;
+    loadKeys = Arrays.copyOf(loadKeys, load + 1);
+    loadKeys[load] = "Sim/Battery/Loads/" + name + "Amps";
+    loadCurrentsAmps = Arrays.copyOf(loadCurrentsAmps, load + 1);
+    return load;
+  }
+
+  /**
+   * Report what a load drew this loop
+   *
+   * @param load Handle from register()
+   * @param motorCurrentAmps Current through the motor windings
+   * @param appliedVolts Voltage the controller applies to the motor
+   */
+  public void setCurrentAmps(int load, double motorCurrentAmps, double appliedVolts) {
+    loadCurrentsAmps[load] = getSupplyCurrentAmps(motorCurrentAmps, appliedVolts);
+  }
+
+  /** Report what a load drew this loop when it already sums its controllers' supply current */
+  public void setSupplyCurrentAmps(int load, double supplyCurrentAmps) {
+    loadCurrentsAmps[load] = supplyCurrentAmps;
+  }
+
+  /** Sum the loads and set the voltage for the next loop, call once per loop after the IOs */
+  public void update() {
+    totalCurrentAmps = BASE_CURRENT_AMPS;
+    for (int i = 0; i < loadCurrentsAmps.length; i++) {
+      totalCurrentAmps += loadCurrentsAmps[i];
+    }
+    volts = getLoadedVolts(totalCurrentAmps);
+    if (brownedOut) {
+      brownedOut = volts < BROWNOUT_RECOVERY_VOLTS;
+    } else {
+      brownedOut = volts < BROWNOUT_VOLTS;
+    }
+    RoboRioSim.setVInVoltage(volts);
+
+    Logger.recordOutput("Sim/Battery/Volts", volts);
+    Logger.recordOutput("Sim/Battery/CurrentAmps", totalCurrentAmps);
+    Logger.recordOutput("Sim/Battery/BrownedOut", brownedOut);
+    for (int i = 0; i < loadKeys.length; i++) {
+      Logger.recordOutput(loadKeys[i], loadCurrentsAmps[i]);
+    }
+  }
+
+  /** Rested at the current conditions' voltage with nothing drawing */
+  private void reset() {
+    Arrays.fill(loadCurrentsAmps, 0.0);
+    totalCurrentAmps = BASE_CURRENT_AMPS;
+    volts = SimNoise.getInstance().getBatteryRestingVolts();
+    brownedOut = false;
+    RoboRioSim.setVInVoltage(volts);
+  }
+
+  /** Battery voltage for this loop */
+  public double getVolts() {
+    return volts;
+  }
+
+  /**
+   * Battery voltage with one load's current replaced, for physics that substeps within the loop
+   *
+   * @param load Handle from register()
+   * @param supplyCurrentAmps What the load draws this substep
+   */
+  public double getVolts(int load, double supplyCurrentAmps) {
+    return getLoadedVolts(totalCurrentAmps - loadCurrentsAmps[load] + supplyCurrentAmps);
+  }
+
+  /** Most a motor controller can apply this loop, nothing while browned out */
+  public double clamp(double volts) {
+    return brownedOut ? 0.0 : MathUtil.clamp(volts, -this.volts, this.volts);
+  }
+
+  public boolean isBrownedOut() {
+    return brownedOut;
+  }
+
+  /**
+   * Battery current a motor controller draws. Controllers draw the motor current scaled by the
+   * fraction of the battery voltage they apply, so a stalled motor at low output barely loads the
+   * battery
+   */
+  public double getSupplyCurrentAmps(double motorCurrentAmps, double appliedVolts) {
+    return Math.abs(motorCurrentAmps * appliedVolts) / Math.max(volts, 1.0);
+  }
+
+  private static double getLoadedVolts(double currentAmps) {
+    SimNoise noise = SimNoise.getInstance();
+    return Math.max(
+        noise.getBatteryRestingVolts() - currentAmps * noise.getBatteryResistanceOhms(), 0.0);
+  }
+}
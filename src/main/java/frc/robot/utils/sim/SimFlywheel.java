@@ -0,0 +1,95 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.sim;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Flywheel physics for simulation, the same model as WPILib's FlywheelSim. The single state is
+ * stepped with the exact discrete solution on doubles instead of matrices, so sim IOs can step it
+ * from updateInputs() without allocating. Measurement noise is drawn from SimNoise, so a seeded run
+ * repeats exactly
+ */
+public class SimFlywheel {
+  private final DCMotor motor;
+  private final double gearing;
+  // Continuous plant, acceleration = A * velocity + B * volts
+  private final double a;
+  private final double b;
+  private final double measurementStdDevRadPerSec;
+
+  private double velocityRadPerSec = 0.0;
+  private double measuredVelocityRadPerSec = 0.0;
+  private double inputVolts = 0.0;
+
+  /**
+   * @param motor Motors driving the flywheel
+   * @param gearing Motor rotations per flywheel rotation
+   * @param moiKgMetersSquared Moment of inertia of the flywheel
+   */
+  public SimFlywheel(DCMotor motor, double gearing, double moiKgMetersSquared) {
+    this(motor, gearing, moiKgMetersSquared, 0.0);
+  }
+
+  /**
+   * @param motor Motors driving the flywheel
+   * @param gearing Motor rotations per flywheel rotation
+   * @param moiKgMetersSquared Moment of inertia of the flywheel
+   * @param measurementStdDevRadPerSec Noise on the measured velocity
+   */
+  public SimFlywheel(
+      DCMotor motor, double gearing, double moiKgMetersSquared, double measurementStdDevRadPerSec) {
+    this.motor = motor;
+    this.gearing = gearing;
+    a =
+        -gearing
+            * gearing
+            * motor.KtNMPerAmp
+            / (motor.KvRadPerSecPerVolt * motor.rOhms * moiKgMetersSquared);
+    b = gearing * motor.KtNMPerAmp / (motor.rOhms * moiKgMetersSquared);
+    this.measurementStdDevRadPerSec = measurementStdDevRadPerSec;
+    SimState.getInstance().register(this::reset);
+  }
+
+  public void setInputVoltage(double volts) {
+    inputVolts = volts;
+  }
+
+  /** Step the flywheel forward with the input held constant */
+  public void update(double dtSeconds) {
+    double decay = Math.exp(a * dtSeconds);
+    velocityRadPerSec = decay * velocityRadPerSec + (decay - 1.0) / a * b * inputVolts;
+    measuredVelocityRadPerSec = velocityRadPerSec;
+    if (measurementStdDevRadPerSec > 0.0) {
+      measuredVelocityRadPerSec +=
+          measurementStdDevRadPerSec * SimNoise.getInstance().getRandom().nextGaussian();
+    }
+  }
+
+  public void setState(double velocityRadPerSec) {
+    this.velocityRadPerSec = velocityRadPerSec;
+    measuredVelocityRadPerSec = velocityRadPerSec;
+  }
+
+  /** Stopped with no input */
+  public void reset() {
+    setState(0.0);
+    inputVolts = 0.0;
+  }
+
+  public double getAngularVelocityRadPerSec() {
+    return measuredVelocityRadPerSec;
+  }
+
+  public double getAngularVelocityRPM() {
+    return Units.radiansPerSecondToRotationsPerMinute(measuredVelocityRadPerSec);
+  }
+
+  /** Current through the motors, signed like FlywheelSim's with the input voltage */
+  public double getCurrentDrawAmps() {
+    return motor.getCurrent(velocityRadPerSec * gearing, inputVolts) * Math.signum(inputVolts);
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.sim;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Conditions the simulated robot runs under: wheel grip, gyro drift, camera latency and
+ * calibration error, and battery charge and health. Defaults are an ideal robot with the camera
+ * properties the vision sim always used, randomize() draws a new set so the same auto can be run
+ * under many conditions. Sim IOs read the conditions every cycle, so a new draw applies immediately
+ *
+ * <p>Sensor noise is drawn from getRandom(), which restarts from the seed on every draw, so a run
+ * repeats exactly as long as the sims draw from it in the same order
+ */
+public class SimNoise {
+  private static final double NOMINAL_BATTERY_VOLTS = 12.0;
+  private static final double NOMINAL_BATTERY_RESISTANCE_OHMS = 0.02;
+
+  private static SimNoise instance;
+
+  private long seed = 0;
+  private int version = 0;
+  private final Random random = new Random(seed);
+
+  private double[] wheelGrip = {1.0, 1.0, 1.0, 1.0};
+  private double gyroDriftRadiansPerSecond = 0.0;
+  private double visionLatencyMS = 90.0;
+  private double visionLatencyStdDevMS = 15.0;
+  private double visionCalibErrorPixels = 0.51;
+  private double visionCalibErrorStdDevPixels = 0.28;
+  private double batterySagVolts = 0.0;
+  private double batteryResistanceOhms = NOMINAL_BATTERY_RESISTANCE_OHMS;
+
+  public static SimNoise getInstance() {
+    if (instance == null) {
+      instance = new SimNoise();
+    }
+    return instance;
+  }
+
+  /**
+   * Draw new conditions, the same seed always gives the same conditions
+   *
+   * @param seed Seed for this draw
+   */
+  public void randomize(long seed) {
+    this.seed = seed;
+    random.setSeed(seed);
+
+    for (int i = 0; i < wheelGrip.length; i++) {
+      wheelGrip[i] = uniform(random, 0.75, 1.0);
+    }
+    gyroDriftRadiansPerSecond = Math.toRadians(0.05) * random.nextGaussian();
+    visionLatencyMS = uniform(random, 40.0, 120.0);
+    visionLatencyStdDevMS = uniform(random, 5.0, 25.0);
+    visionCalibErrorPixels = uniform(random, 0.2, 1.0);
+    visionCalibErrorStdDevPixels = uniform(random, 0.1, 0.5);
+    batterySagVolts = uniform(random, 0.0, 1.5);
+    batteryResistanceOhms = uniform(random, 0.012, 0.03);
+    version++;
+  }
+
+  /** Back to the ideal defaults, so a run without a seed isn't left with the last draw */
+  public void reset() {
+    seed = 0;
+    random.setSeed(seed);
+
+    Arrays.fill(wheelGrip, 1.0);
+    gyroDriftRadiansPerSecond = 0.0;
+    visionLatencyMS = 90.0;
+    visionLatencyStdDevMS = 15.0;
+    visionCalibErrorPixels = 0.51;
+    visionCalibErrorStdDevPixels = 0.28;
+    batterySagVolts = 0.0;
+    batteryResistanceOhms = NOMINAL_BATTERY_RESISTANCE_OHMS;
+    version++;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /** Source for all sim sensor noise, restarted from the seed on every draw */
+  public Random getRandom() {
+    return random;
+  }
+
+  /** Incremented on every draw, for sims that only apply the conditions when they change */
+  public int getVersion() {
+    return version;
+  }
+
+  /** Fraction of the nominal tread friction a wheel gets, worn tread and dusty carpet */
+  public double getWheelGrip(int module) {
+    return wheelGrip[module];
+  }
+
+  public double getGyroDriftRadiansPerSecond() {
+    return gyroDriftRadiansPerSecond;
+  }
+
+  public double getVisionLatencyMS() {
+    return visionLatencyMS;
+  }
+
+  public double getVisionLatencyStdDevMS() {
+    return visionLatencyStdDevMS;
+  }
+
+  public double getVisionCalibErrorPixels() {
+    return visionCalibErrorPixels;
+  }
+
+  public double getVisionCalibErrorStdDevPixels() {
+    return visionCalibErrorStdDevPixels;
+  }
+
+  /** Battery voltage with no load, lower for a battery that's been used */
+  public double getBatteryRestingVolts() {
+    return NOMINAL_BATTERY_VOLTS - batterySagVolts;
+  }
+
+  /** Internal resistance, higher for an old or cold battery */
+  public double getBatteryResistanceOhms() {
+    return batteryResistanceOhms;
+  }
+
+  private static double uniform(Random random, double min, double max) {
+    return min + (max - min) * random.nextDouble();
+  }
+}
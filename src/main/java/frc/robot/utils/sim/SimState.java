@@ -0,0 +1,37 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sims that carry state from one run to the next register how to put it back, so runs of the same
+ * seed on one robot start identically no matter what ran before them
+ */
+public class SimState {
+  private static SimState instance;
+
+  private final List<Runnable> resets = new ArrayList<>();
+
+  public static SimState getInstance() {
+    if (instance == null) {
+      instance = new SimState();
+    }
+    return instance;
+  }
+
+  /** Add a reset, call once from the sim's constructor */
+  public void register(Runnable reset) {
+    resets.add(reset);
+  }
+
+  /** Put every registered sim back to its starting state, in the order they registered */
+  public void resetAll() {
+    for (Runnable reset : resets) {
+      reset.run();
+    }
+  }
+}
@@ -0,0 +1,627 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.telemetry;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.utils.telemetry.TelemetryBudget.TelemetryClass;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Writes rotating WPILOG files without ever blocking the logger. Each cycle's changed values are
+ * encoded into a preallocated off-heap ring, and a background thread writes the ring to disk in
+ * blocks. Files are rotated by size or age so one bad file doesn't lose a whole event. When the
+ * ring fills up debug keys are dropped first, then whole cycles, instead of stalling.
+ *
+ * <p>The file being written is a plain .wpilog, so the latest log opens in AdvantageScope and
+ * replays as is, even when the robot lost power mid match. Once a file is rotated out it's gzipped
+ * on a low priority thread and the plain copy is deleted only after the .wpilog.gz is complete.
+ * getPlainLog() turns a .wpilog.gz back into a .wpilog for replay
+ */
+public class CompressedLogWriter implements LogDataReceiver {
+  private static final int RING_CAPACITY_BYTES = 8 * 1024 * 1024;
+  private static final int BLOCK_SIZE_BYTES = 64 * 1024;
+
+  // Start shedding debug keys well before the ring is actually full
+  private static final double DROP_DEBUG_OCCUPANCY = 0.5;
+
+  private static final long MAX_FILE_BYTES = 64L * 1024 * 1024;
+  private static final long MAX_FILE_DURATION_US = 15L * 60 * 1000000;
+
+  private static final long IDLE_SLEEP_MS = 5;
+
+  // Frame length that tells the writer thread to start a new file
+  private static final int ROTATE_MARKER = -1;
+
+  // WPILOG record header with a 4 byte entry ID, 4 byte payload size, and 8 byte timestamp
+  private static final byte RECORD_HEADER = 0x7F;
+  private static final int CONTROL_START = 0;
+  private static final String TIMESTAMP_KEY = "/Timestamp";
+  private static final String ENTRY_METADATA = "{\"source\":\"AdvantageKit\"}";
+  private static final String GZIP_SUFFIX = ".gz";
+
+  private static CompressedLogWriter instance;
+
+  private final String directory;
+  private final TelemetryClassifier classifier;
+  private final Ring ring = new Ring(RING_CAPACITY_BYTES);
+  private final Thread writerThread;
+  private final ExecutorService compressor;
+  private volatile boolean running = false;
+
+  // Only touched from the receiver thread
+  private ByteBuffer scratch = ByteBuffer.allocate(BLOCK_SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+  private Map<String, Integer> entryIds = new HashMap<>();
+  private Map<String, LogValue> lastValues = new HashMap<>();
+  private List<String> pendingEntries = new ArrayList<>();
+  private List<String> pendingKeys = new ArrayList<>();
+  private List<LogValue> pendingValues = new ArrayList<>();
+  private int nextEntryId = 1;
+  private long fileStartUS = -1;
+  private long fileBytes = 0;
+
+  // Only touched from the writer thread
+  private OutputStream output = null;
+  private Path outputPath = null;
+  private int fileIndex = 0;
+  private byte[] block = new byte[BLOCK_SIZE_BYTES];
+  private final byte[] lengthBytes = new byte[4];
+  private boolean failed = false;
+
+  // Metrics written by the receiver and writer threads and read by periodic()
+  private final AtomicLong enqueueTimeNS = new AtomicLong();
+  private final AtomicLong maxEnqueueTimeNS = new AtomicLong();
+  private final AtomicLong maxBlockWriteTimeNS = new AtomicLong();
+  private final AtomicLong droppedDebugValues = new AtomicLong();
+  private final AtomicLong droppedCycles = new AtomicLong();
+  private final AtomicLong writtenBytes = new AtomicLong();
+  private final AtomicLong compressedBytes = new AtomicLong();
+  private final AtomicLong rotations = new AtomicLong();
+
+  private CompressedLogWriter(String directory, TelemetryClassifier classifier) {
+    this.directory = directory;
+    this.classifier = classifier;
+    writerThread = new Thread(this::runWriter, "CompressedLogWriter");
+    writerThread.setDaemon(true);
+    compressor =
+        Executors.newSingleThreadExecutor(
+            (runnable) -> {
+              Thread thread = new Thread(runnable, "LogCompressor");
+              thread.setDaemon(true);
+              thread.setPriority(Thread.MIN_PRIORITY);
+              return thread;
+            });
+  }
+
+  /**
+   * Create the writer, call once before Logger.start() and add the returned writer to the logger
+   *
+   * @param directory Folder to write logs to, for example "/U/logs"
+   * @param classifier Decides which keys are debug data that can be dropped under backpressure
+   */
+  public static CompressedLogWriter create(String directory, TelemetryClassifier classifier) {
+    instance = new CompressedLogWriter(directory, classifier);
+    return instance;
+  }
+
+  /** Returns the writer, or null if logs aren't being written by it */
+  public static CompressedLogWriter getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns a plain WPILOG for a log, decompressing a .wpilog.gz next to itself first if it hasn't
+   * been already. The replay source and AdvantageScope only read plain files
+   *
+   * @param path Path to a .wpilog or .wpilog.gz file
+   */
+  public static String getPlainLog(String path) {
+    if (!path.endsWith(GZIP_SUFFIX)) {
+      return path;
+    }
+    Path plain = Path.of(path.substring(0, path.length() - GZIP_SUFFIX.length()));
+    // A plain copy left next to the .gz is the original whose compression was cut off
+    if (!Files.exists(plain)) {
+      try (InputStream input = new GZIPInputStream(Files.newInputStream(Path.of(path)))) {
+        Files.copy(input, plain);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to decompress " + path, e);
+      }
+    }
+    return plain.toString();
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    writerThread.start();
+  }
+
+  @Override
+  public void end() {
+    running = false;
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    compressor.shutdown();
+  }
+
+  @Override
+  public void putTable(LogTable table) throws InterruptedException {
+    long startNS = System.nanoTime();
+    long timestampUS = table.getTimestamp();
+
+    if (fileStartUS < 0) {
+      fileStartUS = timestampUS;
+    }
+    if ((fileBytes >= MAX_FILE_BYTES || timestampUS - fileStartUS >= MAX_FILE_DURATION_US)
+        && ring.tryWriteMarker(ROTATE_MARKER)) {
+      // The new file has to start every entry again and hold the full state
+      entryIds.clear();
+      lastValues.clear();
+      nextEntryId = 1;
+      fileStartUS = timestampUS;
+      fileBytes = 0;
+      rotations.incrementAndGet();
+    }
+
+    boolean dropDebug = ring.getOccupancy() > DROP_DEBUG_OCCUPANCY;
+    scratch.clear();
+    pendingEntries.clear();
+    pendingKeys.clear();
+    pendingValues.clear();
+
+    int timestampSizePosition =
+        beginRecord(getEntryId(TIMESTAMP_KEY, "int64", timestampUS), timestampUS, 8);
+    scratch.putLong(timestampUS);
+    endRecord(timestampSizePosition);
+
+    for (Map.Entry<String, LogValue> entry : table.getAll(false).entrySet()) {
+      String key = entry.getKey();
+      LogValue value = entry.getValue();
+      if (value.equals(lastValues.get(key))) {
+        continue;
+      }
+      if (dropDebug && classifier.classify(key.substring(1)) == TelemetryClass.DEBUG) {
+        droppedDebugValues.incrementAndGet();
+        continue;
+      }
+
+      // The entry's start record, if it needs one, goes ahead of the value
+      int entryId = getEntryId(key, value.getWPILOGType(), timestampUS);
+      int sizePosition = beginRecord(entryId, timestampUS, estimateSize(value));
+      writePayload(value);
+      endRecord(sizePosition);
+      pendingKeys.add(key);
+      pendingValues.add(value);
+    }
+
+    scratch.flip();
+    if (ring.tryWriteFrame(scratch)) {
+      for (int i = 0; i < pendingKeys.size(); i++) {
+        lastValues.put(pendingKeys.get(i), pendingValues.get(i));
+      }
+      fileBytes += scratch.limit();
+    } else {
+      // Nothing from this cycle made it, so entries started in it have to be started again
+      for (String key : pendingEntries) {
+        entryIds.remove(key);
+      }
+      nextEntryId -= pendingEntries.size();
+      droppedCycles.incrementAndGet();
+    }
+
+    long durationNS = System.nanoTime() - startNS;
+    enqueueTimeNS.addAndGet(durationNS);
+    maxEnqueueTimeNS.accumulateAndGet(durationNS, Math::max);
+  }
+
+  /** Log the write latency and buffer metrics, call once per loop from robotPeriodic() */
+  public void periodic() {
+    Logger.recordOutput("LogWriter/BufferOccupancy", ring.getOccupancy());
+    Logger.recordOutput("LogWriter/MaxEnqueueTimeMS", maxEnqueueTimeNS.getAndSet(0) / 1.0e6);
+    Logger.recordOutput("LogWriter/MaxBlockWriteTimeMS", maxBlockWriteTimeNS.getAndSet(0) / 1.0e6);
+    Logger.recordOutput("LogWriter/TotalEnqueueTimeMS", enqueueTimeNS.get() / 1.0e6);
+    Logger.recordOutput("LogWriter/DroppedDebugValues", droppedDebugValues.get());
+    Logger.recordOutput("LogWriter/DroppedCycles", droppedCycles.get());
+    Logger.recordOutput("LogWriter/WrittenMB", writtenBytes.get() / (1024.0 * 1024.0));
+    Logger.recordOutput("LogWriter/CompressedMB", compressedBytes.get() / (1024.0 * 1024.0));
+    Logger.recordOutput("LogWriter/Rotations", rotations.get());
+  }
+
+  /** Returns the ID of an entry, starting it in this cycle's frame if it's new to the file */
+  private int getEntryId(String key, String type, long timestampUS) {
+    Integer id = entryIds.get(key);
+    if (id != null) {
+      return id;
+    }
+
+    id = nextEntryId++;
+    entryIds.put(key, id);
+    pendingEntries.add(key);
+
+    byte[] name = key.getBytes(StandardCharsets.UTF_8);
+    byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+    byte[] metadata = ENTRY_METADATA.getBytes(StandardCharsets.UTF_8);
+    int sizePosition =
+        beginRecord(0, timestampUS, 17 + name.length + typeBytes.length + metadata.length);
+    scratch.put((byte) CONTROL_START);
+    scratch.putInt(id);
+    scratch.putInt(name.length);
+    scratch.put(name);
+    scratch.putInt(typeBytes.length);
+    scratch.put(typeBytes);
+    scratch.putInt(metadata.length);
+    scratch.put(metadata);
+    endRecord(sizePosition);
+    return id;
+  }
+
+  /** Write a record header with a placeholder size, returns where the size goes */
+  private int beginRecord(int entryId, long timestampUS, int payloadEstimate) {
+    ensureCapacity(17 + payloadEstimate);
+    scratch.put(RECORD_HEADER);
+    scratch.putInt(entryId);
+    int sizePosition = scratch.position();
+    scratch.putInt(0);
+    scratch.putLong(timestampUS);
+    return sizePosition;
+  }
+
+  private void endRecord(int sizePosition) {
+    scratch.putInt(sizePosition, scratch.position() - sizePosition - 12);
+  }
+
+  private void writePayload(LogValue value) {
+    switch (value.type) {
+      case Raw:
+        scratch.put(value.getRaw());
+        break;
+      case Boolean:
+        scratch.put((byte) (value.getBoolean() ? 1 : 0));
+        break;
+      case Integer:
+        scratch.putLong(value.getInteger());
+        break;
+      case Float:
+        scratch.putFloat(value.getFloat());
+        break;
+      case Double:
+        scratch.putDouble(value.getDouble());
+        break;
+      case String:
+        scratch.put(value.getString().getBytes(StandardCharsets.UTF_8));
+        break;
+      case BooleanArray:
+        for (boolean element : value.getBooleanArray()) {
+          scratch.put((byte) (element ? 1 : 0));
+        }
+        break;
+      case IntegerArray:
+        for (long element : value.getIntegerArray()) {
+          scratch.putLong(element);
+        }
+        break;
+      case FloatArray:
+        for (float element : value.getFloatArray()) {
+          scratch.putFloat(element);
+        }
+        break;
+      case DoubleArray:
+        for (double element : value.getDoubleArray()) {
+          scratch.putDouble(element);
+        }
+        break;
+      case StringArray:
+        String[] strings = value.getStringArray();
+        scratch.putInt(strings.length);
+        for (String element : strings) {
+          byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+          ensureCapacity(4 + bytes.length);
+          scratch.putInt(bytes.length);
+          scratch.put(bytes);
+        }
+        break;
+    }
+  }
+
+  /** Upper bound on the payload size, strings are counted at 4 bytes per char */
+  private static int estimateSize(LogValue value) {
+    switch (value.type) {
+      case Raw:
+        return value.getRaw().length;
+      case String:
+        return 4 * value.getString().length();
+      case BooleanArray:
+        return value.getBooleanArray().length;
+      case IntegerArray:
+        return 8 * value.getIntegerArray().length;
+      case FloatArray:
+        return 4 * value.getFloatArray().length;
+      case DoubleArray:
+        return 8 * value.getDoubleArray().length;
+      case StringArray:
+        return 4;
+      default:
+        return 8;
+    }
+  }
+
+  /** Grow the scratch buffer if needed, only happens while the set of keys settles */
+  private void ensureCapacity(int bytes) {
+    if (scratch.remaining() >= bytes) {
+      return;
+    }
+    ByteBuffer grown =
+        ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes))
+            .order(ByteOrder.LITTLE_ENDIAN);
+    scratch.flip();
+    grown.put(scratch);
+    scratch = grown;
+  }
+
+  private void runWriter() {
+    while (true) {
+      boolean stopping = !running;
+      int blockLength = 0;
+
+      // Gather whole frames into a block until it's full or the ring is empty
+      while (ring.getAvailable() > 0) {
+        ring.read(0, lengthBytes, 0, 4);
+        int frameLength =
+            (lengthBytes[0] & 0xFF)
+                | (lengthBytes[1] & 0xFF) << 8
+                | (lengthBytes[2] & 0xFF) << 16
+                | lengthBytes[3] << 24;
+        if (frameLength == ROTATE_MARKER) {
+          writeBlock(blockLength);
+          blockLength = 0;
+          closeFile();
+          ring.release(4);
+          continue;
+        }
+        if (blockLength > 0 && blockLength + frameLength > block.length) {
+          break;
+        }
+        if (frameLength > block.length) {
+          block = new byte[frameLength];
+        }
+        ring.read(4, block, blockLength, frameLength);
+        ring.release(4 + frameLength);
+        blockLength += frameLength;
+      }
+
+      writeBlock(blockLength);
+      if (stopping && ring.getAvailable() == 0) {
+        closeFile();
+        return;
+      }
+      if (blockLength == 0) {
+        try {
+          Thread.sleep(IDLE_SLEEP_MS);
+        } catch (InterruptedException e) {
+          closeFile();
+          return;
+        }
+      }
+    }
+  }
+
+  private void writeBlock(int length) {
+    if (length == 0 || failed) {
+      return;
+    }
+
+    long startNS = System.nanoTime();
+    try {
+      if (output == null) {
+        openFile();
+      }
+      output.write(block, 0, length);
+      output.flush();
+    } catch (IOException e) {
+      failed = true;
+      DriverStation.reportError("Failed to write log: " + e.getMessage(), false);
+      return;
+    }
+    maxBlockWriteTimeNS.accumulateAndGet(System.nanoTime() - startNS, Math::max);
+  }
+
+  private void openFile() throws IOException {
+    Files.createDirectories(Path.of(directory));
+    String name =
+        "akit_"
+            + new SimpleDateFormat("yy-MM-dd_HH-mm-ss").format(new Date())
+            + "_"
+            + fileIndex++
+            + ".wpilog";
+    outputPath = Path.of(directory, name);
+    output =
+        new CountingOutputStream(
+            new BufferedOutputStream(new FileOutputStream(outputPath.toFile()), BLOCK_SIZE_BYTES));
+
+    // WPILOG header, version 1.0 with an extra header string
+    byte[] extraHeader = "AdvantageKit".getBytes(StandardCharsets.UTF_8);
+    ByteBuffer header = ByteBuffer.allocate(12 + extraHeader.length).order(ByteOrder.LITTLE_ENDIAN);
+    header.put("WPILOG".getBytes(StandardCharsets.US_ASCII));
+    header.putShort((short) 0x0100);
+    header.putInt(extraHeader.length);
+    header.put(extraHeader);
+    output.write(header.array());
+  }
+
+  private void closeFile() {
+    if (output == null) {
+      return;
+    }
+    try {
+      output.close();
+    } catch (IOException e) {
+      DriverStation.reportError("Failed to close log: " + e.getMessage(), false);
+    }
+    output = null;
+
+    Path closedPath = outputPath;
+    compressor.execute(() -> compress(closedPath));
+  }
+
+  /** Gzip a closed log, the plain file is only deleted once the .gz is complete */
+  private void compress(Path plain) {
+    Path compressed = Path.of(plain.toString() + GZIP_SUFFIX);
+    try {
+      try (InputStream input = new BufferedInputStream(Files.newInputStream(plain));
+          OutputStream gzip =
+              new GZIPOutputStream(Files.newOutputStream(compressed), BLOCK_SIZE_BYTES)) {
+        input.transferTo(gzip);
+      }
+      compressedBytes.addAndGet(Files.size(compressed));
+      Files.delete(plain);
+    } catch (IOException e) {
+      DriverStation.reportWarning(
+          "Failed to compress " + plain.getFileName() + ", keeping it plain: " + e.getMessage(),
+          false);
+      try {
+        Files.deleteIfExists(compressed);
+      } catch (IOException deleteError) {
+        // Replay prefers the plain file anyway
+      }
+    }
+  }
+
+  /** Counts the bytes that reach the file */
+  private class CountingOutputStream extends OutputStream {
+    private final OutputStream out;
+
+    private CountingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      writtenBytes.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      writtenBytes.addAndGet(len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Single producer single consumer byte ring in direct memory. Frames are a little endian length
+   * followed by that many bytes, and may wrap around the end of the buffer
+   */
+  private static class Ring {
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final byte[] markerBytes = new byte[4];
+
+    // Absolute positions, only ever increase
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private Ring(int capacity) {
+      this.capacity = capacity;
+      buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    double getOccupancy() {
+      return (double) getAvailable() / capacity;
+    }
+
+    long getAvailable() {
+      return tail.get() - head.get();
+    }
+
+    /** Returns false without writing anything if the frame doesn't fit */
+    boolean tryWriteFrame(ByteBuffer frame) {
+      int length = frame.remaining();
+      if (capacity - getAvailable() < 4 + length) {
+        return false;
+      }
+      long position = tail.get();
+      putLength(position, length);
+      put(position + 4, frame.array(), frame.arrayOffset() + frame.position(), length);
+      tail.set(position + 4 + length);
+      return true;
+    }
+
+    boolean tryWriteMarker(int marker) {
+      if (capacity - getAvailable() < 4) {
+        return false;
+      }
+      long position = tail.get();
+      putLength(position, marker);
+      tail.set(position + 4);
+      return true;
+    }
+
+    /** Copy bytes starting at an offset from the head, the consumer must not read past the tail */
+    void read(int offset, byte[] destination, int destinationOffset, int length) {
+      int index = (int) ((head.get() + offset) % capacity);
+      int firstLength = Math.min(length, capacity - index);
+      buffer.get(index, destination, destinationOffset, firstLength);
+      buffer.get(0, destination, destinationOffset + firstLength, length - firstLength);
+    }
+
+    void release(int length) {
+      head.set(head.get() + length);
+    }
+
+    private void putLength(long position, int length) {
+      markerBytes[0] = (byte) length;
+      markerBytes[1] = (byte) (length >> 8);
+      markerBytes[2] = (byte) (length >> 16);
+      markerBytes[3] = (byte) (length >> 24);
+      put(position, markerBytes, 0, 4);
+    }
+
+    private void put(long position, byte[] source, int sourceOffset, int length) {
+      int index = (int) (position % capacity);
+      int firstLength = Math.min(length, capacity - index);
+      buffer.put(index, source, sourceOffset, firstLength);
+      buffer.put(0, source, sourceOffset + firstLength, length - firstLength);
+    }
+  }
+}
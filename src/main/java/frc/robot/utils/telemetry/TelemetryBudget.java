@@ -0,0 +1,191 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.telemetry;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Rate limits what goes over the radio. Every logged key belongs to a telemetry class with a target
+ * rate, and the wrapped receiver (normally the NT4Publisher) only gets a key on the cycles its
+ * class is due. Receivers added directly to the logger, like the log writer, still get every
+ * key every cycle. The bytes offered and published for each class and the time spent publishing
+ * are logged so the budget can be tuned
+ */
+public class TelemetryBudget implements LogDataReceiver {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+
+  // Rates are measured over this window so a single slow cycle doesn't dominate
+  private static final double RATE_WINDOW_SECS = 1.0;
+
+  /** How important a key is to someone watching live, and how often it's published */
+  public static enum TelemetryClass {
+    /** Needed to drive or debug a match live */
+    CRITICAL(50.0),
+    /** Mechanism state and setpoints */
+    DIAGNOSTIC(10.0),
+    /** Controller internals and anything only useful in the log file */
+    DEBUG(2.0);
+
+    private final int periodCycles;
+
+    TelemetryClass(double hz) {
+      periodCycles = Math.max(1, (int) Math.round(1.0 / (hz * LOOP_PERIOD_SECS)));
+    }
+  }
+
+  private static final TelemetryClass[] CLASSES = TelemetryClass.values();
+
+  private static TelemetryBudget instance;
+
+  private final LogDataReceiver publisher;
+  private final TelemetryClassifier classifier;
+
+  private long cycle = 0;
+
+  // Running totals written by the receiver thread and read by periodic()
+  private final AtomicLongArray offeredBytes = new AtomicLongArray(CLASSES.length);
+  private final AtomicLongArray publishedBytes = new AtomicLongArray(CLASSES.length);
+  private final AtomicLongArray publishTimeNS = new AtomicLongArray(1);
+
+  private final String[] offeredKeys = new String[CLASSES.length];
+  private final String[] publishedKeys = new String[CLASSES.length];
+  private final long[] lastOfferedBytes = new long[CLASSES.length];
+  private final long[] lastPublishedBytes = new long[CLASSES.length];
+  private long lastPublishTimeNS = 0;
+  private long lastRateUpdateUS = 0;
+  private boolean rateInitialized = false;
+
+  private TelemetryBudget(LogDataReceiver publisher, TelemetryClassifier classifier) {
+    this.publisher = publisher;
+    this.classifier = classifier;
+    for (int i = 0; i < CLASSES.length; i++) {
+      offeredKeys[i] = "Telemetry/" + CLASSES[i].name() + "/OfferedBytesPerSecond";
+      publishedKeys[i] = "Telemetry/" + CLASSES[i].name() + "/PublishedBytesPerSecond";
+    }
+  }
+
+  /**
+   * Create the budget around the receiver that sends data over the network, call once before
+   * Logger.start() and add the returned budget to the logger in place of the receiver
+   *
+   * @param publisher Receiver to rate limit, normally an NT4Publisher
+   * @param classifier Decides the class of each key
+   */
+  public static TelemetryBudget wrap(LogDataReceiver publisher, TelemetryClassifier classifier) {
+    instance = new TelemetryBudget(publisher, classifier);
+    return instance;
+  }
+
+  /** Returns the budget, or null if nothing is being published over the network */
+  public static TelemetryBudget getInstance() {
+    return instance;
+  }
+
+  @Override
+  public void start() {
+    publisher.start();
+  }
+
+  @Override
+  public void end() {
+    publisher.end();
+  }
+
+  @Override
+  public void putTable(LogTable table) throws InterruptedException {
+    long startNS = System.nanoTime();
+
+    LogTable decimated = new LogTable(table.getTimestamp());
+    for (Map.Entry<String, LogValue> entry : table.getAll(false).entrySet()) {
+      // Full keys start with the root table's "/"
+      String key = entry.getKey().substring(1);
+      TelemetryClass telemetryClass = classifier.classify(key);
+      long bytes = getSerializedSize(key, entry.getValue());
+
+      offeredBytes.addAndGet(telemetryClass.ordinal(), bytes);
+      if (cycle % telemetryClass.periodCycles == 0) {
+        publishedBytes.addAndGet(telemetryClass.ordinal(), bytes);
+        decimated.put(key, entry.getValue());
+      }
+    }
+    cycle++;
+
+    publisher.putTable(decimated);
+    publishTimeNS.addAndGet(0, System.nanoTime() - startNS);
+  }
+
+  /** Log the measured rates, call once per loop from robotPeriodic() */
+  public void periodic() {
+    long nowUS = Logger.getRealTimestamp();
+    if (!rateInitialized) {
+      lastRateUpdateUS = nowUS;
+      rateInitialized = true;
+      return;
+    }
+
+    double windowSecs = (nowUS - lastRateUpdateUS) / 1.0e6;
+    if (windowSecs < RATE_WINDOW_SECS) {
+      return;
+    }
+
+    double totalPublishedBytesPerSecond = 0.0;
+    for (int i = 0; i < CLASSES.length; i++) {
+      long offered = offeredBytes.get(i);
+      long published = publishedBytes.get(i);
+      double publishedBytesPerSecond = (published - lastPublishedBytes[i]) / windowSecs;
+      Logger.recordOutput(offeredKeys[i], (offered - lastOfferedBytes[i]) / windowSecs);
+      Logger.recordOutput(publishedKeys[i], publishedBytesPerSecond);
+      totalPublishedBytesPerSecond += publishedBytesPerSecond;
+      lastOfferedBytes[i] = offered;
+      lastPublishedBytes[i] = published;
+    }
+    Logger.recordOutput("Telemetry/PublishedBytesPerSecond", totalPublishedBytesPerSecond);
+
+    long totalPublishTimeNS = publishTimeNS.get(0);
+    Logger.recordOutput(
+        "Telemetry/PublishTimeMSPerSecond",
+        (totalPublishTimeNS - lastPublishTimeNS) / 1.0e6 / windowSecs);
+    lastPublishTimeNS = totalPublishTimeNS;
+    lastRateUpdateUS = nowUS;
+  }
+
+  /** Approximate bytes the value takes on the wire, the key itself is only sent on announce */
+  private static long getSerializedSize(String key, LogValue value) {
+    switch (value.type) {
+      case Boolean:
+        return 1;
+      case Integer:
+      case Double:
+        return 8;
+      case Float:
+        return 4;
+      case String:
+        return value.getString().length();
+      case Raw:
+        return value.getRaw().length;
+      case BooleanArray:
+        return value.getBooleanArray().length;
+      case IntegerArray:
+        return 8L * value.getIntegerArray().length;
+      case FloatArray:
+        return 4L * value.getFloatArray().length;
+      case DoubleArray:
+        return 8L * value.getDoubleArray().length;
+      case StringArray:
+        long bytes = 0;
+        for (String string : value.getStringArray()) {
+          bytes += string.length();
+        }
+        return bytes;
+      default:
+        return key.length();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.telemetry;
+
+import frc.robot.utils.telemetry.TelemetryBudget.TelemetryClass;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps logged keys to telemetry classes by prefix. Shared by the data receivers so the NT budget
+ * and the log writer agree on what counts as debug data. Receivers all run on the logger's receiver
+ * thread one after another, so the cache doesn't need to be synchronized
+ */
+public class TelemetryClassifier {
+  // Output and metadata roots are stripped so one rule covers a subsystem's inputs and outputs
+  private static final String[] ROOT_PREFIXES = {
+    "RealOutputs/", "ReplayOutputs/", "RealMetadata/", "ReplayMetadata/"
+  };
+
+  private List<String> rulePrefixes = new ArrayList<>();
+  private List<TelemetryClass> ruleClasses = new ArrayList<>();
+  private TelemetryClass defaultClass = TelemetryClass.DIAGNOSTIC;
+
+  // Keys are resolved once and then cached
+  private Map<String, TelemetryClass> keyClasses = new HashMap<>();
+
+  /**
+   * Put every key under a prefix in a telemetry class, the longest matching prefix wins. Must be
+   * called before Logger.start()
+   *
+   * @param prefix Key prefix without the output root, for example "Drive/HeadingController"
+   * @param telemetryClass Class the keys belong to
+   */
+  public TelemetryClassifier declare(String prefix, TelemetryClass telemetryClass) {
+    rulePrefixes.add(prefix);
+    ruleClasses.add(telemetryClass);
+    return this;
+  }
+
+  /** Class for keys that don't match any declared prefix */
+  public TelemetryClassifier setDefaultClass(TelemetryClass telemetryClass) {
+    defaultClass = telemetryClass;
+    return this;
+  }
+
+  /**
+   * Returns the class of a key
+   *
+   * @param key Full key without the leading "/", for example "RealOutputs/Drive/Swerve/Measured"
+   */
+  public TelemetryClass classify(String key) {
+    TelemetryClass telemetryClass = keyClasses.get(key);
+    if (telemetryClass == null) {
+      telemetryClass = resolve(key);
+      keyClasses.put(key, telemetryClass);
+    }
+    return telemetryClass;
+  }
+
+  private TelemetryClass resolve(String key) {
+    String strippedKey = key;
+    for (String root : ROOT_PREFIXES) {
+      if (key.startsWith(root)) {
+        strippedKey = key.substring(root.length());
+        break;
+      }
+    }
+
+    TelemetryClass telemetryClass = defaultClass;
+    int longestMatch = -1;
+    for (int i = 0; i < rulePrefixes.size(); i++) {
+      String prefix = rulePrefixes.get(i);
+      if (prefix.length() > longestMatch
+          && (strippedKey.startsWith(prefix) || key.startsWith(prefix))) {
+        telemetryClass = ruleClasses.get(i);
+        longestMatch = prefix.length();
+      }
+    }
+    return telemetryClass;
+  }
+}
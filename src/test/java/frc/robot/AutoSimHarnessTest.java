@@ -0,0 +1,36 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import frc.robot.tools.AutoSimHarness;
+import frc.robot.tools.AutoSimHarness.AutoResult;
+import java.util.List;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Every auto in the deploy folder has to finish inside the autonomous period in sim */
+class AutoSimHarnessTest {
+  private static final double AUTO_LENGTH_SECS = 15.0;
+
+  static List<String> autoNames() {
+    // Builds the robot first, so AutoBuilder is configured before the autos are listed
+    AutoSimHarness.getInstance();
+    List<String> names = AutoBuilder.getAllAutoNames();
+    assertFalse(names.isEmpty(), "No autos in the deploy folder");
+    return names;
+  }
+
+  @ParameterizedTest
+  @MethodSource("autoNames")
+  void finishesInAuto(String autoName) {
+    AutoResult result = AutoSimHarness.getInstance().runAuto(autoName);
+    assertTrue(result.finished, result.toString());
+    assertTrue(result.endTimeSecs <= AUTO_LENGTH_SECS, result.toString());
+  }
+}
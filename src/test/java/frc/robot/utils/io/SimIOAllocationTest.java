@@ -0,0 +1,133 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.utils.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.climb.ClimbIOInputsAutoLogged;
+import frc.robot.subsystems.climb.ClimbIOSim;
+import frc.robot.subsystems.drive.GyroIOInputsAutoLogged;
+import frc.robot.subsystems.drive.GyroIOSim;
+import frc.robot.subsystems.drive.ModuleIOInputsAutoLogged;
+import frc.robot.subsystems.drive.ModuleIOSim;
+import frc.robot.subsystems.indexer.IndexerIOInputsAutoLogged;
+import frc.robot.subsystems.indexer.IndexerIOSim;
+import frc.robot.subsystems.intake.IntakeIOInputsAutoLogged;
+import frc.robot.subsystems.intake.IntakeIOSim;
+import frc.robot.subsystems.shooter.angler.AnglerIOInputsAutoLogged;
+import frc.robot.subsystems.shooter.angler.AnglerIOSim;
+import frc.robot.subsystems.shooter.launcher.LauncherIOInputsAutoLogged;
+import frc.robot.subsystems.shooter.launcher.LauncherIOSim;
+import frc.robot.subsystems.yoshivator.manipulator.ManipulatorIOInputsAutoLogged;
+import frc.robot.subsystems.yoshivator.manipulator.ManipulatorIOSim;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Sim IOs have to sample without allocating once warmed up, the same budget IOSampler enforces */
+class SimIOAllocationTest {
+  // Enough calls for the JIT to compile updateInputs() and everything it calls
+  private static final int WARMUP_LOOPS = 20000;
+  private static final int MEASURED_LOOPS = 1000;
+
+  private static com.sun.management.ThreadMXBean threadBean;
+
+  @BeforeAll
+  static void setup() {
+    assertTrue(HAL.initialize(500, 0));
+
+    assumeTrue(
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+        "JVM can't measure thread allocation");
+    threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "JVM can't measure allocation");
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  void gyroIOSim() {
+    GyroIOSim io = new GyroIOSim();
+    GyroIOInputsAutoLogged inputs = new GyroIOInputsAutoLogged();
+    assertAllocationFree("GyroIOSim", () -> io.updateInputs(inputs));
+  }
+
+  @Test
+  void moduleIOSim() {
+    ModuleIOSim io = new ModuleIOSim(0);
+    ModuleIOInputsAutoLogged inputs = new ModuleIOInputsAutoLogged();
+    io.setDriveVolts(6.0);
+    io.setAzimuthVolts(2.0);
+    assertAllocationFree("ModuleIOSim", () -> io.updateInputs(inputs));
+  }
+
+  @Test
+  void anglerIOSim() {
+    AnglerIOSim io = new AnglerIOSim();
+    AnglerIOInputsAutoLogged inputs = new AnglerIOInputsAutoLogged();
+    io.setVolts(2.0);
+    assertAllocationFree("AnglerIOSim", () -> io.updateInputs(inputs));
+  }
+
+  @Test
+  void launcherIOSim() {
+    LauncherIOSim io = new LauncherIOSim();
+    LauncherIOInputsAutoLogged inputs = new LauncherIOInputsAutoLogged();
+    io.setTopVolts(6.0);
+    io.setBottomVolts(6.0);
+    assertAllocationFree("LauncherIOSim", () -> io.updateInputs(inputs));
+  }
+
+  @Test
+  void intakeIOSim() {
+    IntakeIOSim io = new IntakeIOSim();
+    IntakeIOInputsAutoLogged inputs = new IntakeIOInputsAutoLogged();
+    io.setVolts(6.0);
+    assertAllocationFree("IntakeIOSim", () -> io.updateInputs(inputs));
+  }
+
+  @Test
+  void indexerIOSim() {
+    IndexerIOSim io = new IndexerIOSim();
+    IndexerIOInputsAutoLogged inputs = new IndexerIOInputsAutoLogged();
+    io.setVolts(6.0);
+    assertAllocationFree("IndexerIOSim", () -> io.updateInputs(inputs));
+  }
+
+  @Test
+  void climbIOSim() {
+    ClimbIOSim io = new ClimbIOSim();
+    ClimbIOInputsAutoLogged inputs = new ClimbIOInputsAutoLogged();
+    io.setLeftVolts(2.0);
+    io.setRightVolts(2.0);
+    assertAllocationFree("ClimbIOSim", () -> io.updateInputs(inputs));
+  }
+
+  @Test
+  void manipulatorIOSim() {
+    ManipulatorIOSim io = new ManipulatorIOSim();
+    ManipulatorIOInputsAutoLogged inputs = new ManipulatorIOInputsAutoLogged();
+    io.setPivotVolts(2.0);
+    io.setRollerVolts(6.0);
+    assertAllocationFree("ManipulatorIOSim", () -> io.updateInputs(inputs));
+  }
+
+  private static void assertAllocationFree(String name, Runnable updateInputs) {
+    for (int i = 0; i < WARMUP_LOOPS; i++) {
+      updateInputs.run();
+    }
+
+    long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < MEASURED_LOOPS; i++) {
+      updateInputs.run();
+    }
+    long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+
+    assertEquals(
+        0, allocatedBytes, name + ".updateInputs() allocated over " + MEASURED_LOOPS + " calls");
+  }
+}